@@ -19,6 +19,7 @@
 package org.apache.olingo.fit.tecsvc.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -69,6 +70,67 @@ public class SystemQueryOptionITCase extends AbstractParamTecSvcITCase {
     assertEquals(Integer.valueOf(503), response.getBody().getCount());
   }
 
+  @Test
+  public void serverSidePagingCountWithSkipAndSnapshot() {
+    ODataEntitySetRequest<ClientEntitySet> request = getClient().getRetrieveRequestFactory()
+        .getEntitySetRequest(getClient().newURIBuilder(SERVICE_URI)
+            .appendEntitySetSegment(ES_SERVER_SIDE_PAGING)
+            .count(true)
+            .skip(485)
+            .build());
+    request.addCustomHeader(HttpHeader.ODATA_ISOLATION, "snapshot");
+    setCookieHeader(request);
+    ODataRetrieveResponse<ClientEntitySet> response = request.execute();
+    saveCookieHeader(response);
+
+    assertEquals(10, response.getBody().getEntities().size());
+    assertEquals(Integer.valueOf(503), response.getBody().getCount());
+    final URI nextLink = response.getBody().getNext();
+    assertNotNull(nextLink);
+
+    // The follow-up page is read from the snapshot and still has the count of the whole collection.
+    request = getClient().getRetrieveRequestFactory().getEntitySetRequest(nextLink);
+    setCookieHeader(request);
+    response = request.execute();
+    saveCookieHeader(response);
+
+    assertEquals(8, response.getBody().getEntities().size());
+    assertEquals(Integer.valueOf(503), response.getBody().getCount());
+    assertNull(response.getBody().getNext());
+  }
+
+  @Test
+  public void serverSidePagingWithTrackChanges() {
+    ODataEntitySetRequest<ClientEntitySet> request = getClient().getRetrieveRequestFactory()
+        .getEntitySetRequest(getClient().newURIBuilder(SERVICE_URI)
+            .appendEntitySetSegment(ES_SERVER_SIDE_PAGING)
+            .select(PROPERTY_INT16)
+            .skip(485)
+            .build());
+    request.setPrefer(getClient().newPreferences().trackChanges());
+    setCookieHeader(request);
+    ODataRetrieveResponse<ClientEntitySet> response = request.execute();
+    saveCookieHeader(response);
+
+    assertEquals(10, response.getBody().getEntities().size());
+    assertNull(response.getBody().getDeltaLink());
+    final URI nextLink = response.getBody().getNext();
+    assertNotNull(nextLink);
+
+    // The delta link is returned with the last page and keeps the defining $select.
+    request = getClient().getRetrieveRequestFactory().getEntitySetRequest(nextLink);
+    setCookieHeader(request);
+    response = request.execute();
+    saveCookieHeader(response);
+
+    assertEquals(8, response.getBody().getEntities().size());
+    assertNull(response.getBody().getNext());
+    final URI deltaLink = response.getBody().getDeltaLink();
+    assertNotNull(deltaLink);
+    assertTrue(deltaLink.toString().contains("$deltatoken="));
+    assertTrue(deltaLink.toString().contains("$select=" + PROPERTY_INT16));
+  }
+
   @Test
   public void topSimple() {
     ODataEntitySetRequest<ClientEntitySet> request = getClient().getRetrieveRequestFactory()
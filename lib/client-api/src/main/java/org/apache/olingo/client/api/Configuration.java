@@ -19,7 +19,9 @@
 package org.apache.olingo.client.api;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
+import org.apache.olingo.client.api.edm.MetadataCache;
 import org.apache.olingo.client.api.http.HttpClientFactory;
 import org.apache.olingo.client.api.http.HttpUriRequestFactory;
 import org.apache.olingo.commons.api.format.ContentType;
@@ -266,4 +268,51 @@ public interface Configuration {
    * @param executorService new executor services.
    */
   void setExecutor(ExecutorService executorService);
+
+  /**
+   * Retrieves the scheduler used to delay asynchronous monitor checks by the 'Retry-After' interval.
+   * <br />
+   * Scheduled tasks only hand the next check over to the request executor service, so a single thread is
+   * sufficient for any number of pending asynchronous requests.
+   *
+   * @return scheduler for delayed tasks.
+   */
+  ScheduledExecutorService getScheduledExecutor();
+
+  /**
+   * Sets the scheduler used to delay asynchronous monitor checks.
+   *
+   * @param scheduledExecutorService new scheduler.
+   */
+  void setScheduledExecutor(ScheduledExecutorService scheduledExecutorService);
+
+  /**
+   * Gets the cache used by EDM-enabled clients for the CSDL metadata of services.
+   *
+   * @return the configured metadata cache; <tt>null</tt> if metadata is not cached across clients
+   */
+  MetadataCache getMetadataCache();
+
+  /**
+   * Sets the cache used by EDM-enabled clients for the CSDL metadata of services.
+   *
+   * @param metadataCache metadata cache; <tt>null</tt> to disable caching
+   * @see MetadataCache
+   */
+  void setMetadataCache(MetadataCache metadataCache);
+
+  /**
+   * Gets the maximum number of bytes of a request body written through a body stream writer (e.g., a batch body)
+   * that are kept in memory until the request is executed; larger bodies are buffered in a temporary file.
+   *
+   * @return maximum number of bytes kept in memory; default 1 MB
+   */
+  int getMaxInMemoryBodySize();
+
+  /**
+   * Sets the maximum number of bytes of a request body kept in memory until the request is executed.
+   *
+   * @param size maximum number of bytes kept in memory
+   */
+  void setMaxInMemoryBodySize(int size);
 }
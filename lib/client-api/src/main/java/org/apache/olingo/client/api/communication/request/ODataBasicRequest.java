@@ -21,6 +21,7 @@ package org.apache.olingo.client.api.communication.request;
 import java.util.concurrent.Future;
 
 import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponseCallback;
 import org.apache.olingo.commons.api.format.ContentType;
 
 /**
@@ -44,6 +45,18 @@ public interface ODataBasicRequest<T extends ODataResponse> extends ODataRequest
    */
   Future<T> asyncExecute();
 
+  /**
+   * Async request execute, notifying the given callback on completion.
+   * <br />
+   * The callback is invoked by the thread that completed the request, after the returned <code>Future</code>
+   * has been completed; threads waiting on the <code>Future</code> may thus be released before the callback
+   * has been notified.
+   *
+   * @param callback callback to be notified; can be <tt>null</tt>.
+   * @return <code>Future&lt;ODataResponse&gt;</code> about the executed request.
+   */
+  Future<T> asyncExecute(ODataResponseCallback<T> callback);
+
   /**
    * Override configured request Content-Type.
    *
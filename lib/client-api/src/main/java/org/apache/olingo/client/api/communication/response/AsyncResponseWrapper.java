@@ -19,6 +19,7 @@
 package org.apache.olingo.client.api.communication.response;
 
 import java.net.URI;
+import java.util.concurrent.Future;
 
 public interface AsyncResponseWrapper<R extends ODataResponse> {
 
@@ -48,6 +49,17 @@ public interface AsyncResponseWrapper<R extends ODataResponse> {
    */
   R getODataResponse();
 
+  /**
+   * Gets the real response without blocking the calling thread.
+   * <br />
+   * Behaves like {@link #getODataResponse()}, but the delay between monitor checks is scheduled via the configured
+   * scheduler instead of keeping a thread asleep; each monitor check is executed by the configured executor service.
+   *
+   * @param callback callback to be notified about the real response or the failure; can be <tt>null</tt>.
+   * @return <code>Future</code> about the real OData response.
+   */
+  Future<R> asyncGetODataResponse(ODataResponseCallback<R> callback);
+
   /**
    * Specifies the location for the next monitor check.
    * <br />
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.api.edm;
+
+/**
+ * Cache for the <tt>$metadata</tt> documents of services, keyed by service root and metadata ETag.
+ * <p>
+ * An EDM-enabled client configured with a metadata cache builds its <tt>Edm</tt> by parsing the cached document
+ * instead of downloading it again, as long as the cached version is valid: if the client asks for a specific
+ * metadata ETag, the cached version must have that ETag; otherwise the cached version must not be older than the
+ * maximum age of the cache. Documents referencing other documents are not cached.
+ * Implementations must be thread-safe, since a cache is typically shared between clients.
+ */
+public interface MetadataCache {
+
+  /**
+   * Gets the cached <tt>$metadata</tt> document of the given service.
+   *
+   * @param serviceRoot service root
+   * @param metadataETag metadata ETag the cached document must match; <tt>null</tt> if unknown, in which case
+   * only a document not older than the maximum age of the cache is returned
+   * @return the XML document, or <tt>null</tt> if there is no valid cached document
+   */
+  byte[] getMetadata(String serviceRoot, String metadataETag);
+
+  /**
+   * Gets the metadata ETag of the cached document of the given service.
+   *
+   * @param serviceRoot service root
+   * @return the metadata ETag, or <tt>null</tt> if there is no cached document or it has no ETag
+   */
+  String getMetadataETag(String serviceRoot);
+
+  /**
+   * Puts the <tt>$metadata</tt> document of the given service into the cache,
+   * replacing any previously cached version.
+   *
+   * @param serviceRoot service root
+   * @param metadataETag metadata ETag of the document; can be <tt>null</tt>
+   * @param metadata the XML document
+   * @throws IllegalStateException if the document cannot be stored
+   */
+  void putMetadata(String serviceRoot, String metadataETag, byte[] metadata);
+
+  /**
+   * Removes the cached document of the given service.
+   *
+   * @param serviceRoot service root
+   */
+  void evict(String serviceRoot);
+}
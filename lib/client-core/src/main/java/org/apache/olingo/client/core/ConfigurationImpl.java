@@ -22,8 +22,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.olingo.client.api.Configuration;
+import org.apache.olingo.client.api.edm.MetadataCache;
 import org.apache.olingo.client.api.http.HttpClientFactory;
 import org.apache.olingo.client.api.http.HttpUriRequestFactory;
 import org.apache.olingo.client.core.http.DefaultHttpClientFactory;
@@ -58,10 +61,18 @@ public class ConfigurationImpl implements Configuration {
 
   private static final String CONTINUE_ON_ERROR = "continueOnError";
 
+  private static final String METADATA_CACHE = "metadataCache";
+
+  private static final String MAX_IN_MEMORY_BODY_SIZE = "maxInMemoryBodySize";
+
+  private static final int DEFAULT_MAX_IN_MEMORY_BODY_SIZE = 1024 * 1024;
+
   private final Map<String, Object> CONF = new HashMap<String, Object>();
 
   private transient ExecutorService executor = Executors.newFixedThreadPool(10);
 
+  private transient ScheduledExecutorService scheduledExecutor;
+
   /**
    * Gets given configuration property.
    *
@@ -229,4 +240,44 @@ public class ConfigurationImpl implements Configuration {
   public void setExecutor(final ExecutorService executorService) {
     executor = executorService;
   }
+
+  @Override
+  public synchronized ScheduledExecutorService getScheduledExecutor() {
+    if (scheduledExecutor == null) {
+      scheduledExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+          final Thread thread = new Thread(runnable, "olingo-client-scheduler");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return scheduledExecutor;
+  }
+
+  @Override
+  public synchronized void setScheduledExecutor(final ScheduledExecutorService scheduledExecutorService) {
+    scheduledExecutor = scheduledExecutorService;
+  }
+
+  @Override
+  public MetadataCache getMetadataCache() {
+    return (MetadataCache) getProperty(METADATA_CACHE, null);
+  }
+
+  @Override
+  public void setMetadataCache(final MetadataCache metadataCache) {
+    setProperty(METADATA_CACHE, metadataCache);
+  }
+
+  @Override
+  public int getMaxInMemoryBodySize() {
+    return (Integer) getProperty(MAX_IN_MEMORY_BODY_SIZE, DEFAULT_MAX_IN_MEMORY_BODY_SIZE);
+  }
+
+  @Override
+  public void setMaxInMemoryBodySize(final int size) {
+    setProperty(MAX_IN_MEMORY_BODY_SIZE, size);
+  }
 }
@@ -18,14 +18,28 @@
  */
 package org.apache.olingo.client.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
 import org.apache.olingo.client.api.EdmEnabledODataClient;
 import org.apache.olingo.client.api.communication.request.invoke.EdmEnabledInvokeRequestFactory;
 import org.apache.olingo.client.api.communication.request.retrieve.EdmMetadataRequest;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataRawRequest;
+import org.apache.olingo.client.api.communication.request.retrieve.XMLMetadataRequest;
+import org.apache.olingo.client.api.communication.response.ODataRawResponse;
 import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.edm.MetadataCache;
+import org.apache.olingo.client.api.edm.xml.XMLMetadata;
 import org.apache.olingo.client.api.uri.URIBuilder;
 import org.apache.olingo.client.core.communication.request.invoke.EdmEnabledInvokeRequestFactoryImpl;
 import org.apache.olingo.client.core.uri.URIBuilderImpl;
 import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
 
 public class EdmEnabledODataClientImpl extends ODataClientImpl implements EdmEnabledODataClient {
 
@@ -54,15 +68,60 @@ public class EdmEnabledODataClientImpl extends ODataClientImpl implements EdmEna
   public Edm getEdm(final String metadataETag) {
     synchronized (this) {
       if (this.edm == null || (metadataETag != null && !metadataETag.equals(this.metadataETag))) {
-        final EdmMetadataRequest metadataReq = getRetrieveRequestFactory().getMetadataRequest(serviceRoot);
-        final ODataRetrieveResponse<Edm> metadataRes = metadataReq.execute();
-        this.metadataETag = metadataRes.getETag();
-        this.edm = metadataRes.getBody();
+        final MetadataCache metadataCache = getConfiguration().getMetadataCache();
+        if (metadataCache == null) {
+          final EdmMetadataRequest metadataReq = getRetrieveRequestFactory().getMetadataRequest(serviceRoot);
+          final ODataRetrieveResponse<Edm> metadataRes = metadataReq.execute();
+          this.metadataETag = metadataRes.getETag();
+          this.edm = metadataRes.getBody();
+        } else {
+          this.edm = getReader().readMetadata(getSchemas(metadataCache, metadataETag));
+        }
       }
     }
     return this.edm;
   }
 
+  private Map<String, CsdlSchema> getSchemas(final MetadataCache metadataCache, final String metadataETag) {
+    final byte[] cached = metadataCache.getMetadata(serviceRoot, metadataETag);
+    if (cached != null) {
+      try {
+        final XMLMetadata metadata = getDeserializer(ContentType.APPLICATION_XML)
+            .toMetadata(new ByteArrayInputStream(cached));
+        this.metadataETag = metadataCache.getMetadataETag(serviceRoot);
+        return metadata.getSchemaByNsOrAlias();
+      } catch (final IllegalArgumentException e) {
+        metadataCache.evict(serviceRoot);
+      }
+    }
+
+    final ODataRawRequest request = getRetrieveRequestFactory().getRawRequest(
+        newURIBuilder().appendMetadataSegment().build());
+    request.setFormat(ContentType.APPLICATION_XML.toContentTypeString());
+    final ODataRawResponse response = request.execute();
+    final byte[] document;
+    try {
+      document = IOUtils.toByteArray(response.getRawResponse());
+    } catch (final IOException e) {
+      throw new ODataRuntimeException(e);
+    } finally {
+      response.close();
+    }
+    final XMLMetadata metadata = getDeserializer(ContentType.APPLICATION_XML)
+        .toMetadata(new ByteArrayInputStream(document));
+    if (metadata.getReferences().isEmpty()) {
+      this.metadataETag = response.getETag();
+      metadataCache.putMetadata(serviceRoot, this.metadataETag, document);
+      return metadata.getSchemaByNsOrAlias();
+    } else {
+      // Referenced documents are resolved by the metadata request; the result is not cached.
+      final XMLMetadataRequest metadataReq = getRetrieveRequestFactory().getXMLMetadataRequest(serviceRoot);
+      final ODataRetrieveResponse<XMLMetadata> metadataRes = metadataReq.execute();
+      this.metadataETag = metadataRes.getETag();
+      return metadataRes.getBody().getSchemaByNsOrAlias();
+    }
+  }
+
   @Override
   public Edm getCachedEdm() {
     if (this.edm == null) {
@@ -33,6 +33,7 @@ import org.apache.olingo.client.api.communication.request.ODataBasicRequest;
 import org.apache.olingo.client.api.communication.request.ODataStreamer;
 import org.apache.olingo.client.api.communication.request.batch.ODataBatchRequest;
 import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponseCallback;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpMethod;
 
@@ -68,12 +69,19 @@ public abstract class AbstractODataBasicRequest<T extends ODataResponse>
 
   @Override
   public final Future<T> asyncExecute() {
-    return odataClient.getConfiguration().getExecutor().submit(new Callable<T>() {
+    return asyncExecute(null);
+  }
+
+  @Override
+  public final Future<T> asyncExecute(final ODataResponseCallback<T> callback) {
+    final ODataResponseFuture<T> future = new ODataResponseFuture<T>(new Callable<T>() {
       @Override
       public T call() throws Exception { //NOSONAR
         return execute();
       }
-    });
+    }, callback);
+    odataClient.getConfiguration().getExecutor().execute(future);
+    return future;
   }
 
   /**
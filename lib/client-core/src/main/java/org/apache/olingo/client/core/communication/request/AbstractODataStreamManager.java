@@ -62,23 +62,28 @@ public abstract class AbstractODataStreamManager<T extends ODataResponse> extend
    * @param futureWrap wrapper of the Future object of the HttpResponse.
    */
   public AbstractODataStreamManager(final Wrapper<Future<HttpResponse>> futureWrap) {
-    this(futureWrap, new PipedOutputStream());
+    this(futureWrap, new BufferedBodyOutputStream());
   }
 
   /**
    * Constructor.
    *
    * @param futureWrap wrapper of the Future object of the HttpResponse.
-   * @param output stream to be piped to retrieve the payload.
+   * @param output stream to be piped to retrieve the payload; a {@link BufferedBodyOutputStream} is not piped
+   * but keeps the payload, in memory or in a temporary file, until it is written by the thread executing the request.
    */
   public AbstractODataStreamManager(final Wrapper<Future<HttpResponse>> futureWrap, final PipedOutputStream output) {
     super(output);
 
     this.futureWrap = futureWrap;
-    try {
-      this.body = new PipedInputStream(getBodyStreamWriter());
-    } catch (IOException e) {
-      throw new IllegalStateException(e);
+    if (output instanceof BufferedBodyOutputStream) {
+      this.body = null;
+    } else {
+      try {
+        this.body = new PipedInputStream(getBodyStreamWriter());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
     }
     this.defaultBody = this.body;
   }
@@ -102,6 +107,13 @@ public abstract class AbstractODataStreamManager<T extends ODataResponse> extend
    */
   @Override
   public InputStream getBody() {
+    if (getBodyStreamWriter() instanceof BufferedBodyOutputStream) {
+      try {
+        return ((BufferedBodyOutputStream) getBodyStreamWriter()).getInputStream();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
     return this.body == null ? this.defaultBody : this.body;
   }
 
@@ -115,6 +127,9 @@ public abstract class AbstractODataStreamManager<T extends ODataResponse> extend
 
   /**
    * Gets HttpResponse.
+   * <br />
+   * A deferred request is executed in the calling thread, unless it has been started already;
+   * it is aborted if it has not been completed within the timeout.
    *
    * @param timeout maximum delay after which the request must be aborted.
    * @param unit time unit.
@@ -122,7 +137,11 @@ public abstract class AbstractODataStreamManager<T extends ODataResponse> extend
    */
   protected HttpResponse getHttpResponse(final long timeout, final TimeUnit unit) {
     try {
-      return futureWrap.getWrapped().get(timeout, unit);
+      final Future<HttpResponse> future = futureWrap.getWrapped();
+      if (future instanceof DeferredRequestExecution) {
+        ((DeferredRequestExecution) future).runInCaller(timeout, unit);
+      }
+      return future.get(timeout, unit);
     } catch (Exception e) {
       LOG.error("Failure executing request");
       throw new HttpClientException(e);
@@ -151,6 +170,9 @@ public abstract class AbstractODataStreamManager<T extends ODataResponse> extend
    */
   @Override
   public final Future<T> getAsyncResponse() {
+    if (futureWrap.getWrapped() instanceof DeferredRequestExecution) {
+      ((DeferredRequestExecution) futureWrap.getWrapped()).start();
+    }
     return new Future<T>() {
       @Override
       public boolean cancel(final boolean mayInterruptIfRunning) {
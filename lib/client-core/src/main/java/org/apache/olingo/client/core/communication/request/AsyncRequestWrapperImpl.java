@@ -20,6 +20,9 @@ package org.apache.olingo.client.core.communication.request;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,6 +45,7 @@ import org.apache.olingo.client.api.communication.request.cud.ODataDeleteRequest
 import org.apache.olingo.client.api.communication.response.AsyncResponseWrapper;
 import org.apache.olingo.client.api.communication.response.ODataDeleteResponse;
 import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponseCallback;
 import org.apache.olingo.client.api.http.HttpClientException;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
@@ -221,6 +225,73 @@ public class AsyncRequestWrapperImpl<R extends ODataResponse> extends AbstractRe
       return response;
     }
 
+    @Override
+    public Future<R> asyncGetODataResponse(final ODataResponseCallback<R> callback) {
+      final ODataResponseFuture<R> future = new ODataResponseFuture<R>(callback);
+      if (response == null) {
+        odataClient.getConfiguration().getExecutor().execute(new MonitorCheck(future, 0));
+      } else {
+        future.complete(response);
+      }
+      return future;
+    }
+
+    /**
+     * Single monitor check; instead of sleeping, the next check is scheduled after the 'Retry-After' interval.
+     */
+    private class MonitorCheck implements Runnable {
+
+      private final ODataResponseFuture<R> future;
+
+      private final int attempt;
+
+      MonitorCheck(final ODataResponseFuture<R> future, final int attempt) {
+        this.future = future;
+        this.attempt = attempt;
+      }
+
+      @Override
+      public void run() {
+        if (future.isDone()) {
+          return;
+        }
+
+        try {
+          final HttpResponse res = checkMonitor(location);
+
+          if (res.getStatusLine().getStatusCode() == HttpStatusCode.ACCEPTED.getStatusCode()) {
+            final Header[] headers = res.getHeaders(HttpHeader.RETRY_AFTER);
+            if (ArrayUtils.isNotEmpty(headers)) {
+              retryAfter = Integer.parseInt(headers[0].getValue());
+            }
+            HttpClientUtils.closeQuietly(res);
+
+            if (attempt + 1 < MAX_RETRY) {
+              final MonitorCheck next = new MonitorCheck(future, attempt + 1);
+              odataClient.getConfiguration().getScheduledExecutor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    odataClient.getConfiguration().getExecutor().execute(next);
+                  } catch (final RejectedExecutionException e) {
+                    future.fail(e);
+                  }
+                }
+              }, retryAfter, TimeUnit.SECONDS);
+            } else {
+              future.fail(new ODataClientErrorException(res.getStatusLine()));
+            }
+          } else {
+            location = null;
+            response = instantiateResponse(res);
+            future.complete(response);
+          }
+        } catch (final RuntimeException e) {
+          future.fail(e);
+        }
+      }
+    }
+
     @Override
     public ODataDeleteResponse delete() {
       final ODataDeleteRequest deleteRequest = odataClient.getCUDRequestFactory().getDeleteRequest(location);
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Body stream collecting the payload written to it instead of piping it to a reader thread.
+ * <br />
+ * The payload is kept on the heap up to the configured number of bytes; a larger payload is moved to a
+ * temporary file, which is deleted by {@link #discard()} once the request has been executed.
+ * <br />
+ * It is a {@link PipedOutputStream} only to stay compatible with {@link AbstractODataStreamer#getBodyStreamWriter()};
+ * it can not be connected to a {@link PipedInputStream}.
+ * The collected payload is written to the connection by the entity returned by {@link #getEntity()}
+ * from the thread executing the request.
+ */
+public class BufferedBodyOutputStream extends PipedOutputStream {
+
+  /**
+   * Default maximum number of bytes kept in memory.
+   */
+  public static final int DEFAULT_MAX_IN_MEMORY_SIZE = 1024 * 1024;
+
+  private final int maxInMemorySize;
+
+  private MemoryBuffer memory = new MemoryBuffer();
+
+  private File file;
+
+  private OutputStream fileStream;
+
+  private long size;
+
+  /**
+   * Constructor keeping up to {@link #DEFAULT_MAX_IN_MEMORY_SIZE} bytes in memory.
+   */
+  public BufferedBodyOutputStream() {
+    this(DEFAULT_MAX_IN_MEMORY_SIZE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maxInMemorySize maximum number of bytes kept in memory before the payload is moved to a temporary file
+   */
+  public BufferedBodyOutputStream(final int maxInMemorySize) {
+    this.maxInMemorySize = maxInMemorySize;
+  }
+
+  @Override
+  public void connect(final PipedInputStream snk) throws IOException {
+    throw new IOException("A buffered body stream can not be connected.");
+  }
+
+  @Override
+  public synchronized void write(final int b) throws IOException {
+    getTarget(1).write(b);
+    size++;
+  }
+
+  @Override
+  public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+    getTarget(len).write(b, off, len);
+    size += len;
+  }
+
+  private OutputStream getTarget(final int len) throws IOException {
+    if (fileStream == null && len > maxInMemorySize - memory.size()) {
+      spill();
+    }
+    return fileStream == null ? memory : fileStream;
+  }
+
+  private void spill() throws IOException {
+    file = File.createTempFile("olingo-body", ".tmp");
+    fileStream = new BufferedOutputStream(new FileOutputStream(file));
+    memory.writeTo(fileStream);
+    memory = null;
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (fileStream != null) {
+      fileStream.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the collected payload stays available
+    flush();
+  }
+
+  /**
+   * Gets the number of bytes written so far.
+   *
+   * @return size of the payload
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Gets the payload written so far.
+   *
+   * @return input stream on the payload, without copying it
+   * @throws IOException if the temporary file can not be read
+   */
+  public synchronized InputStream getInputStream() throws IOException {
+    if (fileStream == null) {
+      return memory.getInputStream();
+    }
+    fileStream.flush();
+    return new FileInputStream(file);
+  }
+
+  private synchronized void writeTo(final OutputStream outstream) throws IOException {
+    if (fileStream == null) {
+      memory.writeTo(outstream);
+    } else {
+      fileStream.flush();
+      final InputStream content = new FileInputStream(file);
+      try {
+        IOUtils.copy(content, outstream);
+      } finally {
+        IOUtils.closeQuietly(content);
+      }
+    }
+  }
+
+  /**
+   * Deletes the temporary file, if any; the payload is not available afterwards.
+   */
+  public synchronized void discard() {
+    if (fileStream != null) {
+      IOUtils.closeQuietly(fileStream);
+      if (!file.delete()) {
+        file.deleteOnExit();
+      }
+      fileStream = null;
+      file = null;
+    }
+    memory = new MemoryBuffer();
+    size = 0;
+  }
+
+  /**
+   * Gets an HTTP entity writing the payload directly to the connection.
+   *
+   * @return repeatable HTTP entity with known content length
+   */
+  public AbstractHttpEntity getEntity() {
+    return new AbstractHttpEntity() {
+      @Override
+      public boolean isRepeatable() {
+        return true;
+      }
+
+      @Override
+      public long getContentLength() {
+        return size();
+      }
+
+      @Override
+      public InputStream getContent() throws IOException {
+        return getInputStream();
+      }
+
+      @Override
+      public void writeTo(final OutputStream outstream) throws IOException {
+        BufferedBodyOutputStream.this.writeTo(outstream);
+        outstream.flush();
+      }
+
+      @Override
+      public boolean isStreaming() {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * In-memory buffer giving access to its content without copying it.
+   */
+  private static class MemoryBuffer extends ByteArrayOutputStream {
+    InputStream getInputStream() {
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+
+/**
+ * Execution of a streamed request which is started only when its response is requested.
+ * <br />
+ * The thread asking for the response executes the request itself, writing the body directly to the connection;
+ * only an asynchronous response request hands the execution over to the executor.
+ * A request executed by the calling thread is aborted when it has not been completed within the given timeout.
+ */
+public class DeferredRequestExecution extends FutureTask<HttpResponse> {
+
+  private static final int RUNNING = 0;
+
+  private static final int DONE = 1;
+
+  private static final int TIMED_OUT = 2;
+
+  private final Executor executor;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Runnable abort;
+
+  private final AtomicBoolean started = new AtomicBoolean(false);
+
+  /**
+   * Constructor.
+   *
+   * @param execution task executing the request
+   * @param executor executor used for asynchronous execution
+   * @param scheduler scheduler used to abort a request running in the calling thread after its timeout
+   * @param abort action aborting the running request
+   */
+  public DeferredRequestExecution(final Callable<HttpResponse> execution, final Executor executor,
+      final ScheduledExecutorService scheduler, final Runnable abort) {
+    super(execution);
+    this.executor = executor;
+    this.scheduler = scheduler;
+    this.abort = abort;
+  }
+
+  /**
+   * Executes the request in the calling thread unless it has been started already.
+   *
+   * @param timeout maximum delay after which the request is aborted; no limit if not positive
+   * @param unit time unit
+   * @throws TimeoutException if the request has been aborted because it has not been completed in time
+   */
+  public void runInCaller(final long timeout, final TimeUnit unit) throws TimeoutException {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    final AtomicInteger state = new AtomicInteger(RUNNING);
+    final ScheduledFuture<?> watchdog = timeout <= 0 ? null : scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        if (state.compareAndSet(RUNNING, TIMED_OUT)) {
+          abort.run();
+        }
+      }
+    }, timeout, unit);
+    try {
+      run();
+    } finally {
+      if (watchdog != null) {
+        watchdog.cancel(false);
+      }
+    }
+    if (!state.compareAndSet(RUNNING, DONE)) {
+      throw new TimeoutException("The request has not been completed within " + timeout + " " + unit + ".");
+    }
+  }
+
+  /**
+   * Hands the request over to the executor unless it has been started already.
+   */
+  public void start() {
+    if (started.compareAndSet(false, true)) {
+      executor.execute(this);
+    }
+  }
+}
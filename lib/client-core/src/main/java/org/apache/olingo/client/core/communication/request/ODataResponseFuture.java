@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponseCallback;
+
+/**
+ * Future of an asynchronously executed request, notifying an optional callback on completion.
+ * <br />
+ * It is either run as a task by an executor service or completed explicitly, e.g., by a chain of scheduled
+ * monitor checks.
+ *
+ * @param <T> OData response type.
+ */
+public class ODataResponseFuture<T extends ODataResponse> extends FutureTask<T> {
+
+  private final ODataResponseCallback<T> callback;
+
+  /**
+   * Constructor for a future to be completed explicitly.
+   *
+   * @param callback callback to be notified; can be null.
+   */
+  public ODataResponseFuture(final ODataResponseCallback<T> callback) {
+    this(new Callable<T>() {
+      @Override
+      public T call() {
+        throw new IllegalStateException("This future must be completed explicitly.");
+      }
+    }, callback);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param task task computing the response
+   * @param callback callback to be notified; can be null.
+   */
+  public ODataResponseFuture(final Callable<T> task, final ODataResponseCallback<T> callback) {
+    super(task);
+    this.callback = callback;
+  }
+
+  /**
+   * Completes this future with the given response.
+   *
+   * @param response OData response
+   */
+  public void complete(final T response) {
+    set(response);
+  }
+
+  /**
+   * Completes this future with the given failure.
+   *
+   * @param exception cause of the failure
+   */
+  public void fail(final Exception exception) {
+    setException(exception);
+  }
+
+  @Override
+  protected void done() {
+    if (callback == null) {
+      return;
+    }
+
+    final T response;
+    try {
+      response = get();
+    } catch (final ExecutionException e) {
+      callback.onFailure(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+      return;
+    } catch (final CancellationException e) {
+      callback.onFailure(e);
+      return;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      callback.onFailure(e);
+      return;
+    }
+    callback.onSuccess(response);
+  }
+}
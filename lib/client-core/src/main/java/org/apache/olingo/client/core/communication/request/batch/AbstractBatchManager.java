@@ -30,6 +30,7 @@ import org.apache.olingo.client.api.communication.request.batch.ODataChangeset;
 import org.apache.olingo.client.api.communication.request.batch.ODataSingleRequest;
 import org.apache.olingo.client.api.communication.response.ODataBatchResponse;
 import org.apache.olingo.client.core.communication.request.AbstractODataStreamManager;
+import org.apache.olingo.client.core.communication.request.BufferedBodyOutputStream;
 import org.apache.olingo.client.core.communication.request.Wrapper;
 
 /**
@@ -53,7 +54,13 @@ public abstract class AbstractBatchManager extends AbstractODataStreamManager<OD
   protected AbstractBatchManager(final ODataBatchRequest req,
       final Wrapper<Future<HttpResponse>> futureWrap, final boolean continueOnError) {
 
-    super(futureWrap);
+    this(req, futureWrap, continueOnError, BufferedBodyOutputStream.DEFAULT_MAX_IN_MEMORY_SIZE);
+  }
+
+  protected AbstractBatchManager(final ODataBatchRequest req,
+      final Wrapper<Future<HttpResponse>> futureWrap, final boolean continueOnError, final int maxInMemoryBodySize) {
+
+    super(futureWrap, new BufferedBodyOutputStream(maxInMemoryBodySize));
     this.req = req;
     this.continueOnError = continueOnError;
   }
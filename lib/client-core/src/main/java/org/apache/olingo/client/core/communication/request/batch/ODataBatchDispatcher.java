@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.request.ODataRequest;
+import org.apache.olingo.client.api.communication.request.batch.BatchManager;
+import org.apache.olingo.client.api.communication.request.batch.ODataBatchResponseItem;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataRetrieveRequest;
+import org.apache.olingo.client.api.communication.response.ODataBatchResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponseCallback;
+import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.core.communication.header.ODataErrorResponseChecker;
+import org.apache.olingo.client.core.communication.request.AbstractODataRequest;
+import org.apache.olingo.client.core.communication.request.ODataResponseFuture;
+import org.apache.olingo.client.core.communication.response.AbstractODataResponse;
+import org.apache.olingo.client.core.communication.response.AsyncResponseImpl;
+import org.apache.olingo.client.core.communication.response.batch.ODataBatchErrorResponse;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatcher collecting independent retrieve requests into batch requests.
+ * <br />
+ * Submitted requests are collected until the given time window has passed since the first of them, or until the
+ * given number of distinct requests has been reached; then they are sent as a single batch request.
+ * The responses are buffered and handed to the futures of the single requests.
+ * Identical requests, i.e., requests with the same URI and headers, are sent only once.
+ * <br />
+ * All requests must be addressed to the service of the batch requests.
+ * Batch requests are sent by the executor service of the client configuration, the time window is controlled by its
+ * scheduled executor service.
+ */
+public class ODataBatchDispatcher implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ODataBatchDispatcher.class);
+
+  private final ODataClient odataClient;
+
+  private final String serviceRoot;
+
+  private final long window;
+
+  private final TimeUnit unit;
+
+  private final int maxRequests;
+
+  /**
+   * Requests collected for the next batch request, grouped by URI and headers.
+   */
+  private Map<String, Group> pending = new LinkedHashMap<String, Group>();
+
+  private ScheduledFuture<?> scheduledFlush;
+
+  private boolean closed = false;
+
+  /**
+   * Constructor.
+   *
+   * @param odataClient client instance.
+   * @param serviceRoot the service root URL.
+   * @param window time to wait for further requests after the first request of a batch.
+   * @param unit time unit of the window.
+   * @param maxRequests maximum number of distinct requests in one batch request.
+   */
+  public ODataBatchDispatcher(final ODataClient odataClient, final String serviceRoot,
+      final long window, final TimeUnit unit, final int maxRequests) {
+
+    if (maxRequests < 1) {
+      throw new IllegalArgumentException("A batch request must contain at least one request.");
+    }
+    this.odataClient = odataClient;
+    this.serviceRoot = serviceRoot;
+    this.window = window;
+    this.unit = unit;
+    this.maxRequests = maxRequests;
+  }
+
+  /**
+   * Submits a request to be sent with the next batch request.
+   *
+   * @param request retrieve request.
+   * @return future of the response.
+   */
+  public <T> Future<ODataRetrieveResponse<T>> submit(final ODataRetrieveRequest<T> request) {
+    return submit(request, null);
+  }
+
+  /**
+   * Submits a request to be sent with the next batch request.
+   *
+   * @param request retrieve request.
+   * @param callback callback to be notified on completion; can be null.
+   * @return future of the response.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Future<ODataRetrieveResponse<T>> submit(final ODataRetrieveRequest<T> request,
+      final ODataResponseCallback<ODataRetrieveResponse<T>> callback) {
+
+    final ODataResponseFuture<ODataRetrieveResponse<T>> future =
+        new ODataResponseFuture<ODataRetrieveResponse<T>>(callback);
+    final List<Group> groups;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The dispatcher has been closed.");
+      }
+
+      final String key = getKey(request);
+      Group group = pending.get(key);
+      if (group == null) {
+        group = new Group(request);
+        pending.put(key, group);
+      }
+      group.add(request, (ODataResponseFuture<? super ODataResponse>) (ODataResponseFuture<?>) future);
+
+      if (pending.size() >= maxRequests) {
+        groups = takePending();
+      } else {
+        groups = null;
+        if (scheduledFlush == null) {
+          scheduledFlush = odataClient.getConfiguration().getScheduledExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+              flush();
+            }
+          }, window, unit);
+        }
+      }
+    }
+
+    if (groups != null) {
+      dispatchLater(groups);
+    }
+    return future;
+  }
+
+  /**
+   * Sends the requests collected so far without waiting for the time window to pass.
+   */
+  public void flush() {
+    final List<Group> groups;
+    synchronized (this) {
+      groups = takePending();
+    }
+    if (!groups.isEmpty()) {
+      dispatchLater(groups);
+    }
+  }
+
+  /**
+   * Sends the requests collected so far; further requests are refused.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    flush();
+  }
+
+  private List<Group> takePending() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    final List<Group> groups = new ArrayList<Group>(pending.values());
+    pending = new LinkedHashMap<String, Group>();
+    return groups;
+  }
+
+  private void dispatchLater(final List<Group> groups) {
+    try {
+      odataClient.getConfiguration().getExecutor().execute(new Runnable() {
+        @Override
+        public void run() {
+          dispatch(groups);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      fail(groups, e);
+    }
+  }
+
+  /**
+   * Sends the given requests as one batch request and completes their futures.
+   *
+   * @param groups groups of identical requests.
+   */
+  protected void dispatch(final List<Group> groups) {
+    try {
+      final BatchManager payloadManager =
+          odataClient.getBatchRequestFactory().getBatchRequest(serviceRoot).payloadManager();
+      for (Group group : groups) {
+        payloadManager.addRequest(group.request);
+      }
+
+      final ODataBatchResponse response = payloadManager.getResponse();
+      try {
+        final Iterator<ODataBatchResponseItem> items = response.getBody();
+        for (Group group : groups) {
+          final ODataBatchResponseItem item = items.hasNext() ? items.next() : null;
+          if (item != null && item.hasNext()) {
+            group.complete(item.next());
+          } else {
+            group.fail(new ODataRuntimeException("The batch response contains no response for request "
+                + group.request.getURI()));
+          }
+        }
+      } finally {
+        response.close();
+      }
+    } catch (final RuntimeException e) {
+      LOG.error("Failure executing batch request", e);
+      fail(groups, e);
+    }
+  }
+
+  private static void fail(final List<Group> groups, final Exception exception) {
+    for (Group group : groups) {
+      group.fail(exception);
+    }
+  }
+
+  private static String getKey(final ODataRequest request) {
+    final StringBuilder key = new StringBuilder(request.getURI().toASCIIString());
+    for (String name : new TreeSet<String>(request.getHeaderNames())) {
+      key.append('\n').append(name).append(": ").append(request.getHeader(name));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Identical requests sharing a single batch item.
+   */
+  protected class Group {
+
+    private final ODataRetrieveRequest<?> request;
+
+    private final List<ODataRetrieveRequest<?>> requests = new ArrayList<ODataRetrieveRequest<?>>();
+
+    private final List<ODataResponseFuture<? super ODataResponse>> futures =
+        new ArrayList<ODataResponseFuture<? super ODataResponse>>();
+
+    Group(final ODataRetrieveRequest<?> request) {
+      this.request = request;
+    }
+
+    /**
+     * Gets the requests of this group; the first one is sent.
+     *
+     * @return identical requests.
+     */
+    public List<ODataRetrieveRequest<?>> getRequests() {
+      return requests;
+    }
+
+    void add(final ODataRetrieveRequest<?> request, final ODataResponseFuture<? super ODataResponse> future) {
+      requests.add(request);
+      futures.add(future);
+    }
+
+    void complete(final ODataResponse response) {
+      try {
+        if (response instanceof AsyncResponseImpl) {
+          fail(new ODataRuntimeException("Asynchronous responses to batched requests are not supported."));
+          return;
+        }
+
+        final AbstractODataResponse source = (AbstractODataResponse) response;
+        final byte[] payload = source.bufferPayload();
+        if (response instanceof ODataBatchErrorResponse) {
+          fail(ODataErrorResponseChecker.checkResponse(odataClient,
+              new BasicStatusLine(HttpVersion.HTTP_1_1, source.getStatusCode(), source.getStatusMessage()),
+              payload.length == 0 ? null : new ByteArrayInputStream(payload),
+              request.getAccept() == null ? "" : request.getAccept()));
+          return;
+        }
+
+        futures.get(0).complete(response);
+        for (int i = 1; i < futures.size(); i++) {
+          final AbstractODataResponse copy = ((AbstractODataRequest) requests.get(i)).getResponseTemplate();
+          copy.initFromBuffered(source, payload);
+          futures.get(i).complete(copy);
+        }
+      } catch (final RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    void fail(final Exception exception) {
+      for (ODataResponseFuture<? super ODataResponse> future : futures) {
+        future.fail(exception);
+      }
+    }
+  }
+}
@@ -80,7 +80,8 @@ public class ODataBatchRequestImpl
 
     public BatchManagerImpl(final ODataBatchRequest req) {
       super(req, ODataBatchRequestImpl.this.futureWrapper,
-              ODataBatchRequestImpl.this.odataClient.getConfiguration().isContinueOnError());
+              ODataBatchRequestImpl.this.odataClient.getConfiguration().isContinueOnError(),
+              ODataBatchRequestImpl.this.odataClient.getConfiguration().getMaxInMemoryBodySize());
     }
 
     @Override
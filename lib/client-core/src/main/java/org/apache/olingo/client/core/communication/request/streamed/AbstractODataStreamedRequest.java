@@ -20,6 +20,7 @@ package org.apache.olingo.client.core.communication.request.streamed;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PipedOutputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.concurrent.Callable;
@@ -27,8 +28,10 @@ import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.olingo.client.api.ODataBatchConstants;
 import org.apache.olingo.client.api.ODataClient;
 import org.apache.olingo.client.api.communication.request.ODataPayloadManager;
@@ -37,6 +40,8 @@ import org.apache.olingo.client.api.communication.request.ODataStreamer;
 import org.apache.olingo.client.api.communication.request.batch.ODataBatchRequest;
 import org.apache.olingo.client.api.communication.response.ODataResponse;
 import org.apache.olingo.client.core.communication.request.AbstractODataRequest;
+import org.apache.olingo.client.core.communication.request.BufferedBodyOutputStream;
+import org.apache.olingo.client.core.communication.request.DeferredRequestExecution;
 import org.apache.olingo.client.core.communication.request.Wrapper;
 import org.apache.olingo.client.core.uri.URIUtils;
 import org.apache.olingo.commons.api.format.ContentType;
@@ -98,32 +103,54 @@ public abstract class AbstractODataStreamedRequest<V extends ODataResponse, T ex
   public T payloadManager() {
     payloadManager = getPayloadManager();
 
-    if (URIUtils.shouldUseRepeatableHttpBodyEntry(odataClient)) {
-      futureWrapper.setWrapped(odataClient.getConfiguration().getExecutor().submit(new Callable<HttpResponse>() {
-        @Override
-        public HttpResponse call() throws Exception { //NOSONAR
-          ((HttpEntityEnclosingRequestBase) request).setEntity(
-                  URIUtils.buildInputStreamEntity(odataClient, payloadManager.getBody()));
-
+    final Callable<HttpResponse> execution = new Callable<HttpResponse>() {
+      @Override
+      public HttpResponse call() throws Exception { //NOSONAR
+        ((HttpEntityEnclosingRequestBase) request).setEntity(buildEntity());
+        try {
           return doExecute();
+        } finally {
+          discardBufferedBody();
         }
-      }));
+      }
+    };
+
+    final PipedOutputStream bodyStreamWriter = payloadManager.getBodyStreamWriter();
+    if (bodyStreamWriter == null || bodyStreamWriter instanceof BufferedBodyOutputStream) {
+      // the body is complete when the response is requested: the thread requesting it executes the request
+      futureWrapper.setWrapped(new DeferredRequestExecution(execution,
+          odataClient.getConfiguration().getExecutor(),
+          odataClient.getConfiguration().getScheduledExecutor(),
+          new Runnable() {
+            @Override
+            public void run() {
+              request.abort();
+            }
+          }));
     } else {
-      ((HttpEntityEnclosingRequestBase) request).setEntity(
-              URIUtils.buildInputStreamEntity(odataClient, payloadManager.getBody()));
-
-      futureWrapper.setWrapped(odataClient.getConfiguration().getExecutor().submit(new Callable<HttpResponse>() {
-        @Override
-        public HttpResponse call() throws Exception { //NOSONAR
-          return doExecute();
-        }
-      }));
+      // a piped body needs a reader running concurrently with its writer
+      futureWrapper.setWrapped(odataClient.getConfiguration().getExecutor().submit(execution));
     }
 
     // returns the stream manager object
     return (T) payloadManager;
   }
 
+  private HttpEntity buildEntity() {
+    if (payloadManager.getBodyStreamWriter() instanceof BufferedBodyOutputStream) {
+      final AbstractHttpEntity entity = ((BufferedBodyOutputStream) payloadManager.getBodyStreamWriter()).getEntity();
+      entity.setChunked(odataClient.getConfiguration().isUseChuncked());
+      return entity;
+    }
+    return URIUtils.buildInputStreamEntity(odataClient, payloadManager.getBody());
+  }
+
+  private void discardBufferedBody() {
+    if (payloadManager.getBodyStreamWriter() instanceof BufferedBodyOutputStream) {
+      ((BufferedBodyOutputStream) payloadManager.getBodyStreamWriter()).discard();
+    }
+  }
+
   /**
    * Writes (and consume) the request onto the given batch stream.
    * <p>
@@ -167,6 +194,9 @@ public abstract class AbstractODataStreamedRequest<V extends ODataResponse, T ex
       throw new IllegalStateException(e);
     } finally {
       IOUtils.closeQuietly(input);
+      if (getPayloadManager().getBodyStreamWriter() instanceof BufferedBodyOutputStream) {
+        ((BufferedBodyOutputStream) getPayloadManager().getBodyStreamWriter()).discard();
+      }
     }
   }
 }
@@ -241,6 +241,55 @@ public abstract class AbstractODataResponse implements ODataResponse {
     }
   }
 
+  /**
+   * Reads the payload completely in the calling thread.
+   * <br />
+   * Afterwards the response can be consumed independently of its source, e.g., after the batch response containing
+   * it has moved on to the next item.
+   *
+   * @return payload; empty if there is none.
+   */
+  public byte[] bufferPayload() {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    if (payload != null) {
+      try {
+        IOUtils.copy(payload, bos);
+      } catch (IOException e) {
+        LOG.error("Error buffering payload", e);
+        throw new IllegalStateException(e);
+      } finally {
+        IOUtils.closeQuietly(payload);
+      }
+    } else if (batchInfo != null && batchInfo.isValidBatch()) {
+      ODataBatchUtilities.readBatchPart(batchInfo, bos, true);
+    }
+
+    final byte[] bytes = bos.toByteArray();
+    this.payload = new ByteArrayInputStream(bytes);
+    return bytes;
+  }
+
+  /**
+   * Initializes this response with status and headers of the given response and the given buffered payload.
+   *
+   * @param source response to copy status and headers from.
+   * @param bufferedPayload payload, as returned by {@link #bufferPayload()}.
+   * @return this response.
+   */
+  public ODataResponse initFromBuffered(final AbstractODataResponse source, final byte[] bufferedPayload) {
+    if (hasBeenInitialized) {
+      throw new IllegalStateException("Request already initialized");
+    }
+
+    this.statusCode = source.statusCode;
+    this.statusMessage = source.statusMessage;
+    this.headers.putAll(source.headers);
+    this.payload = new ByteArrayInputStream(bufferedPayload);
+
+    this.hasBeenInitialized = true;
+    return this;
+  }
+
   @Override
   public void close() {
     odataClient.getConfiguration().getHttpClientFactory().close(httpClient);
@@ -35,6 +35,8 @@ import com.fasterxml.jackson.dataformat.xml.deser.FromXmlParser;
 
 public class XMLServiceDocumentDeserializer extends JsonDeserializer {
 
+  private static final XmlFactory XML_FACTORY = new XmlFactory();
+
   public XMLServiceDocumentDeserializer(final boolean serverMode) {
     super(serverMode);
   }
@@ -127,7 +129,7 @@ public class XMLServiceDocumentDeserializer extends JsonDeserializer {
 
   public ResWrap<ServiceDocument> toServiceDocument(InputStream input) throws ODataDeserializerException {
     try {
-      JsonParser parser = new XmlFactory().createParser(input);
+      JsonParser parser = XML_FACTORY.createParser(input);
       return doDeserialize(parser);
     } catch (final IOException e) {
       throw new ODataDeserializerException(e);
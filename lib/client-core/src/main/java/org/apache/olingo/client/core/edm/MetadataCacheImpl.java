@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.edm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.client.api.edm.MetadataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link MetadataCache} implementation.
+ * <p>
+ * Documents are always kept in memory. If a directory is given, they are additionally persisted there in
+ * compressed form, one file per service root, and reloaded on first access, e.g., after a restart of the
+ * application, without downloading the <tt>$metadata</tt> document again.
+ * Files which cannot be read are ignored and removed.
+ */
+public class MetadataCacheImpl implements MetadataCache {
+
+  /** Default maximum age of cached documents which cannot be validated by their metadata ETag. */
+  public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataCacheImpl.class);
+
+  private static final String FILE_SUFFIX = ".xml.gz";
+
+  private final File directory;
+
+  private final long maxAge;
+
+  private final ConcurrentMap<String, CachedMetadata> cache = new ConcurrentHashMap<String, CachedMetadata>();
+
+  /**
+   * Creates an in-memory metadata cache.
+   */
+  public MetadataCacheImpl() {
+    this(null);
+  }
+
+  /**
+   * Creates a metadata cache persisting to the given directory.
+   *
+   * @param directory directory for the cache files; created if it does not exist;
+   * <tt>null</tt> for an in-memory cache
+   */
+  public MetadataCacheImpl(final File directory) {
+    this(directory, DEFAULT_MAX_AGE);
+  }
+
+  /**
+   * Creates a metadata cache persisting to the given directory.
+   *
+   * @param directory directory for the cache files; created if it does not exist;
+   * <tt>null</tt> for an in-memory cache
+   * @param maxAge maximum age in milliseconds of cached documents returned when the metadata ETag is unknown
+   */
+  public MetadataCacheImpl(final File directory, final long maxAge) {
+    if (maxAge < 0) {
+      throw new IllegalArgumentException("The maximum age must not be negative.");
+    }
+    this.directory = directory;
+    this.maxAge = maxAge;
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("Cannot create metadata cache directory " + directory);
+    }
+  }
+
+  @Override
+  public byte[] getMetadata(final String serviceRoot, final String metadataETag) {
+    final CachedMetadata cached = get(serviceRoot);
+    if (cached == null) {
+      return null;
+    } else if (metadataETag == null) {
+      return currentTimeMillis() - cached.storedAt <= maxAge ? cached.metadata.clone() : null;
+    } else {
+      return metadataETag.equals(cached.metadataETag) ? cached.metadata.clone() : null;
+    }
+  }
+
+  @Override
+  public String getMetadataETag(final String serviceRoot) {
+    final CachedMetadata cached = get(serviceRoot);
+    return cached == null ? null : cached.metadataETag;
+  }
+
+  @Override
+  public void putMetadata(final String serviceRoot, final String metadataETag, final byte[] metadata) {
+    final CachedMetadata cached = new CachedMetadata(metadataETag, currentTimeMillis(), metadata.clone());
+    cache.put(serviceRoot, cached);
+    if (directory != null) {
+      try {
+        store(serviceRoot, cached);
+      } catch (final IOException e) {
+        throw new IllegalStateException("Could not write metadata cache file for " + serviceRoot, e);
+      }
+    }
+  }
+
+  @Override
+  public void evict(final String serviceRoot) {
+    cache.remove(serviceRoot);
+    if (directory != null) {
+      final File file = getFile(serviceRoot);
+      if (file.exists() && !file.delete()) {
+        LOG.warn("Could not delete metadata cache file {}", file);
+      }
+    }
+  }
+
+  /**
+   * Returns the current time in milliseconds; used for the age of cached documents.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private CachedMetadata get(final String serviceRoot) {
+    CachedMetadata cached = cache.get(serviceRoot);
+    if (cached == null && directory != null) {
+      cached = load(serviceRoot);
+      if (cached != null) {
+        final CachedMetadata previous = cache.putIfAbsent(serviceRoot, cached);
+        if (previous != null) {
+          cached = previous;
+        }
+      }
+    }
+    return cached;
+  }
+
+  private File getFile(final String serviceRoot) {
+    return new File(directory, DigestUtils.sha1Hex(serviceRoot) + FILE_SUFFIX);
+  }
+
+  private CachedMetadata load(final String serviceRoot) {
+    final File file = getFile(serviceRoot);
+    if (!file.isFile()) {
+      return null;
+    }
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+      if (!serviceRoot.equals(input.readUTF())) {
+        return null;
+      }
+      final String metadataETag = input.readBoolean() ? input.readUTF() : null;
+      final long storedAt = input.readLong();
+      return new CachedMetadata(metadataETag, storedAt, IOUtils.toByteArray(input));
+    } catch (final IOException e) {
+      LOG.warn("Discarding unreadable metadata cache file " + file, e);
+      IOUtils.closeQuietly(input);
+      input = null;
+      if (!file.delete()) {
+        LOG.warn("Could not delete metadata cache file {}", file);
+      }
+      return null;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private void store(final String serviceRoot, final CachedMetadata cached) throws IOException {
+    final File file = getFile(serviceRoot);
+    final File temp = new File(directory, file.getName() + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp))));
+      output.writeUTF(serviceRoot);
+      output.writeBoolean(cached.metadataETag != null);
+      if (cached.metadataETag != null) {
+        output.writeUTF(cached.metadataETag);
+      }
+      output.writeLong(cached.storedAt);
+      output.write(cached.metadata);
+      output.close();
+      output = null;
+      // Replace the previous file; renaming onto an existing file fails on some platforms.
+      if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+        throw new IOException("Could not rename " + temp + " to " + file);
+      }
+    } finally {
+      IOUtils.closeQuietly(output);
+      if (temp.exists() && !temp.delete()) {
+        LOG.warn("Could not delete metadata cache file {}", temp);
+      }
+    }
+  }
+
+  private static final class CachedMetadata {
+
+    private final String metadataETag;
+
+    private final long storedAt;
+
+    private final byte[] metadata;
+
+    private CachedMetadata(final String metadataETag, final long storedAt, final byte[] metadata) {
+      this.metadataETag = metadataETag;
+      this.storedAt = storedAt;
+      this.metadata = metadata;
+    }
+  }
+}
@@ -47,6 +47,7 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
 import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
 import com.fasterxml.jackson.dataformat.xml.XmlFactory;
@@ -54,6 +55,13 @@ import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 public class ClientODataDeserializerImpl implements ClientODataDeserializer {
 
+  /**
+   * Immutable reader for Edmx documents, built from the mapper {@link #getXmlMapper()} returns in this class;
+   * mappers are expensive to build, so it is shared. Subclasses may override {@link #getXmlMapper()},
+   * so they read through their own mapper.
+   */
+  private static final ObjectReader EDMX_READER = createXmlMapper().readerFor(ClientCsdlEdmx.class);
+
   private final ODataDeserializer deserializer;
   private final ContentType contentType;
 
@@ -88,7 +96,7 @@ public class ClientODataDeserializerImpl implements ClientODataDeserializer {
     return deserializer.toError(input);
   }
 
-  protected XmlMapper getXmlMapper() {
+  private static XmlMapper createXmlMapper() {
     final XmlMapper xmlMapper = new XmlMapper(
         new XmlFactory(new InputFactoryImpl(), new OutputFactoryImpl()), new JacksonXmlModule());
 
@@ -109,10 +117,22 @@ public class ClientODataDeserializerImpl implements ClientODataDeserializer {
     return xmlMapper;
   }
 
+  /**
+   * Returns a new XML mapper for metadata documents; subclasses may override this to configure the mapper.
+   * @return XML mapper
+   */
+  protected XmlMapper getXmlMapper() {
+    return createXmlMapper();
+  }
+
   @Override
   public XMLMetadata toMetadata(final InputStream input) {
+    // The shared reader is only valid for the mapper of this class.
+    final ObjectReader reader = getClass() == ClientODataDeserializerImpl.class ?
+        EDMX_READER :
+        getXmlMapper().readerFor(ClientCsdlEdmx.class);
     try {
-      return new ClientCsdlXMLMetadata(getXmlMapper().readValue(input, ClientCsdlEdmx.class));
+      return new ClientCsdlXMLMetadata(reader.<ClientCsdlEdmx> readValue(input));
     } catch (Exception e) {
       throw new IllegalArgumentException("Could not parse as Edmx document", e);
     }
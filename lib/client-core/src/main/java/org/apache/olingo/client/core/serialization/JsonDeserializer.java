@@ -63,6 +63,13 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class JsonDeserializer implements ODataDeserializer {
 
+  /**
+   * Parser factory shared by all JSON deserializers. Its codec is a plain {@link ObjectMapper} which is
+   * thread-safe once configured and caches its internal deserializers; it is not exposed,
+   * so that it cannot be reconfigured.
+   */
+  private static final JsonFactory JSON_FACTORY = new JsonFactory(new ObjectMapper());
+
   protected final Pattern CUSTOM_ANNOTATION = Pattern.compile("(.+)@(.+)\\.(.+)");
 
   protected final boolean serverMode;
@@ -393,10 +400,19 @@ public class JsonDeserializer implements ODataDeserializer {
     }
   }
 
+  /**
+   * Creates a parser for the given JSON input, using the shared parser factory.
+   * @param input JSON input
+   * @return parser
+   */
+  protected static JsonParser createParser(final InputStream input) throws IOException {
+    return JSON_FACTORY.createParser(input);
+  }
+
   @Override
   public ResWrap<EntityCollection> toEntitySet(final InputStream input) throws ODataDeserializerException {
     try {
-      parser = new JsonFactory(new ObjectMapper()).createParser(input);
+      parser = createParser(input);
       return new JsonEntitySetDeserializer(serverMode).doDeserialize(parser);
     } catch (final IOException e) {
       throw new ODataDeserializerException(e);
@@ -406,7 +422,7 @@ public class JsonDeserializer implements ODataDeserializer {
   @Override
   public ResWrap<Entity> toEntity(final InputStream input) throws ODataDeserializerException {
     try {
-      parser = new JsonFactory(new ObjectMapper()).createParser(input);
+      parser = createParser(input);
       return new JsonEntityDeserializer(serverMode).doDeserialize(parser);
     } catch (final IOException e) {
       throw new ODataDeserializerException(e);
@@ -416,7 +432,7 @@ public class JsonDeserializer implements ODataDeserializer {
   @Override
   public ResWrap<Property> toProperty(final InputStream input) throws ODataDeserializerException {
     try {
-      parser = new JsonFactory(new ObjectMapper()).createParser(input);
+      parser = createParser(input);
       return new JsonPropertyDeserializer(serverMode).doDeserialize(parser);
     } catch (final IOException e) {
       throw new ODataDeserializerException(e);
@@ -426,7 +442,7 @@ public class JsonDeserializer implements ODataDeserializer {
   @Override
   public ODataError toError(final InputStream input) throws ODataDeserializerException {
     try {
-      parser = new JsonFactory(new ObjectMapper()).createParser(input);
+      parser = createParser(input);
       return new JsonODataErrorDeserializer(serverMode).doDeserialize(parser);
     } catch (final IOException e) {
       throw new ODataDeserializerException(e);
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.serialization.ODataDeserializerException;
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.Annotation;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Operation;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Reads a JSON entity set directly into a {@link ClientEntitySet}.
+ * <br/>
+ * Unlike {@link JsonEntitySetDeserializer}, the response is not read into one tree which is then converted
+ * into an {@link EntityCollection} and bound afterwards; instead each entity of the value array is read and
+ * bound to a {@link ClientEntity} as soon as it has been parsed, so that only the client entities are kept.
+ * The control information of the entity set is expected before the value array as required by the
+ * JSON format; a context URL appearing only after the entities is not used to bind them.
+ */
+public class JsonEntitySetReader extends JsonDeserializer {
+
+  private final ODataClient client;
+
+  public JsonEntitySetReader(final ODataClient client) {
+    super(false);
+    this.client = client;
+  }
+
+  /**
+   * Reads an entity set.
+   * @param input the JSON content; it is not closed
+   * @return the entity set together with its context URL and metadata ETag
+   */
+  public ResWrap<ClientEntitySet> read(final InputStream input) throws ODataDeserializerException {
+    try {
+      return doRead(createParser(input));
+    } catch (final IOException e) {
+      throw new ODataDeserializerException(e);
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataDeserializerException(e);
+    }
+  }
+
+  protected ResWrap<ClientEntitySet> doRead(final JsonParser parser)
+      throws IOException, EdmPrimitiveTypeException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("Expected data of type object.");
+    }
+
+    // The entity collection receives only the control information and annotations of the entity set;
+    // the entities themselves are bound one by one.
+    final EntityCollection header = new EntityCollection();
+    final List<ClientEntity> entities = new ArrayList<ClientEntity>();
+    URI contextURL = null;
+    String metadataETag = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      parser.nextToken();
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      if (Constants.JSON_CONTEXT.equals(name) || Constants.JSON_METADATA.equals(name)) {
+        contextURL = URI.create(parser.getText());
+        header.setBaseURI(URI.create(StringUtils.substringBefore(contextURL.toASCIIString(), Constants.METADATA)));
+      } else if (Constants.JSON_METADATA_ETAG.equals(name)) {
+        metadataETag = parser.getText();
+      } else if (Constants.JSON_COUNT.equals(name)) {
+        header.setCount(parser.getValueAsInt());
+      } else if (Constants.JSON_NEXT_LINK.equals(name)) {
+        header.setNext(URI.create(parser.getText()));
+      } else if (Constants.JSON_DELTA_LINK.equals(name)) {
+        header.setDeltaLink(URI.create(parser.getText()));
+      } else if (Constants.VALUE.equals(name) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+        final JsonEntityDeserializer entityDeserializer = new JsonEntityDeserializer(serverMode);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          final Entity entity = entityDeserializer.doDeserialize(parser).getPayload();
+          entities.add(client.getBinder().getODataEntity(new ResWrap<Entity>(contextURL, metadataETag, entity)));
+        }
+      } else if (name.charAt(0) == '@') {
+        final Annotation annotation = new Annotation();
+        annotation.setTerm(name.substring(1));
+        value(annotation, parser.<JsonNode> readValueAsTree(), parser.getCodec());
+        header.getAnnotations().add(annotation);
+      } else if (name.charAt(0) == '#') {
+        final JsonNode node = parser.readValueAsTree();
+        final Operation operation = new Operation();
+        operation.setMetadataAnchor(name);
+        operation.setTitle(node.get(Constants.ATTR_TITLE).asText());
+        operation.setTarget(URI.create(node.get(Constants.ATTR_TARGET).asText()));
+        header.getOperations().add(operation);
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    final ClientEntitySet entitySet =
+        client.getBinder().getODataEntitySet(new ResWrap<EntityCollection>(contextURL, metadataETag, header));
+    entitySet.getEntities().addAll(entities);
+    return new ResWrap<ClientEntitySet>(contextURL, metadataETag, entitySet);
+  }
+}
@@ -98,12 +98,11 @@ public class ODataReaderImpl implements ODataReader {
             reference.cast(new ClientEntitySetIterator<ClientEntitySet, ClientEntity>(
                 client, src, ContentType.parse(format))));
       } else if (ClientEntitySet.class.isAssignableFrom(reference)) {
-        final ResWrap<EntityCollection> resource = client.getDeserializer(ContentType.parse(format))
-            .toEntitySet(src);
+        final ResWrap<ClientEntitySet> resource = readEntitySetResource(src, ContentType.parse(format));
         res = new ResWrap<T>(
             resource.getContextURL(),
             resource.getMetadataETag(),
-            reference.cast(client.getBinder().getODataEntitySet(resource)));
+            reference.cast(resource.getPayload()));
       } else if (ClientEntity.class.isAssignableFrom(reference)) {
         final ResWrap<Entity> container = client.getDeserializer(ContentType.parse(format)).toEntity(src);
         res = new ResWrap<T>(
@@ -160,7 +159,24 @@ public class ODataReaderImpl implements ODataReader {
   @Override
   public ClientEntitySet readEntitySet(final InputStream input, final ContentType contentType)
       throws ODataDeserializerException {
-    return client.getBinder().getODataEntitySet(client.getDeserializer(contentType).toEntitySet(input));
+    return readEntitySetResource(input, contentType).getPayload();
+  }
+
+  /**
+   * Reads an entity set; JSON is bound to client entities while it is parsed,
+   * Atom is deserialized completely before binding.
+   */
+  private ResWrap<ClientEntitySet> readEntitySetResource(final InputStream input, final ContentType contentType)
+      throws ODataDeserializerException {
+    if (contentType.isCompatible(ContentType.APPLICATION_ATOM_SVC)
+        || contentType.isCompatible(ContentType.APPLICATION_ATOM_XML)
+        || contentType.isCompatible(ContentType.APPLICATION_XML)) {
+      final ResWrap<EntityCollection> resource = client.getDeserializer(contentType).toEntitySet(input);
+      return new ResWrap<ClientEntitySet>(resource.getContextURL(), resource.getMetadataETag(),
+          client.getBinder().getODataEntitySet(resource));
+    } else {
+      return new JsonEntitySetReader(client).read(input);
+    }
   }
 
   @Override
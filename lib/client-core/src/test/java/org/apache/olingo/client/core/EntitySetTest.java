@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -61,6 +62,38 @@ public class EntitySetTest extends AbstractTest {
     read(ContentType.JSON);
   }
 
+  private void readDirectly(final String resource) throws Exception {
+    final ClientEntitySet expected = client.getBinder().getODataEntitySet(
+        client.getDeserializer(ContentType.JSON).toEntitySet(getClass().getResourceAsStream(resource)));
+    final ClientEntitySet entitySet =
+        client.getReader().readEntitySet(getClass().getResourceAsStream(resource), ContentType.JSON);
+    assertEquals(expected, entitySet);
+    assertEquals(expected.getCount(), entitySet.getCount());
+    assertEquals(expected.getNext(), entitySet.getNext());
+    assertEquals(expected.getAnnotations().size(), entitySet.getAnnotations().size());
+  }
+
+  @Test
+  public void fromJSONDirectly() throws Exception {
+    readDirectly("Customers.json");
+    readDirectly("collectionOfEntityReferences.json");
+  }
+
+  @Test
+  public void fromJSONDirectlyWithControlInformation() throws Exception {
+    final String json = "{\"@odata.context\":\"http://host/service/$metadata#Customers\","
+        + "\"@odata.count\":3,\"@odata.nextLink\":\"Customers?$skiptoken=2\","
+        + "\"@custom.annotation\":\"text\",\"ignored\":{\"a\":[1]},"
+        + "\"value\":[{\"CustomerID\":\"A\"},{\"CustomerID\":\"B\"}]}";
+    final ClientEntitySet entitySet = client.getReader().readEntitySet(
+        new ByteArrayInputStream(json.getBytes("UTF-8")), ContentType.JSON);
+    assertEquals(2, entitySet.getEntities().size());
+    assertEquals("B", entitySet.getEntities().get(1).getProperty("CustomerID").getPrimitiveValue().toValue());
+    assertEquals(Integer.valueOf(3), entitySet.getCount());
+    assertEquals(URI.create("http://host/service/Customers?$skiptoken=2"), entitySet.getNext());
+    assertEquals("custom.annotation", entitySet.getAnnotations().get(0).getTerm());
+  }
+
   private void ref(final ContentType contentType) throws ODataDeserializerException {
     final InputStream input = getClass().getResourceAsStream("collectionOfEntityReferences." + getSuffix(contentType));
     final ClientEntitySet entitySet = client.getBinder().getODataEntitySet(
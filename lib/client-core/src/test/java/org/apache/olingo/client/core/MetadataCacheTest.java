@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.client.api.edm.MetadataCache;
+import org.apache.olingo.client.core.edm.MetadataCacheImpl;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetadataCacheTest extends AbstractTest {
+
+  private static final String SERVICE_ROOT = "http://localhost/service.svc/";
+
+  private static final String NAMESPACE = "Microsoft.Exchange.Services.OData.Model";
+
+  private File directory;
+
+  private long now = 0;
+
+  @Before
+  public void createDirectory() throws IOException {
+    directory = File.createTempFile("olingo-metadata-cache", "");
+    assertTrue(directory.delete());
+  }
+
+  @After
+  public void deleteDirectory() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private byte[] readDocument() throws IOException {
+    return IOUtils.toByteArray(getClass().getResourceAsStream("metadata.xml"));
+  }
+
+  private MetadataCache createCache(final File directory) {
+    return new MetadataCacheImpl(directory, 1000) {
+      @Override
+      protected long currentTimeMillis() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void inMemory() throws IOException {
+    final MetadataCache cache = createCache(null);
+    assertNull(cache.getMetadata(SERVICE_ROOT, null));
+
+    final byte[] document = readDocument();
+    cache.putMetadata(SERVICE_ROOT, "W/\"1\"", document);
+    assertEquals("W/\"1\"", cache.getMetadataETag(SERVICE_ROOT));
+    assertArrayEquals(document, cache.getMetadata(SERVICE_ROOT, null));
+    assertNotNull(cache.getMetadata(SERVICE_ROOT, "W/\"1\""));
+    assertNull(cache.getMetadata(SERVICE_ROOT, "W/\"2\""));
+    assertNull(cache.getMetadata("http://localhost/other.svc/", null));
+
+    cache.evict(SERVICE_ROOT);
+    assertNull(cache.getMetadata(SERVICE_ROOT, null));
+    assertNull(cache.getMetadataETag(SERVICE_ROOT));
+  }
+
+  @Test
+  public void maxAge() throws IOException {
+    final MetadataCache cache = createCache(null);
+    cache.putMetadata(SERVICE_ROOT, "W/\"1\"", readDocument());
+    cache.putMetadata("http://localhost/other.svc/", null, readDocument());
+    now = 1000;
+    assertNotNull(cache.getMetadata(SERVICE_ROOT, null));
+    assertNotNull(cache.getMetadata("http://localhost/other.svc/", null));
+
+    // Without a metadata ETag to validate against, old documents must be downloaded again.
+    now = 1001;
+    assertNull(cache.getMetadata(SERVICE_ROOT, null));
+    assertNull(cache.getMetadata("http://localhost/other.svc/", null));
+    assertNotNull(cache.getMetadata(SERVICE_ROOT, "W/\"1\""));
+  }
+
+  @Test
+  public void persistent() throws IOException {
+    createCache(directory).putMetadata(SERVICE_ROOT, "W/\"1\"", readDocument());
+    assertEquals(1, directory.list().length);
+
+    // A new cache instance, e.g., after a restart, reloads the document without downloading it.
+    now = 5000;
+    final MetadataCache cache = createCache(directory);
+    assertEquals("W/\"1\"", cache.getMetadataETag(SERVICE_ROOT));
+    assertNull(cache.getMetadata(SERVICE_ROOT, "W/\"2\""));
+    assertNull(cache.getMetadata(SERVICE_ROOT, null));
+    final byte[] document = cache.getMetadata(SERVICE_ROOT, "W/\"1\"");
+    assertArrayEquals(readDocument(), document);
+
+    final Edm edm = client.getReader().readMetadata(client.getDeserializer(ContentType.APPLICATION_XML)
+        .toMetadata(new ByteArrayInputStream(document)).getSchemaByNsOrAlias());
+    final EdmEntityType user = edm.getEntityType(new FullQualifiedName(NAMESPACE, "User"));
+    assertNotNull(user);
+    assertEquals(edm.getEntityType(new FullQualifiedName(NAMESPACE, "Entity")), user.getBaseType());
+    assertEquals(edm.getEntityType(new FullQualifiedName(NAMESPACE, "Folder")),
+        user.getNavigationProperty("Inbox").getType());
+
+    cache.evict(SERVICE_ROOT);
+    assertEquals(0, directory.list().length);
+    assertNull(createCache(directory).getMetadata(SERVICE_ROOT, "W/\"1\""));
+  }
+
+  @Test
+  public void unreadableFile() throws IOException {
+    createCache(directory).putMetadata(SERVICE_ROOT, null, readDocument());
+    final File file = directory.listFiles()[0];
+    final FileOutputStream output = new FileOutputStream(file);
+    output.write("no metadata".getBytes("UTF-8"));
+    output.close();
+
+    assertNull(createCache(directory).getMetadata(SERVICE_ROOT, null));
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void storeFailure() throws IOException {
+    final MetadataCache cache = createCache(directory);
+    FileUtils.deleteDirectory(directory);
+    try {
+      cache.putMetadata(SERVICE_ROOT, null, readDocument());
+      fail("Expected exception not thrown.");
+    } catch (final IllegalStateException e) {
+      assertNotNull(e.getCause());
+    }
+    // The document is still available in memory.
+    assertNotNull(cache.getMetadata(SERVICE_ROOT, null));
+  }
+}
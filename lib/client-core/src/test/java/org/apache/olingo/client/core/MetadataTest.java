@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.util.List;
 
 import org.apache.olingo.client.api.edm.xml.XMLMetadata;
+import org.apache.olingo.client.core.serialization.ClientODataDeserializerImpl;
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmAction;
@@ -69,6 +70,8 @@ import org.apache.olingo.commons.core.edm.primitivetype.EdmInt32;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
 import org.junit.Test;
 
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
 public class MetadataTest extends AbstractTest {
 
   @Test
@@ -132,6 +135,20 @@ public class MetadataTest extends AbstractTest {
     assertEquals(container.getEntitySet("Folders"), users.getRelatedBindingTarget("Folders"));
   }
 
+  @Test
+  public void customXmlMapper() {
+    final int[] calls = new int[1];
+    final XMLMetadata metadata = new ClientODataDeserializerImpl(false, ContentType.APPLICATION_XML) {
+      @Override
+      protected XmlMapper getXmlMapper() {
+        calls[0]++;
+        return super.getXmlMapper();
+      }
+    }.toMetadata(getClass().getResourceAsStream("demo-metadata.xml"));
+    assertEquals(1, calls[0]);
+    assertFalse(metadata.getSchema(0).getAnnotationGroups().isEmpty());
+  }
+
   @Test
   public void demo() {
     final XMLMetadata metadata = client.getDeserializer(ContentType.APPLICATION_XML).
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.junit.Test;
+
+public class BufferedBodyOutputStreamTest {
+
+  @Test
+  public void entity() throws Exception {
+    final BufferedBodyOutputStream stream = new BufferedBodyOutputStream();
+    stream.write("--batch".getBytes("UTF-8"));
+    stream.write('\r');
+    stream.write('\n');
+    stream.close();
+
+    final HttpEntity entity = stream.getEntity();
+    assertTrue(entity.isRepeatable());
+    assertEquals(9, entity.getContentLength());
+    for (int i = 0; i < 2; i++) {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      entity.writeTo(output);
+      assertArrayEquals("--batch\r\n".getBytes("UTF-8"), output.toByteArray());
+    }
+    assertArrayEquals("--batch\r\n".getBytes("UTF-8"), IOUtils.toByteArray(entity.getContent()));
+  }
+
+  @Test
+  public void spillToFile() throws Exception {
+    final BufferedBodyOutputStream stream = new BufferedBodyOutputStream(4);
+    stream.write("--ba".getBytes("UTF-8"));
+    stream.write("tch".getBytes("UTF-8"));
+    stream.write('\r');
+    stream.write('\n');
+    stream.close();
+
+    final HttpEntity entity = stream.getEntity();
+    assertEquals(9, entity.getContentLength());
+    for (int i = 0; i < 2; i++) {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      entity.writeTo(output);
+      assertArrayEquals("--batch\r\n".getBytes("UTF-8"), output.toByteArray());
+    }
+    assertArrayEquals("--batch\r\n".getBytes("UTF-8"), IOUtils.toByteArray(stream.getInputStream()));
+
+    stream.discard();
+    assertEquals(0, stream.size());
+    assertEquals(0, IOUtils.toByteArray(entity.getContent()).length);
+  }
+
+  @Test(expected = IOException.class)
+  public void notConnectable() throws Exception {
+    new PipedInputStream(new BufferedBodyOutputStream());
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class DeferredRequestExecutionTest {
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor();
+
+  private static final Runnable NO_ABORT = new Runnable() {
+    @Override
+    public void run() {
+      fail("The request must not be aborted.");
+    }
+  };
+
+  @AfterClass
+  public static void shutdown() {
+    SCHEDULER.shutdownNow();
+  }
+
+  private static class RecordingExecutor implements Executor {
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+    @Override
+    public void execute(final Runnable command) {
+      tasks.add(command);
+    }
+  }
+
+  private static class CountingExecution implements Callable<HttpResponse> {
+    private final AtomicInteger count = new AtomicInteger();
+    private final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    private Thread thread;
+
+    @Override
+    public HttpResponse call() {
+      count.incrementAndGet();
+      thread = Thread.currentThread();
+      return response;
+    }
+  }
+
+  @Test
+  public void runInCaller() throws Exception {
+    final RecordingExecutor executor = new RecordingExecutor();
+    final CountingExecution execution = new CountingExecution();
+    final DeferredRequestExecution future = new DeferredRequestExecution(execution, executor, SCHEDULER, NO_ABORT);
+    assertEquals(0, execution.count.get());
+
+    future.runInCaller(1, TimeUnit.SECONDS);
+    future.runInCaller(1, TimeUnit.SECONDS);
+
+    assertTrue(future.isDone());
+    assertSame(execution.response, future.get(0, TimeUnit.SECONDS));
+    assertEquals(1, execution.count.get());
+    assertSame(Thread.currentThread(), execution.thread);
+    assertTrue(executor.tasks.isEmpty());
+  }
+
+  @Test
+  public void startOnce() throws Exception {
+    final RecordingExecutor executor = new RecordingExecutor();
+    final CountingExecution execution = new CountingExecution();
+    final DeferredRequestExecution future = new DeferredRequestExecution(execution, executor, SCHEDULER, NO_ABORT);
+
+    future.start();
+    future.start();
+    future.runInCaller(1, TimeUnit.SECONDS);
+    assertEquals(1, executor.tasks.size());
+    assertEquals(0, execution.count.get());
+
+    executor.tasks.get(0).run();
+    assertSame(execution.response, future.get(0, TimeUnit.SECONDS));
+    assertEquals(1, execution.count.get());
+  }
+
+  @Test
+  public void abortAfterTimeout() throws Exception {
+    final CountDownLatch aborted = new CountDownLatch(1);
+    final DeferredRequestExecution future = new DeferredRequestExecution(new Callable<HttpResponse>() {
+      @Override
+      public HttpResponse call() throws Exception {
+        // Simulates a connection which only returns when the request is aborted.
+        if (!aborted.await(10, TimeUnit.SECONDS)) {
+          fail("The request has not been aborted.");
+        }
+        throw new IOException("aborted");
+      }
+    }, new RecordingExecutor(), SCHEDULER, new Runnable() {
+      @Override
+      public void run() {
+        aborted.countDown();
+      }
+    });
+
+    try {
+      future.runInCaller(50, TimeUnit.MILLISECONDS);
+      fail("Expected TimeoutException");
+    } catch (final TimeoutException e) {
+      assertTrue(future.isDone());
+    }
+    try {
+      future.get(0, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponseCallback;
+import org.apache.olingo.client.core.communication.response.AbstractODataResponse;
+import org.junit.Test;
+
+public class ODataResponseFutureTest {
+
+  private static class RecordingCallback implements ODataResponseCallback<ODataResponse> {
+    private final CountDownLatch notified = new CountDownLatch(1);
+    private volatile ODataResponse response;
+    private volatile Exception exception;
+
+    @Override
+    public void onSuccess(final ODataResponse response) {
+      this.response = response;
+      notified.countDown();
+    }
+
+    @Override
+    public void onFailure(final Exception exception) {
+      this.exception = exception;
+      notified.countDown();
+    }
+  }
+
+  private static ODataResponse createResponse() {
+    return new AbstractODataResponse(null, null, null) {};
+  }
+
+  @Test
+  public void completeExplicitly() throws Exception {
+    final RecordingCallback callback = new RecordingCallback();
+    final ODataResponseFuture<ODataResponse> future = new ODataResponseFuture<ODataResponse>(callback);
+    final ODataResponse response = createResponse();
+    future.complete(response);
+
+    assertTrue(future.isDone());
+    assertSame(response, future.get());
+    assertSame(response, callback.response);
+    assertNull(callback.exception);
+  }
+
+  @Test
+  public void failExplicitly() throws Exception {
+    final RecordingCallback callback = new RecordingCallback();
+    final ODataResponseFuture<ODataResponse> future = new ODataResponseFuture<ODataResponse>(callback);
+    final IllegalStateException exception = new IllegalStateException();
+    future.fail(exception);
+
+    try {
+      future.get();
+      fail("Expected ExecutionException");
+    } catch (final ExecutionException e) {
+      assertSame(exception, e.getCause());
+    }
+    assertSame(exception, callback.exception);
+    assertNull(callback.response);
+  }
+
+  @Test
+  public void cancel() {
+    final RecordingCallback callback = new RecordingCallback();
+    final ODataResponseFuture<ODataResponse> future = new ODataResponseFuture<ODataResponse>(callback);
+    assertTrue(future.cancel(false));
+    assertTrue(callback.exception instanceof CancellationException);
+  }
+
+  @Test
+  public void runByExecutor() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final RecordingCallback callback = new RecordingCallback();
+      final ODataResponse response = createResponse();
+      final ODataResponseFuture<ODataResponse> future = new ODataResponseFuture<ODataResponse>(
+          new Callable<ODataResponse>() {
+            @Override
+            public ODataResponse call() {
+              return response;
+            }
+          }, callback);
+      executor.execute(future);
+
+      assertSame(response, future.get(5, TimeUnit.SECONDS));
+      // The callback is notified after the future has been completed, so waiting on the future is not enough.
+      assertTrue(callback.notified.await(5, TimeUnit.SECONDS));
+      assertSame(response, callback.response);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void withoutCallback() throws Exception {
+    final ODataResponseFuture<ODataResponse> future = new ODataResponseFuture<ODataResponse>(null);
+    final ODataResponse response = createResponse();
+    future.complete(response);
+    assertEquals(response, future.get());
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataRetrieveRequest;
+import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.core.ODataClientFactory;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.junit.Test;
+
+public class ODataBatchDispatcherTest {
+
+  private static final String SERVICE_ROOT = "http://localhost/odata";
+
+  private final ODataClient client = ODataClientFactory.getClient();
+
+  /**
+   * Dispatcher recording the batches instead of sending them.
+   */
+  private class RecordingDispatcher extends ODataBatchDispatcher {
+    private final List<List<Group>> batches = new ArrayList<List<Group>>();
+    private final CountDownLatch latch;
+
+    RecordingDispatcher(final long window, final int maxRequests, final int expectedBatches) {
+      super(client, SERVICE_ROOT, window, TimeUnit.MILLISECONDS, maxRequests);
+      latch = new CountDownLatch(expectedBatches);
+    }
+
+    @Override
+    protected void dispatch(final List<Group> groups) {
+      synchronized (batches) {
+        batches.add(groups);
+      }
+      for (Group group : groups) {
+        group.fail(new ODataRuntimeException("not sent"));
+      }
+      latch.countDown();
+    }
+  }
+
+  private ODataRetrieveRequest<ClientEntitySet> request(final String entitySet) {
+    return client.getRetrieveRequestFactory().getEntitySetRequest(URI.create(SERVICE_ROOT + '/' + entitySet));
+  }
+
+  @Test
+  public void maxRequests() throws Exception {
+    final RecordingDispatcher dispatcher = new RecordingDispatcher(60000, 2, 1);
+    dispatcher.submit(request("ESAllPrim"));
+    dispatcher.submit(request("ESAllPrim"));
+    dispatcher.submit(request("ESTwoPrim"));
+
+    assertTrue(dispatcher.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, dispatcher.batches.size());
+    final List<ODataBatchDispatcher.Group> groups = dispatcher.batches.get(0);
+    assertEquals(2, groups.size());
+    assertEquals(2, groups.get(0).getRequests().size());
+    assertEquals(1, groups.get(1).getRequests().size());
+  }
+
+  @Test
+  public void window() throws Exception {
+    final RecordingDispatcher dispatcher = new RecordingDispatcher(10, 100, 1);
+    final Future<ODataRetrieveResponse<ClientEntitySet>> future = dispatcher.submit(request("ESAllPrim"));
+    dispatcher.submit(request("ESTwoPrim"));
+
+    assertTrue(dispatcher.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(2, dispatcher.batches.get(0).size());
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof ODataRuntimeException);
+    }
+  }
+
+  @Test
+  public void close() throws Exception {
+    final RecordingDispatcher dispatcher = new RecordingDispatcher(60000, 100, 1);
+    dispatcher.submit(request("ESAllPrim"));
+    dispatcher.close();
+
+    assertTrue(dispatcher.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, dispatcher.batches.get(0).size());
+    try {
+      dispatcher.submit(request("ESAllPrim"));
+      fail("Expected IllegalStateException");
+    } catch (final IllegalStateException e) {
+      assertTrue(e.getMessage().contains("closed"));
+    }
+  }
+}
@@ -0,0 +1,812 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.net.URI;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.olingo.commons.api.ex.ODataNotSupportedException;
+
+/**
+ * Read-only collection of entities with primitive properties, stored column-wise.
+ * <p>
+ * Instead of one {@link Entity} with its own property list per row, every column keeps
+ * its values in a single array: <code>Edm.Boolean</code>, <code>Edm.Int32</code>,
+ * <code>Edm.Int64</code>, <code>Edm.Single</code>, and <code>Edm.Double</code> values in
+ * primitive arrays, <code>Edm.String</code> values dictionary-encoded (each distinct string
+ * is stored once), and all other values as objects.
+ * So a large result set needs only a handful of objects per column instead of several
+ * objects per row and property.
+ * </p>
+ * <p>
+ * Entities are materialized on demand as lightweight views on a row, for example while
+ * iterating during serialization; their properties are created on first access
+ * and are not written back to the columns.
+ * </p>
+ * <p>
+ * All columns have to be defined before the first row is added.
+ * </p>
+ */
+public class ColumnarEntityCollection extends AbstractEntityCollection {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String entityType;
+  private final List<Column> columns = new ArrayList<Column>();
+  private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+  private int size;
+  private int capacity;
+  private URI[] ids;
+
+  private Integer count;
+  private URI next;
+  private URI deltaLink;
+  private final List<Operation> operations = new ArrayList<Operation>();
+
+  /**
+   * Creates a new, empty collection.
+   * @param entityType full-qualified name of the entity type set on the materialized entities (can be null)
+   */
+  public ColumnarEntityCollection(final String entityType) {
+    this.entityType = entityType;
+  }
+
+  /**
+   * Adds a column for a primitive property.
+   * @param name name of the property
+   * @param type full-qualified name of the primitive type, e.g., <code>Edm.Int32</code>
+   * @return the index of the new column
+   * @throws IllegalStateException if rows have already been added
+   * @throws IllegalArgumentException if a column with this name already exists
+   */
+  public int addColumn(final String name, final String type) {
+    if (size > 0) {
+      throw new IllegalStateException("Columns must be defined before rows are added.");
+    }
+    if (columnIndexes.containsKey(name)) {
+      throw new IllegalArgumentException("Duplicate column " + name + ".");
+    }
+    final Column column = createColumn(name, type);
+    column.grow(capacity);
+    columns.add(column);
+    columnIndexes.put(name, columns.size() - 1);
+    return columns.size() - 1;
+  }
+
+  /**
+   * Gets the number of columns.
+   * @return number of columns
+   */
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  /**
+   * Gets the index of the column with the given property name.
+   * @param name name of the property
+   * @return the index of the column or -1 if there is no such column
+   */
+  public int getColumnIndex(final String name) {
+    final Integer index = columnIndexes.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Gets the property name of a column.
+   * @param column index of the column
+   * @return name of the property
+   */
+  public String getColumnName(final int column) {
+    return columns.get(column).name;
+  }
+
+  /**
+   * Gets the primitive type of a column.
+   * @param column index of the column
+   * @return full-qualified name of the type
+   */
+  public String getColumnType(final int column) {
+    return columns.get(column).type;
+  }
+
+  /**
+   * Adds a row with all values set to <code>null</code>.
+   * @return the index of the new row
+   */
+  public int addRow() {
+    if (size == capacity) {
+      capacity = capacity < INITIAL_CAPACITY ? INITIAL_CAPACITY : capacity + (capacity >> 1);
+      for (final Column column : columns) {
+        column.grow(capacity);
+      }
+      if (ids != null) {
+        ids = Arrays.copyOf(ids, capacity);
+      }
+    }
+    return size++;
+  }
+
+  /**
+   * Adds a row with the values of the primitive properties of the given entity
+   * that have a column with the same name; other properties are ignored.
+   * @param entity the entity
+   * @return the index of the new row
+   */
+  public int addEntity(final Entity entity) {
+    final int row = addRow();
+    for (final Property property : entity.getProperties()) {
+      final int column = getColumnIndex(property.getName());
+      if (column >= 0 && property.isPrimitive()) {
+        setValue(row, column, property.getValue());
+      }
+    }
+    if (entity.getId() != null) {
+      setId(row, entity.getId());
+    }
+    return row;
+  }
+
+  /**
+   * Sets a value.
+   * @param row    index of the row
+   * @param column index of the column
+   * @param value  the value (can be null); numbers must fit the type of the column
+   * @throws IllegalArgumentException if the value does not fit the type of the column
+   */
+  public void setValue(final int row, final int column, final Object value) {
+    checkRow(row);
+    columns.get(column).set(row, value);
+  }
+
+  /**
+   * Sets an <code>int</code> value in an <code>Edm.Int32</code> or <code>Edm.Int64</code> column.
+   * @param row    index of the row
+   * @param column index of the column
+   * @param value  the value
+   */
+  public void setIntValue(final int row, final int column, final int value) {
+    final Column target = columns.get(column);
+    if (target instanceof IntColumn) {
+      checkRow(row);
+      ((IntColumn) target).set(row, value);
+    } else {
+      setLongValue(row, column, value);
+    }
+  }
+
+  /**
+   * Sets a <code>long</code> value in an <code>Edm.Int64</code> column.
+   * @param row    index of the row
+   * @param column index of the column
+   * @param value  the value
+   */
+  public void setLongValue(final int row, final int column, final long value) {
+    checkRow(row);
+    typed(column, LongColumn.class).set(row, value);
+  }
+
+  /**
+   * Sets a <code>float</code> value in an <code>Edm.Single</code> column.
+   * @param row    index of the row
+   * @param column index of the column
+   * @param value  the value
+   */
+  public void setFloatValue(final int row, final int column, final float value) {
+    checkRow(row);
+    typed(column, FloatColumn.class).set(row, value);
+  }
+
+  /**
+   * Sets a <code>double</code> value in an <code>Edm.Double</code> column.
+   * @param row    index of the row
+   * @param column index of the column
+   * @param value  the value
+   */
+  public void setDoubleValue(final int row, final int column, final double value) {
+    checkRow(row);
+    typed(column, DoubleColumn.class).set(row, value);
+  }
+
+  /**
+   * Sets a <code>boolean</code> value in an <code>Edm.Boolean</code> column.
+   * @param row    index of the row
+   * @param column index of the column
+   * @param value  the value
+   */
+  public void setBooleanValue(final int row, final int column, final boolean value) {
+    checkRow(row);
+    typed(column, BooleanColumn.class).set(row, value);
+  }
+
+  /**
+   * Gets a value; numeric and boolean values are boxed.
+   * @param row    index of the row
+   * @param column index of the column
+   * @return the value or <code>null</code>
+   */
+  public Object getValue(final int row, final int column) {
+    checkRow(row);
+    return columns.get(column).get(row);
+  }
+
+  /**
+   * Sets the entity id of a row.
+   * @param row index of the row
+   * @param id  the entity id
+   */
+  public void setId(final int row, final URI id) {
+    checkRow(row);
+    if (ids == null) {
+      ids = new URI[capacity];
+    }
+    ids[row] = id;
+  }
+
+  /**
+   * Gets the entity id of a row.
+   * @param row index of the row
+   * @return the entity id or <code>null</code>
+   */
+  public URI getId(final int row) {
+    checkRow(row);
+    return ids == null ? null : ids[row];
+  }
+
+  /**
+   * Gets the number of rows.
+   * @return number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Releases the spare capacity of all columns and the lookup tables only needed while adding rows.
+   * Rows can still be added afterwards.
+   */
+  public void trimToSize() {
+    capacity = size;
+    for (final Column column : columns) {
+      column.trim(size);
+    }
+    if (ids != null) {
+      ids = Arrays.copyOf(ids, size);
+    }
+  }
+
+  /**
+   * Materializes a view on a row.
+   * @param row index of the row
+   * @return an entity reading its property values from the columns
+   */
+  public Entity getEntity(final int row) {
+    checkRow(row);
+    return new RowEntity(row);
+  }
+
+  @Override
+  public Iterator<Entity> iterator() {
+    return new Iterator<Entity>() {
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        return row < size;
+      }
+
+      @Override
+      public Entity next() {
+        if (row >= size) {
+          throw new NoSuchElementException();
+        }
+        return new RowEntity(row++);
+      }
+
+      @Override
+      public void remove() {
+        throw new ODataNotSupportedException("Columnar entity collection does not support remove()");
+      }
+    };
+  }
+
+  /**
+   * Sets number of entries.
+   *
+   * @param count number of entries
+   */
+  public void setCount(final Integer count) {
+    this.count = count;
+  }
+
+  @Override
+  public Integer getCount() {
+    return count;
+  }
+
+  /**
+   * Sets next link.
+   *
+   * @param next next link.
+   */
+  public void setNext(final URI next) {
+    this.next = next;
+  }
+
+  @Override
+  public URI getNext() {
+    return next;
+  }
+
+  /**
+   * Sets delta link.
+   *
+   * @param deltaLink delta link.
+   */
+  public void setDeltaLink(final URI deltaLink) {
+    this.deltaLink = deltaLink;
+  }
+
+  @Override
+  public URI getDeltaLink() {
+    return deltaLink;
+  }
+
+  @Override
+  public List<Operation> getOperations() {
+    return operations;
+  }
+
+  private void checkRow(final int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " does not exist.");
+    }
+  }
+
+  private <T extends Column> T typed(final int column, final Class<T> columnClass) {
+    final Column target = columns.get(column);
+    if (!columnClass.isInstance(target)) {
+      throw new IllegalArgumentException("Column " + target.name + " has type " + target.type + ".");
+    }
+    return columnClass.cast(target);
+  }
+
+  private static Column createColumn(final String name, final String type) {
+    if ("Edm.Boolean".equals(type)) {
+      return new BooleanColumn(name, type);
+    } else if ("Edm.Int32".equals(type)) {
+      return new IntColumn(name, type);
+    } else if ("Edm.Int64".equals(type)) {
+      return new LongColumn(name, type);
+    } else if ("Edm.Single".equals(type)) {
+      return new FloatColumn(name, type);
+    } else if ("Edm.Double".equals(type)) {
+      return new DoubleColumn(name, type);
+    } else if ("Edm.String".equals(type)) {
+      return new StringColumn(name, type);
+    } else {
+      return new ObjectColumn(name, type);
+    }
+  }
+
+  /**
+   * Entity view on one row.
+   */
+  private class RowEntity extends Entity {
+
+    private final int row;
+    private List<Property> properties;
+
+    RowEntity(final int row) {
+      this.row = row;
+      setType(entityType);
+      setId(ids == null ? null : ids[row]);
+    }
+
+    @Override
+    public Entity addProperty(final Property property) {
+      throw new ODataNotSupportedException("Entities of a columnar entity collection are read-only.");
+    }
+
+    @Override
+    public List<Property> getProperties() {
+      if (properties == null) {
+        final Property[] values = new Property[columns.size()];
+        for (int index = 0; index < values.length; index++) {
+          values[index] = columns.get(index).toProperty(row);
+        }
+        properties = new AbstractList<Property>() {
+          @Override
+          public Property get(final int index) {
+            return values[index];
+          }
+
+          @Override
+          public int size() {
+            return values.length;
+          }
+        };
+      }
+      return properties;
+    }
+
+    @Override
+    public Property getProperty(final String name) {
+      final Integer index = columnIndexes.get(name);
+      return index == null ? null : getProperties().get(index);
+    }
+
+    private ColumnarEntityCollection getCollection() {
+      return ColumnarEntityCollection.this;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof RowEntity
+          && ((RowEntity) o).getCollection() == getCollection()
+          && ((RowEntity) o).row == row;
+    }
+
+    @Override
+    public int hashCode() {
+      return row;
+    }
+
+    @Override
+    public String toString() {
+      return getProperties().toString();
+    }
+  }
+
+  /**
+   * Storage for the values of one property.
+   */
+  private abstract static class Column {
+    final String name;
+    final String type;
+
+    Column(final String name, final String type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    abstract void grow(int capacity);
+
+    abstract void trim(int size);
+
+    abstract void set(int row, Object value);
+
+    abstract Object get(int row);
+
+    Property toProperty(final int row) {
+      return new Property(type, name, ValueType.PRIMITIVE, get(row));
+    }
+
+    IllegalArgumentException wrongValue(final Object value) {
+      return new IllegalArgumentException("Value " + value + " does not fit column " + name + " of type " + type + ".");
+    }
+  }
+
+  /**
+   * Column with a null indicator per row; rows are <code>null</code> until a value is set.
+   */
+  private abstract static class NullableColumn extends Column {
+    private final BitSet present = new BitSet();
+
+    NullableColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    boolean isNull(final int row) {
+      return !present.get(row);
+    }
+
+    void setPresent(final int row, final boolean isPresent) {
+      present.set(row, isPresent);
+    }
+
+    @Override
+    void set(final int row, final Object value) {
+      if (value == null) {
+        setPresent(row, false);
+      } else {
+        setNonNull(row, value);
+      }
+    }
+
+    @Override
+    Object get(final int row) {
+      return isNull(row) ? null : getNonNull(row);
+    }
+
+    abstract void setNonNull(int row, Object value);
+
+    abstract Object getNonNull(int row);
+  }
+
+  private static final class BooleanColumn extends NullableColumn {
+    private boolean[] values = new boolean[0];
+
+    BooleanColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void trim(final int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    void set(final int row, final boolean value) {
+      values[row] = value;
+      setPresent(row, true);
+    }
+
+    @Override
+    void setNonNull(final int row, final Object value) {
+      if (!(value instanceof Boolean)) {
+        throw wrongValue(value);
+      }
+      set(row, ((Boolean) value).booleanValue());
+    }
+
+    @Override
+    Object getNonNull(final int row) {
+      return values[row];
+    }
+  }
+
+  private static final class IntColumn extends NullableColumn {
+    private int[] values = new int[0];
+
+    IntColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void trim(final int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    void set(final int row, final int value) {
+      values[row] = value;
+      setPresent(row, true);
+    }
+
+    @Override
+    void setNonNull(final int row, final Object value) {
+      if (!(value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+        throw wrongValue(value);
+      }
+      set(row, ((Number) value).intValue());
+    }
+
+    @Override
+    Object getNonNull(final int row) {
+      return values[row];
+    }
+  }
+
+  private static final class LongColumn extends NullableColumn {
+    private long[] values = new long[0];
+
+    LongColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void trim(final int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    void set(final int row, final long value) {
+      values[row] = value;
+      setPresent(row, true);
+    }
+
+    @Override
+    void setNonNull(final int row, final Object value) {
+      if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+        throw wrongValue(value);
+      }
+      set(row, ((Number) value).longValue());
+    }
+
+    @Override
+    Object getNonNull(final int row) {
+      return values[row];
+    }
+  }
+
+  private static final class FloatColumn extends NullableColumn {
+    private float[] values = new float[0];
+
+    FloatColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void trim(final int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    void set(final int row, final float value) {
+      values[row] = value;
+      setPresent(row, true);
+    }
+
+    @Override
+    void setNonNull(final int row, final Object value) {
+      if (!(value instanceof Float)) {
+        throw wrongValue(value);
+      }
+      set(row, ((Float) value).floatValue());
+    }
+
+    @Override
+    Object getNonNull(final int row) {
+      return values[row];
+    }
+  }
+
+  private static final class DoubleColumn extends NullableColumn {
+    private double[] values = new double[0];
+
+    DoubleColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void trim(final int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    void set(final int row, final double value) {
+      values[row] = value;
+      setPresent(row, true);
+    }
+
+    @Override
+    void setNonNull(final int row, final Object value) {
+      if (!(value instanceof Double || value instanceof Float)) {
+        throw wrongValue(value);
+      }
+      set(row, ((Number) value).doubleValue());
+    }
+
+    @Override
+    Object getNonNull(final int row) {
+      return values[row];
+    }
+  }
+
+  /**
+   * Dictionary-encoded strings: each row stores the index of its value in the dictionary, -1 for <code>null</code>.
+   */
+  private static final class StringColumn extends Column {
+    private int[] codes = new int[0];
+    private final ArrayList<String> dictionary = new ArrayList<String>();
+    private Map<String, Integer> lookup = new HashMap<String, Integer>();
+
+    StringColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      final int oldCapacity = codes.length;
+      codes = Arrays.copyOf(codes, capacity);
+      Arrays.fill(codes, oldCapacity, capacity, -1);
+    }
+
+    @Override
+    void trim(final int size) {
+      codes = Arrays.copyOf(codes, size);
+      dictionary.trimToSize();
+      lookup = null;
+    }
+
+    @Override
+    void set(final int row, final Object value) {
+      if (value == null) {
+        codes[row] = -1;
+      } else if (value instanceof String) {
+        if (lookup == null) {
+          lookup = new HashMap<String, Integer>();
+          for (int index = 0; index < dictionary.size(); index++) {
+            lookup.put(dictionary.get(index), index);
+          }
+        }
+        Integer code = lookup.get(value);
+        if (code == null) {
+          code = dictionary.size();
+          dictionary.add((String) value);
+          lookup.put((String) value, code);
+        }
+        codes[row] = code;
+      } else {
+        throw wrongValue(value);
+      }
+    }
+
+    @Override
+    Object get(final int row) {
+      return codes[row] < 0 ? null : dictionary.get(codes[row]);
+    }
+  }
+
+  private static final class ObjectColumn extends Column {
+    private Object[] values = new Object[0];
+
+    ObjectColumn(final String name, final String type) {
+      super(name, type);
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void trim(final int size) {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    void set(final int row, final Object value) {
+      values[row] = value;
+    }
+
+    @Override
+    Object get(final int row) {
+      return values[row];
+    }
+  }
+}
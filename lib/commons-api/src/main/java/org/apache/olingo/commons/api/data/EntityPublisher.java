@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.net.URI;
+
+/**
+ * Asynchronous source of the entities of an entity collection.
+ * <p>
+ * In contrast to an {@link EntityIterator}, which is pulled by the serializer and therefore blocks
+ * the writing thread while it waits for its data source, a publisher pushes its entities to a
+ * {@link EntitySubscriber} from whatever thread its data source delivers them on.
+ * The subscriber signals through {@link EntitySubscription#request(long)} how many entities it can take,
+ * so the publisher never has to buffer more than has been requested.
+ * </p>
+ * <p>
+ * The interfaces follow the Reactive Streams contract (<code>Publisher</code>, <code>Subscriber</code>,
+ * <code>Subscription</code>), so adapters from reactive data sources are straightforward.
+ * </p>
+ */
+public abstract class EntityPublisher {
+
+  /**
+   * Starts publishing the entities to the given subscriber.
+   * The subscriber's {@link EntitySubscriber#onSubscribe(EntitySubscription)} must be called first;
+   * afterwards, at most as many entities as have been requested are passed to
+   * {@link EntitySubscriber#onNext(Entity)}, followed by either
+   * {@link EntitySubscriber#onComplete()} or {@link EntitySubscriber#onError(Throwable)}.
+   * The signals must not be sent concurrently.
+   *
+   * @param subscriber the subscriber
+   */
+  public abstract void subscribe(EntitySubscriber subscriber);
+
+  /**
+   * Gets the number of entities in the whole collection. It is read before the first entity is requested.
+   *
+   * @return number of entities or <code>null</code> if not known
+   */
+  public Integer getCount() {
+    return null;
+  }
+
+  /**
+   * Gets the next link. It is read after the publisher has completed.
+   *
+   * @return next link or <code>null</code>
+   */
+  public URI getNext() {
+    return null;
+  }
+}
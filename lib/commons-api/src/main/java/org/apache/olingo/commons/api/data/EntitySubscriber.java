@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+/**
+ * Receiver of the entities of an {@link EntityPublisher}.
+ */
+public interface EntitySubscriber {
+
+  /**
+   * Called once before any other signal.
+   *
+   * @param subscription the subscription used to request entities or to cancel
+   */
+  void onSubscribe(EntitySubscription subscription);
+
+  /**
+   * Receives the next requested entity.
+   *
+   * @param entity the entity
+   */
+  void onNext(Entity entity);
+
+  /**
+   * Called if the publisher fails; no further signals follow.
+   *
+   * @param throwable the failure
+   */
+  void onError(Throwable throwable);
+
+  /**
+   * Called after the last entity; no further signals follow.
+   */
+  void onComplete();
+}
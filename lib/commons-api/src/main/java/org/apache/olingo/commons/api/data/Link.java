@@ -33,6 +33,7 @@ public class Link extends Annotatable {
   private String mediaETag;
   private Entity entity;
   private EntityCollection entitySet;
+  private EntityIterator entityIterator;
   private String bindingLink;
   private List<String> bindingLinks = new ArrayList<String>();
 
@@ -162,6 +163,33 @@ public class Link extends Annotatable {
     this.entitySet = entitySet;
   }
 
+  /**
+   * Gets the in-line entity set that is read lazily while serializing.
+   *
+   * @return in-line entity iterator
+   * @see #setInlineEntityIterator(EntityIterator)
+   */
+  public EntityIterator getInlineEntityIterator() {
+    return entityIterator;
+  }
+
+  /**
+   * Sets an in-line entity set that is read lazily while serializing.
+   * <p>
+   * The serializers write the entities of this iterator one after the other without collecting them,
+   * so expanded navigation properties of an entity collection that is serialized in streaming mode
+   * are streamed as well. The iterator is used only if no in-line entity set has been set with
+   * {@link #setInlineEntitySet(EntityCollection)}, and it can be iterated only once.
+   * If a count of the expanded navigation property is requested, the iterator must override
+   * {@link EntityIterator#getCount()}; otherwise the count is omitted.
+   * </p>
+   *
+   * @param entityIterator entity iterator
+   */
+  public void setInlineEntityIterator(final EntityIterator entityIterator) {
+    this.entityIterator = entityIterator;
+  }
+
   /**
    * If this is a "toOne" relationship this method delivers the binding link or <tt>null</tt> if not set.
    * @return String the binding link.
@@ -212,6 +240,7 @@ public class Link extends Annotatable {
         && (mediaETag == null ? other.mediaETag == null : mediaETag.equals(other.mediaETag))
         && (entity == null ? other.entity == null : entity.equals(other.entity))
         && (entitySet == null ? other.entitySet == null : entitySet.equals(other.entitySet))
+        && (entityIterator == null ? other.entityIterator == null : entityIterator.equals(other.entityIterator))
         && (bindingLink == null ? other.bindingLink == null : bindingLink.equals(other.bindingLink))
         && bindingLinks.equals(other.bindingLinks);
   }
@@ -226,6 +255,7 @@ public class Link extends Annotatable {
     result = 31 * result + (mediaETag == null ? 0 : mediaETag.hashCode());
     result = 31 * result + (entity == null ? 0 : entity.hashCode());
     result = 31 * result + (entitySet == null ? 0 : entitySet.hashCode());
+    result = 31 * result + (entityIterator == null ? 0 : entityIterator.hashCode());
     result = 31 * result + (bindingLink == null ? 0 : bindingLink.hashCode());
     result = 31 * result + bindingLinks.hashCode();
     return result;
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of primitive values backed by a Java primitive array.
+ * <p>
+ * It can be used as value of a primitive collection property
+ * (see {@link ValueType#COLLECTION_PRIMITIVE}) to avoid one boxed object per item.
+ * {@link #get(int)} returns boxed values created on each call; serializers aware of
+ * this class read the items directly through the typed getters.
+ * The given array is not copied.
+ */
+public final class UnboxedValueList extends AbstractList<Object> implements RandomAccess {
+
+  private final UnboxedKind kind;
+  private final Object values;
+  private final int size;
+
+  private UnboxedValueList(final UnboxedKind kind, final Object values, final int size) {
+    this.kind = kind;
+    this.values = values;
+    this.size = size;
+  }
+
+  public static UnboxedValueList of(final boolean[] values) {
+    return new UnboxedValueList(UnboxedKind.BOOLEAN, values, values.length);
+  }
+
+  public static UnboxedValueList of(final int[] values) {
+    return new UnboxedValueList(UnboxedKind.INT, values, values.length);
+  }
+
+  public static UnboxedValueList of(final long[] values) {
+    return new UnboxedValueList(UnboxedKind.LONG, values, values.length);
+  }
+
+  public static UnboxedValueList of(final float[] values) {
+    return new UnboxedValueList(UnboxedKind.FLOAT, values, values.length);
+  }
+
+  public static UnboxedValueList of(final double[] values) {
+    return new UnboxedValueList(UnboxedKind.DOUBLE, values, values.length);
+  }
+
+  /**
+   * Get the kind of the primitives the items are stored in.
+   * @return the kind
+   */
+  public UnboxedKind getKind() {
+    return kind;
+  }
+
+  /**
+   * Get an item of a list of <code>boolean</code> values.
+   * @param index the index of the item
+   * @return the item
+   */
+  public boolean getBoolean(final int index) {
+    return ((boolean[]) values)[index];
+  }
+
+  /**
+   * Get an item of a list of <code>int</code> or <code>long</code> values.
+   * @param index the index of the item
+   * @return the item
+   */
+  public long getLong(final int index) {
+    return kind == UnboxedKind.INT ? ((int[]) values)[index] : ((long[]) values)[index];
+  }
+
+  /**
+   * Get an item of a list of <code>float</code> values.
+   * @param index the index of the item
+   * @return the item
+   */
+  public float getFloat(final int index) {
+    return ((float[]) values)[index];
+  }
+
+  /**
+   * Get an item of a list of <code>float</code> or <code>double</code> values;
+   * <code>float</code> values are widened.
+   * @param index the index of the item
+   * @return the item
+   */
+  public double getDouble(final int index) {
+    return kind == UnboxedKind.FLOAT ? ((float[]) values)[index] : ((double[]) values)[index];
+  }
+
+  @Override
+  public Object get(final int index) {
+    switch (kind) {
+    case BOOLEAN:
+      return ((boolean[]) values)[index];
+    case INT:
+      return ((int[]) values)[index];
+    case LONG:
+      return ((long[]) values)[index];
+    case FLOAT:
+      return ((float[]) values)[index];
+    default:
+      return ((double[]) values)[index];
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
@@ -36,7 +36,7 @@ public abstract class Valuable extends Annotatable {
    * @return <code>true</code> if value is <code>null</code>, otherwise <code>false</code>
    */
   public boolean isNull() {
-    return value == null;
+    return getValue() == null;
   }
 
   /**
@@ -106,7 +106,7 @@ public abstract class Valuable extends Annotatable {
    * @return primitive representation or null if it is not based on a primitive ValueType
    */
   public Object asPrimitive() {
-    return isPrimitive() && !isCollection() ? value : null;
+    return isPrimitive() && !isCollection() ? getValue() : null;
   }
 
   /**
@@ -115,7 +115,7 @@ public abstract class Valuable extends Annotatable {
    * @return geospatial representation or null if it is not based on a geospatial ValueType
    */
   public Geospatial asGeospatial() {
-    return isGeospatial() && !isCollection() ? (Geospatial) value : null;
+    return isGeospatial() && !isCollection() ? (Geospatial) getValue() : null;
   }
 
   /**
@@ -124,7 +124,7 @@ public abstract class Valuable extends Annotatable {
    * @return enum representation or null if it is not based on a enum ValueType
    */
   public Object asEnum() {
-    return isEnum() && !isCollection() ? value : null;
+    return isEnum() && !isCollection() ? getValue() : null;
   }
 
   /**
@@ -133,7 +133,7 @@ public abstract class Valuable extends Annotatable {
    * @return primitive complex or null if it is not based on a complex ValueType
    */
   public ComplexValue asComplex() {
-    return isComplex() && !isCollection() ? (ComplexValue) value : null;
+    return isComplex() && !isCollection() ? (ComplexValue) getValue() : null;
   }
 
   /**
@@ -142,7 +142,7 @@ public abstract class Valuable extends Annotatable {
    * @return collection or null if it is not a collection ValueType
    */
   public List<?> asCollection() {
-    return isCollection() ? (List<?>) value : null;
+    return isCollection() ? (List<?>) getValue() : null;
   }
 
   /**
@@ -184,7 +184,7 @@ public abstract class Valuable extends Annotatable {
     final Valuable other = (Valuable) o;
     return getAnnotations().equals(other.getAnnotations())
         && (valueType == null ? other.valueType == null : valueType.equals(other.valueType))
-        && (value == null ? other.value == null : value.equals(other.value))
+        && (getValue() == null ? other.getValue() == null : getValue().equals(other.getValue()))
         && (type == null ? other.type == null : type.equals(other.type));
   }
 
@@ -192,13 +192,13 @@ public abstract class Valuable extends Annotatable {
   public int hashCode() {
     int result = getAnnotations().hashCode();
     result = 31 * result + (valueType == null ? 0 : valueType.hashCode());
-    result = 31 * result + (value == null ? 0 : value.hashCode());
+    result = 31 * result + (getValue() == null ? 0 : getValue().hashCode());
     result = 31 * result + (type == null ? 0 : type.hashCode());
     return result;
   }
 
   @Override
   public String toString() {
-    return value == null ? "null" : value.toString();
+    return getValue() == null ? "null" : getValue().toString();
   }
 }
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Iterator;
+
+import org.apache.olingo.commons.api.ex.ODataNotSupportedException;
+import org.junit.Test;
+
+public class ColumnarEntityCollectionTest {
+
+  private ColumnarEntityCollection createCollection() {
+    final ColumnarEntityCollection collection = new ColumnarEntityCollection("Namespace.ETType");
+    collection.addColumn("PropertyInt32", "Edm.Int32");
+    collection.addColumn("PropertyInt64", "Edm.Int64");
+    collection.addColumn("PropertyDouble", "Edm.Double");
+    collection.addColumn("PropertyBoolean", "Edm.Boolean");
+    collection.addColumn("PropertyString", "Edm.String");
+    collection.addColumn("PropertyDecimal", "Edm.Decimal");
+    return collection;
+  }
+
+  @Test
+  public void values() {
+    final ColumnarEntityCollection collection = createCollection();
+    for (int index = 0; index < 100; index++) {
+      final int row = collection.addRow();
+      collection.setIntValue(row, 0, index);
+      collection.setLongValue(row, 1, index * 1000000000000L);
+      collection.setDoubleValue(row, 2, index / 4.0);
+      collection.setBooleanValue(row, 3, index % 2 == 0);
+      collection.setValue(row, 4, index % 3 == 0 ? null : "Value" + index % 3);
+      collection.setValue(row, 5, new BigDecimal(index));
+    }
+    assertEquals(100, collection.size());
+    assertEquals(6, collection.getColumnCount());
+    assertEquals("PropertyString", collection.getColumnName(4));
+    assertEquals("Edm.String", collection.getColumnType(4));
+    assertEquals(2, collection.getColumnIndex("PropertyDouble"));
+    assertEquals(-1, collection.getColumnIndex("Unknown"));
+
+    assertEquals(7, collection.getValue(7, 0));
+    assertEquals(7000000000000L, collection.getValue(7, 1));
+    assertEquals(1.75, collection.getValue(7, 2));
+    assertEquals(false, collection.getValue(7, 3));
+    assertEquals("Value1", collection.getValue(7, 4));
+    assertNull(collection.getValue(6, 4));
+    assertEquals(new BigDecimal(7), collection.getValue(7, 5));
+
+    final Entity entity = collection.getEntity(7);
+    assertEquals("Namespace.ETType", entity.getType());
+    assertEquals(6, entity.getProperties().size());
+    final Property int32 = entity.getProperty("PropertyInt32");
+    assertEquals("Edm.Int32", int32.getType());
+    assertEquals(7, int32.asPrimitive());
+    assertEquals("Value1", entity.getProperty("PropertyString").getValue());
+    assertSame(entity.getProperty("PropertyString"), entity.getProperties().get(4));
+    assertNull(entity.getProperty("Unknown"));
+  }
+
+  @Test
+  public void nullValues() {
+    final ColumnarEntityCollection collection = createCollection();
+    collection.addRow();
+    final int row = collection.addRow();
+    collection.setIntValue(row, 0, 42);
+    collection.setValue(row, 0, null);
+
+    for (final Entity entity : collection) {
+      for (final Property property : entity.getProperties()) {
+        assertTrue(property.isNull());
+      }
+    }
+  }
+
+  @Test
+  public void dictionary() {
+    final ColumnarEntityCollection collection = createCollection();
+    collection.setValue(collection.addRow(), 4, new String("repeated"));
+    collection.setValue(collection.addRow(), 4, new String("repeated"));
+    assertSame(collection.getValue(0, 4), collection.getValue(1, 4));
+
+    collection.trimToSize();
+    collection.setValue(collection.addRow(), 4, new String("repeated"));
+    collection.setValue(collection.addRow(), 4, "other");
+    assertSame(collection.getValue(0, 4), collection.getValue(2, 4));
+    assertEquals("other", collection.getValue(3, 4));
+    assertEquals(4, collection.size());
+  }
+
+  @Test
+  public void addEntity() {
+    final ColumnarEntityCollection collection = createCollection();
+    final Entity entity = new Entity()
+        .addProperty(new Property("Edm.Int32", "PropertyInt32", ValueType.PRIMITIVE, (short) 1))
+        .addProperty(new Property("Edm.Int64", "PropertyInt64", ValueType.PRIMITIVE, 2))
+        .addProperty(new Property("Edm.Double", "PropertyDouble", ValueType.PRIMITIVE, 3.5F))
+        .addProperty(new Property("Edm.String", "PropertyString", ValueType.PRIMITIVE, "text"))
+        .addProperty(new Property("Edm.String", "Other", ValueType.PRIMITIVE, "ignored"));
+    entity.setId(URI.create("ESType(1)"));
+    collection.addEntity(entity);
+
+    assertEquals(1, collection.getValue(0, 0));
+    assertEquals(2L, collection.getValue(0, 1));
+    assertEquals(3.5, collection.getValue(0, 2));
+    assertNull(collection.getValue(0, 3));
+    assertEquals("text", collection.getValue(0, 4));
+    assertEquals(URI.create("ESType(1)"), collection.getId(0));
+    assertEquals(URI.create("ESType(1)"), collection.iterator().next().getId());
+  }
+
+  @Test
+  public void views() {
+    final ColumnarEntityCollection collection = createCollection();
+    collection.addRow();
+    collection.addRow();
+    assertEquals(collection.getEntity(1), collection.getEntity(1));
+    assertFalse(collection.getEntity(0).equals(collection.getEntity(1)));
+
+    final Iterator<Entity> iterator = collection.iterator();
+    assertEquals(collection.getEntity(0), iterator.next());
+    assertEquals(collection.getEntity(1), iterator.next());
+    assertFalse(iterator.hasNext());
+
+    try {
+      collection.getEntity(0).addProperty(new Property());
+      fail("Expected exception not thrown.");
+    } catch (final ODataNotSupportedException e) {
+      assertEquals(6, collection.getEntity(0).getProperties().size());
+    }
+  }
+
+  @Test
+  public void wrongUsage() {
+    final ColumnarEntityCollection collection = createCollection();
+    try {
+      collection.addColumn("PropertyInt32", "Edm.Int16");
+      fail("Expected exception not thrown.");
+    } catch (final IllegalArgumentException e) {
+      assertEquals(6, collection.getColumnCount());
+    }
+    final int row = collection.addRow();
+    try {
+      collection.addColumn("PropertyByte", "Edm.Byte");
+      fail("Expected exception not thrown.");
+    } catch (final IllegalStateException e) {
+      assertEquals(6, collection.getColumnCount());
+    }
+    try {
+      collection.setValue(row, 0, 1L);
+      fail("Expected exception not thrown.");
+    } catch (final IllegalArgumentException e) {
+      assertNull(collection.getValue(row, 0));
+    }
+    try {
+      collection.setDoubleValue(row, 0, 1.0);
+      fail("Expected exception not thrown.");
+    } catch (final IllegalArgumentException e) {
+      assertNull(collection.getValue(row, 0));
+    }
+    try {
+      collection.getValue(1, 0);
+      fail("Expected exception not thrown.");
+    } catch (final IndexOutOfBoundsException e) {
+      assertEquals(1, collection.size());
+    }
+  }
+}
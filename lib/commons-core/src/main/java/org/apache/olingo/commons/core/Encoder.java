@@ -74,9 +74,14 @@ public class Encoder {
 
   /** characters to remain unencoded in addition to {@link #UNRESERVED} */
   private final String unencoded;
+  /** whether an ASCII character remains unencoded, indexed by the character */
+  private final boolean[] unencodedTable = new boolean[128];
 
   private Encoder(final String unencoded) {
     this.unencoded = unencoded == null ? "" : unencoded;
+    for (char character = 0; character < unencodedTable.length; character++) {
+      unencodedTable[character] = isUnreserved(character) || isUnencoded(character);
+    }
   }
 
   /**
@@ -95,15 +100,15 @@ public class Encoder {
    * @return encoded representation
    */
   private String encodeInternal(final String input) {
-    StringBuilder resultStr = new StringBuilder();
+    if (!needsEncoding(input)) {
+      return input;
+    }
+    StringBuilder resultStr = new StringBuilder(input.length() + 16);
 
     try {
       for (byte utf8Byte : input.getBytes("UTF-8")) {
-        final char character = (char) utf8Byte;
-        if (isUnreserved(character)) {
-          resultStr.append(character);
-        } else if (isUnencoded(character)) {
-          resultStr.append(character);
+        if (utf8Byte >= 0 && unencodedTable[utf8Byte]) {
+          resultStr.append((char) utf8Byte);
         } else if (utf8Byte >= 0) {
           resultStr.append(hex[utf8Byte]);
         } else {
@@ -117,6 +122,16 @@ public class Encoder {
     return resultStr.toString();
   }
 
+  private boolean needsEncoding(final String input) {
+    for (int index = 0; index < input.length(); index++) {
+      final char character = input.charAt(index);
+      if (character >= unencodedTable.length || !unencodedTable[character]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static boolean isUnreserved(final char character) {
     return 'A' <= character && character <= 'Z' // case A..Z
         || 'a' <= character && character <= 'z' // case a..z
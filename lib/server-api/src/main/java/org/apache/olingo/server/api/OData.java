@@ -20,6 +20,7 @@ package org.apache.olingo.server.api;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
@@ -27,12 +28,18 @@ import org.apache.olingo.commons.api.edm.provider.CsdlEdmProvider;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.async.AsyncProcessingService;
 import org.apache.olingo.server.api.debug.DebugResponseHelper;
+import org.apache.olingo.server.api.delta.ChangeLog;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.expand.ExpandExecutor;
+import org.apache.olingo.server.api.expand.NavigationLoader;
+import org.apache.olingo.server.api.media.MediaHelper;
+import org.apache.olingo.server.api.paging.PagingSnapshotStore;
 import org.apache.olingo.server.api.prefer.Preferences;
 import org.apache.olingo.server.api.serializer.EdmAssistedSerializer;
 import org.apache.olingo.server.api.serializer.FixedFormatSerializer;
@@ -73,11 +80,23 @@ public abstract class OData {
   /**
    * Creates a new serializer object for rendering content in the specified format.
    * Serializers are used in Processor implementations.
+   * Serialized content larger than 32 MB is buffered in a temporary file instead of in memory.
    *
    * @param contentType any format supported by Olingo (XML, JSON ...)
    */
   public abstract ODataSerializer createSerializer(ContentType contentType) throws SerializerException;
 
+  /**
+   * Creates a new serializer object for rendering content in the specified format.
+   * Serializers are used in Processor implementations.
+   *
+   * @param contentType any format supported by Olingo (XML, JSON ...)
+   * @param spillThreshold number of bytes of serialized content kept in memory before further content is buffered
+   * in a temporary file; a negative value keeps all content in memory
+   */
+  public abstract ODataSerializer createSerializer(ContentType contentType, long spillThreshold)
+      throws SerializerException;
+
   /**
    * Creates a new serializer object for rendering content in a fixed format, e.g., for binary output or multipart/mixed
    * outpu.
@@ -162,12 +181,59 @@ public abstract class OData {
    */
   public abstract ETagHelper createETagHelper();
 
+  /**
+   * Creates a new media helper object for streaming media resources and binary values,
+   * including byte-range requests.
+   * It can be used in Processor implementations.
+   */
+  public abstract MediaHelper createMediaHelper();
+
   /**
    * Creates a new Preferences object out of Prefer HTTP request headers.
    * It can be used in Processor implementations.
    */
   public abstract Preferences createPreferences(Collection<String> preferHeaders);
 
+  /**
+   * Creates a new store for server-side paging over result snapshots.
+   * In contrast to most other objects created here, the store is meant to be kept
+   * and shared across requests, e.g., for the lifetime of the service.
+   * @param maxRetainedEntities the maximum number of entities retained by all snapshots together
+   * @param timeToLiveMillis    the time in milliseconds after which an unused snapshot is evicted
+   * @return a thread-safe paging snapshot store
+   */
+  public abstract PagingSnapshotStore createPagingSnapshotStore(int maxRetainedEntities, long timeToLiveMillis);
+
+  /**
+   * Creates a new log of changes for handing out delta links.
+   * Like the paging snapshot store, the log is meant to be kept and shared across requests.
+   * @param maxEntries the maximum number of recorded changes; older changes are discarded
+   * @return a thread-safe change log
+   */
+  public abstract ChangeLog createChangeLog(int maxEntries);
+
+  /**
+   * Creates a new service for processing requests with the <code>respond-async</code> preference.
+   * Like the paging snapshot store, the service is meant to be kept and shared across requests.
+   * @param executor              the executor running the tasks, e.g., a thread pool;
+   *                              it is not shut down by the service
+   * @param maxPendingJobs        the maximum number of jobs that are queued or running at the same time
+   * @param maxProcessingTimeMillis the time in milliseconds after submission within which a job must be finished;
+   *                              a job taking longer fails and no longer counts as pending
+   * @param resultTimeToLiveMillis the time in milliseconds after which the result of a finished job is evicted
+   * @return a thread-safe asynchronous processing service
+   */
+  public abstract AsyncProcessingService createAsyncProcessingService(Executor executor, int maxPendingJobs,
+      long maxProcessingTimeMillis, long resultTimeToLiveMillis);
+
+  /**
+   * Creates a new executor for the <code>$expand</code> system query option
+   * loading related entities in batches through the given loader.
+   * @param loader the data source callback called once per navigation property and level
+   * @return an expand executor
+   */
+  public abstract ExpandExecutor createExpandExecutor(NavigationLoader loader);
+
   /**
    * Creates a DebugResponseHelper for the given debugFormat.
    * If the format is not supported no exception is thrown.
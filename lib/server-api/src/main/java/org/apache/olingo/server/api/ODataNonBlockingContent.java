@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api;
+
+/**
+ * Response content that is produced asynchronously and can be written without blocking.
+ * <p/>
+ * Instead of pushing all data into a stream with one of the <code>write</code> methods,
+ * which blocks the calling thread until all data has been produced and written,
+ * the data can be read in pieces whenever the output channel is able to take more;
+ * if no data is available yet, a listener is notified as soon as there is.
+ * The content produces data only as fast as it is read.
+ * <p/>
+ * Errors during the production of the data are handled as described for {@link ODataContent}.
+ */
+public interface ODataNonBlockingContent extends ODataContent {
+
+  /**
+   * Reads available data without waiting for more.
+   *
+   * @param buffer the buffer into which the data is read
+   * @param offset the start offset in the buffer
+   * @param length the maximum number of bytes to read
+   * @return the number of bytes read, zero if no data is available at the moment,
+   * or -1 if all data has been read
+   */
+  int read(byte[] buffer, int offset, int length);
+
+  /**
+   * Sets the listener that is notified when data becomes available after {@link #read(byte[], int, int)}
+   * has returned zero, or when all data has been produced.
+   * The listener may be called on any thread.
+   *
+   * @param listener the listener
+   */
+  void setDataAvailableListener(Runnable listener);
+
+  /**
+   * Stops the production of data, e.g., because the client has gone.
+   */
+  void cancel();
+}
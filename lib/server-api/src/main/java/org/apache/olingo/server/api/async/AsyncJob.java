@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.async;
+
+import java.io.InputStream;
+
+/**
+ * A task submitted to an {@link AsyncProcessingService}, as seen through the status monitor resource.
+ */
+public interface AsyncJob {
+
+  /** Processing state of an asynchronous job. */
+  enum State {
+    /** The job waits for a free thread. */
+    QUEUED,
+    /** The job is being processed. */
+    RUNNING,
+    /** The job has been processed; its result is available. */
+    COMPLETED,
+    /** The processing of the job has thrown an exception. */
+    FAILED
+  }
+
+  /**
+   * Gets the identifier of this job.
+   * It is unique and hard to guess so it can be used in the status monitor URL.
+   * @return the identifier
+   */
+  String getId();
+
+  /**
+   * Gets the task this job has been created for.
+   * @return the task
+   */
+  AsyncTask getTask();
+
+  /**
+   * Gets the current processing state.
+   * @return the state
+   */
+  State getState();
+
+  /**
+   * Gets the result of a completed job, serialized as an <code>application/http</code> response
+   * as required for the status monitor resource.
+   * Each call returns a new stream.
+   * @return the serialized response or <code>null</code> if the job has not been completed
+   */
+  InputStream getResult();
+
+  /**
+   * Gets the exception of a failed job.
+   * @return the exception or <code>null</code> if the job has not failed
+   */
+  Exception getException();
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.async;
+
+import java.util.Collection;
+
+/**
+ * <p>Processes requests with the <code>respond-async</code> preference in the background.</p>
+ * <p>The number of jobs that are queued or running at the same time is bounded; if the bound is reached,
+ * further submissions are rejected so that the client can be told to retry later instead of piling up work.
+ * Results of finished jobs are kept until they are retrieved and removed or until their time to live has expired.
+ * Lookups and submissions do not take a global lock.</p>
+ */
+public interface AsyncProcessingService {
+
+  /**
+   * Submits a task for background processing.
+   * @param task the task
+   * @return the job representing the submitted task
+   * @throws AsyncProcessingException if the maximum number of pending jobs has been reached
+   * or the executor rejected the task
+   */
+  AsyncJob submit(AsyncTask task) throws AsyncProcessingException;
+
+  /**
+   * Gets a job.
+   * @param id the identifier of the job
+   * @return the job or <code>null</code> if it is unknown, has been removed, or its result has expired
+   */
+  AsyncJob getJob(String id);
+
+  /**
+   * Removes a job, typically after its result has been delivered.
+   * A job that has not been started yet will not be processed;
+   * the result of a job that is already running is discarded.
+   * @param id the identifier of the job
+   * @return the removed job or <code>null</code> if it is unknown
+   */
+  AsyncJob removeJob(String id);
+
+  /**
+   * Gets a snapshot of all known jobs, e.g., for monitoring purposes.
+   * @return the jobs
+   */
+  Collection<AsyncJob> getJobs();
+}
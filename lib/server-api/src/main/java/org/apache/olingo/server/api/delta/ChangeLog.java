@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.delta;
+
+import java.net.URI;
+
+import org.apache.olingo.commons.api.data.DeltaLink;
+
+/**
+ * <p>Records the changes of entity sets and hands out opaque delta tokens for reading
+ * the changes made since a token was issued (see OData V4, Part 1, 11.3 "Requesting Changes").</p>
+ * <p>A service records every change as it happens; for a request with the
+ * <code>odata.track-changes</code> preference it puts a delta link with the current
+ * delta token into the last page of the response. A later request with this delta token
+ * only has to read the entities recorded as changed since then, instead of the whole entity set.</p>
+ * <p>The log is bounded: the oldest changes are discarded if the number of recorded changes
+ * exceeds the configured maximum. Reading changes with a delta token issued before discarded
+ * changes results in a {@link DeltaException}; the client then has to read the entity set anew.</p>
+ * <p>Implementations are thread-safe and meant to be shared across requests.</p>
+ */
+public interface ChangeLog {
+
+  /**
+   * Gets a delta token for the current state of the given entity set.
+   * @param entitySetName the name of the entity set
+   * @return the delta token
+   */
+  String getDeltaToken(String entitySetName);
+
+  /**
+   * Records that an entity has been created or changed.
+   * @param entitySetName the name of the entity set
+   * @param entityId      the id of the entity
+   */
+  void recordChange(String entitySetName, URI entityId);
+
+  /**
+   * Records that an entity has been deleted.
+   * @param entitySetName the name of the entity set
+   * @param entityId      the id of the entity
+   */
+  void recordDeletion(String entitySetName, URI entityId);
+
+  /**
+   * Records that a link has been added to an entity of the given entity set.
+   * @param entitySetName the name of the entity set of the link source
+   * @param link          the link
+   */
+  void recordAddedLink(String entitySetName, DeltaLink link);
+
+  /**
+   * Records that a link has been removed from an entity of the given entity set.
+   * @param entitySetName the name of the entity set of the link source
+   * @param link          the link
+   */
+  void recordDeletedLink(String entitySetName, DeltaLink link);
+
+  /**
+   * Reads the changes of the given entity set since the given delta token has been issued.
+   * Several changes of the same entity or link are combined into the most recent one.
+   * @param entitySetName the name of the entity set
+   * @param deltaToken    a delta token returned by this log
+   * @return the changes, together with the delta token for the next request
+   * @throws DeltaException if the delta token is unknown or changes since then have been discarded
+   */
+  ChangeSet readChanges(String entitySetName, String deltaToken) throws DeltaException;
+
+  /**
+   * Checks whether the given delta token has the format of a delta token of this log.
+   * The result does not tell whether the changes since the token are still available.
+   * @param deltaToken the delta token
+   * @return <code>true</code> if the format is recognized, <code>false</code> otherwise
+   */
+  boolean isDeltaToken(String deltaToken);
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.delta;
+
+import java.net.URI;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.DeltaLink;
+
+/**
+ * The changes of an entity set read from a {@link ChangeLog}.
+ */
+public final class ChangeSet {
+
+  private final List<URI> changedEntityIds;
+  private final List<URI> deletedEntityIds;
+  private final List<DeltaLink> addedLinks;
+  private final List<DeltaLink> deletedLinks;
+  private final String deltaToken;
+
+  public ChangeSet(final List<URI> changedEntityIds, final List<URI> deletedEntityIds,
+      final List<DeltaLink> addedLinks, final List<DeltaLink> deletedLinks, final String deltaToken) {
+    this.changedEntityIds = changedEntityIds;
+    this.deletedEntityIds = deletedEntityIds;
+    this.addedLinks = addedLinks;
+    this.deletedLinks = deletedLinks;
+    this.deltaToken = deltaToken;
+  }
+
+  /**
+   * Gets the ids of the entities which have been created or changed.
+   * @return the entity ids, in the order of their most recent change
+   */
+  public List<URI> getChangedEntityIds() {
+    return changedEntityIds;
+  }
+
+  /**
+   * Gets the ids of the entities which have been deleted.
+   * @return the entity ids, in the order of their deletion
+   */
+  public List<URI> getDeletedEntityIds() {
+    return deletedEntityIds;
+  }
+
+  /**
+   * Gets the links which have been added.
+   * @return the links
+   */
+  public List<DeltaLink> getAddedLinks() {
+    return addedLinks;
+  }
+
+  /**
+   * Gets the links which have been removed.
+   * @return the links
+   */
+  public List<DeltaLink> getDeletedLinks() {
+    return deletedLinks;
+  }
+
+  /**
+   * Gets the delta token for reading the changes made after this change set.
+   * @return the delta token
+   */
+  public String getDeltaToken() {
+    return deltaToken;
+  }
+
+  /**
+   * Determines whether there are no changes at all.
+   * @return <code>true</code> if nothing has changed, <code>false</code> otherwise
+   */
+  public boolean isEmpty() {
+    return changedEntityIds.isEmpty() && deletedEntityIds.isEmpty()
+        && addedLinks.isEmpty() && deletedLinks.isEmpty();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.expand;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+
+/**
+ * Resolves the <code>$expand</code> system query option for a page of entities.
+ * <p>
+ * The expand tree is processed level by level: for each expanded navigation property
+ * the {@link NavigationLoader} is called once with all entities of the current level,
+ * and the loaded entities are set as inline content of the corresponding navigation links.
+ * Expanding <code>Orders($expand=Items)</code> on a page of any size thus results
+ * in exactly two loader calls.
+ */
+public interface ExpandExecutor {
+
+  /**
+   * Expands the navigation properties of all entities in the given collection.
+   * @param entities      the entities to be expanded; their navigation links are modified
+   * @param bindingTarget binding target of the entities; <code>null</code> if unknown
+   * @param entityType    the type of the entities
+   * @param expandOption  the expand option; nothing is done if it is <code>null</code>
+   * @throws ODataApplicationException if the loader fails or the expand option is not supported
+   */
+  void expand(EntityCollection entities, EdmBindingTarget bindingTarget, EdmEntityType entityType,
+      ExpandOption expandOption) throws ODataApplicationException;
+
+  /**
+   * Expands the navigation properties of a single entity.
+   * @see #expand(EntityCollection, EdmBindingTarget, EdmEntityType, ExpandOption)
+   */
+  void expand(Entity entity, EdmBindingTarget bindingTarget, EdmEntityType entityType,
+      ExpandOption expandOption) throws ODataApplicationException;
+}
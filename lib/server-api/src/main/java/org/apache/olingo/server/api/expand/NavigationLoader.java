@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.expand;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+
+/**
+ * Data source callback loading the targets of one navigation property
+ * for a whole set of source entities at once.
+ * <p>
+ * Implementations typically collect the key values of the given entities
+ * and read all related entities with a single backend query.
+ */
+public interface NavigationLoader {
+
+  /**
+   * Loads the entities related to each of the given source entities.
+   * @param source             binding target of the source entities; <code>null</code> if unknown,
+   *                           e.g., for contained entities
+   * @param navigationProperty the navigation property to follow
+   * @param sourceEntities     the source entities; never empty
+   * @param expandItem         the expand item requesting the navigation property; its nested options
+   *                           like <code>$filter</code> or <code>$top</code> may be pushed down to the data source;
+   *                           for <code>/$count</code> the collections may contain their count only
+   * @return a list with exactly one entry per source entity, in the same order;
+   *         each entry holds the related entities (at most one for a single-valued navigation property)
+   *         or is <code>null</code> if there are none
+   * @throws ODataApplicationException if the data source cannot load the entities
+   */
+  List<EntityCollection> loadNavigation(EdmBindingTarget source, EdmNavigationProperty navigationProperty,
+      List<Entity> sourceEntities, ExpandItem expandItem) throws ODataApplicationException;
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.media;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
+
+/**
+ * <p>Streams media resources and binary values (<code>$value</code>) without holding them in memory.</p>
+ * <p>Responses support single byte ranges as described in
+ * <a href="https://www.ietf.org/rfc/rfc7233.txt">RFC 7233</a>: a <code>Range</code> header
+ * results in a "Partial Content" response, unless an <code>If-Range</code> header does not match
+ * the current (strong) ETag. Requests for multiple ranges and malformed ranges are answered with the
+ * complete content, as the RFC allows.</p>
+ */
+public interface MediaHelper {
+
+  /**
+   * Creates a media source for content already in memory; the array is not copied.
+   * @param content the content
+   * @return the media source
+   */
+  MediaSource createMediaSource(byte[] content);
+
+  /**
+   * Creates a media source for the content of a file.
+   * The file is opened for each response and transferred without copying it through the heap.
+   * @param file the file
+   * @return the media source
+   */
+  MediaSource createMediaSource(File file);
+
+  /**
+   * Sets status code, headers, and content of a response with the given media,
+   * honoring the <code>Range</code> and <code>If-Range</code> headers of the request.
+   * The content is read only when the response is written.
+   * Preconditions (<code>If-Match</code>, <code>If-None-Match</code>) have to be checked before.
+   * @param request     the request
+   * @param response    the response
+   * @param media       the media source
+   * @param contentType the content type of the media
+   * @param eTag        the ETag of the media, or <code>null</code>
+   */
+  void respond(ODataRequest request, ODataResponse response, MediaSource media, String contentType, String eTag);
+
+  /**
+   * Copies uploaded content, e.g., the body of a request, to the given channel without buffering it completely.
+   * If the target is a {@link java.nio.channels.FileChannel}, the content is transferred
+   * at the channel's current position by the file system.
+   * The content is read to its end but not closed; the target is not closed either.
+   * @param content the content
+   * @param target  the target channel
+   * @return the number of bytes copied
+   * @throws DeserializerException if reading or writing fails
+   */
+  long copy(InputStream content, WritableByteChannel target) throws DeserializerException;
+}
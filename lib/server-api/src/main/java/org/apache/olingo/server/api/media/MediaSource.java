@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.media;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * <p>The source of the content of a media resource or binary value,
+ * read only while the response is written.</p>
+ * <p>Applications can use the sources created by the {@link MediaHelper}
+ * or implement this interface for their own storage.</p>
+ */
+public interface MediaSource {
+
+  /**
+   * Gets the length of the content.
+   * @return the length in bytes, or a negative value if unknown;
+   *         byte ranges can only be served for content of known length
+   */
+  long getLength();
+
+  /**
+   * Opens the content for reading from the given position.
+   * The returned channel is closed after the response has been written.
+   * If it is a {@link java.nio.channels.FileChannel}, its position must be the given offset;
+   * the content is then transferred directly from the file, without copying it through the heap.
+   * @param offset the position of the first byte to be read
+   * @return a channel positioned at the offset
+   * @throws IOException if the content cannot be opened
+   */
+  ReadableByteChannel open(long offset) throws IOException;
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.paging;
+
+import org.apache.olingo.server.api.ODataLibraryException;
+
+/**
+ * This exception is thrown if a page cannot be read from a {@link PagingSnapshotStore}.
+ */
+public class PagingException extends ODataLibraryException {
+  private static final long serialVersionUID = 5209361934466021287L;
+
+  public static enum MessageKeys implements MessageKey {
+    /** parameter: skip token */
+    INVALID_SKIPTOKEN,
+    /** parameter: skip token */
+    EXPIRED_SKIPTOKEN,
+    /** parameter: skip token */
+    OUT_OF_SEQUENCE_SKIPTOKEN;
+
+    @Override
+    public String getKey() {
+      return name();
+    }
+  }
+
+  public PagingException(final String developmentMessage, final MessageKey messageKey,
+      final String... parameters) {
+    super(developmentMessage, messageKey, parameters);
+  }
+
+  public PagingException(final String developmentMessage, final Throwable cause,
+      final MessageKey messageKey, final String... parameters) {
+    super(developmentMessage, cause, messageKey, parameters);
+  }
+
+  @Override
+  protected String getBundleName() {
+    return DEFAULT_SERVER_BUNDLE_NAME;
+  }
+}
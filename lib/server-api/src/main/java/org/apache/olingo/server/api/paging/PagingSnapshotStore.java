@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.paging;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+
+/**
+ * <p>Retains result snapshots of entity-collection requests on the server and hands out
+ * opaque skip tokens (cursors) for reading them page by page.</p>
+ * <p>A snapshot is taken once, when the first page is requested; all further pages
+ * are read from this snapshot, so that they reflect a single point in time
+ * (see OData V4, Part 1, 8.2.6 "Header OData-Isolation") and so that reading a page
+ * costs time proportional to the page size only, regardless of its position.</p>
+ * <p>The store is bounded: snapshots which have not been accessed for the configured
+ * time-to-live are evicted, and the oldest snapshots are evicted if the number of
+ * retained entities exceeds the configured maximum. Reading from an evicted snapshot
+ * results in a {@link PagingException}. Open iterators which implement {@link java.io.Closeable}
+ * are closed when their snapshot is evicted, released, or completely read.</p>
+ * <p>Each snapshot belongs to the entity set it has been opened for; its skip tokens
+ * are rejected for any other entity set.</p>
+ * <p>Implementations are thread-safe and meant to be shared across requests.</p>
+ */
+public interface PagingSnapshotStore {
+
+  /**
+   * Creates a snapshot from a materialized list of entities.
+   * The list is retained as it is and must not be modified afterwards.
+   * Pages of such a snapshot can be read in any order and repeatedly as long as the snapshot is retained;
+   * reading its last page releases it like for any other snapshot.
+   * A list with more entities than the store may retain in total is not retained at all;
+   * such a result has to be paged without snapshot.
+   * @param entitySetName the name of the entity set the result belongs to
+   * @param entities      the entities of the result, already filtered, sorted, and with $skip and $top applied
+   * @param count         the value of <code>@odata.count</code> for all pages, i.e., the number of entities
+   *                      before $skip and $top have been applied, or <code>null</code> if not requested
+   * @return the skip token for the first page, or <code>null</code> if the result is too large to be retained
+   */
+  String open(String entitySetName, List<Entity> entities, Integer count);
+
+  /**
+   * Creates a snapshot from an open iterator, e.g., a cursor of a data source.
+   * The iterator is consumed lazily and only forward, so pages of such a snapshot
+   * must be read in sequence. Each open iterator counts as one retained entity.
+   * @param entitySetName the name of the entity set the result belongs to
+   * @param entities      the entities of the result, already filtered, sorted, and with $skip and $top applied
+   * @param count         the value of <code>@odata.count</code> for all pages, i.e., the number of entities
+   *                      before $skip and $top have been applied, or <code>null</code> if not requested
+   * @return the skip token for the first page
+   */
+  String open(String entitySetName, Iterator<Entity> entities, Integer count);
+
+  /**
+   * Reads the page addressed by the given skip token.
+   * If this is the last page, the snapshot is released.
+   * @param entitySetName the name of the entity set of the request
+   * @param skipToken     a skip token returned by this store
+   * @param pageSize      the maximum number of entities in the page; must be positive
+   * @return the page
+   * @throws PagingException if the skip token is unknown, has been issued for another entity set,
+   *                         has expired, or has already been consumed
+   */
+  SnapshotPage readPage(String entitySetName, String skipToken, int pageSize) throws PagingException;
+
+  /**
+   * Checks whether the given skip token has the format of a skip token of this store.
+   * The result does not tell whether the snapshot addressed by the token is still available.
+   * @param skipToken the skip token
+   * @return <code>true</code> if the format is recognized, <code>false</code> otherwise
+   */
+  boolean isSnapshotToken(String skipToken);
+
+  /**
+   * Releases the snapshot addressed by the given skip token, if it is still retained.
+   * @param skipToken the skip token
+   */
+  void release(String skipToken);
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.paging;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+
+/**
+ * One page read from a {@link PagingSnapshotStore}.
+ */
+public final class SnapshotPage {
+
+  private final List<Entity> entities;
+  private final String nextSkipToken;
+  private final Integer count;
+
+  public SnapshotPage(final List<Entity> entities, final String nextSkipToken, final Integer count) {
+    this.entities = entities;
+    this.nextSkipToken = nextSkipToken;
+    this.count = count;
+  }
+
+  /**
+   * Gets the entities of this page.
+   * @return the entities
+   */
+  public List<Entity> getEntities() {
+    return entities;
+  }
+
+  /**
+   * Gets the skip token for the next page.
+   * @return the skip token or <code>null</code> if this is the last page
+   */
+  public String getNextSkipToken() {
+    return nextSkipToken;
+  }
+
+  /**
+   * Gets the count given when the snapshot has been opened, to be used as <code>@odata.count</code>.
+   * @return the count or <code>null</code> if no count has been given
+   */
+  public Integer getCount() {
+    return count;
+  }
+
+  /**
+   * Determines whether further pages are available.
+   * @return <code>true</code> if there is a next page, <code>false</code> otherwise
+   */
+  public boolean hasNext() {
+    return nextSkipToken != null;
+  }
+}
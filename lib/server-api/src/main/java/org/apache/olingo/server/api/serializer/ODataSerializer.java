@@ -20,9 +20,12 @@ package org.apache.olingo.server.api.serializer;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.ComplexIterator;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.EntityPublisher;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.PrimitiveIterator;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
@@ -77,6 +80,32 @@ public interface ODataSerializer {
   SerializerStreamResult entityCollectionStreamed(ServiceMetadata metadata, EdmEntityType entityType,
       EntityIterator entities, EntityCollectionSerializerOptions options) throws SerializerException;
 
+  /**
+   * Writes entity-collection data whose entities are pushed by a publisher.
+   * The entities are requested only as fast as the returned content is written;
+   * the content implements {@link org.apache.olingo.server.api.ODataNonBlockingContent},
+   * so it can be written without blocking a thread while waiting for the publisher.
+   * @param metadata metadata for the service
+   * @param entityType the {@link EdmEntityType}
+   * @param entities the publisher of the data of the entity set
+   * @param options options for the serializer
+   */
+  SerializerStreamResult entityCollectionPublished(ServiceMetadata metadata, EdmEntityType entityType,
+      EntityPublisher entities, EntityCollectionSerializerOptions options) throws SerializerException;
+
+  /**
+   * Writes the changes of an entity collection since an earlier request as delta response into an InputStream.
+   * Added and changed entities are written like the entities of an entity collection;
+   * deleted entities and added and deleted links are written as delta entries.
+   * The context URL in the options should have the suffix {@link ContextURL.Suffix#DELTA}.
+   * @param metadata metadata for the service
+   * @param entityType the {@link EdmEntityType}
+   * @param delta the changes, with a next link or a delta link for the following request
+   * @param options options for the serializer
+   */
+  SerializerResult delta(ServiceMetadata metadata, EdmEntityType entityType, Delta delta,
+      EntityCollectionSerializerOptions options) throws SerializerException;
+
   /**
    * Writes entity data into an InputStream.
    * @param metadata metadata for the service
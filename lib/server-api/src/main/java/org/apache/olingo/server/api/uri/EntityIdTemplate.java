@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.uri;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.server.api.serializer.SerializerException;
+
+/**
+ * <p>Template for the canonical URLs of the entities of one entity set,
+ * as used for entity-ids, <code>@odata.id</code>, and edit links.</p>
+ * <p>The entity-set prefix and the conversion of the key properties are prepared once,
+ * so a template should be reused for all entities of its entity set.</p>
+ */
+public interface EntityIdTemplate {
+
+  /**
+   * Gets the entity set of this template.
+   * @return the entity set
+   */
+  EdmEntitySet getEntitySet();
+
+  /**
+   * Builds the relative canonical URL for the given entity of the entity set;
+   * the result is the same as from {@link UriHelper#buildCanonicalURL(EdmEntitySet, Entity)}.
+   * @param entity the entity data
+   * @return the relative canonical URL
+   */
+  String buildCanonicalURL(Entity entity) throws SerializerException;
+
+  /**
+   * Appends the relative canonical URL for the given entity of the entity set.
+   * @param builder the builder to append to
+   * @param entity the entity data
+   * @return the builder
+   */
+  StringBuilder appendCanonicalURL(StringBuilder builder, Entity entity) throws SerializerException;
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.uri;
+
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+
+/**
+ * <p>The typed key of an entity, built from key predicates or from the entity data
+ * with {@link UriHelper#buildKey(EdmEntityType, java.util.List)} or
+ * {@link UriHelper#buildKey(EdmEntityType, org.apache.olingo.commons.api.data.Entity)}.</p>
+ * <p>Two keys are equal if they belong to the same entity type and their key property values are equal,
+ * independent of the literal representation in the URI and of the Java types holding the values
+ * in the entity data. So keys can be compared and used in hash-based collections.</p>
+ */
+public interface EntityKey {
+
+  /**
+   * Gets the entity type the key belongs to.
+   * @return the entity type
+   */
+  EdmEntityType getEntityType();
+
+  /**
+   * Gets the canonical key predicate, without the surrounding parentheses,
+   * as used in entity-ids and canonical URLs.
+   * @return the key predicate
+   */
+  String getKeyPredicate();
+}
@@ -60,6 +60,15 @@ public interface UriHelper {
    */
   String buildCanonicalURL(EdmEntitySet edmEntitySet, Entity entity) throws SerializerException;
 
+  /**
+   * Gets the template for the relative canonical URLs of the entities in the given entity set.
+   * Templates are shared by all helpers as long as they are in use, so callers which build many URLs
+   * should keep the template instead of calling this method for each entity.
+   * @param edmEntitySet the entity set
+   * @return the template
+   */
+  EntityIdTemplate getEntityIdTemplate(EdmEntitySet edmEntitySet);
+
   /**
    * Builds the key predicate for the given entity.
    * @param edmEntityType the entity type of the entity
@@ -68,6 +77,24 @@ public interface UriHelper {
    */
   String buildKeyPredicate(EdmEntityType edmEntityType, Entity entity) throws SerializerException;
 
+  /**
+   * Builds the typed key from the key predicates of a resource path.
+   * @param edmEntityType the entity type
+   * @param keys the key predicates as a list of {@link UriParameter} instances
+   * @return the key
+   * @throws DeserializerException if a key property is missing or has an invalid value
+   */
+  EntityKey buildKey(EdmEntityType edmEntityType, List<UriParameter> keys) throws DeserializerException;
+
+  /**
+   * Builds the typed key of the given entity.
+   * @param edmEntityType the entity type of the entity
+   * @param entity the entity data
+   * @return the key
+   * @throws SerializerException if a key property is missing or has an invalid value
+   */
+  EntityKey buildKey(EdmEntityType edmEntityType, Entity entity) throws SerializerException;
+
   /**
    * Parses a given entity-id. Provides the entity set and key predicates.
    * A canonical entiy-id to an entity must follow the pattern
@@ -16,16 +16,17 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
+package org.apache.olingo.server.api.uri.queryoption;
 
-import org.apache.olingo.commons.api.ex.ODataException;
-import org.apache.olingo.commons.api.ex.ODataRuntimeException;
-
-public class SystemQueryOptionsRuntimeException extends ODataRuntimeException {
+/**
+ * Represents the system query option $deltatoken
+ * For example: http://.../entitySet?$deltatoken=abv
+ */
+public interface DeltaTokenOption extends SystemQueryOption {
 
-  private static final long serialVersionUID = 1L;
+  /**
+   * @return Value of $deltatoken
+   */
+  String getValue();
 
-  public SystemQueryOptionsRuntimeException(final ODataException cause) {
-    super(cause);
-  }
 }
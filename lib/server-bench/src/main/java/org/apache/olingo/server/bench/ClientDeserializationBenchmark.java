@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.serialization.ODataDeserializerException;
+import org.apache.olingo.client.core.ODataClientFactory;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Client-side deserialization of responses produced by the technical service.</p>
+ * <p>The payloads are created once by the server, so that they are realistic and always in sync
+ * with the serializers.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientDeserializationBenchmark {
+
+  @Param({ "ESAllPrim", "ESMixPrimCollComp", "ESKeyNav" })
+  public String entitySet;
+
+  @Param({ "application/json;odata.metadata=minimal", "application/json;odata.metadata=full",
+      "application/xml" })
+  public String format;
+
+  private final ODataClient client = ODataClientFactory.getClient();
+  private ContentType contentType;
+  private byte[] entitySetPayload;
+  private byte[] metadataPayload;
+
+  @Setup
+  public void setUp() throws IOException {
+    final TechnicalService service = new TechnicalService();
+    contentType = ContentType.create(format);
+    entitySetPayload = service.processToBytes(TechnicalService.createRequest(HttpMethod.GET, "/" + entitySet,
+        "$format=" + format.replace(";", "%3B").replace("=", "%3D"), null, null));
+    metadataPayload = service.processToBytes(TechnicalService.createRequest(HttpMethod.GET, "/$metadata",
+        null, null, null));
+  }
+
+  @Benchmark
+  public EntityCollection deserializeEntitySet() throws ODataDeserializerException {
+    final ResWrap<EntityCollection> result =
+        client.getDeserializer(contentType).toEntitySet(new ByteArrayInputStream(entitySetPayload));
+    return result.getPayload();
+  }
+
+  @Benchmark
+  public ClientEntitySet readEntitySet() throws ODataDeserializerException {
+    return client.getReader().readEntitySet(new ByteArrayInputStream(entitySetPayload), contentType);
+  }
+
+  /** Independent of the parameters; it is measured once per combination nevertheless. */
+  @Benchmark
+  public Edm readMetadata() {
+    return client.getReader().readMetadata(new ByteArrayInputStream(metadataPayload));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.core.embedded.ODataHandlerFactory;
+import org.apache.olingo.server.core.embedded.ODataHttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Load test of the technical service behind the embedded HTTP server, over real loopback connections.</p>
+ * <p>Several benchmark threads act as concurrent clients, each with persistent (keep-alive) connections;
+ * the server handles the exchanges with a fixed number of worker threads.
+ * The number of client threads can be changed with the JMH option <code>-t</code>.</p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class EmbeddedServerBenchmark {
+
+  @Param({ "4", "16" })
+  public int serverThreads;
+
+  private ExecutorService executor;
+  private ODataHttpServer server;
+  private String serviceRoot;
+
+  @Setup(Level.Trial)
+  public void start() throws IOException {
+    final TechnicalService service = new TechnicalService();
+    executor = Executors.newFixedThreadPool(serverThreads);
+    server = new ODataHttpServer(new InetSocketAddress("localhost", 0), 0, executor);
+    server.addService("/odata", new ODataHandlerFactory() {
+      @Override
+      public ODataHandler createHandler() {
+        return service.createHandler();
+      }
+    });
+    server.start();
+    serviceRoot = "http://localhost:" + server.getAddress().getPort() + "/odata";
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public long pointRead() throws IOException {
+    return get("/ESAllPrim(32767)");
+  }
+
+  @Benchmark
+  public long collectionWithExpand() throws IOException {
+    return get("/ESKeyNav?$expand=NavPropertyETKeyNavOne&$top=5");
+  }
+
+  /** Reads the response completely, so that the connection can be reused. */
+  private long get(final String resource) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(serviceRoot + resource).openConnection();
+    connection.setRequestProperty("Accept", "application/json");
+    if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+      throw new IllegalStateException("Request " + resource + " failed with status code "
+          + connection.getResponseCode());
+    }
+    final InputStream content = connection.getInputStream();
+    final byte[] buffer = new byte[8192];
+    long size = 0;
+    int count;
+    try {
+      while ((count = content.read(buffer)) != -1) {
+        size += count;
+      }
+    } finally {
+      content.close();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Representative requests against the technical service, processed by the complete server pipeline:
+ * URI parsing and validation, dispatching, processing, and (de)serialization.</p>
+ * <p>Each invocation uses a new handler, like the servlet does for each HTTP request.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerPipelineBenchmark {
+
+  private static final String BATCH_BOUNDARY = "batch_bench";
+  private static final String CRLF = "\r\n";
+
+  private static final byte[] BATCH_BODY = createBatchBody(
+      "ESAllPrim(32767)",
+      "ESTwoPrim?$filter=PropertyInt16%20gt%200&$orderby=PropertyString%20desc",
+      "ESKeyNav(1)?$expand=NavPropertyETTwoKeyNavOne");
+
+  private static final byte[] DEEP_INSERT_BODY = ("{\"PropertyInt16\":42,\"PropertyString\":\"deep insert\","
+      + "\"PropertyBoolean\":true,\"PropertyDouble\":1.5,\"PropertyDate\":\"2016-01-01\","
+      + "\"NavPropertyETTwoPrimOne\":{\"PropertyInt16\":1,\"PropertyString\":\"first\"},"
+      + "\"NavPropertyETTwoPrimMany\":["
+      + "{\"PropertyInt16\":2,\"PropertyString\":\"second\"},"
+      + "{\"PropertyInt16\":3,\"PropertyString\":\"third\"}]}").getBytes();
+
+  private TechnicalService service;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    service = new TechnicalService();
+    service.processToBytes(pointReadRequest());
+    service.processToBytes(filteredSortedPageRequest());
+    service.processToBytes(expandRequest());
+    service.processToBytes(batchRequest());
+  }
+
+  /**
+   * Data for inserts, reset before each invocation so that every insert starts from the same data;
+   * otherwise the growing entity sets would slow down the search for free keys, and keys would wrap around.
+   */
+  @State(Scope.Thread)
+  public static class InsertState {
+
+    private TechnicalService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      service = new TechnicalService();
+      service.processToBytes(deepInsertRequest());
+    }
+
+    @Setup(Level.Invocation)
+    public void resetData() {
+      service.resetData();
+    }
+  }
+
+  @Benchmark
+  public long pointRead() throws IOException {
+    return service.process(pointReadRequest(), HttpStatusCode.OK);
+  }
+
+  @Benchmark
+  public long filteredSortedPage() throws IOException {
+    return service.process(filteredSortedPageRequest(), HttpStatusCode.OK);
+  }
+
+  @Benchmark
+  public long expand() throws IOException {
+    return service.process(expandRequest(), HttpStatusCode.OK);
+  }
+
+  @Benchmark
+  public long batch() throws IOException {
+    return service.process(batchRequest(), HttpStatusCode.OK);
+  }
+
+  @Benchmark
+  public long deepInsert(final InsertState state) throws IOException {
+    return state.service.process(deepInsertRequest(), HttpStatusCode.CREATED);
+  }
+
+  private static ODataRequest pointReadRequest() {
+    return TechnicalService.createRequest(HttpMethod.GET, "/ESAllPrim(32767)", null, null, null);
+  }
+
+  private static ODataRequest filteredSortedPageRequest() {
+    return TechnicalService.createRequest(HttpMethod.GET, "/ESServerSidePaging",
+        "$filter=PropertyInt16%20ge%20100%20and%20contains(PropertyString,'1')"
+            + "&$orderby=PropertyString%20desc&$skip=5&$top=20&$count=true",
+        null, null);
+  }
+
+  private static ODataRequest expandRequest() {
+    return TechnicalService.createRequest(HttpMethod.GET, "/ESKeyNav",
+        "$expand=NavPropertyETKeyNavOne,NavPropertyETKeyNavMany($expand=NavPropertyETTwoKeyNavMany)",
+        null, null);
+  }
+
+  private static ODataRequest batchRequest() {
+    return TechnicalService.createRequest(HttpMethod.POST, "/$batch", null,
+        ContentType.MULTIPART_MIXED.toContentTypeString() + ";boundary=" + BATCH_BOUNDARY, BATCH_BODY);
+  }
+
+  private static ODataRequest deepInsertRequest() {
+    return TechnicalService.createRequest(HttpMethod.POST, "/ESAllPrim", null,
+        ContentType.APPLICATION_JSON.toContentTypeString(), DEEP_INSERT_BODY);
+  }
+
+  private static byte[] createBatchBody(final String... requests) {
+    StringBuilder body = new StringBuilder();
+    for (final String request : requests) {
+      body.append("--").append(BATCH_BOUNDARY).append(CRLF)
+          .append("Content-Type: application/http").append(CRLF)
+          .append("Content-Transfer-Encoding: binary").append(CRLF)
+          .append(CRLF)
+          .append("GET ").append(request).append(" HTTP/1.1").append(CRLF)
+          .append("Accept: application/json").append(CRLF)
+          .append(CRLF)
+          .append(CRLF);
+    }
+    body.append("--").append(BATCH_BOUNDARY).append("--").append(CRLF);
+    return body.toString().getBytes();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.tecsvc.ETagSupport;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
+import org.apache.olingo.server.tecsvc.processor.TechnicalActionProcessor;
+import org.apache.olingo.server.tecsvc.processor.TechnicalBatchProcessor;
+import org.apache.olingo.server.tecsvc.processor.TechnicalEntityProcessor;
+import org.apache.olingo.server.tecsvc.processor.TechnicalPrimitiveComplexProcessor;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+
+/**
+ * The technical service with its EDM and data, set up like in the technical servlet
+ * but without any servlet container.
+ */
+public class TechnicalService {
+
+  public static final String BASE_URI = "http://localhost/odata";
+
+  private final OData odata = OData.newInstance();
+  private final ServiceMetadata serviceMetadata =
+      odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+  private DataProvider dataProvider;
+
+  public TechnicalService() {
+    resetData();
+  }
+
+  /** Discards all changes to the data by creating new data. */
+  public void resetData() {
+    dataProvider = new DataProvider(odata, serviceMetadata.getEdm());
+  }
+
+  public OData getOData() {
+    return odata;
+  }
+
+  public ServiceMetadata getServiceMetadata() {
+    return serviceMetadata;
+  }
+
+  /**
+   * Creates a handler with the processors of the technical service registered.
+   * A handler must be used for one request only, like in the servlet.
+   * @return the handler
+   */
+  public ODataHandler createHandler() {
+    final ODataHandler handler = odata.createRawHandler(serviceMetadata);
+    handler.register(new TechnicalEntityProcessor(dataProvider, serviceMetadata));
+    handler.register(new TechnicalPrimitiveComplexProcessor(dataProvider, serviceMetadata));
+    handler.register(new TechnicalActionProcessor(dataProvider, serviceMetadata));
+    handler.register(new TechnicalBatchProcessor(dataProvider));
+    handler.register(new ETagSupport());
+    return handler;
+  }
+
+  /**
+   * Processes a request with a new handler and reads the response body completely.
+   * @param request the request
+   * @return the number of bytes in the response body
+   */
+  public long process(final ODataRequest request) throws IOException {
+    return consume(createHandler().process(request));
+  }
+
+  /**
+   * Processes a request with a new handler, reads the response body completely, and checks the status code.
+   * This ensures that a benchmark does not measure error handling by accident.
+   * @param request        the request
+   * @param expectedStatus the expected status code of the response
+   * @return the number of bytes in the response body
+   * @throws IllegalStateException if the response has a different status code
+   */
+  public long process(final ODataRequest request, final HttpStatusCode expectedStatus) throws IOException {
+    final ODataResponse response = createHandler().process(request);
+    final long count = consume(response);
+    if (response.getStatusCode() != expectedStatus.getStatusCode()) {
+      throw new IllegalStateException("Request " + request.getRawRequestUri()
+          + " returned status code " + response.getStatusCode() + " instead of " + expectedStatus.getStatusCode());
+    }
+    return count;
+  }
+
+  /**
+   * Creates a request.
+   * @param method      the HTTP method
+   * @param path        the resource path relative to the service root, e.g., <code>/ESAllPrim</code>
+   * @param query       the query part, or <code>null</code>
+   * @param contentType the content type of the body, or <code>null</code>
+   * @param body        the body, or <code>null</code>
+   * @return the request
+   */
+  public static ODataRequest createRequest(final HttpMethod method, final String path, final String query,
+      final String contentType, final byte[] body) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setProtocol("HTTP/1.1");
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath(path);
+    request.setRawQueryPath(query);
+    request.setRawRequestUri(BASE_URI + path + (query == null ? "" : "?" + query));
+    if (contentType != null) {
+      request.setHeader(HttpHeader.CONTENT_TYPE, contentType);
+    }
+    if (body != null) {
+      request.setBody(new ByteArrayInputStream(body));
+    }
+    return request;
+  }
+
+  /**
+   * Processes a request with a new handler and returns the response body.
+   * When setting up a benchmark, this ensures that the benchmark does not measure error handling by accident.
+   * @param request the request
+   * @return the response body
+   * @throws IllegalStateException if the response has an error status code
+   */
+  public byte[] processToBytes(final ODataRequest request) throws IOException {
+    final ODataResponse response = createHandler().process(request);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    writeContent(response, output);
+    if (response.getStatusCode() >= 400) {
+      throw new IllegalStateException("Request " + request.getRawRequestUri()
+          + " failed with status code " + response.getStatusCode() + ": " + output.toString("UTF-8"));
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Reads the body of a response completely, whether it is streamed or not.
+   * @param response the response
+   * @return the number of bytes in the response body
+   */
+  public static long consume(final ODataResponse response) throws IOException {
+    final CountingOutputStream output = new CountingOutputStream();
+    writeContent(response, output);
+    return output.count;
+  }
+
+  private static void writeContent(final ODataResponse response, final OutputStream output) throws IOException {
+    if (response.getODataContent() != null) {
+      response.getODataContent().write(output);
+    } else if (response.getContent() != null) {
+      final InputStream content = response.getContent();
+      final byte[] buffer = new byte[8192];
+      int count;
+      try {
+        while ((count = content.read(buffer)) != -1) {
+          output.write(buffer, 0, count);
+        }
+      } finally {
+        content.close();
+      }
+    }
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+    private long count = 0;
+
+    @Override
+    public void write(final int b) {
+      count++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      count += len;
+    }
+  }
+}
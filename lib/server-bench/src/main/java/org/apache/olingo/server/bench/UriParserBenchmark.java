@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.core.uri.validator.UriValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * URI parsing and validation in isolation, against the EDM of the technical service.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriParserBenchmark {
+
+  @Param({
+      "ESAllPrim(32767)",
+      "ESTwoKeyNav(PropertyInt16=1,PropertyString='1')/NavPropertyETKeyNavMany(2)/PropertyCompNav",
+      "ESServerSidePaging?$filter=PropertyInt16 ge 100 and contains(PropertyString,'1')"
+          + "&$orderby=PropertyString desc&$skip=5&$top=20&$count=true",
+      "ESKeyNav?$expand=NavPropertyETKeyNavOne,NavPropertyETKeyNavMany($expand=NavPropertyETTwoKeyNavMany)"
+          + "&$select=PropertyInt16,PropertyString"
+  })
+  public String uri;
+
+  private TechnicalService service;
+  private String path;
+  private String query;
+
+  @Setup
+  public void setUp() {
+    service = new TechnicalService();
+    final int index = uri.indexOf('?');
+    path = "/" + (index < 0 ? uri : uri.substring(0, index));
+    query = index < 0 ? null : uri.substring(index + 1);
+  }
+
+  @Benchmark
+  public UriInfo parseAndValidate() throws Exception {
+    final UriInfo uriInfo = new Parser(service.getServiceMetadata().getEdm(), service.getOData())
+        .parseUri(path, query, null, TechnicalService.BASE_URI);
+    new UriValidator().validate(uriInfo, HttpMethod.GET);
+    return uriInfo;
+  }
+}
@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataNonBlockingContent;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
+
+/**
+ * <p>HTTP handler using the asynchronous, non-blocking I/O of Servlet 3.1.</p>
+ * <p>The container thread only starts the asynchronous cycle. The request body is collected by a
+ * {@link ReadListener} as the data arrives; the request is then processed on the given executor,
+ * and the response body is written by a {@link WriteListener} whenever the client can take more data.
+ * So slow clients do not occupy container threads.</p>
+ * <p>The request body is collected in memory, so its size is limited (see {@link #setMaxRequestBodySize(long)});
+ * larger requests are rejected with status 413 (Payload Too Large).
+ * If the asynchronous cycle times out or fails, the cycle is completed, with status 503 (Service Unavailable)
+ * if the response has not been committed yet, and the response content is closed or cancelled.</p>
+ * <p>Streamed content ({@link ODataResponse#getODataContent()}) is written by its serializer to an output stream;
+ * this is done with blocking I/O on the executor thread.
+ * Content produced asynchronously ({@link ODataNonBlockingContent}, e.g., from an entity publisher)
+ * is instead read by the {@link WriteListener} whenever the client can take more data,
+ * so neither the client nor the data source occupies a thread.
+ * Debug output is not supported in this mode.
+ * If the servlet does not support asynchronous processing, requests are handled synchronously.</p>
+ */
+public class AsyncODataHttpHandler extends ODataHttpHandlerImpl {
+
+  /** Default maximum size of a request body in bytes. */
+  public static final long DEFAULT_MAX_REQUEST_BODY_SIZE = 10L * 1024 * 1024;
+
+  private final Executor executor;
+  private int split = 0;
+  private long timeout = -1;
+  private long maxRequestBodySize = DEFAULT_MAX_REQUEST_BODY_SIZE;
+
+  /**
+   * Creates a new handler.
+   * @param odata           the OData instance
+   * @param serviceMetadata the service metadata
+   * @param executor        the executor processing the requests once their bodies have been read
+   */
+  public AsyncODataHttpHandler(final OData odata, final ServiceMetadata serviceMetadata, final Executor executor) {
+    super(odata, serviceMetadata);
+    this.executor = executor;
+  }
+
+  /**
+   * Sets the timeout of the asynchronous cycle.
+   * @param timeout the timeout in milliseconds, zero for no timeout, or a negative value for the container default
+   */
+  public void setTimeout(final long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Sets the maximum size of a request body, which is collected in memory before the request is processed.
+   * @param maxRequestBodySize the maximum size in bytes
+   */
+  public void setMaxRequestBodySize(final long maxRequestBodySize) {
+    this.maxRequestBodySize = maxRequestBodySize;
+  }
+
+  @Override
+  public void setSplit(final int split) {
+    super.setSplit(split);
+    this.split = split;
+  }
+
+  @Override
+  public void process(final HttpServletRequest request, final HttpServletResponse response) {
+    if (!request.isAsyncSupported()) {
+      super.process(request, response);
+      return;
+    }
+
+    final AsyncCycle cycle = new AsyncCycle(request.startAsync(), response);
+    if (timeout >= 0) {
+      cycle.asyncContext.setTimeout(timeout);
+    }
+
+    final ODataRequest odRequest = new ODataRequest();
+    try {
+      odRequest.setProtocol(request.getProtocol());
+      odRequest.setMethod(extractMethod(request));
+      copyHeaders(odRequest, request);
+      fillUriInformation(odRequest, request, split);
+
+      if (request.getContentLengthLong() > maxRequestBodySize) {
+        respondLater(cycle, handleException(odRequest, createPayloadTooLargeException()));
+      } else {
+        final ServletInputStream input = request.getInputStream();
+        input.setReadListener(new RequestBodyReader(cycle, odRequest, input));
+      }
+    } catch (final Exception e) {
+      respondLater(cycle, handleException(odRequest, e));
+    }
+  }
+
+  private ODataApplicationException createPayloadTooLargeException() {
+    return new ODataApplicationException("The request body exceeds the maximum size of " + maxRequestBodySize
+        + " bytes.", HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode(), Locale.ROOT);
+  }
+
+  private void processLater(final AsyncCycle cycle, final ODataRequest odRequest) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (cycle.isCompleted()) {
+          return;
+        }
+        ODataResponse odResponse;
+        try {
+          odResponse = process(odRequest);
+        } catch (final Exception e) {
+          odResponse = handleException(odRequest, e);
+        }
+        respond(cycle, odResponse);
+      }
+    });
+  }
+
+  private void respondLater(final AsyncCycle cycle, final ODataResponse odResponse) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        respond(cycle, odResponse);
+      }
+    });
+  }
+
+  private static void respond(final AsyncCycle cycle, final ODataResponse odResponse) {
+    if (cycle.isCompleted()) {
+      // timed out or failed meanwhile; the response must not be used any more
+      closeQuietly(odResponse.getContent());
+      if (odResponse.getODataContent() instanceof ODataNonBlockingContent) {
+        ((ODataNonBlockingContent) odResponse.getODataContent()).cancel();
+      }
+      return;
+    }
+    try {
+      copyStatusAndHeaders(cycle.response, odResponse);
+      final ServletOutputStream output = cycle.response.getOutputStream();
+      if (odResponse.getContent() != null) {
+        output.setWriteListener(new ResponseBodyWriter(cycle, output, odResponse.getContent()));
+      } else if (odResponse.getODataContent() instanceof ODataNonBlockingContent) {
+        output.setWriteListener(new NonBlockingContentWriter(cycle, output,
+            (ODataNonBlockingContent) odResponse.getODataContent()));
+      } else {
+        if (odResponse.getODataContent() != null) {
+          odResponse.getODataContent().write(output);
+        }
+        cycle.complete();
+      }
+    } catch (final IOException e) {
+      closeQuietly(odResponse.getContent());
+      cycle.complete();
+    } catch (final RuntimeException e) {
+      closeQuietly(odResponse.getContent());
+      cycle.complete();
+    }
+  }
+
+  private static void closeQuietly(final Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (final IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * One asynchronous request cycle; completes its {@link AsyncContext} exactly once,
+   * whether the response has been written or the cycle has timed out or failed.
+   */
+  private static class AsyncCycle implements AsyncListener {
+    private final AsyncContext asyncContext;
+    private final HttpServletResponse response;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private volatile Runnable abortHandler;
+
+    AsyncCycle(final AsyncContext asyncContext, final HttpServletResponse response) {
+      this.asyncContext = asyncContext;
+      this.response = response;
+      asyncContext.addListener(this);
+    }
+
+    boolean isCompleted() {
+      return completed.get();
+    }
+
+    /**
+     * Sets the action releasing the response content if the cycle is aborted.
+     */
+    void setAbortHandler(final Runnable abortHandler) {
+      this.abortHandler = abortHandler;
+    }
+
+    void complete() {
+      if (completed.compareAndSet(false, true)) {
+        asyncContext.complete();
+      }
+    }
+
+    private void abort() {
+      if (completed.compareAndSet(false, true)) {
+        if (!response.isCommitted()) {
+          response.setStatus(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode());
+        }
+        final Runnable handler = abortHandler;
+        if (handler != null) {
+          handler.run();
+        }
+        asyncContext.complete();
+      }
+    }
+
+    @Override
+    public void onTimeout(final AsyncEvent event) {
+      abort();
+    }
+
+    @Override
+    public void onError(final AsyncEvent event) {
+      abort();
+    }
+
+    @Override
+    public void onComplete(final AsyncEvent event) {
+      completed.set(true);
+    }
+
+    @Override
+    public void onStartAsync(final AsyncEvent event) {
+      // not restarted
+    }
+  }
+
+  /**
+   * Collects the request body without blocking and starts the processing once it is complete.
+   */
+  private class RequestBodyReader implements ReadListener {
+    private final AsyncCycle cycle;
+    private final ODataRequest odRequest;
+    private final ServletInputStream input;
+    private final Body body = new Body();
+    private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    private boolean rejected = false;
+
+    RequestBodyReader(final AsyncCycle cycle, final ODataRequest odRequest, final ServletInputStream input) {
+      this.cycle = cycle;
+      this.odRequest = odRequest;
+      this.input = input;
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+      int count;
+      while (!rejected && input.isReady() && (count = input.read(buffer)) != -1) {
+        if (count > maxRequestBodySize - body.size()) {
+          // The rest of the body is not read; the container closes the connection if necessary.
+          rejected = true;
+          respondLater(cycle, handleException(odRequest, createPayloadTooLargeException()));
+        } else {
+          body.write(buffer, 0, count);
+        }
+      }
+    }
+
+    @Override
+    public void onAllDataRead() {
+      if (!rejected) {
+        odRequest.setBody(body.getInputStream());
+        processLater(cycle, odRequest);
+      }
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+      if (!rejected) {
+        rejected = true;
+        respondLater(cycle, handleException(odRequest,
+            new DeserializerException("An I/O exception occurred.", t,
+                DeserializerException.MessageKeys.IO_EXCEPTION)));
+      }
+    }
+  }
+
+  /**
+   * Collected request body, read without copying it.
+   */
+  private static class Body extends ByteArrayOutputStream {
+    InputStream getInputStream() {
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+  }
+
+  /**
+   * Writes the response body whenever the client is able to receive more data.
+   */
+  private static class ResponseBodyWriter implements WriteListener {
+    private final AsyncCycle cycle;
+    private final ServletOutputStream output;
+    private final InputStream content;
+    private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    private boolean finished = false;
+
+    ResponseBodyWriter(final AsyncCycle cycle, final ServletOutputStream output, final InputStream content) {
+      this.cycle = cycle;
+      this.output = output;
+      this.content = content;
+      cycle.setAbortHandler(new Runnable() {
+        @Override
+        public void run() {
+          closeQuietly(content);
+        }
+      });
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+      while (!finished && output.isReady()) {
+        final int count = content.read(buffer);
+        if (count == -1) {
+          finish();
+        } else {
+          output.write(buffer, 0, count);
+        }
+      }
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+      finish();
+    }
+
+    private void finish() {
+      if (!finished) {
+        finished = true;
+        closeQuietly(content);
+        cycle.complete();
+      }
+    }
+  }
+
+  /**
+   * Writes non-blocking content whenever the client is able to receive more data
+   * and the content has data available.
+   */
+  private static class NonBlockingContentWriter implements WriteListener, Runnable {
+    private final AsyncCycle cycle;
+    private final ServletOutputStream output;
+    private final ODataNonBlockingContent content;
+    private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    private boolean finished = false;
+
+    NonBlockingContentWriter(final AsyncCycle cycle, final ServletOutputStream output,
+        final ODataNonBlockingContent content) {
+      this.cycle = cycle;
+      this.output = output;
+      this.content = content;
+      cycle.setAbortHandler(new Runnable() {
+        @Override
+        public void run() {
+          content.cancel();
+        }
+      });
+      content.setDataAvailableListener(this);
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+      write();
+    }
+
+    @Override
+    public void run() {
+      try {
+        write();
+      } catch (final IOException e) {
+        onError(e);
+      }
+    }
+
+    private synchronized void write() throws IOException {
+      while (!finished && !cycle.isCompleted() && output.isReady()) {
+        final int count = content.read(buffer, 0, buffer.length);
+        if (count == -1) {
+          finish();
+        } else if (count == 0) {
+          return;
+        } else {
+          output.write(buffer, 0, count);
+        }
+      }
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+      content.cancel();
+      finish();
+    }
+
+    private synchronized void finish() {
+      if (!finished) {
+        finished = true;
+        cycle.complete();
+      }
+    }
+  }
+}
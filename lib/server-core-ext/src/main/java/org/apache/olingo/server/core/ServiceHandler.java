@@ -298,7 +298,8 @@ public interface ServiceHandler extends Processor {
    * 
    * The contract for this interface is if it returns true, whenever the service deals with $skiptoken based
    * results, they MUST be from same snapshot of the original request. false, the framework will automatically
-   * returns a 412.
+   * returns a 412. A store for such snapshots can be obtained from
+   * {@link org.apache.olingo.server.api.OData#createPagingSnapshotStore(int, long)}.
    * @return
    */
   boolean supportsDataIsolation();
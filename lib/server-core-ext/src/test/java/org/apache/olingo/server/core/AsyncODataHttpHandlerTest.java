@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.olingo.commons.api.edm.provider.CsdlAbstractEdmProvider;
+import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.server.api.OData;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class AsyncODataHttpHandlerTest {
+
+  /** Input stream which only delivers data when the test says so. */
+  private static class TestInputStream extends ServletInputStream {
+    private final ByteArrayInputStream data;
+    private ReadListener listener;
+    private int available = 0;
+
+    TestInputStream(final byte[] data) {
+      this.data = new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (available == 0) {
+        throw new IllegalStateException("Blocking read");
+      }
+      available--;
+      return data.read();
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (available == 0) {
+        throw new IllegalStateException("Blocking read");
+      }
+      final int count = data.read(b, off, Math.min(len, available));
+      available = count < 0 ? 0 : available - count;
+      return count;
+    }
+
+    @Override
+    public boolean isReady() {
+      return available > 0;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return data.available() == 0;
+    }
+
+    @Override
+    public void setReadListener(final ReadListener readListener) {
+      listener = readListener;
+    }
+  }
+
+  /** Output stream which only accepts a limited number of writes before it has to be drained. */
+  private static class TestOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private WriteListener listener;
+    private int writable = 0;
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      if (writable <= 0) {
+        throw new IllegalStateException("Blocking write");
+      }
+      writable--;
+      data.write(b, off, len);
+    }
+
+    @Override
+    public boolean isReady() {
+      return writable > 0;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      listener = writeListener;
+    }
+  }
+
+  private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+  private final Executor executor = new Executor() {
+    @Override
+    public void execute(final Runnable command) {
+      tasks.add(command);
+    }
+  };
+
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private AsyncContext asyncContext;
+  private TestInputStream input;
+  private TestOutputStream output;
+  private AsyncODataHttpHandler handler;
+
+  @Before
+  public void setUp() throws Exception {
+    final OData odata = OData.newInstance();
+    handler = new AsyncODataHttpHandler(odata, odata.createServiceMetadata(new CsdlAbstractEdmProvider() {
+      @Override
+      public List<CsdlSchema> getSchemas() throws ODataException {
+        return Collections.singletonList(new CsdlSchema().setNamespace("Namespace1"));
+      }
+    }, Collections.<EdmxReference> emptyList()), executor);
+
+    input = new TestInputStream(new byte[100]);
+    output = new TestOutputStream();
+    asyncContext = mock(AsyncContext.class);
+    request = mock(HttpServletRequest.class);
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync()).thenReturn(asyncContext);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getProtocol()).thenReturn("HTTP/1.1");
+    when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/service/$metadata"));
+    when(request.getServletPath()).thenReturn("/service");
+    when(request.getContextPath()).thenReturn("");
+    when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.<String> emptyList()));
+    when(request.getInputStream()).thenReturn(input);
+    response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(output);
+  }
+
+  private void runTasks() {
+    final List<Runnable> current = new ArrayList<Runnable>(tasks);
+    tasks.clear();
+    for (final Runnable task : current) {
+      task.run();
+    }
+  }
+
+  @Test
+  public void nonBlockingReadAndWrite() throws Exception {
+    handler.process(request, response);
+    assertNotNull(input.listener);
+    assertTrue(tasks.isEmpty());
+
+    // The body arrives in two parts.
+    input.available = 60;
+    input.listener.onDataAvailable();
+    input.available = 40;
+    input.listener.onDataAvailable();
+    assertTrue(input.isFinished());
+    input.listener.onAllDataRead();
+    assertNull(output.listener);
+
+    runTasks();
+    verify(response).setStatus(200);
+    assertNotNull(output.listener);
+
+    // The client is slow; only one chunk can be written.
+    output.writable = 1;
+    output.listener.onWritePossible();
+    assertTrue(output.data.size() > 0);
+    verify(asyncContext, never()).complete();
+
+    output.writable = Integer.MAX_VALUE;
+    output.listener.onWritePossible();
+    assertThat(output.data.toString("UTF-8"), containsString("Namespace1"));
+    verify(asyncContext, times(1)).complete();
+  }
+
+  @Test
+  public void invalidMethod() throws Exception {
+    when(request.getMethod()).thenReturn("INVALID");
+    handler.process(request, response);
+    assertNull(input.listener);
+
+    runTasks();
+    verify(response).setStatus(405);
+    output.writable = Integer.MAX_VALUE;
+    output.listener.onWritePossible();
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  public void requestBodyTooLarge() throws Exception {
+    handler.setMaxRequestBodySize(50);
+    handler.process(request, response);
+    input.available = 60;
+    input.listener.onDataAvailable();
+    input.listener.onAllDataRead();
+
+    runTasks();
+    verify(response).setStatus(413);
+    verify(response, never()).setStatus(200);
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  public void contentLengthTooLarge() throws Exception {
+    handler.setMaxRequestBodySize(50);
+    when(request.getContentLengthLong()).thenReturn(100L);
+    handler.process(request, response);
+    assertNull(input.listener);
+
+    runTasks();
+    verify(response).setStatus(413);
+  }
+
+  @Test
+  public void timeout() throws Exception {
+    handler.process(request, response);
+    final ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+    input.available = 100;
+    input.listener.onDataAvailable();
+    input.listener.onAllDataRead();
+
+    // The cycle times out before the request has been processed.
+    listener.getValue().onTimeout(null);
+    verify(response).setStatus(503);
+    verify(asyncContext, times(1)).complete();
+
+    runTasks();
+    verify(response, never()).setStatus(200);
+    assertNull(output.listener);
+    listener.getValue().onError(null);
+    verify(asyncContext, times(1)).complete();
+  }
+
+  @Test
+  public void completeOnce() throws Exception {
+    handler.process(request, response);
+    final ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+    input.available = 100;
+    input.listener.onDataAvailable();
+    input.listener.onAllDataRead();
+    runTasks();
+    output.writable = Integer.MAX_VALUE;
+    output.listener.onWritePossible();
+    verify(asyncContext, times(1)).complete();
+
+    output.listener.onError(new IOException());
+    listener.getValue().onError(null);
+    verify(asyncContext, times(1)).complete();
+    verify(response, never()).setStatus(503);
+  }
+
+  @Test
+  public void synchronousWithoutAsyncSupport() throws Exception {
+    when(request.isAsyncSupported()).thenReturn(false);
+    input.available = 100;
+    output.writable = Integer.MAX_VALUE;
+    handler.process(request, response);
+
+    verify(request, never()).startAsync();
+    verify(response).setStatus(200);
+    assertThat(output.data.toString("UTF-8"), containsString("Namespace1"));
+  }
+}
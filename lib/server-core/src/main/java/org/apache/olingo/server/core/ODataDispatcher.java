@@ -49,6 +49,7 @@ import org.apache.olingo.server.api.processor.ComplexProcessor;
 import org.apache.olingo.server.api.processor.CountComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountPrimitiveCollectionProcessor;
+import org.apache.olingo.server.api.processor.DeltaProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.MediaEntityProcessor;
@@ -508,8 +509,13 @@ public class ODataDispatcher {
       final ContentType requestedContentType = ContentNegotiator.
           doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.COLLECTION_ENTITY);
-      handler.selectProcessor(EntityCollectionProcessor.class)
-          .readEntityCollection(request, response, uriInfo, requestedContentType);
+      if (uriInfo.getDeltaTokenOption() == null) {
+        handler.selectProcessor(EntityCollectionProcessor.class)
+            .readEntityCollection(request, response, uriInfo, requestedContentType);
+      } else {
+        handler.selectProcessor(DeltaProcessor.class)
+            .readDelta(request, response, uriInfo, requestedContentType);
+      }
     } else if (method == HttpMethod.POST) {
       final ContentType responseFormat = ContentNegotiator.
           doContentNegotiation(uriInfo.getFormatOption(),
@@ -25,8 +25,11 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataLibraryException.ODataErrorMessage;
 import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.async.AsyncProcessingException;
+import org.apache.olingo.server.api.delta.DeltaException;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.PreconditionException;
+import org.apache.olingo.server.api.paging.PagingException;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.core.uri.parser.UriParserException;
 import org.apache.olingo.server.core.uri.parser.UriParserSemanticException;
@@ -124,6 +127,25 @@ public class ODataExceptionHelper {
     return serverError;
   }
 
+  public static ODataServerError createServerErrorObject(final PagingException e, final Locale requestedLocale) {
+    return basicTranslatedError(e, requestedLocale).setStatusCode(
+        PagingException.MessageKeys.EXPIRED_SKIPTOKEN == e.getMessageKey() ?
+            HttpStatusCode.GONE.getStatusCode() :
+            HttpStatusCode.BAD_REQUEST.getStatusCode());
+  }
+
+  public static ODataServerError createServerErrorObject(final DeltaException e, final Locale requestedLocale) {
+    return basicTranslatedError(e, requestedLocale).setStatusCode(
+        DeltaException.MessageKeys.EXPIRED_DELTATOKEN == e.getMessageKey() ?
+            HttpStatusCode.GONE.getStatusCode() :
+            HttpStatusCode.BAD_REQUEST.getStatusCode());
+  }
+
+  public static ODataServerError createServerErrorObject(final AsyncProcessingException e,
+      final Locale requestedLocale) {
+    return basicTranslatedError(e, requestedLocale).setStatusCode(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode());
+  }
+
   public static ODataServerError createServerErrorObject(final ODataLibraryException e, final Locale requestedLocale) {
     return basicTranslatedError(e, requestedLocale);
   }
@@ -18,9 +18,9 @@
  */
 package org.apache.olingo.server.core;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -39,6 +39,7 @@ import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ODataLibraryException;
@@ -53,6 +54,7 @@ import org.apache.olingo.server.api.etag.CustomETagSupport;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.media.MediaHelperImpl;
 
 public class ODataHttpHandlerImpl implements ODataHttpHandler {
 
@@ -134,13 +136,15 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     this.split = split;
   }
 
-  private ODataResponse handleException(final ODataRequest odRequest, final Exception e) {
+  ODataResponse handleException(final ODataRequest odRequest, final Exception e) {
     ODataResponse resp = new ODataResponse();
     ODataServerError serverError;
     if (e instanceof ODataHandlerException) {
       serverError = ODataExceptionHelper.createServerErrorObject((ODataHandlerException) e, null);
     } else if (e instanceof ODataLibraryException) {
       serverError = ODataExceptionHelper.createServerErrorObject((ODataLibraryException) e, null);
+    } else if (e instanceof ODataApplicationException) {
+      serverError = ODataExceptionHelper.createServerErrorObject((ODataApplicationException) e);
     } else {
       serverError = ODataExceptionHelper.createServerErrorObject(e);
     }
@@ -149,6 +153,16 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   }
 
   static void convertToHttp(final HttpServletResponse response, final ODataResponse odResponse) {
+    copyStatusAndHeaders(response, odResponse);
+
+    if (odResponse.getContent() != null) {
+      copyContent(odResponse.getContent(), response);
+    } else if (odResponse.getODataContent() != null) {
+      writeContent(odResponse, response);
+    }
+  }
+
+  static void copyStatusAndHeaders(final HttpServletResponse response, final ODataResponse odResponse) {
     response.setStatus(odResponse.getStatusCode());
 
     for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
@@ -156,12 +170,6 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
         response.addHeader(entry.getKey(), headerValue);
       }
     }
-
-    if (odResponse.getContent() != null) {
-      copyContent(odResponse.getContent(), response);
-    } else if (odResponse.getODataContent() != null) {
-      writeContent(odResponse, response);
-    }
   }
 
   static void writeContent(final ODataResponse odataResponse, final HttpServletResponse servletResponse) {
@@ -174,19 +182,18 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   }
 
   static void copyContent(final InputStream inputStream, final HttpServletResponse servletResponse) {
-    copyContent(Channels.newChannel(inputStream), servletResponse);
+    // A file is transferred by the file system.
+    copyContent(inputStream instanceof FileInputStream ?
+        ((FileInputStream) inputStream).getChannel() :
+        Channels.newChannel(inputStream),
+        servletResponse);
   }
 
   static void copyContent(final ReadableByteChannel input, final HttpServletResponse servletResponse) {
     WritableByteChannel output = null;
     try {
-      ByteBuffer inBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
       output = Channels.newChannel(servletResponse.getOutputStream());
-      while (input.read(inBuffer) > 0) {
-        inBuffer.flip();
-        output.write(inBuffer);
-        inBuffer.clear();
-      }
+      MediaHelperImpl.transfer(input, output, -1);
     } catch (IOException e) {
       throw new ODataRuntimeException("Error on reading request content", e);
     } finally {
@@ -229,18 +236,30 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   }
 
   static HttpMethod extractMethod(final HttpServletRequest httpRequest) throws ODataLibraryException {
+    return extractMethod(httpRequest.getMethod(),
+        httpRequest.getHeader(HttpHeader.X_HTTP_METHOD),
+        httpRequest.getHeader(HttpHeader.X_HTTP_METHOD_OVERRIDE));
+  }
+
+  /**
+   * Determines the HTTP method of a request, taking the X-HTTP-Method headers of POST requests into account.
+   * @param method               the method of the HTTP request
+   * @param xHttpMethod          the value of the X-HTTP-Method header or <code>null</code>
+   * @param xHttpMethodOverride  the value of the X-HTTP-Method-Override header or <code>null</code>
+   * @return the HTTP method
+   * @throws ODataLibraryException if the method is not allowed or ambiguous
+   */
+  public static HttpMethod extractMethod(final String method, final String xHttpMethod,
+      final String xHttpMethodOverride) throws ODataLibraryException {
     final HttpMethod httpRequestMethod;
     try {
-      httpRequestMethod = HttpMethod.valueOf(httpRequest.getMethod());
+      httpRequestMethod = HttpMethod.valueOf(method);
     } catch (IllegalArgumentException e) {
-      throw new ODataHandlerException("HTTP method not allowed" + httpRequest.getMethod(), e,
-          ODataHandlerException.MessageKeys.HTTP_METHOD_NOT_ALLOWED, httpRequest.getMethod());
+      throw new ODataHandlerException("HTTP method not allowed" + method, e,
+          ODataHandlerException.MessageKeys.HTTP_METHOD_NOT_ALLOWED, method);
     }
     try {
       if (httpRequestMethod == HttpMethod.POST) {
-        String xHttpMethod = httpRequest.getHeader(HttpHeader.X_HTTP_METHOD);
-        String xHttpMethodOverride = httpRequest.getHeader(HttpHeader.X_HTTP_METHOD_OVERRIDE);
-
         if (xHttpMethod == null && xHttpMethodOverride == null) {
           return httpRequestMethod;
         } else if (xHttpMethod == null) {
@@ -258,8 +277,8 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
         return httpRequestMethod;
       }
     } catch (IllegalArgumentException e) {
-      throw new ODataHandlerException("Invalid HTTP method" + httpRequest.getMethod(), e,
-          ODataHandlerException.MessageKeys.INVALID_HTTP_METHOD, httpRequest.getMethod());
+      throw new ODataHandlerException("Invalid HTTP method" + method, e,
+          ODataHandlerException.MessageKeys.INVALID_HTTP_METHOD, method);
     }
   }
 
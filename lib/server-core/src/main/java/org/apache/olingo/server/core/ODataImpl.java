@@ -20,6 +20,7 @@ package org.apache.olingo.server.core;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
@@ -31,28 +32,40 @@ import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataHandler;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.async.AsyncProcessingService;
 import org.apache.olingo.server.api.debug.DebugResponseHelper;
+import org.apache.olingo.server.api.delta.ChangeLog;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.expand.ExpandExecutor;
+import org.apache.olingo.server.api.expand.NavigationLoader;
+import org.apache.olingo.server.api.media.MediaHelper;
+import org.apache.olingo.server.api.paging.PagingSnapshotStore;
 import org.apache.olingo.server.api.prefer.Preferences;
 import org.apache.olingo.server.api.serializer.EdmAssistedSerializer;
 import org.apache.olingo.server.api.serializer.FixedFormatSerializer;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.UriHelper;
+import org.apache.olingo.server.core.async.AsyncProcessingServiceImpl;
 import org.apache.olingo.server.core.debug.DebugResponseHelperImpl;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.delta.ChangeLogImpl;
 import org.apache.olingo.server.core.deserializer.FixedFormatDeserializerImpl;
 import org.apache.olingo.server.core.deserializer.json.ODataJsonDeserializer;
 import org.apache.olingo.server.core.deserializer.xml.ODataXmlDeserializer;
 import org.apache.olingo.server.core.etag.ETagHelperImpl;
+import org.apache.olingo.server.core.expand.ExpandExecutorImpl;
+import org.apache.olingo.server.core.media.MediaHelperImpl;
+import org.apache.olingo.server.core.paging.PagingSnapshotStoreImpl;
 import org.apache.olingo.server.core.prefer.PreferencesImpl;
 import org.apache.olingo.server.core.serializer.FixedFormatSerializerImpl;
 import org.apache.olingo.server.core.serializer.json.EdmAssistedJsonSerializer;
 import org.apache.olingo.server.core.serializer.json.ODataJsonSerializer;
+import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.xml.ODataXmlSerializer;
 import org.apache.olingo.server.core.uri.UriHelperImpl;
 
@@ -60,6 +73,12 @@ public class ODataImpl extends OData {
 
   @Override
   public ODataSerializer createSerializer(final ContentType contentType) throws SerializerException {
+    return createSerializer(contentType, CircleStreamBuffer.DEFAULT_SPILL_THRESHOLD);
+  }
+
+  @Override
+  public ODataSerializer createSerializer(final ContentType contentType, final long spillThreshold)
+      throws SerializerException {
     ODataSerializer serializer = null;
 
     if (contentType.isCompatible(ContentType.APPLICATION_JSON)) {
@@ -68,11 +87,11 @@ public class ODataImpl extends OData {
           || ContentType.VALUE_ODATA_METADATA_MINIMAL.equalsIgnoreCase(metadata)
           || ContentType.VALUE_ODATA_METADATA_NONE.equalsIgnoreCase(metadata)
           || ContentType.VALUE_ODATA_METADATA_FULL.equalsIgnoreCase(metadata)) {
-        serializer = new ODataJsonSerializer(contentType);
+        serializer = new ODataJsonSerializer(contentType, spillThreshold);
       }
     } else if (contentType.isCompatible(ContentType.APPLICATION_XML)
         || contentType.isCompatible(ContentType.APPLICATION_ATOM_XML)) {
-      serializer = new ODataXmlSerializer();
+      serializer = new ODataXmlSerializer(spillThreshold);
     }
 
     if (serializer == null) {
@@ -165,11 +184,37 @@ public class ODataImpl extends OData {
     return new ETagHelperImpl();
   }
 
+  @Override
+  public MediaHelper createMediaHelper() {
+    return new MediaHelperImpl();
+  }
+
   @Override
   public Preferences createPreferences(final Collection<String> preferHeaders) {
     return new PreferencesImpl(preferHeaders);
   }
 
+  @Override
+  public PagingSnapshotStore createPagingSnapshotStore(final int maxRetainedEntities, final long timeToLiveMillis) {
+    return new PagingSnapshotStoreImpl(maxRetainedEntities, timeToLiveMillis);
+  }
+
+  @Override
+  public ChangeLog createChangeLog(final int maxEntries) {
+    return new ChangeLogImpl(maxEntries);
+  }
+
+  @Override
+  public AsyncProcessingService createAsyncProcessingService(final Executor executor, final int maxPendingJobs,
+      final long maxProcessingTimeMillis, final long resultTimeToLiveMillis) {
+    return new AsyncProcessingServiceImpl(executor, maxPendingJobs, maxProcessingTimeMillis, resultTimeToLiveMillis);
+  }
+
+  @Override
+  public ExpandExecutor createExpandExecutor(final NavigationLoader loader) {
+    return new ExpandExecutorImpl(loader);
+  }
+
   @Override
   public DebugResponseHelper createDebugResponseHelper(final String debugFormat) {
     // TODO: What should we do with invalid formats?
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityPublisher;
+import org.apache.olingo.commons.api.data.EntitySubscriber;
+import org.apache.olingo.commons.api.data.EntitySubscription;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.ODataContentWriteErrorCallback;
+import org.apache.olingo.server.api.ODataNonBlockingContent;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.core.serializer.EntityCollectionWriter;
+
+/**
+ * Content of an entity collection whose entities are pushed by an {@link EntityPublisher}.
+ * <p>
+ * Entities are serialized into an internal buffer on the thread that delivers them.
+ * New entities are requested in small batches, and only if the buffer has been drained
+ * below a low-water mark by the reader; so a slow client slows down the publisher instead of
+ * filling up memory, and no thread waits for the publisher.
+ * </p>
+ */
+public class ODataPublishedContent implements ODataNonBlockingContent {
+
+  /** Number of entities requested from the publisher at a time. */
+  static final int REQUEST_SIZE = 16;
+  /** Buffer size below which more entities are requested. */
+  static final int LOW_WATER_MARK = 8192;
+  private static final int COPY_BUFFER_SIZE = 8192;
+
+  private final EntityPublisher publisher;
+  private final EntityCollectionWriter writer;
+  private final EntityCollectionSerializerOptions options;
+  private final Buffer buffer = new Buffer();
+
+  private boolean started = false;
+  private EntitySubscription subscription;
+  private long outstanding = 0;
+  private boolean finished = false;
+  private boolean waiting = false;
+  private Runnable listener;
+
+  public ODataPublishedContent(final EntityPublisher publisher, final EntityCollectionWriter writer,
+      final EntityCollectionSerializerOptions options) {
+    this.publisher = publisher;
+    this.writer = writer;
+    this.options = options;
+  }
+
+  @Override
+  public int read(final byte[] bytes, final int offset, final int length) {
+    start();
+    final int count;
+    synchronized (this) {
+      if (buffer.size() == 0 && finished) {
+        return -1;
+      }
+      count = buffer.read(bytes, offset, length);
+      if (count == 0) {
+        waiting = true;
+      }
+    }
+    requestMore();
+    return count;
+  }
+
+  @Override
+  public void setDataAvailableListener(final Runnable listener) {
+    synchronized (this) {
+      this.listener = listener;
+    }
+  }
+
+  @Override
+  public void cancel() {
+    final EntitySubscription target;
+    synchronized (this) {
+      finished = true;
+      buffer.clear();
+      target = subscription;
+      subscription = null;
+    }
+    if (target != null) {
+      target.cancel();
+    }
+    dataAvailable();
+  }
+
+  @Override
+  public void write(final WritableByteChannel channel) {
+    write(Channels.newOutputStream(channel));
+  }
+
+  @Override
+  public void write(final OutputStream stream) {
+    final byte[] bytes = new byte[COPY_BUFFER_SIZE];
+    try {
+      int count;
+      while ((count = read(bytes, 0, bytes.length)) != -1) {
+        if (count == 0) {
+          awaitData();
+        } else {
+          stream.write(bytes, 0, count);
+        }
+      }
+      stream.flush();
+    } catch (final IOException e) {
+      cancel();
+      throw new ODataRuntimeException("Failed entity serialization", e);
+    } catch (final InterruptedException e) {
+      cancel();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized void awaitData() throws InterruptedException {
+    while (buffer.size() == 0 && !finished) {
+      wait();
+    }
+  }
+
+  private void start() {
+    synchronized (this) {
+      if (started || finished) {
+        return;
+      }
+      started = true;
+    }
+    publisher.subscribe(new Subscriber());
+  }
+
+  /**
+   * Requests the next batch of entities if none are outstanding and the buffer is drained far enough.
+   * The request is made without holding the lock because the publisher may deliver from within the call.
+   */
+  private void requestMore() {
+    final EntitySubscription target;
+    synchronized (this) {
+      if (finished || subscription == null || outstanding > 0 || buffer.size() >= LOW_WATER_MARK) {
+        return;
+      }
+      outstanding = REQUEST_SIZE;
+      target = subscription;
+    }
+    target.request(REQUEST_SIZE);
+  }
+
+  private void dataAvailable() {
+    final Runnable target;
+    synchronized (this) {
+      notifyAll();
+      if (!waiting || listener == null) {
+        return;
+      }
+      waiting = false;
+      target = listener;
+    }
+    target.run();
+  }
+
+  /** Must be called while holding the lock. */
+  private void fail(final RuntimeException e) {
+    fail(new SerializerException("Failed entity serialization.", e, SerializerException.MessageKeys.IO_EXCEPTION));
+  }
+
+  /** Must be called while holding the lock. */
+  private void fail(final SerializerException e) {
+    finished = true;
+    final ODataContentWriteErrorCallback errorCallback =
+        options == null ? null : options.getODataContentWriteErrorCallback();
+    if (errorCallback != null) {
+      errorCallback.handleError(new WriteErrorContext(e), Channels.newChannel(buffer));
+    }
+  }
+
+  private class Subscriber implements EntitySubscriber {
+    private EntitySubscription subscription;
+
+    @Override
+    public void onSubscribe(final EntitySubscription subscription) {
+      this.subscription = subscription;
+      synchronized (ODataPublishedContent.this) {
+        if (!finished) {
+          ODataPublishedContent.this.subscription = subscription;
+          try {
+            writer.writeStart(buffer, publisher.getCount());
+          } catch (final SerializerException e) {
+            fail(e);
+          } catch (final RuntimeException e) {
+            fail(e);
+          }
+        }
+      }
+      if (isFinished()) {
+        subscription.cancel();
+      }
+      dataAvailable();
+      requestMore();
+    }
+
+    @Override
+    public void onNext(final Entity entity) {
+      boolean failed = false;
+      synchronized (ODataPublishedContent.this) {
+        if (finished) {
+          return;
+        }
+        outstanding--;
+        try {
+          writer.writeEntity(entity);
+        } catch (final SerializerException e) {
+          fail(e);
+          failed = true;
+        } catch (final RuntimeException e) {
+          fail(e);
+          failed = true;
+        }
+      }
+      if (failed) {
+        subscription.cancel();
+      }
+      dataAvailable();
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      synchronized (ODataPublishedContent.this) {
+        if (finished) {
+          return;
+        }
+        fail(new SerializerException("The entity publisher failed.", throwable,
+            SerializerException.MessageKeys.IO_EXCEPTION));
+      }
+      dataAvailable();
+    }
+
+    @Override
+    public void onComplete() {
+      synchronized (ODataPublishedContent.this) {
+        if (finished) {
+          return;
+        }
+        try {
+          writer.writeEnd(publisher.getNext());
+          finished = true;
+        } catch (final SerializerException e) {
+          fail(e);
+        } catch (final RuntimeException e) {
+          fail(e);
+        }
+      }
+      dataAvailable();
+    }
+  }
+
+  private synchronized boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Growable byte buffer that is written by the serializer and read by the consumer.
+   */
+  private static class Buffer extends OutputStream {
+    private byte[] data = new byte[COPY_BUFFER_SIZE];
+    private int start = 0;
+    private int end = 0;
+
+    int size() {
+      return end - start;
+    }
+
+    int read(final byte[] bytes, final int offset, final int length) {
+      final int count = Math.min(length, end - start);
+      System.arraycopy(data, start, bytes, offset, count);
+      start += count;
+      if (start == end) {
+        start = 0;
+        end = 0;
+      }
+      return count;
+    }
+
+    void clear() {
+      start = 0;
+      end = 0;
+    }
+
+    @Override
+    public void write(final int b) {
+      ensureCapacity(1);
+      data[end++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) {
+      ensureCapacity(length);
+      System.arraycopy(bytes, offset, data, end, length);
+      end += length;
+    }
+
+    private void ensureCapacity(final int length) {
+      if (end + length <= data.length) {
+        return;
+      }
+      final int size = end - start;
+      if (size + length <= data.length / 2) {
+        System.arraycopy(data, start, data, 0, size);
+      } else {
+        final byte[] newData = new byte[Math.max(data.length * 2, size + length)];
+        System.arraycopy(data, start, newData, 0, size);
+        data = newData;
+      }
+      start = 0;
+      end = size;
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.async;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.async.AsyncJob;
+import org.apache.olingo.server.api.async.AsyncProcessingException;
+import org.apache.olingo.server.api.async.AsyncProcessingService;
+import org.apache.olingo.server.api.async.AsyncTask;
+import org.apache.olingo.server.core.serializer.AsyncResponseSerializer;
+
+/**
+ * <p>Default implementation of the {@link AsyncProcessingService}.</p>
+ * <p>Jobs are kept in a concurrent map; the bound on pending jobs is enforced with a semaphore
+ * whose permits are acquired without blocking on submission and released when a job has finished.
+ * Jobs are checked for expiry on lookup, and all jobs are swept at most once per
+ * time-to-live or processing-time interval, piggy-backed on submissions and lookups.
+ * There is no background thread: if the service is not called, timeouts are only detected on the next call;
+ * applications which need timely detection can schedule {@link #expireJobs()}.</p>
+ * <p>A job which has not been finished within the maximum processing time is failed with a
+ * {@link TimeoutException} and its thread is interrupted. A running job still counts as pending until its
+ * task has returned, so that no more than the maximum number of pending jobs run at the same time.</p>
+ */
+public class AsyncProcessingServiceImpl implements AsyncProcessingService {
+
+  private final Executor executor;
+  private final int maxPendingJobs;
+  private final long maxProcessingTimeMillis;
+  private final long resultTimeToLiveMillis;
+  private final Semaphore pendingJobs;
+  private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+  private final AtomicLong nextSweep = new AtomicLong();
+  private final AsyncResponseSerializer serializer = new AsyncResponseSerializer();
+
+  public AsyncProcessingServiceImpl(final Executor executor, final int maxPendingJobs,
+      final long maxProcessingTimeMillis, final long resultTimeToLiveMillis) {
+    if (executor == null) {
+      throw new IllegalArgumentException("The executor must not be null.");
+    }
+    if (maxPendingJobs <= 0) {
+      throw new IllegalArgumentException("The maximum number of pending jobs must be positive.");
+    }
+    if (maxProcessingTimeMillis <= 0) {
+      throw new IllegalArgumentException("The maximum processing time must be positive.");
+    }
+    if (resultTimeToLiveMillis <= 0) {
+      throw new IllegalArgumentException("The time to live must be positive.");
+    }
+    this.executor = executor;
+    this.maxPendingJobs = maxPendingJobs;
+    this.maxProcessingTimeMillis = maxProcessingTimeMillis;
+    this.resultTimeToLiveMillis = resultTimeToLiveMillis;
+    pendingJobs = new Semaphore(maxPendingJobs);
+  }
+
+  @Override
+  public AsyncJob submit(final AsyncTask task) throws AsyncProcessingException {
+    sweep();
+    if (!pendingJobs.tryAcquire()) {
+      throw new AsyncProcessingException("Too many pending asynchronous jobs.",
+          AsyncProcessingException.MessageKeys.TOO_MANY_PENDING_JOBS, String.valueOf(maxPendingJobs));
+    }
+    final Job job = new Job(UUID.randomUUID().toString().replace("-", ""), task, currentTimeMillis());
+    jobs.put(job.getId(), job);
+    try {
+      executor.execute(job);
+    } catch (final RejectedExecutionException e) {
+      jobs.remove(job.getId());
+      job.releasePermit();
+      throw new AsyncProcessingException("The executor rejected the asynchronous job.", e,
+          AsyncProcessingException.MessageKeys.REJECTED);
+    }
+    return job;
+  }
+
+  @Override
+  public AsyncJob getJob(final String id) {
+    sweep();
+    final Job job = id == null ? null : jobs.get(id);
+    if (job != null && job.checkExpired(currentTimeMillis())) {
+      jobs.remove(id, job);
+      return null;
+    }
+    return job;
+  }
+
+  @Override
+  public AsyncJob removeJob(final String id) {
+    final Job job = id == null ? null : jobs.remove(id);
+    if (job != null) {
+      job.discarded = true;
+    }
+    return job;
+  }
+
+  @Override
+  public Collection<AsyncJob> getJobs() {
+    sweep();
+    return Collections.unmodifiableCollection(new ArrayList<AsyncJob>(jobs.values()));
+  }
+
+  /**
+   * Gets the number of jobs that are currently queued or running.
+   * @return the number of pending jobs
+   */
+  public int getPendingJobCount() {
+    return maxPendingJobs - pendingJobs.availablePermits();
+  }
+
+  /**
+   * Returns the current time in milliseconds; can be overridden in tests.
+   * @return the current time
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Fails all jobs which have not been finished within the maximum processing time
+   * and removes all jobs which have been finished for longer than the time to live.
+   */
+  public void expireJobs() {
+    final long now = currentTimeMillis();
+    for (final Iterator<Job> iterator = jobs.values().iterator(); iterator.hasNext();) {
+      if (iterator.next().checkExpired(now)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private void sweep() {
+    final long now = currentTimeMillis();
+    final long next = nextSweep.get();
+    if (now >= next
+        && nextSweep.compareAndSet(next, now + Math.min(maxProcessingTimeMillis, resultTimeToLiveMillis))) {
+      expireJobs();
+    }
+  }
+
+  private class Job implements AsyncJob, Runnable {
+    private final String id;
+    private final AsyncTask task;
+    private final long submittedAt;
+    private final AtomicBoolean permitReleased = new AtomicBoolean();
+    private volatile State state = State.QUEUED;
+    private volatile byte[] result;
+    private volatile Exception exception;
+    private volatile long finishedAt;
+    private volatile boolean discarded;
+    private Thread runner;
+    private boolean interrupted;
+
+    Job(final String id, final AsyncTask task, final long submittedAt) {
+      this.id = id;
+      this.task = task;
+      this.submittedAt = submittedAt;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (discarded || !start()) {
+          return;
+        }
+        try {
+          final ODataResponse response = task.execute();
+          finish(State.COMPLETED, discarded ? null : serializer.serializeToByteArray(response), null);
+        } catch (final Exception e) {
+          finish(State.FAILED, null, e);
+        } finally {
+          // The job is still unfinished here only if the task has thrown an error.
+          finish(State.FAILED, null, new ExecutionException("The job has been terminated by an error.", null));
+          stop();
+        }
+      } finally {
+        releasePermit();
+      }
+    }
+
+    private synchronized boolean start() {
+      if (state != State.QUEUED) {
+        return false;
+      }
+      state = State.RUNNING;
+      runner = Thread.currentThread();
+      return true;
+    }
+
+    /** Detaches the job from its thread; an interrupt caused by a timeout must not affect the thread's next task. */
+    private synchronized void stop() {
+      runner = null;
+      if (interrupted) {
+        Thread.interrupted();
+      }
+    }
+
+    /**
+     * Fails the job because of a timeout. A queued job will never run and releases its permit at once;
+     * the thread of a running job is interrupted, and the job releases its permit when its task returns.
+     */
+    private synchronized void timeOut() {
+      final boolean queued = state == State.QUEUED;
+      finish(State.FAILED, null,
+          new TimeoutException("The job has not been finished within " + maxProcessingTimeMillis + " ms."));
+      if (queued) {
+        releasePermit();
+      } else if (runner != null) {
+        interrupted = true;
+        runner.interrupt();
+      }
+    }
+
+    /** A job is finished only once; a job which has timed out keeps its state when its task returns. */
+    private synchronized void finish(final State finalState, final byte[] finalResult,
+        final Exception finalException) {
+      if (state != State.QUEUED && state != State.RUNNING) {
+        return;
+      }
+      result = finalResult;
+      exception = finalException;
+      finishedAt = currentTimeMillis();
+      // The state is written last so that readers seeing a final state also see result and exception.
+      state = finalState;
+    }
+
+    void releasePermit() {
+      if (permitReleased.compareAndSet(false, true)) {
+        pendingJobs.release();
+      }
+    }
+
+    /**
+     * Fails the job if it has not been finished within the maximum processing time
+     * and checks whether the job has been finished for longer than the time to live.
+     */
+    boolean checkExpired(final long now) {
+      State current = state;
+      if ((current == State.QUEUED || current == State.RUNNING) && now - submittedAt >= maxProcessingTimeMillis) {
+        discarded = true;
+        timeOut();
+        current = state;
+      }
+      return (current == State.COMPLETED || current == State.FAILED)
+          && now - finishedAt >= resultTimeToLiveMillis;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public AsyncTask getTask() {
+      return task;
+    }
+
+    @Override
+    public State getState() {
+      return state;
+    }
+
+    @Override
+    public InputStream getResult() {
+      return state == State.COMPLETED && result != null ? new ByteArrayInputStream(result) : null;
+    }
+
+    @Override
+    public Exception getException() {
+      return state == State.FAILED ? exception : null;
+    }
+  }
+}
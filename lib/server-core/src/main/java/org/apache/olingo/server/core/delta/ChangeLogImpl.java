@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.delta;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.server.api.delta.ChangeLog;
+import org.apache.olingo.server.api.delta.ChangeSet;
+import org.apache.olingo.server.api.delta.DeltaException;
+
+/**
+ * <p>Default implementation of the {@link ChangeLog}.</p>
+ * <p>Every change gets a sequence number; a delta token consists of the id of the log instance
+ * and the sequence number of the last change before the token has been issued, separated by a dash.
+ * The instance id makes sure that tokens of an earlier instance, e.g., before a restart of the service,
+ * are not mistaken for tokens of this one. Changes are kept in a queue in the order of their sequence
+ * numbers, so that discarding the oldest ones only looks at the head of the queue.</p>
+ */
+public class ChangeLogImpl implements ChangeLog {
+
+  private static final Pattern TOKEN_PATTERN = Pattern.compile("([0-9a-f]{32})-(\\d{1,18})");
+
+  private enum Kind {
+    CHANGED, DELETED, LINK_ADDED, LINK_DELETED
+  }
+
+  private static final class Change {
+    private final long sequence;
+    private final String entitySetName;
+    private final Kind kind;
+    private final URI entityId;
+    private final DeltaLink link;
+
+    private Change(final long sequence, final String entitySetName, final Kind kind,
+        final URI entityId, final DeltaLink link) {
+      this.sequence = sequence;
+      this.entitySetName = entitySetName;
+      this.kind = kind;
+      this.entityId = entityId;
+      this.link = link;
+    }
+  }
+
+  private final String instanceId = UUID.randomUUID().toString().replace("-", "");
+  private final int maxEntries;
+  private final ArrayDeque<Change> changes = new ArrayDeque<Change>();
+  private long sequence = 0;
+  private long discardedUpTo = 0;
+
+  public ChangeLogImpl(final int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("The maximum number of entries must be positive.");
+    }
+    this.maxEntries = maxEntries;
+  }
+
+  @Override
+  public synchronized String getDeltaToken(final String entitySetName) {
+    return createToken(sequence);
+  }
+
+  @Override
+  public void recordChange(final String entitySetName, final URI entityId) {
+    record(entitySetName, Kind.CHANGED, entityId, null);
+  }
+
+  @Override
+  public void recordDeletion(final String entitySetName, final URI entityId) {
+    record(entitySetName, Kind.DELETED, entityId, null);
+  }
+
+  @Override
+  public void recordAddedLink(final String entitySetName, final DeltaLink link) {
+    record(entitySetName, Kind.LINK_ADDED, null, link);
+  }
+
+  @Override
+  public void recordDeletedLink(final String entitySetName, final DeltaLink link) {
+    record(entitySetName, Kind.LINK_DELETED, null, link);
+  }
+
+  @Override
+  public ChangeSet readChanges(final String entitySetName, final String deltaToken) throws DeltaException {
+    final Matcher matcher = deltaToken == null ? null : TOKEN_PATTERN.matcher(deltaToken);
+    if (matcher == null || !matcher.matches() || !instanceId.equals(matcher.group(1))) {
+      throw new DeltaException("Invalid delta token.", DeltaException.MessageKeys.INVALID_DELTATOKEN, deltaToken);
+    }
+    final long since = Long.parseLong(matcher.group(2));
+
+    // Only the most recent change of an entity or a link is relevant;
+    // re-inserting moves the key to the end, so the order is the one of the most recent changes.
+    final Map<URI, Boolean> entities = new LinkedHashMap<URI, Boolean>();
+    final Map<DeltaLink, Boolean> links = new LinkedHashMap<DeltaLink, Boolean>();
+    final long current;
+    synchronized (this) {
+      if (since > sequence) {
+        throw new DeltaException("Delta token from the future.",
+            DeltaException.MessageKeys.INVALID_DELTATOKEN, deltaToken);
+      }
+      if (since < discardedUpTo) {
+        throw new DeltaException("Changes have been discarded.",
+            DeltaException.MessageKeys.EXPIRED_DELTATOKEN, deltaToken);
+      }
+      current = sequence;
+      final Iterator<Change> iterator = changes.descendingIterator();
+      final List<Change> relevant = new ArrayList<Change>();
+      while (iterator.hasNext()) {
+        final Change change = iterator.next();
+        if (change.sequence <= since) {
+          break;
+        }
+        if (change.entitySetName.equals(entitySetName)) {
+          relevant.add(change);
+        }
+      }
+      for (int index = relevant.size() - 1; index >= 0; index--) {
+        final Change change = relevant.get(index);
+        if (change.entityId == null) {
+          links.remove(change.link);
+          links.put(change.link, change.kind == Kind.LINK_ADDED);
+        } else {
+          entities.remove(change.entityId);
+          entities.put(change.entityId, change.kind == Kind.CHANGED);
+        }
+      }
+    }
+
+    final List<URI> changed = new ArrayList<URI>();
+    final List<URI> deleted = new ArrayList<URI>();
+    for (final Map.Entry<URI, Boolean> entry : entities.entrySet()) {
+      (entry.getValue() ? changed : deleted).add(entry.getKey());
+    }
+    final List<DeltaLink> addedLinks = new ArrayList<DeltaLink>();
+    final List<DeltaLink> deletedLinks = new ArrayList<DeltaLink>();
+    for (final Map.Entry<DeltaLink, Boolean> entry : links.entrySet()) {
+      (entry.getValue() ? addedLinks : deletedLinks).add(entry.getKey());
+    }
+    return new ChangeSet(changed, deleted, addedLinks, deletedLinks, createToken(current));
+  }
+
+  @Override
+  public boolean isDeltaToken(final String deltaToken) {
+    return deltaToken != null && TOKEN_PATTERN.matcher(deltaToken).matches();
+  }
+
+  /**
+   * Gets the number of currently recorded changes.
+   * @return the number of changes
+   */
+  public synchronized int getEntryCount() {
+    return changes.size();
+  }
+
+  private synchronized void record(final String entitySetName, final Kind kind, final URI entityId,
+      final DeltaLink link) {
+    changes.addLast(new Change(++sequence, entitySetName, kind, entityId, link));
+    while (changes.size() > maxEntries) {
+      discardedUpTo = changes.removeFirst().sequence;
+    }
+  }
+
+  private String createToken(final long sequenceNumber) {
+    return instanceId + '-' + sequenceNumber;
+  }
+}
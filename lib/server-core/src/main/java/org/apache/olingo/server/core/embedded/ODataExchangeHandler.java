@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.embedded;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.core.ODataExceptionHelper;
+import org.apache.olingo.server.core.ODataHandlerException;
+import org.apache.olingo.server.core.ODataHttpHandlerImpl;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsExchange;
+
+/**
+ * <p>Binds an OData service to the HTTP server built into the JDK, without any servlet container.</p>
+ * <p>Each exchange is mapped directly to an {@link ODataRequest} and processed by a handler
+ * obtained from the {@link ODataHandlerFactory}; the {@link ODataResponse} is written back with
+ * chunked transfer encoding, and {@link ODataContent} is streamed directly to the connection.
+ * Connections are kept alive by the server as long as the client allows it.</p>
+ * <p>The OData path is the request path relative to the path of the HTTP context this handler
+ * has been registered for.</p>
+ */
+public class ODataExchangeHandler implements HttpHandler {
+
+  private final ODataHandlerFactory handlerFactory;
+
+  public ODataExchangeHandler(final ODataHandlerFactory handlerFactory) {
+    this.handlerFactory = handlerFactory;
+  }
+
+  @Override
+  public void handle(final HttpExchange exchange) throws IOException {
+    try {
+      if (getContextLength(exchange) < 0) {
+        exchange.sendResponseHeaders(HttpStatusCode.NOT_FOUND.getStatusCode(), -1);
+        return;
+      }
+      final ODataRequest request;
+      try {
+        request = createODataRequest(exchange);
+      } catch (final ODataLibraryException e) {
+        final int statusCode = e instanceof ODataHandlerException ?
+            ODataExceptionHelper.createServerErrorObject((ODataHandlerException) e, null).getStatusCode() :
+            HttpStatusCode.BAD_REQUEST.getStatusCode();
+        exchange.sendResponseHeaders(statusCode, -1);
+        return;
+      }
+      writeResponse(exchange, handlerFactory.createHandler().process(request));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  static ODataRequest createODataRequest(final HttpExchange exchange) throws ODataLibraryException {
+    final Headers headers = exchange.getRequestHeaders();
+    final ODataRequest request = new ODataRequest();
+    request.setMethod(ODataHttpHandlerImpl.extractMethod(exchange.getRequestMethod(),
+        headers.getFirst(HttpHeader.X_HTTP_METHOD),
+        headers.getFirst(HttpHeader.X_HTTP_METHOD_OVERRIDE)));
+    request.setProtocol(exchange.getProtocol());
+    for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
+      request.addHeader(header.getKey(), header.getValue());
+    }
+    request.setBody(exchange.getRequestBody());
+
+    final String rawPath = exchange.getRequestURI().getRawPath();
+    final String rawQuery = exchange.getRequestURI().getRawQuery();
+    final int contextLength = getContextLength(exchange);
+    final String rawODataPath = rawPath.length() > contextLength ? rawPath.substring(contextLength) : "";
+    final String rawBaseUri = getScheme(exchange) + "://" + getHost(exchange) + rawPath.substring(0, contextLength);
+
+    request.setRawBaseUri(rawBaseUri);
+    request.setRawODataPath(rawODataPath);
+    request.setRawQueryPath(rawQuery);
+    request.setRawRequestUri(rawBaseUri + rawODataPath + (rawQuery == null ? "" : "?" + rawQuery));
+    return request;
+  }
+
+  /**
+   * Gets the length of the context path within the raw request path.
+   * The JDK server selects the context by a plain prefix match, so a request for <code>/odataX</code>
+   * also reaches the context <code>/odata</code>; the context path must therefore be followed
+   * by a slash or the end of the request path.
+   * @return the length, or -1 if the request path is not within the context path
+   */
+  static int getContextLength(final HttpExchange exchange) {
+    final String contextPath = exchange.getHttpContext().getPath();
+    final String rawPath = exchange.getRequestURI().getRawPath();
+    // The context path of the JDK server may or may not end with a slash.
+    final int length = contextPath.endsWith("/") ? contextPath.length() - 1 : contextPath.length();
+    return rawPath.regionMatches(0, contextPath, 0, length)
+        && (rawPath.length() == length || rawPath.charAt(length) == '/') ?
+        length :
+        -1;
+  }
+
+  private static String getScheme(final HttpExchange exchange) {
+    return exchange instanceof HttpsExchange ? "https" : "http";
+  }
+
+  private static String getHost(final HttpExchange exchange) {
+    final String host = exchange.getRequestHeaders().getFirst(HttpHeader.HOST);
+    if (host != null && host.length() > 0) {
+      return host;
+    }
+    final InetSocketAddress address = exchange.getLocalAddress();
+    return address.getHostName() + ":" + address.getPort();
+  }
+
+  static void writeResponse(final HttpExchange exchange, final ODataResponse response) throws IOException {
+    final Headers headers = exchange.getResponseHeaders();
+    for (final Map.Entry<String, List<String>> header : response.getAllHeaders().entrySet()) {
+      headers.put(header.getKey(), header.getValue());
+    }
+
+    final InputStream content = response.getContent();
+    final ODataContent odataContent = response.getODataContent();
+    final int statusCode = response.getStatusCode();
+    final boolean noBody = statusCode == HttpStatusCode.NO_CONTENT.getStatusCode()
+        || statusCode == HttpStatusCode.NOT_MODIFIED.getStatusCode()
+        || "HEAD".equals(exchange.getRequestMethod());
+    if (noBody || content == null && odataContent == null) {
+      if (content != null) {
+        content.close();
+      }
+      exchange.sendResponseHeaders(statusCode, -1);
+      return;
+    }
+
+    // A known length is set by the exchange itself; a length of zero selects chunked transfer encoding
+    // and a length of -1 means no body at all.
+    final String contentLength = headers.getFirst(HttpHeader.CONTENT_LENGTH);
+    headers.remove(HttpHeader.CONTENT_LENGTH);
+    final long length = contentLength == null ? 0 : Long.parseLong(contentLength);
+    exchange.sendResponseHeaders(statusCode, length == 0 && contentLength != null ? -1 : length);
+    final OutputStream output = exchange.getResponseBody();
+    if (content == null) {
+      odataContent.write(output);
+    } else {
+      try {
+        final byte[] buffer = new byte[ODataHttpHandlerImpl.COPY_BUFFER_SIZE];
+        int count;
+        while ((count = content.read(buffer)) != -1) {
+          output.write(buffer, 0, count);
+        }
+      } finally {
+        content.close();
+      }
+    }
+    output.close();
+  }
+}
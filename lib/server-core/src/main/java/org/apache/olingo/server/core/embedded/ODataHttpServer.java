@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.embedded;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>Lightweight embedded HTTP server for OData services, based on the HTTP server built into the JDK.</p>
+ * <p>Example:</p>
+ * <pre>
+ * <code>
+ * ODataHttpServer server = new ODataHttpServer(new InetSocketAddress(8080), 0, Executors.newFixedThreadPool(16));
+ * server.addService("/odata", new ODataHandlerFactory() {
+ *   public ODataHandler createHandler() {
+ *     ODataHandler handler = odata.createRawHandler(serviceMetadata);
+ *     handler.register(processor);
+ *     return handler;
+ *   }
+ * });
+ * server.start();
+ * </code>
+ * </pre>
+ * <p>HTTPS can be used by registering an {@link ODataExchangeHandler} with a
+ * <code>com.sun.net.httpserver.HttpsServer</code> directly.</p>
+ */
+public class ODataHttpServer {
+
+  private final HttpServer server;
+
+  /**
+   * Creates a server bound to the given address; it does not accept requests before it has been started.
+   * @param address  the address to bind to; port 0 selects a free port
+   * @param backlog  the maximum number of queued incoming connections; zero or less for the system default
+   * @param executor the executor handling the exchanges; <code>null</code> handles them on the dispatcher thread
+   * @throws IOException if the server cannot be bound
+   */
+  public ODataHttpServer(final InetSocketAddress address, final int backlog, final Executor executor)
+      throws IOException {
+    server = HttpServer.create(address, backlog);
+    server.setExecutor(executor);
+  }
+
+  /**
+   * Registers a service.
+   * @param contextPath    the path under which the service is available, e.g., <code>/odata</code>
+   * @param handlerFactory the factory for the handlers of the service's requests
+   */
+  public void addService(final String contextPath, final ODataHandlerFactory handlerFactory) {
+    server.createContext(contextPath, new ODataExchangeHandler(handlerFactory));
+  }
+
+  /**
+   * Unregisters a service.
+   * @param contextPath the path used to register the service
+   */
+  public void removeService(final String contextPath) {
+    server.removeContext(contextPath);
+  }
+
+  /** Starts accepting requests. */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops the server.
+   * @param delaySeconds the maximum time in seconds to wait for current exchanges to complete
+   */
+  public void stop(final int delaySeconds) {
+    server.stop(delaySeconds);
+  }
+
+  /**
+   * Gets the address the server is bound to, e.g., to find out the selected port.
+   * @return the address
+   */
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+}
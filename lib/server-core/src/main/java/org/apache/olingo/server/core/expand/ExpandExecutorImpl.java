@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.expand.ExpandExecutor;
+import org.apache.olingo.server.api.expand.NavigationLoader;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+
+/**
+ * Breadth-first expand execution calling the {@link NavigationLoader}
+ * once per navigation property and level.
+ * <p>
+ * Supported are expand items consisting of a single navigation property or the star,
+ * optionally with <code>/$ref</code> or <code>/$count</code>; references and counts are not expanded further.
+ * All other expand items, e.g., paths through complex properties or with type casts,
+ * and <code>$levels</code> are rejected as not implemented.
+ */
+public class ExpandExecutorImpl implements ExpandExecutor {
+
+  private final NavigationLoader loader;
+
+  public ExpandExecutorImpl(final NavigationLoader loader) {
+    this.loader = loader;
+  }
+
+  @Override
+  public void expand(final EntityCollection entities, final EdmBindingTarget bindingTarget,
+      final EdmEntityType entityType, final ExpandOption expandOption) throws ODataApplicationException {
+    expand(entities.getEntities(), bindingTarget, entityType, expandOption);
+  }
+
+  @Override
+  public void expand(final Entity entity, final EdmBindingTarget bindingTarget, final EdmEntityType entityType,
+      final ExpandOption expandOption) throws ODataApplicationException {
+    expand(Collections.singletonList(entity), bindingTarget, entityType, expandOption);
+  }
+
+  private void expand(final List<Entity> entities, final EdmBindingTarget bindingTarget,
+      final EdmEntityType entityType, final ExpandOption expandOption) throws ODataApplicationException {
+    if (expandOption == null || entities.isEmpty()) {
+      return;
+    }
+    for (final ExpandedNavigation expanded : getExpandedNavigations(entityType, expandOption).values()) {
+      final EdmNavigationProperty navigationProperty = expanded.property;
+      final ExpandItem item = expanded.item;
+      final List<Entity> loaded = loadAndLink(entities, bindingTarget, navigationProperty, item);
+      if (item.isRef() || item.hasCountPath()) {
+        continue;
+      }
+
+      // All entities loaded on this level are expanded together on the next level.
+      expand(loaded,
+          bindingTarget == null ? null : bindingTarget.getRelatedBindingTarget(navigationProperty.getName()),
+          navigationProperty.getType(),
+          item.isStar() ? null : item.getExpandOption());
+    }
+  }
+
+  private List<Entity> loadAndLink(final List<Entity> entities, final EdmBindingTarget bindingTarget,
+      final EdmNavigationProperty navigationProperty, final ExpandItem item) throws ODataApplicationException {
+    final List<EntityCollection> results = loader.loadNavigation(bindingTarget, navigationProperty,
+        Collections.unmodifiableList(entities), item);
+    if (results == null || results.size() != entities.size()) {
+      throw new ODataApplicationException("Navigation loader returned an unexpected number of results for "
+          + navigationProperty.getName(),
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+    }
+
+    final List<Entity> loaded = new ArrayList<Entity>();
+    for (int index = 0; index < entities.size(); index++) {
+      final EntityCollection related = results.get(index);
+      final Link link = getOrCreateLink(entities.get(index), navigationProperty.getName());
+      if (navigationProperty.isCollection()) {
+        final EntityCollection inline = related == null ? new EntityCollection() : related;
+        if (item.hasCountPath() && inline.getCount() == null) {
+          inline.setCount(inline.getEntities().size());
+        }
+        link.setInlineEntitySet(inline);
+        loaded.addAll(inline.getEntities());
+      } else {
+        final Entity inline = related == null || related.getEntities().isEmpty() ?
+            null : related.getEntities().get(0);
+        link.setInlineEntity(inline);
+        if (inline != null) {
+          loaded.add(inline);
+        }
+      }
+    }
+    return loaded;
+  }
+
+  private Link getOrCreateLink(final Entity entity, final String name) {
+    Link link = entity.getNavigationLink(name);
+    if (link == null) {
+      link = new Link();
+      link.setTitle(name);
+      entity.getNavigationLinks().add(link);
+    }
+    return link;
+  }
+
+  private Map<String, ExpandedNavigation> getExpandedNavigations(final EdmEntityType entityType,
+      final ExpandOption expandOption) throws ODataApplicationException {
+    Map<String, ExpandedNavigation> result = new LinkedHashMap<String, ExpandedNavigation>();
+    for (final ExpandItem item : expandOption.getExpandItems()) {
+      if (item.getLevelsOption() != null) {
+        throw new ODataApplicationException("$levels is not implemented",
+            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      }
+      if (item.isStar()) {
+        for (final String name : entityType.getNavigationPropertyNames()) {
+          if (!result.containsKey(name)) {
+            result.put(name, new ExpandedNavigation(entityType.getNavigationProperty(name), item));
+          }
+        }
+      } else {
+        final List<UriResource> parts = item.getResourcePath() == null ?
+            Collections.<UriResource> emptyList() :
+            item.getResourcePath().getUriResourceParts();
+        if (parts.size() != 1 || !(parts.get(0) instanceof UriResourceNavigation)) {
+          throw new ODataApplicationException("Expanding " + getPath(parts) + " is not implemented",
+              HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+        }
+        // Explicitly named navigation properties take precedence over the star.
+        final EdmNavigationProperty property = ((UriResourceNavigation) parts.get(0)).getProperty();
+        result.put(property.getName(), new ExpandedNavigation(property, item));
+      }
+    }
+    return result;
+  }
+
+  private String getPath(final List<UriResource> parts) {
+    StringBuilder path = new StringBuilder();
+    for (final UriResource part : parts) {
+      path.append(path.length() == 0 ? "" : "/").append(part.getSegmentValue());
+    }
+    return path.toString();
+  }
+
+  private static class ExpandedNavigation {
+    private final EdmNavigationProperty property;
+    private final ExpandItem item;
+
+    public ExpandedNavigation(final EdmNavigationProperty property, final ExpandItem item) {
+      this.property = property;
+      this.item = item;
+    }
+  }
+}
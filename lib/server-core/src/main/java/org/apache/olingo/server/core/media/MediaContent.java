@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.media.MediaSource;
+
+/**
+ * Response content reading a range of a {@link MediaSource} only when it is written.
+ */
+public class MediaContent implements ODataContent {
+
+  private final MediaSource media;
+  private final long offset;
+  private final long count;
+
+  /**
+   * @param media  the media source
+   * @param offset the position of the first byte
+   * @param count  the number of bytes, or a negative value for all bytes up to the end
+   */
+  public MediaContent(final MediaSource media, final long offset, final long count) {
+    this.media = media;
+    this.offset = offset;
+    this.count = count;
+  }
+
+  @Override
+  public void write(final WritableByteChannel channel) {
+    ReadableByteChannel input = null;
+    try {
+      input = media.open(offset);
+      MediaHelperImpl.transfer(input, channel, count);
+    } catch (final IOException e) {
+      throw new ODataRuntimeException("Error on writing media content", e);
+    } finally {
+      if (input != null) {
+        try {
+          input.close();
+        } catch (final IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  @Override
+  public void write(final OutputStream stream) {
+    write(Channels.newChannel(stream));
+  }
+}
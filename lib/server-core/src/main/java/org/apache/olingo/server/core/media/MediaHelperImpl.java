@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.media;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
+import org.apache.olingo.server.api.media.MediaHelper;
+import org.apache.olingo.server.api.media.MediaSource;
+
+public class MediaHelperImpl implements MediaHelper {
+
+  static final int COPY_BUFFER_SIZE = 8192;
+  /** Maximum number of bytes transferred by the file system in one call. */
+  private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+  private static final String BYTES_UNIT = "bytes";
+  /** Marker for a range that cannot be satisfied; compared by identity. */
+  static final long[] UNSATISFIABLE = new long[0];
+
+  @Override
+  public MediaSource createMediaSource(final byte[] content) {
+    return new ByteArrayMediaSource(content);
+  }
+
+  @Override
+  public MediaSource createMediaSource(final File file) {
+    return new FileMediaSource(file);
+  }
+
+  @Override
+  public void respond(final ODataRequest request, final ODataResponse response, final MediaSource media,
+      final String contentType, final String eTag) {
+    final long length = media.getLength();
+    final long[] range = isRangeApplicable(request.getHeader(HttpHeader.IF_RANGE), eTag) ?
+        parseRange(request.getHeader(HttpHeader.RANGE), length) :
+        null;
+    if (length >= 0) {
+      response.setHeader(HttpHeader.ACCEPT_RANGES, BYTES_UNIT);
+    }
+    if (eTag != null) {
+      response.setHeader(HttpHeader.ETAG, eTag);
+    }
+
+    if (range == null) {
+      response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+      if (length >= 0) {
+        response.setHeader(HttpHeader.CONTENT_LENGTH, Long.toString(length));
+      }
+      response.setHeader(HttpHeader.CONTENT_TYPE, contentType);
+      response.setODataContent(new MediaContent(media, 0, length));
+    } else if (range == UNSATISFIABLE) {
+      response.setStatusCode(HttpStatusCode.RANGE_NOT_SATISFIABLE.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+    } else {
+      final long count = range[1] - range[0] + 1;
+      response.setStatusCode(HttpStatusCode.PARTIAL_CONTENT.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_RANGE, BYTES_UNIT + ' ' + range[0] + '-' + range[1] + '/' + length);
+      response.setHeader(HttpHeader.CONTENT_LENGTH, Long.toString(count));
+      response.setHeader(HttpHeader.CONTENT_TYPE, contentType);
+      response.setODataContent(new MediaContent(media, range[0], count));
+    }
+  }
+
+  @Override
+  public long copy(final InputStream content, final WritableByteChannel target) throws DeserializerException {
+    try {
+      return transfer(content instanceof FileInputStream ?
+          ((FileInputStream) content).getChannel() :
+          Channels.newChannel(content),
+          target, -1);
+    } catch (final IOException e) {
+      throw new DeserializerException("An I/O exception occurred.", e,
+          DeserializerException.MessageKeys.IO_EXCEPTION);
+    }
+  }
+
+  /**
+   * A range is only applied if there is no If-Range header or if it matches the given ETag.
+   * Weak ETags must not be used for ranges, and dates are not supported, so they never match.
+   */
+  static boolean isRangeApplicable(final String ifRange, final String eTag) {
+    return ifRange == null
+        || eTag != null && !eTag.startsWith("W/") && ifRange.trim().equals(eTag);
+  }
+
+  /**
+   * Parses the value of a Range header with a single byte range.
+   * @param header the header value, or <code>null</code>
+   * @param length the length of the content, or a negative value if unknown
+   * @return first and last byte position, {@link #UNSATISFIABLE},
+   *         or <code>null</code> if the complete content has to be sent
+   */
+  static long[] parseRange(final String header, final long length) {
+    if (header == null || length < 0) {
+      return null;
+    }
+    final String value = header.trim();
+    if (!value.regionMatches(true, 0, BYTES_UNIT + '=', 0, BYTES_UNIT.length() + 1)) {
+      return null;
+    }
+    final String spec = value.substring(BYTES_UNIT.length() + 1).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0 || spec.indexOf(',') >= 0) {
+      // Malformed, or multiple ranges which would need a multipart response.
+      return null;
+    }
+    final String firstText = spec.substring(0, dash).trim();
+    final String lastText = spec.substring(dash + 1).trim();
+    try {
+      if (firstText.isEmpty()) {
+        // Suffix range: the last n bytes.
+        if (lastText.isEmpty()) {
+          return null;
+        }
+        final long suffixLength = parseNonNegative(lastText);
+        return suffixLength == 0 || length == 0 ?
+            UNSATISFIABLE :
+            new long[] { Math.max(0, length - suffixLength), length - 1 };
+      }
+      final long first = parseNonNegative(firstText);
+      final long last = lastText.isEmpty() ? length - 1 : parseNonNegative(lastText);
+      if (first >= length) {
+        return UNSATISFIABLE;
+      }
+      return last < first ? null : new long[] { first, Math.min(last, length - 1) };
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static long parseNonNegative(final String text) {
+    final long value = Long.parseLong(text);
+    if (value < 0 || text.charAt(0) == '+') {
+      throw new NumberFormatException(text);
+    }
+    return value;
+  }
+
+  /**
+   * Copies at most <code>count</code> bytes, or everything if <code>count</code> is negative.
+   * File channels on either side are transferred by the file system.
+   */
+  public static long transfer(final ReadableByteChannel input, final WritableByteChannel output, final long count)
+      throws IOException {
+    long copied = 0;
+    if (input instanceof FileChannel) {
+      final FileChannel file = (FileChannel) input;
+      long position = file.position();
+      final long end = count < 0 ? file.size() : Math.min(file.size(), position + count);
+      while (position < end) {
+        final long transferred = file.transferTo(position, Math.min(end - position, TRANSFER_CHUNK_SIZE), output);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+        copied += transferred;
+      }
+    } else if (output instanceof FileChannel) {
+      final FileChannel file = (FileChannel) output;
+      long position = file.position();
+      while (count < 0 || copied < count) {
+        final long chunk = count < 0 ? TRANSFER_CHUNK_SIZE : Math.min(count - copied, TRANSFER_CHUNK_SIZE);
+        final long transferred = file.transferFrom(input, position, chunk);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+        copied += transferred;
+      }
+      file.position(position);
+    } else {
+      ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+      while (count < 0 || copied < count) {
+        if (count >= 0 && count - copied < buffer.capacity()) {
+          buffer.limit((int) (count - copied));
+        }
+        final int read = input.read(buffer);
+        if (read < 0) {
+          break;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          output.write(buffer);
+        }
+        buffer.clear();
+        copied += read;
+      }
+    }
+    return copied;
+  }
+
+  private static class ByteArrayMediaSource implements MediaSource {
+    private final byte[] content;
+
+    ByteArrayMediaSource(final byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    public long getLength() {
+      return content.length;
+    }
+
+    @Override
+    public ReadableByteChannel open(final long offset) {
+      final int start = (int) Math.min(offset, content.length);
+      return Channels.newChannel(new ByteArrayInputStream(content, start, content.length - start));
+    }
+  }
+
+  private static class FileMediaSource implements MediaSource {
+    private final File file;
+
+    FileMediaSource(final File file) {
+      this.file = file;
+    }
+
+    @Override
+    public long getLength() {
+      return file.isFile() ? file.length() : -1;
+    }
+
+    @Override
+    public ReadableByteChannel open(final long offset) throws IOException {
+      final FileChannel channel = new FileInputStream(file).getChannel();
+      try {
+        channel.position(offset);
+      } catch (final IOException e) {
+        channel.close();
+        throw e;
+      }
+      return channel;
+    }
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.paging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.paging.PagingException;
+import org.apache.olingo.server.api.paging.PagingSnapshotStore;
+import org.apache.olingo.server.api.paging.SnapshotPage;
+
+/**
+ * <p>Default implementation of the {@link PagingSnapshotStore}.</p>
+ * <p>A skip token consists of the snapshot id and the offset of the page within the snapshot,
+ * separated by a dash. The snapshots are kept in access order, so that both the eviction of
+ * expired snapshots and of the least-recently used ones only look at the head of the map.</p>
+ */
+public class PagingSnapshotStoreImpl implements PagingSnapshotStore {
+
+  private static final Pattern TOKEN_PATTERN = Pattern.compile("([0-9a-f]{32})-(\\d{1,9})");
+
+  private final int maxRetainedEntities;
+  private final long timeToLiveMillis;
+  private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<String, Snapshot>(16, 0.75f, true);
+  private int retainedEntities = 0;
+
+  public PagingSnapshotStoreImpl(final int maxRetainedEntities, final long timeToLiveMillis) {
+    if (maxRetainedEntities <= 0) {
+      throw new IllegalArgumentException("The maximum number of retained entities must be positive.");
+    }
+    if (timeToLiveMillis <= 0) {
+      throw new IllegalArgumentException("The time to live must be positive.");
+    }
+    this.maxRetainedEntities = maxRetainedEntities;
+    this.timeToLiveMillis = timeToLiveMillis;
+  }
+
+  @Override
+  public String open(final String entitySetName, final List<Entity> entities, final Integer count) {
+    if (entities.size() > maxRetainedEntities) {
+      // It would evict all other snapshots and could not be retained within the limit anyway.
+      return null;
+    }
+    return register(new Snapshot(entitySetName, entities, null, entities.size(), count));
+  }
+
+  @Override
+  public String open(final String entitySetName, final Iterator<Entity> entities, final Integer count) {
+    return register(new Snapshot(entitySetName, null, entities, 1, count));
+  }
+
+  @Override
+  public SnapshotPage readPage(final String entitySetName, final String skipToken, final int pageSize)
+      throws PagingException {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("The page size must be positive.");
+    }
+    final Matcher matcher = skipToken == null ? null : TOKEN_PATTERN.matcher(skipToken);
+    if (matcher == null || !matcher.matches()) {
+      throw new PagingException("Invalid skip token.", PagingException.MessageKeys.INVALID_SKIPTOKEN, skipToken);
+    }
+    final String id = matcher.group(1);
+    final int offset = Integer.parseInt(matcher.group(2));
+
+    final Snapshot snapshot;
+    final List<Snapshot> evicted = new ArrayList<Snapshot>();
+    synchronized (this) {
+      evictExpired(currentTimeMillis(), evicted);
+      snapshot = snapshots.get(id);
+      if (snapshot != null && snapshot.entitySetName.equals(entitySetName)) {
+        snapshot.lastAccess = currentTimeMillis();
+      }
+    }
+    close(evicted);
+    if (snapshot == null) {
+      throw new PagingException("Snapshot not found.", PagingException.MessageKeys.EXPIRED_SKIPTOKEN, skipToken);
+    }
+    if (!snapshot.entitySetName.equals(entitySetName)) {
+      throw new PagingException("Skip token issued for another entity set.",
+          PagingException.MessageKeys.INVALID_SKIPTOKEN, skipToken);
+    }
+
+    // Reading is done outside of the store's lock; an open iterator is, however,
+    // not thread-safe, so concurrent reads of the same snapshot are serialized.
+    List<Entity> page;
+    boolean hasNext;
+    synchronized (snapshot) {
+      if (snapshot.closed) {
+        // Evicted by another thread after it has been looked up.
+        throw new PagingException("Snapshot not found.", PagingException.MessageKeys.EXPIRED_SKIPTOKEN, skipToken);
+      }
+      if (snapshot.entities == null) {
+        if (offset != snapshot.position) {
+          throw new PagingException("Skip token out of sequence.",
+              PagingException.MessageKeys.OUT_OF_SEQUENCE_SKIPTOKEN, skipToken);
+        }
+        page = new ArrayList<Entity>(pageSize);
+        while (page.size() < pageSize && snapshot.iterator.hasNext()) {
+          page.add(snapshot.iterator.next());
+        }
+        snapshot.position += page.size();
+        hasNext = snapshot.iterator.hasNext();
+      } else {
+        final int size = snapshot.entities.size();
+        if (offset > size) {
+          throw new PagingException("Skip token beyond end of snapshot.",
+              PagingException.MessageKeys.INVALID_SKIPTOKEN, skipToken);
+        }
+        final int end = (int) Math.min((long) offset + pageSize, size);
+        page = new ArrayList<Entity>(snapshot.entities.subList(offset, end));
+        hasNext = end < size;
+      }
+    }
+
+    if (hasNext) {
+      return new SnapshotPage(page, createToken(id, offset + page.size()), snapshot.count);
+    } else {
+      remove(id);
+      return new SnapshotPage(page, null, snapshot.count);
+    }
+  }
+
+  @Override
+  public boolean isSnapshotToken(final String skipToken) {
+    return skipToken != null && TOKEN_PATTERN.matcher(skipToken).matches();
+  }
+
+  @Override
+  public void release(final String skipToken) {
+    if (isSnapshotToken(skipToken)) {
+      remove(skipToken.substring(0, skipToken.indexOf('-')));
+    }
+  }
+
+  /**
+   * Gets the number of currently retained snapshots.
+   * @return the number of snapshots
+   */
+  public synchronized int getSnapshotCount() {
+    return snapshots.size();
+  }
+
+  /**
+   * Gets the number of entities currently retained by all snapshots.
+   * @return the number of retained entities
+   */
+  public synchronized int getRetainedEntities() {
+    return retainedEntities;
+  }
+
+  /**
+   * Returns the current time in milliseconds; can be overridden for tests.
+   * @return the current time
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private String register(final Snapshot snapshot) {
+    final String id = UUID.randomUUID().toString().replace("-", "");
+    final List<Snapshot> evicted = new ArrayList<Snapshot>();
+    synchronized (this) {
+      final long now = currentTimeMillis();
+      evictExpired(now, evicted);
+      snapshot.lastAccess = now;
+      snapshots.put(id, snapshot);
+      retainedEntities += snapshot.weight;
+      evictOverflow(evicted);
+    }
+    close(evicted);
+    return createToken(id, 0);
+  }
+
+  private void remove(final String id) {
+    final Snapshot snapshot;
+    synchronized (this) {
+      snapshot = snapshots.remove(id);
+      if (snapshot != null) {
+        retainedEntities -= snapshot.weight;
+      }
+    }
+    if (snapshot != null) {
+      close(Collections.singletonList(snapshot));
+    }
+  }
+
+  /**
+   * Closes the iterators of removed snapshots. This is done outside of the store's lock,
+   * because closing a cursor may involve I/O, but under the lock of the snapshot,
+   * so that it does not happen while a page is read.
+   */
+  private void close(final List<Snapshot> removed) {
+    for (final Snapshot snapshot : removed) {
+      synchronized (snapshot) {
+        snapshot.closed = true;
+        if (snapshot.iterator instanceof Closeable) {
+          try {
+            ((Closeable) snapshot.iterator).close();
+          } catch (final IOException e) {
+            // The snapshot is gone anyway; there is nobody left to report this to.
+          }
+        }
+      }
+    }
+  }
+
+  private void evictExpired(final long now, final List<Snapshot> evicted) {
+    final Iterator<Snapshot> iterator = snapshots.values().iterator();
+    while (iterator.hasNext()) {
+      final Snapshot snapshot = iterator.next();
+      if (now - snapshot.lastAccess < timeToLiveMillis) {
+        // Access order: all following snapshots have been used more recently.
+        break;
+      }
+      iterator.remove();
+      retainedEntities -= snapshot.weight;
+      evicted.add(snapshot);
+    }
+  }
+
+  /**
+   * Evicts the least-recently used snapshots until the limit is kept. The snapshot just registered
+   * is the most recently used one and fits into the limit on its own, so it is never evicted here.
+   */
+  private void evictOverflow(final List<Snapshot> evicted) {
+    final Iterator<Snapshot> iterator = snapshots.values().iterator();
+    while (retainedEntities > maxRetainedEntities && iterator.hasNext()) {
+      final Snapshot snapshot = iterator.next();
+      iterator.remove();
+      retainedEntities -= snapshot.weight;
+      evicted.add(snapshot);
+    }
+  }
+
+  private static String createToken(final String id, final int offset) {
+    return id + '-' + offset;
+  }
+
+  private static final class Snapshot {
+    private final String entitySetName;
+    private final List<Entity> entities;
+    private final Iterator<Entity> iterator;
+    private final int weight;
+    private final Integer count;
+    private int position = 0;
+    private long lastAccess;
+    private boolean closed = false;
+
+    private Snapshot(final String entitySetName, final List<Entity> entities, final Iterator<Entity> iterator,
+        final int weight, final Integer count) {
+      if (entitySetName == null) {
+        throw new IllegalArgumentException("The entity-set name must not be null.");
+      }
+      this.entitySetName = entitySetName;
+      this.entities = entities == null ? null : Collections.unmodifiableList(entities);
+      this.iterator = iterator;
+      this.weight = weight;
+      this.count = count;
+    }
+  }
+}
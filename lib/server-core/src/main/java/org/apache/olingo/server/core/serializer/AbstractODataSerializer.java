@@ -21,6 +21,10 @@ package org.apache.olingo.server.core.serializer;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.ex.ODataNotSupportedException;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 
@@ -44,4 +48,33 @@ public abstract class AbstractODataSerializer implements ODataSerializer {
       }
     }
   }
+
+  /**
+   * Gets the in-line entity set of a navigation link;
+   * an entity iterator is used if there is no materialized entity set.
+   */
+  protected AbstractEntityCollection getInlineEntitySet(final Link navigationLink) {
+    if (navigationLink == null) {
+      return null;
+    }
+    return navigationLink.getInlineEntitySet() == null ?
+        navigationLink.getInlineEntityIterator() :
+        navigationLink.getInlineEntitySet();
+  }
+
+  /**
+   * Gets the count of an in-line entity set.
+   * An entity iterator has a count only if it overrides {@link EntityIterator#getCount()};
+   * otherwise <code>null</code> is returned, so that no count is written.
+   */
+  protected Integer getInlineCount(final AbstractEntityCollection inlineEntitySet) {
+    if (inlineEntitySet instanceof EntityIterator) {
+      try {
+        return inlineEntitySet.getCount();
+      } catch (final ODataNotSupportedException e) {
+        return null;
+      }
+    }
+    return inlineEntitySet.getCount();
+  }
 }
@@ -43,6 +43,10 @@ public class AsyncResponseSerializer {
   private static final String HTTP_VERSION = "HTTP/1.1";
 
   public InputStream serialize(final ODataResponse response) throws SerializerException {
+    return new ByteArrayInputStream(serializeToByteArray(response));
+  }
+
+  public byte[] serializeToByteArray(final ODataResponse response) throws SerializerException {
     try {
       ByteArrayOutputStream buffer = new ByteArrayOutputStream();
       appendStatusLine(response, buffer);
@@ -51,7 +55,7 @@ public class AsyncResponseSerializer {
       appendBody(response, buffer);
 
       buffer.flush();
-      return new ByteArrayInputStream(buffer.toByteArray(), 0, buffer.size());
+      return buffer.toByteArray();
     } catch (IOException e) {
       throw new SerializerException("Exception occurred during serialization of asynchronous response.",
           e, SerializerException.MessageKeys.IO_EXCEPTION);
@@ -82,7 +86,9 @@ public class AsyncResponseSerializer {
 
   private void appendBody(final ODataResponse response, final ByteArrayOutputStream buffer) throws IOException {
     InputStream input = response.getContent();
-    if (input != null) {
+    if (input == null && response.getODataContent() != null) {
+      response.getODataContent().write(buffer);
+    } else if (input != null) {
       ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
       ReadableByteChannel ic = Channels.newChannel(input);
       WritableByteChannel oc = Channels.newChannel(buffer);
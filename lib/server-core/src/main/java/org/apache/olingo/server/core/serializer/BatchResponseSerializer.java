@@ -18,10 +18,10 @@
  */
 package org.apache.olingo.server.core.serializer;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -40,6 +40,7 @@ import org.apache.olingo.server.api.deserializer.batch.ODataResponsePart;
 import org.apache.olingo.server.api.serializer.BatchSerializerException;
 import org.apache.olingo.server.api.serializer.BatchSerializerException.MessageKeys;
 import org.apache.olingo.server.core.deserializer.batch.BatchParserCommon;
+import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 
 public class BatchResponseSerializer {
   private static final int BUFFER_SIZE = 4096;
@@ -52,7 +53,7 @@ public class BatchResponseSerializer {
       throws BatchSerializerException {
     BodyBuilder builder = createBody(responses, boundary);
 
-    return new ByteArrayInputStream(builder.getContent());
+    return builder.getContent();
   }
 
   private BodyBuilder createBody(final List<ODataResponsePart> batchResponses, final String boundary)
@@ -133,18 +134,19 @@ public class BatchResponseSerializer {
     return status.getInfo();
   }
 
-  private void appendResponseHeader(final ODataResponse response, final int contentLength,
+  private void appendResponseHeader(final ODataResponse response, final long contentLength,
       final BodyBuilder builder) {
     final Map<String, List<String>> header = response.getAllHeaders();
 
     for (final Map.Entry<String, List<String>> entry : header.entrySet()) {
-      // Requests never have a content id header.
-      if (!entry.getKey().equalsIgnoreCase(HttpHeader.CONTENT_ID)) {
+      // Requests never have a content id header; the content length is determined here.
+      if (!entry.getKey().equalsIgnoreCase(HttpHeader.CONTENT_ID)
+          && !entry.getKey().equalsIgnoreCase(HttpHeader.CONTENT_LENGTH)) {
         appendHeader(entry.getKey(), entry.getValue().get(0), builder);
       }
     }
 
-    appendHeader(HttpHeader.CONTENT_LENGTH, Integer.toString(contentLength), builder);
+    appendHeader(HttpHeader.CONTENT_LENGTH, Long.toString(contentLength), builder);
   }
 
   private void appendBodyPartHeader(final ODataResponse response, final BodyBuilder builder,
@@ -175,38 +177,35 @@ public class BatchResponseSerializer {
 
   /**
    * Builder class to create the body and the header.
+   * The content is collected in a {@link CircleStreamBuffer}, which spills large contents to a temporary file.
    */
   private static class BodyBuilder {
     private static final Charset CHARSET_ISO_8859_1 = Charset.forName("iso-8859-1");
-    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CircleStreamBuffer buffer = new CircleStreamBuffer(BUFFER_SIZE);
+    private final OutputStream output = buffer.getOutputStream();
     private boolean isClosed = false;
 
-    public byte[] getContent() {
+    public InputStream getContent() {
       isClosed = true;
-      byte[] tmp = new byte[buffer.position()];
-      buffer.flip();
-      buffer.get(tmp, 0, buffer.limit());
-      return tmp;
+      buffer.closeWrite();
+      return buffer.getInputStream();
     }
 
     public BodyBuilder append(final String string) {
       byte[] b = string.getBytes(CHARSET_ISO_8859_1);
-      put(b);
+      put(b, 0, b.length);
       return this;
     }
 
-    private void put(final byte[] b) {
+    private void put(final byte[] b, final int off, final int len) {
       if (isClosed) {
         throw new RuntimeException("BodyBuilder is closed.");
       }
-      if (buffer.remaining() < b.length) {
-        buffer.flip();
-        int newSize = (buffer.limit() * 2) + b.length;
-        ByteBuffer tmp = ByteBuffer.allocate(newSize);
-        tmp.put(buffer);
-        buffer = tmp;
+      try {
+        output.write(b, off, len);
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Error on buffering response content", e);
       }
-      buffer.put(b);
     }
 
     public BodyBuilder append(final int statusCode) {
@@ -214,53 +213,87 @@ public class BatchResponseSerializer {
     }
 
     public BodyBuilder append(final Body body) {
-      put(body.getContent());
+      final InputStream content = body.getContent();
+      final byte[] b = new byte[BUFFER_SIZE];
+      try {
+        int count;
+        while ((count = content.read(b)) != -1) {
+          put(b, 0, count);
+        }
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Error on buffering response content", e);
+      } finally {
+        try {
+          content.close();
+        } catch (final IOException e) {
+          // ignore
+        }
+      }
       return this;
     }
-
-    @Override
-    public String toString() {
-      return new String(buffer.array(), 0, buffer.position(), CHARSET_ISO_8859_1);
-    }
   }
 
   /**
    * Body part which is read and stored as bytes (no charset conversion).
+   * It is buffered to determine its length before it is appended.
    */
   private static class Body {
-    private final byte[] content;
+    private final CircleStreamBuffer buffer = new CircleStreamBuffer(BUFFER_SIZE);
+    private final long length;
 
     Body(final ODataResponse response) {
-      content = getBody(response);
+      length = readBody(response);
     }
 
-    private int getLength() {
-      return content.length;
+    private long getLength() {
+      return length;
     }
 
-    private byte[] getContent() {
-      return content; //NOSONAR
+    private InputStream getContent() {
+      return buffer.getInputStream();
     }
 
-    private byte[] getBody(final ODataResponse response) {
-      if (response == null || response.getContent() == null) {
-        return new byte[0];
-      }
-
+    private long readBody(final ODataResponse response) {
+      final CountingOutputStream output = new CountingOutputStream(buffer.getOutputStream());
       try {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
-        ReadableByteChannel ic = Channels.newChannel(response.getContent());
-        WritableByteChannel oc = Channels.newChannel(output);
-        while (ic.read(inBuffer) > 0) {
-          inBuffer.flip();
-          oc.write(inBuffer);
-          inBuffer.rewind();
+        if (response != null && response.getContent() != null) {
+          ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+          ReadableByteChannel ic = Channels.newChannel(response.getContent());
+          WritableByteChannel oc = Channels.newChannel(output);
+          while (ic.read(inBuffer) > 0) {
+            inBuffer.flip();
+            oc.write(inBuffer);
+            inBuffer.rewind();
+          }
+        } else if (response != null && response.getODataContent() != null) {
+          // Streamed content, e.g., media, is materialized for the multipart body.
+          response.getODataContent().write(output);
         }
-        return output.toByteArray();
+        output.close();
+        return output.count;
       } catch (IOException e) {
         throw new ODataRuntimeException("Error on reading request content", e);
       }
     }
   }
-}
\ No newline at end of file
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count = 0;
+
+    CountingOutputStream(final OutputStream output) {
+      super(output);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer;
+
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.serializer.SerializerException;
+
+/**
+ * Writes an entity collection piece by piece, for entities that become available one at a time.
+ * After each call all data written so far has been flushed to the output stream.
+ */
+public interface EntityCollectionWriter {
+
+  /**
+   * Writes everything before the first entity.
+   * @param outputStream the stream all data is written to
+   * @param count        the number of entities in the whole collection (can be null)
+   */
+  void writeStart(OutputStream outputStream, Integer count) throws SerializerException;
+
+  /**
+   * Writes one entity.
+   * @param entity the entity
+   */
+  void writeEntity(Entity entity) throws SerializerException;
+
+  /**
+   * Writes everything after the last entity.
+   * @param next the next link (can be null)
+   */
+  void writeEnd(URI next) throws SerializerException;
+}
@@ -242,6 +242,12 @@ public class EdmAssistedJsonSerializer implements EdmAssistedSerializer {
           doSerialize(targetType, subEntry, null, null, json);
         }
         json.writeEndArray();
+      } else if (link.getInlineEntityIterator() != null) {
+        json.writeArrayFieldStart(name);
+        for (final Entity subEntry : link.getInlineEntityIterator()) {
+          doSerialize(targetType, subEntry, null, null, json);
+        }
+        json.writeEndArray();
       }
     }
   }
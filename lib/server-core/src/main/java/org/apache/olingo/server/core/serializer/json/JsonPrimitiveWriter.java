@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * <p>Writes values of a primitive type as native JSON numbers, booleans, or strings,
+ * checking the facets on the values themselves instead of on their string representation.</p>
+ * <p>The output is the same as from the conversion with
+ * {@link EdmPrimitiveType#valueToString(Object, Boolean, Integer, Integer, Integer, Boolean)}.
+ * Values of other Java types, values violating the facets, and values without a JSON number representation
+ * are left to that conversion, so that it reports errors as usual.</p>
+ */
+abstract class JsonPrimitiveWriter {
+
+  private static final Map<EdmPrimitiveType, JsonPrimitiveWriter> WRITERS =
+      new IdentityHashMap<EdmPrimitiveType, JsonPrimitiveWriter>();
+
+  static {
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Boolean), new BooleanWriter());
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Byte), new IntegerWriter(0, 255, false));
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.SByte),
+        new IntegerWriter(Byte.MIN_VALUE, Byte.MAX_VALUE, false));
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int16),
+        new IntegerWriter(Short.MIN_VALUE, Short.MAX_VALUE, false));
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32),
+        new IntegerWriter(Integer.MIN_VALUE, Integer.MAX_VALUE, false));
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64),
+        new IntegerWriter(Long.MIN_VALUE, Long.MAX_VALUE, true));
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Single), new SingleWriter());
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Double), new DoubleWriter());
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Decimal), new DecimalWriter());
+    WRITERS.put(EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.String), new StringWriter());
+  }
+
+  /**
+   * Gets the writer for a primitive type.
+   * @return the writer or <code>null</code> if values of the type are always written through their string
+   * representation
+   */
+  static JsonPrimitiveWriter forType(final EdmPrimitiveType type) {
+    return WRITERS.get(type);
+  }
+
+  /**
+   * Writes a non-null value directly.
+   * @return <code>false</code> if the value has to be written through its string representation
+   */
+  abstract boolean write(JsonGenerator json, Object value, Integer maxLength, Integer precision, Integer scale,
+      Boolean isUnicode, boolean isIEEE754Compatible) throws IOException;
+
+  private static boolean isInteger(final Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private static class BooleanWriter extends JsonPrimitiveWriter {
+    @Override
+    boolean write(final JsonGenerator json, final Object value, final Integer maxLength, final Integer precision,
+        final Integer scale, final Boolean isUnicode, final boolean isIEEE754Compatible) throws IOException {
+      if (value instanceof Boolean) {
+        json.writeBoolean((Boolean) value);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static class IntegerWriter extends JsonPrimitiveWriter {
+    private final long min;
+    private final long max;
+    /** Whether the IEEE754Compatible format parameter requires strings. */
+    private final boolean isInt64;
+
+    IntegerWriter(final long min, final long max, final boolean isInt64) {
+      this.min = min;
+      this.max = max;
+      this.isInt64 = isInt64;
+    }
+
+    @Override
+    boolean write(final JsonGenerator json, final Object value, final Integer maxLength, final Integer precision,
+        final Integer scale, final Boolean isUnicode, final boolean isIEEE754Compatible) throws IOException {
+      if (!isInteger(value) || isInt64 && isIEEE754Compatible) {
+        return false;
+      }
+      final long number = ((Number) value).longValue();
+      if (number < min || number > max) {
+        return false;
+      }
+      json.writeNumber(number);
+      return true;
+    }
+  }
+
+  private static class SingleWriter extends JsonPrimitiveWriter {
+    @Override
+    boolean write(final JsonGenerator json, final Object value, final Integer maxLength, final Integer precision,
+        final Integer scale, final Boolean isUnicode, final boolean isIEEE754Compatible) throws IOException {
+      if (value instanceof Float) {
+        if (((Float) value).isNaN() || ((Float) value).isInfinite()) {
+          return false;
+        }
+        json.writeNumber((Float) value);
+      } else if (value instanceof Short || value instanceof Byte
+          || (value instanceof Integer || value instanceof Long)
+          && Math.abs(((Number) value).longValue()) < 1L << 22) {
+        json.writeNumber(((Number) value).longValue());
+      } else {
+        return false;
+      }
+      return true;
+    }
+  }
+
+  private static class DoubleWriter extends JsonPrimitiveWriter {
+    @Override
+    boolean write(final JsonGenerator json, final Object value, final Integer maxLength, final Integer precision,
+        final Integer scale, final Boolean isUnicode, final boolean isIEEE754Compatible) throws IOException {
+      if (value instanceof Double) {
+        if (((Double) value).isNaN() || ((Double) value).isInfinite()) {
+          return false;
+        }
+        json.writeNumber((Double) value);
+      } else if (value instanceof Float) {
+        if (((Float) value).isNaN() || ((Float) value).isInfinite()) {
+          return false;
+        }
+        json.writeNumber((Float) value);
+      } else if (value instanceof Integer || value instanceof Short || value instanceof Byte
+          || value instanceof Long && Math.abs((Long) value) < 1L << 51) {
+        json.writeNumber(((Number) value).longValue());
+      } else {
+        return false;
+      }
+      return true;
+    }
+  }
+
+  private static class DecimalWriter extends JsonPrimitiveWriter {
+    @Override
+    boolean write(final JsonGenerator json, final Object value, final Integer maxLength, final Integer precision,
+        final Integer scale, final Boolean isUnicode, final boolean isIEEE754Compatible) throws IOException {
+      if (isIEEE754Compatible) {
+        return false;
+      }
+      if (isInteger(value)) {
+        final long number = ((Number) value).longValue();
+        if (precision != null && precision < countDigits(number)) {
+          return false;
+        }
+        json.writeNumber(number);
+        return true;
+      } else if (value instanceof BigDecimal) {
+        final BigDecimal decimal = (BigDecimal) value;
+        final int digits = decimal.scale() >= 0 ?
+            Math.max(decimal.precision(), decimal.scale()) :
+            decimal.precision() - decimal.scale();
+        // Only values without exponent in their scientific notation have the same plain notation.
+        if (precision != null && precision < digits
+            || decimal.scale() > (scale == null ? 0 : scale)
+            || decimal.scale() < 0
+            || decimal.precision() - decimal.scale() - 1 < -6) {
+          return false;
+        }
+        json.writeNumber(decimal);
+        return true;
+      }
+      return false;
+    }
+
+    private static int countDigits(final long number) {
+      int digits = 1;
+      // Counting on the negative side avoids the overflow of Long.MIN_VALUE.
+      for (long rest = number > 0 ? -number : number; rest <= -10; rest /= 10) {
+        digits++;
+      }
+      return digits;
+    }
+  }
+
+  private static class StringWriter extends JsonPrimitiveWriter {
+    @Override
+    boolean write(final JsonGenerator json, final Object value, final Integer maxLength, final Integer precision,
+        final Integer scale, final Boolean isUnicode, final boolean isIEEE754Compatible) throws IOException {
+      if (value instanceof String && (isUnicode == null || isUnicode)
+          && (maxLength == null || ((String) value).length() <= maxLength)) {
+        json.writeString((String) value);
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * <p>The properties of a structured type that have to be written for a given selection,
+ * with everything that does not depend on the actual values computed in advance.</p>
+ * <p>A plan is compiled once per type, selection, and serializer settings
+ * and then reused for every entity or complex value of that type:
+ * it contains the pre-encoded property names, the type annotations of full metadata,
+ * the facets, the selected paths of complex properties,
+ * and the knowledge which values can be written without converting them to a string first.</p>
+ * <p>As a serializer is created for each response, compiled plans are shared by all serializers
+ * working with the same {@link ServiceMetadata} instance; the selection is compared by its structure there,
+ * not by the identity of the parsed query option. The shared plans are dropped together with the
+ * service metadata, so services keeping their metadata across requests profit from them.</p>
+ */
+final class JsonSerializationPlan {
+
+  /** Maximum number of shared plans per service metadata; further plans are not shared. */
+  private static final int MAX_SHARED_PLANS = 1024;
+
+  /** The shared plans by service metadata; the plans do not refer to the metadata instance. */
+  private static final Map<ServiceMetadata, ConcurrentMap<SharedKey, JsonSerializationPlan>> SHARED_PLANS =
+      Collections.synchronizedMap(new WeakHashMap<ServiceMetadata, ConcurrentMap<SharedKey, JsonSerializationPlan>>());
+
+  private final List<PropertyPlan> properties;
+
+  private JsonSerializationPlan(final List<PropertyPlan> properties) {
+    this.properties = Collections.unmodifiableList(properties);
+  }
+
+  /** Gets the plans of the properties to be written, in the order of their definition. */
+  List<PropertyPlan> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Gets the shared plan for the properties of an entity type selected by a $select option,
+   * compiling it if necessary.
+   * @param metadata the service metadata the plan is shared for, or <code>null</code> if it is not shared
+   * @param select the select option, or <code>null</code> if all properties are selected
+   */
+  static JsonSerializationPlan get(final ServiceMetadata metadata, final EdmStructuredType type,
+      final SelectOption select, final boolean isODataMetadataFull, final boolean isIEEE754Compatible)
+      throws SerializerException {
+    final Map<String, Set<List<String>>> selection = getSelection(type, select);
+    final ConcurrentMap<SharedKey, JsonSerializationPlan> plans = getSharedPlans(metadata);
+    final SharedKey key = new SharedKey(type, false, selection, isODataMetadataFull, isIEEE754Compatible);
+    JsonSerializationPlan plan = plans == null ? null : plans.get(key);
+    if (plan == null) {
+      plan = compile(type, selection, isODataMetadataFull, isIEEE754Compatible);
+      share(plans, key, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Gets the shared plan for the properties of a complex type selected by the paths inherited from its parent,
+   * compiling it if necessary.
+   * @param metadata the service metadata the plan is shared for, or <code>null</code> if it is not shared
+   * @param selectedPaths the selected paths, or <code>null</code> if all properties are selected
+   */
+  static JsonSerializationPlan getForPaths(final ServiceMetadata metadata, final EdmStructuredType type,
+      final Set<List<String>> selectedPaths, final boolean isODataMetadataFull, final boolean isIEEE754Compatible)
+      throws SerializerException {
+    final ConcurrentMap<SharedKey, JsonSerializationPlan> plans = getSharedPlans(metadata);
+    final SharedKey key = new SharedKey(type, true, selectedPaths, isODataMetadataFull, isIEEE754Compatible);
+    JsonSerializationPlan plan = plans == null ? null : plans.get(key);
+    if (plan == null) {
+      plan = compileForPaths(type, selectedPaths, isODataMetadataFull, isIEEE754Compatible);
+      share(plans, key, plan);
+    }
+    return plan;
+  }
+
+  private static ConcurrentMap<SharedKey, JsonSerializationPlan> getSharedPlans(final ServiceMetadata metadata) {
+    if (metadata == null) {
+      return null;
+    }
+    synchronized (SHARED_PLANS) {
+      ConcurrentMap<SharedKey, JsonSerializationPlan> plans = SHARED_PLANS.get(metadata);
+      if (plans == null) {
+        plans = new ConcurrentHashMap<SharedKey, JsonSerializationPlan>();
+        SHARED_PLANS.put(metadata, plans);
+      }
+      return plans;
+    }
+  }
+
+  private static void share(final ConcurrentMap<SharedKey, JsonSerializationPlan> plans, final SharedKey key,
+      final JsonSerializationPlan plan) {
+    // The number of selections is not limited by the metadata, so not every plan is kept.
+    if (plans != null && plans.size() < MAX_SHARED_PLANS) {
+      plans.putIfAbsent(key, plan);
+    }
+  }
+
+  /**
+   * Compiles the plan for the properties of an entity type selected by a $select option.
+   * @param select the select option, or <code>null</code> if all properties are selected
+   */
+  static JsonSerializationPlan compile(final EdmStructuredType type, final SelectOption select,
+      final boolean isODataMetadataFull, final boolean isIEEE754Compatible) throws SerializerException {
+    return compile(type, getSelection(type, select), isODataMetadataFull, isIEEE754Compatible);
+  }
+
+  private static JsonSerializationPlan compile(final EdmStructuredType type,
+      final Map<String, Set<List<String>>> selection,
+      final boolean isODataMetadataFull, final boolean isIEEE754Compatible) throws SerializerException {
+    List<PropertyPlan> properties = new ArrayList<PropertyPlan>();
+    for (final String propertyName : type.getPropertyNames()) {
+      if (selection == null || selection.containsKey(propertyName)) {
+        properties.add(new PropertyPlan(type.getStructuralProperty(propertyName),
+            selection == null ? null : selection.get(propertyName),
+            isODataMetadataFull, isIEEE754Compatible));
+      }
+    }
+    return new JsonSerializationPlan(properties);
+  }
+
+  /**
+   * Gets the structure of a $select option as far as it is relevant for a plan:
+   * the selected properties of the type with the selected paths of the non-primitive ones.
+   * @return the selected paths by property name, or <code>null</code> if all properties are selected
+   */
+  private static Map<String, Set<List<String>>> getSelection(final EdmStructuredType type,
+      final SelectOption select) {
+    if (ExpandSelectHelper.isAll(select)) {
+      return null;
+    }
+    final Set<String> selected = ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
+    Map<String, Set<List<String>>> selection = new HashMap<String, Set<List<String>>>();
+    for (final String propertyName : type.getPropertyNames()) {
+      if (selected.contains(propertyName)) {
+        final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
+        selection.put(propertyName, edmProperty.isPrimitive() ? null :
+            ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName));
+      }
+    }
+    return selection;
+  }
+
+  /**
+   * Compiles the plan for the properties of a complex type selected by the paths inherited from its parent.
+   * @param selectedPaths the selected paths, or <code>null</code> if all properties are selected
+   */
+  static JsonSerializationPlan compileForPaths(final EdmStructuredType type, final Set<List<String>> selectedPaths,
+      final boolean isODataMetadataFull, final boolean isIEEE754Compatible) throws SerializerException {
+    List<PropertyPlan> properties = new ArrayList<PropertyPlan>();
+    for (final String propertyName : type.getPropertyNames()) {
+      if (selectedPaths == null || ExpandSelectHelper.isSelected(selectedPaths, propertyName)) {
+        properties.add(new PropertyPlan((EdmProperty) type.getProperty(propertyName),
+            selectedPaths == null ? null : ExpandSelectHelper.getReducedSelectedPaths(selectedPaths, propertyName),
+            isODataMetadataFull, isIEEE754Compatible));
+      }
+    }
+    return new JsonSerializationPlan(properties);
+  }
+
+  /** The plan for one property. */
+  static final class PropertyPlan {
+    final String name;
+    final SerializableString jsonName;
+    final EdmProperty edmProperty;
+    final EdmType type;
+    final boolean isStream;
+    /** Primitive, enumeration, and type-definition properties are written as primitive values. */
+    final boolean isPrimitive;
+    final boolean isCollection;
+    final SerializableString typeAnnotationName;
+    final String typeAnnotation;
+    final Set<List<String>> selectedPaths;
+    final Boolean isNullable;
+    final Integer maxLength;
+    final Integer precision;
+    final Integer scale;
+    final Boolean isUnicode;
+    private final boolean isIEEE754Compatible;
+    /** The direct writer for values of a single primitive property, if its type has one. */
+    final JsonPrimitiveWriter writer;
+
+    PropertyPlan(final EdmProperty edmProperty, final Set<List<String>> selectedPaths,
+        final boolean isODataMetadataFull, final boolean isIEEE754Compatible) throws SerializerException {
+      this.edmProperty = edmProperty;
+      this.selectedPaths = selectedPaths;
+      name = edmProperty.getName();
+      jsonName = new SerializedString(name);
+      type = edmProperty.getType();
+      isCollection = edmProperty.isCollection();
+      isPrimitive = edmProperty.isPrimitive()
+          || type.getKind() == EdmTypeKind.ENUM || type.getKind() == EdmTypeKind.DEFINITION;
+      isStream = edmProperty.isPrimitive() && type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Stream);
+      isNullable = edmProperty.isNullable();
+      maxLength = edmProperty.getMaxLength();
+      precision = edmProperty.getPrecision();
+      scale = edmProperty.getScale();
+      isUnicode = edmProperty.isUnicode();
+
+      typeAnnotation = isODataMetadataFull ? getTypeAnnotation(edmProperty) : null;
+      typeAnnotationName = typeAnnotation == null ? null : new SerializedString(name + Constants.JSON_TYPE);
+
+      this.isIEEE754Compatible = isIEEE754Compatible;
+      writer = isCollection || !edmProperty.isPrimitive() ? null : JsonPrimitiveWriter.forType((EdmPrimitiveType) type);
+    }
+
+    /**
+     * Writes a non-null primitive value directly if the writer of its type can handle it.
+     * @return <code>false</code> if the value has to be written through the generic path
+     */
+    boolean writeValue(final Object value, final JsonGenerator json) throws IOException {
+      return writer != null && writer.write(json, value, maxLength, precision, scale, isUnicode, isIEEE754Compatible);
+    }
+
+    private static String getTypeAnnotation(final EdmProperty edmProperty) throws SerializerException {
+      final EdmType type = edmProperty.getType();
+      if (type.getKind() == EdmTypeKind.ENUM || type.getKind() == EdmTypeKind.DEFINITION) {
+        return edmProperty.isCollection() ?
+            "#Collection(" + type.getFullQualifiedName().getFullQualifiedNameAsString() + ")" :
+            "#" + type.getFullQualifiedName().getFullQualifiedNameAsString();
+      } else if (edmProperty.isPrimitive()) {
+        if (edmProperty.isCollection()) {
+          return "#Collection(" + type.getFullQualifiedName().getName() + ")";
+        } else {
+          // exclude the properties that can be heuristically determined
+          return type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Boolean)
+              || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Double)
+              || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.String) ?
+              null :
+              "#" + type.getFullQualifiedName().getName();
+        }
+      } else if (type.getKind() == EdmTypeKind.COMPLEX) {
+        // non-collection case written in writeComplex method directly.
+        return edmProperty.isCollection() ?
+            "#Collection(" + type.getFullQualifiedName().getFullQualifiedNameAsString() + ")" :
+            null;
+      } else {
+        throw new SerializerException("Property type not yet supported!",
+            SerializerException.MessageKeys.UNSUPPORTED_PROPERTY_TYPE, edmProperty.getName());
+      }
+    }
+  }
+
+  /**
+   * Key of a compiled plan or property plan within a serializer;
+   * type or property and selection are compared by identity as they are reused within a response.
+   */
+  static final class Key {
+    private final Object type;
+    private final Object selection;
+
+    Key(final Object type, final Object selection) {
+      this.type = type;
+      this.selection = selection;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof Key && ((Key) obj).type == type && ((Key) obj).selection == selection;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(type) + System.identityHashCode(selection);
+    }
+  }
+
+  /** Key of a shared plan; the selection is compared by its structure. */
+  private static final class SharedKey {
+    private final EdmStructuredType type;
+    private final boolean forPaths;
+    private final Object selection;
+    private final boolean isODataMetadataFull;
+    private final boolean isIEEE754Compatible;
+
+    private SharedKey(final EdmStructuredType type, final boolean forPaths, final Object selection,
+        final boolean isODataMetadataFull, final boolean isIEEE754Compatible) {
+      this.type = type;
+      this.forPaths = forPaths;
+      this.selection = selection;
+      this.isODataMetadataFull = isODataMetadataFull;
+      this.isIEEE754Compatible = isIEEE754Compatible;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof SharedKey)) {
+        return false;
+      }
+      final SharedKey other = (SharedKey) obj;
+      return other.type == type
+          && other.forPaths == forPaths
+          && other.isODataMetadataFull == isODataMetadataFull
+          && other.isIEEE754Compatible == isIEEE754Compatible
+          && (selection == null ? other.selection == null : selection.equals(other.selection));
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(type);
+      result = 31 * result + (selection == null ? 0 : selection.hashCode());
+      result = 31 * result + (forPaths ? 1 : 0);
+      result = 31 * result + (isODataMetadataFull ? 1 : 0);
+      return 31 * result + (isIEEE754Compatible ? 1 : 0);
+    }
+  }
+}
@@ -20,25 +20,33 @@ package org.apache.olingo.server.core.serializer.json;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URI;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
 import org.apache.olingo.commons.api.data.ComplexIterator;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.EntityPublisher;
 import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Linked;
 import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.data.PrimitiveIterator;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.UnboxedValueList;
+import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -48,9 +56,7 @@ import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmStructuredType;
-import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
-import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.api.edm.geo.ComposedGeospatial;
 import org.apache.olingo.commons.api.edm.geo.Geospatial;
 import org.apache.olingo.commons.api.edm.geo.GeospatialCollection;
@@ -73,6 +79,7 @@ import org.apache.olingo.server.api.serializer.ReferenceSerializerOptions;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
 import org.apache.olingo.server.api.serializer.SerializerStreamResult;
+import org.apache.olingo.server.api.uri.EntityIdTemplate;
 import org.apache.olingo.server.api.uri.UriHelper;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
@@ -80,14 +87,18 @@ import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.ComplexStreamContent;
+import org.apache.olingo.server.core.ODataPublishedContent;
 import org.apache.olingo.server.core.ODataWritableContent;
 import org.apache.olingo.server.core.PrimitiveStreamContent;
 import org.apache.olingo.server.core.serializer.AbstractODataSerializer;
+import org.apache.olingo.server.core.serializer.EntityCollectionWriter;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
+import org.apache.olingo.server.core.serializer.SerializerStreamResultImpl;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
 import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.apache.olingo.server.core.serializer.utils.UnboxedValueHelper;
 import org.apache.olingo.server.core.uri.UriHelperImpl;
 import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
 
@@ -112,11 +123,26 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   private final boolean isIEEE754Compatible;
   private final boolean isODataMetadataNone;
   private final boolean isODataMetadataFull;
+  private final long spillThreshold;
+  private final Map<JsonSerializationPlan.Key, JsonSerializationPlan> plans =
+      new ConcurrentHashMap<JsonSerializationPlan.Key, JsonSerializationPlan>();
+  private final Map<JsonSerializationPlan.Key, JsonSerializationPlan.PropertyPlan> propertyPlans =
+      new ConcurrentHashMap<JsonSerializationPlan.Key, JsonSerializationPlan.PropertyPlan>();
 
   public ODataJsonSerializer(final ContentType contentType) {
+    this(contentType, CircleStreamBuffer.DEFAULT_SPILL_THRESHOLD);
+  }
+
+  /**
+   * Creates a serializer which buffers serialized content larger than the given threshold in a temporary file.
+   * @param contentType    the content type
+   * @param spillThreshold number of bytes kept in memory; negative to keep all content in memory
+   */
+  public ODataJsonSerializer(final ContentType contentType, final long spillThreshold) {
     isIEEE754Compatible = ContentTypeHelper.isODataIEEE754Compatible(contentType);
     isODataMetadataNone = ContentTypeHelper.isODataMetadataNone(contentType);
     isODataMetadataFull = ContentTypeHelper.isODataMetadataFull(contentType);
+    this.spillThreshold = spillThreshold;
   }
 
   @Override
@@ -126,7 +152,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
 
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       new ServiceDocumentJsonSerializer(metadata, serviceRoot, isODataMetadataNone).writeServiceDocument(json);
@@ -154,7 +180,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       new ODataErrorSerializer().writeErrorDocument(json, error);
@@ -178,7 +204,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       json.writeStartObject();
@@ -200,6 +226,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
             options.getExpand(), null, options.getSelect(), options.getWriteOnlyReferences(), null, json);
       }
       writeNextLink(entitySet, json);
+      writeDeltaLink(entitySet, json);
 
       json.close();
       outputStream.close();
@@ -213,6 +240,83 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     }
   }
 
+  @Override
+  public SerializerResult delta(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final Delta delta, final EntityCollectionSerializerOptions options) throws SerializerException {
+    OutputStream outputStream = null;
+    SerializerException cachedException = null;
+    try {
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
+      outputStream = buffer.getOutputStream();
+      JsonGenerator json = new JsonFactory().createGenerator(outputStream);
+      json.writeStartObject();
+
+      final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
+      writeContextURL(contextURL, json);
+
+      writeMetadataETag(metadata, json);
+
+      if (options != null && options.getCount() != null && options.getCount().getValue()) {
+        writeInlineCount("", delta.getCount(), json);
+      }
+      json.writeFieldName(Constants.VALUE);
+      json.writeStartArray();
+      for (final Entity entity : delta) {
+        if (options == null) {
+          writeEntity(metadata, entityType, entity, null, null, null, null, false, null, json);
+        } else {
+          writeEntity(metadata, entityType, entity, null,
+              options.getExpand(), null, options.getSelect(), false, null, json);
+        }
+      }
+      // The context URLs of the delta entries are relative to the context URL of the response.
+      final String entitySetName = contextURL == null ? null : contextURL.getEntitySetOrSingletonOrType();
+      for (final DeletedEntity deletedEntity : delta.getDeletedEntities()) {
+        json.writeStartObject();
+        writeDeltaEntryContext(entitySetName, ContextURL.Suffix.DELTA_DELETED_ENTITY, json);
+        json.writeStringField(Constants.ATOM_ATTR_ID, deletedEntity.getId().toASCIIString());
+        if (deletedEntity.getReason() != null) {
+          json.writeStringField(Constants.ELEM_REASON, deletedEntity.getReason().name());
+        }
+        json.writeEndObject();
+      }
+      writeDeltaLinks(entitySetName, ContextURL.Suffix.DELTA_LINK, delta.getAddedLinks(), json);
+      writeDeltaLinks(entitySetName, ContextURL.Suffix.DELTA_DELETED_LINK, delta.getDeletedLinks(), json);
+      json.writeEndArray();
+      writeNextLink(delta, json);
+      writeDeltaLink(delta, json);
+
+      json.close();
+      outputStream.close();
+      return SerializerResultImpl.with().content(buffer.getInputStream()).build();
+    } catch (final IOException e) {
+      cachedException =
+          new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      throw cachedException;
+    } finally {
+      closeCircleStreamBufferOutput(outputStream, cachedException);
+    }
+  }
+
+  private void writeDeltaLinks(final String entitySetName, final ContextURL.Suffix suffix,
+      final List<DeltaLink> links, final JsonGenerator json) throws IOException {
+    for (final DeltaLink link : links) {
+      json.writeStartObject();
+      writeDeltaEntryContext(entitySetName, suffix, json);
+      json.writeStringField(Constants.ATTR_SOURCE, link.getSource().toASCIIString());
+      json.writeStringField(Constants.ATTR_RELATIONSHIP, link.getRelationship());
+      json.writeStringField(Constants.ATTR_TARGET, link.getTarget().toASCIIString());
+      json.writeEndObject();
+    }
+  }
+
+  private void writeDeltaEntryContext(final String entitySetName, final ContextURL.Suffix suffix,
+      final JsonGenerator json) throws IOException {
+    if (!isODataMetadataNone && entitySetName != null) {
+      json.writeStringField(Constants.JSON_CONTEXT, '#' + entitySetName + '/' + suffix.getRepresentation());
+    }
+  }
+
   @Override
   public SerializerStreamResult entityCollectionStreamed(ServiceMetadata metadata, EdmEntityType entityType,
       EntityIterator entities, EntityCollectionSerializerOptions options) throws SerializerException {
@@ -256,6 +360,82 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     }
   }
 
+  @Override
+  public SerializerStreamResult entityCollectionPublished(final ServiceMetadata metadata,
+      final EdmEntityType entityType, final EntityPublisher entities,
+      final EntityCollectionSerializerOptions options) throws SerializerException {
+    return SerializerStreamResultImpl.with().content(new ODataPublishedContent(entities,
+        new JsonEntityCollectionWriter(metadata, entityType, options), options)).build();
+  }
+
+  /**
+   * Writes the parts of an entity collection separately, see {@link #entityCollectionIntoStream}.
+   */
+  private class JsonEntityCollectionWriter implements EntityCollectionWriter {
+    private final ServiceMetadata metadata;
+    private final EdmEntityType entityType;
+    private final EntityCollectionSerializerOptions options;
+    private JsonGenerator json;
+
+    JsonEntityCollectionWriter(final ServiceMetadata metadata, final EdmEntityType entityType,
+        final EntityCollectionSerializerOptions options) {
+      this.metadata = metadata;
+      this.entityType = entityType;
+      this.options = options;
+    }
+
+    @Override
+    public void writeStart(final OutputStream outputStream, final Integer count) throws SerializerException {
+      final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
+      try {
+        json = new JsonFactory().createGenerator(outputStream);
+        json.writeStartObject();
+        writeContextURL(contextURL, json);
+        writeMetadataETag(metadata, json);
+        if (options != null && options.getCount() != null && options.getCount().getValue()) {
+          writeInlineCount("", count, json);
+        }
+        json.writeFieldName(Constants.VALUE);
+        json.writeStartArray();
+        json.flush();
+      } catch (final IOException e) {
+        throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+
+    @Override
+    public void writeEntity(final Entity entity) throws SerializerException {
+      try {
+        if (options != null && options.getWriteOnlyReferences()) {
+          json.writeStartObject();
+          json.writeStringField(Constants.JSON_ID, getEntityId(entity));
+          json.writeEndObject();
+        } else {
+          ODataJsonSerializer.this.writeEntity(metadata, entityType, entity, null,
+              options == null ? null : options.getExpand(), null,
+              options == null ? null : options.getSelect(), false, null, json);
+        }
+        json.flush();
+      } catch (final IOException e) {
+        throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+
+    @Override
+    public void writeEnd(final URI next) throws SerializerException {
+      try {
+        json.writeEndArray();
+        if (next != null) {
+          json.writeStringField(Constants.JSON_NEXT_LINK, next.toASCIIString());
+        }
+        json.writeEndObject();
+        json.flush();
+      } catch (final IOException e) {
+        throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+  }
+
   @Override
   public SerializerResult entity(final ServiceMetadata metadata, final EdmEntityType entityType,
       final Entity entity, final EntitySerializerOptions options) throws SerializerException {
@@ -263,7 +443,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       writeEntity(metadata, entityType, entity, contextURL,
@@ -344,11 +524,13 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final SelectOption select, final boolean onlyReference, Set<String> ancestors, final JsonGenerator json)
       throws IOException, SerializerException {
     boolean cycle = false;
+    String entityId = null;
     if (expand != null) {
       if (ancestors == null) {
         ancestors = new HashSet<String>();
       }
-      cycle = !ancestors.add(getEntityId(entity));
+      entityId = getEntityId(entity);
+      cycle = !ancestors.add(entityId);
     }
     try {
       json.writeStartObject();
@@ -377,14 +559,14 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         }
       }
       if (cycle || onlyReference) {
-        json.writeStringField(Constants.JSON_ID, getEntityId(entity));
+        json.writeStringField(Constants.JSON_ID, entityId == null ? getEntityId(entity) : entityId);
       } else {
         final EdmEntityType resolvedType = resolveEntityType(metadata, entityType, entity.getType());
         if ((!isODataMetadataNone && !resolvedType.equals(entityType)) || isODataMetadataFull) {
           json.writeStringField(Constants.JSON_TYPE, "#" + entity.getType());
         }
         if ((!isODataMetadataNone && !areKeyPredicateNamesSelected(select, resolvedType)) || isODataMetadataFull) {
-          json.writeStringField(Constants.JSON_ID, getEntityId(entity));
+          json.writeStringField(Constants.JSON_ID, entityId == null ? getEntityId(entity) : entityId);
         }
         
         if (isODataMetadataFull) {
@@ -403,7 +585,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       json.writeEndObject();
     } finally {
       if (expand != null && !cycle && ancestors != null) {
-        ancestors.remove(getEntityId(entity));
+        ancestors.remove(entityId);
       }
     }
   }
@@ -472,17 +654,48 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final List<Property> properties,
       final SelectOption select, final JsonGenerator json)
       throws IOException, SerializerException {
-    final boolean all = ExpandSelectHelper.isAll(select);
-    final Set<String> selected = all ? new HashSet<String>() :
-        ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
-    for (final String propertyName : type.getPropertyNames()) {
-      if (all || selected.contains(propertyName)) {
-        final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
-        final Property property = findProperty(propertyName, properties);
-        final Set<List<String>> selectedPaths = all || edmProperty.isPrimitive() ? null :
-            ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName);
-        writeProperty(metadata, edmProperty, property, selectedPaths, json);
+    writeProperties(metadata, getPlan(metadata, type, select), properties, json);
+  }
+
+  /**
+   * Gets the plan for the given type and selection. Plans are looked up by identity first,
+   * as type and selection are the same for all entities of a response, and then in the plans
+   * shared for the service metadata.
+   */
+  JsonSerializationPlan getPlan(final ServiceMetadata metadata, final EdmStructuredType type,
+      final SelectOption select) throws SerializerException {
+    final JsonSerializationPlan.Key key = new JsonSerializationPlan.Key(type, select);
+    JsonSerializationPlan plan = plans.get(key);
+    if (plan == null) {
+      plan = JsonSerializationPlan.get(metadata, type, select, isODataMetadataFull, isIEEE754Compatible);
+      addPlan(key, plan);
+    }
+    return plan;
+  }
+
+  private void addPlan(final JsonSerializationPlan.Key key, final JsonSerializationPlan plan) {
+    plans.put(key, plan);
+    for (final JsonSerializationPlan.PropertyPlan propertyPlan : plan.getProperties()) {
+      propertyPlans.put(new JsonSerializationPlan.Key(propertyPlan.edmProperty, propertyPlan.selectedPaths),
+          propertyPlan);
+    }
+  }
+
+  private void writeProperties(final ServiceMetadata metadata, final JsonSerializationPlan plan,
+      final List<Property> properties, final JsonGenerator json) throws IOException, SerializerException {
+    int index = 0;
+    for (final JsonSerializationPlan.PropertyPlan propertyPlan : plan.getProperties()) {
+      // Properties are usually stored in the order of their definition, so the next one is tried first.
+      Property property = index < properties.size() ? properties.get(index) : null;
+      if (property != null && propertyPlan.name.equals(property.getName())) {
+        index++;
+      } else {
+        property = findProperty(propertyPlan.name, properties);
+        if (property != null) {
+          index = properties.indexOf(property) + 1;
+        }
       }
+      writeProperty(metadata, propertyPlan.edmProperty, property, propertyPlan.selectedPaths, json);
     }
   }
 
@@ -513,6 +726,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           ExpandOption childExpand = null;
           LevelsExpandOption levelsOption = null;
           if (innerOptions != null) {
+            ExpandSelectHelper.checkLevelsWithoutExpand(innerOptions);
             levelsOption = innerOptions.getLevelsOption();
             if (levelsOption == null) {
               childExpand = innerOptions.getExpandOption();
@@ -522,6 +736,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
               childExpand = expandOptionImpl;
             }
           } else if (expandAll != null) {
+            ExpandSelectHelper.checkLevelsWithoutExpand(expandAll);
             levels = 1;
             levelsOption = expandAll.getLevelsOption();
             ExpandOptionImpl expandOptionImpl = new ExpandOptionImpl();
@@ -569,14 +784,15 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final JsonGenerator json) throws IOException, SerializerException {
 
     if (property.isCollection()) {
+      final AbstractEntityCollection inlineEntitySet = getInlineEntitySet(navigationLink);
       if (writeOnlyCount) {
-        if (navigationLink == null || navigationLink.getInlineEntitySet() == null) {
+        if (inlineEntitySet == null) {
           writeInlineCount(property.getName(), 0, json);
         } else {
-          writeInlineCount(property.getName(), navigationLink.getInlineEntitySet().getCount(), json);
+          writeInlineCount(property.getName(), getInlineCount(inlineEntitySet), json);
         }
       } else {
-        if (navigationLink == null || navigationLink.getInlineEntitySet() == null) {
+        if (inlineEntitySet == null) {
           if (innerCount != null && innerCount.getValue()) {
             writeInlineCount(property.getName(), 0, json);
           }
@@ -585,10 +801,10 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           json.writeEndArray();
         } else {
           if (innerCount != null && innerCount.getValue()) {
-            writeInlineCount(property.getName(), navigationLink.getInlineEntitySet().getCount(), json);
+            writeInlineCount(property.getName(), getInlineCount(inlineEntitySet), json);
           }
           json.writeFieldName(property.getName());
-          writeEntitySet(metadata, property.getType(), navigationLink.getInlineEntitySet(), innerExpand, toDepth,
+          writeEntitySet(metadata, property.getType(), inlineEntitySet, innerExpand, toDepth,
               innerSelect, writeOnlyRef, ancestors, json);
         }
       }
@@ -602,28 +818,38 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       }
     }
   }
-  
-  private boolean isStreamProperty(EdmProperty edmProperty) {
-    final EdmType type = edmProperty.getType();
-    return (edmProperty.isPrimitive() && type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Stream));    
-  }
 
   protected void writeProperty(final ServiceMetadata metadata,
       final EdmProperty edmProperty, final Property property,
       final Set<List<String>> selectedPaths, final JsonGenerator json)
       throws IOException, SerializerException {
-    boolean isStreamProperty = isStreamProperty(edmProperty);
-    writePropertyType(edmProperty, json);
-    if (!isStreamProperty) {
-      json.writeFieldName(edmProperty.getName());
+    // Called from the compiled plans with their property and selection, so the property plan is usually known.
+    final JsonSerializationPlan.Key key = new JsonSerializationPlan.Key(edmProperty, selectedPaths);
+    JsonSerializationPlan.PropertyPlan plan = propertyPlans.get(key);
+    if (plan == null) {
+      plan = new JsonSerializationPlan.PropertyPlan(edmProperty, selectedPaths,
+          isODataMetadataFull, isIEEE754Compatible);
+      propertyPlans.put(key, plan);
+    }
+    writeProperty(metadata, plan, property, json);
+  }
+
+  private void writeProperty(final ServiceMetadata metadata, final JsonSerializationPlan.PropertyPlan plan,
+      final Property property, final JsonGenerator json) throws IOException, SerializerException {
+    if (plan.typeAnnotation != null) {
+      json.writeFieldName(plan.typeAnnotationName);
+      json.writeString(plan.typeAnnotation);
+    }
+    if (!plan.isStream) {
+      json.writeFieldName(plan.jsonName);
     }
     if (property == null || property.isNull()) {
-      if (edmProperty.isNullable() == Boolean.FALSE) {
+      if (plan.isNullable == Boolean.FALSE) {
         throw new SerializerException("Non-nullable property not present!",
-            SerializerException.MessageKeys.MISSING_PROPERTY, edmProperty.getName());
+            SerializerException.MessageKeys.MISSING_PROPERTY, plan.name);
       } else {
-        if (!isStreamProperty) {
-          if (edmProperty.isCollection()) {
+        if (!plan.isStream) {
+          if (plan.isCollection) {
             json.writeStartArray();
             json.writeEndArray();
           } else {
@@ -632,77 +858,36 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         }
       }
     } else {
-      writePropertyValue(metadata, edmProperty, property, selectedPaths, json);
+      writePropertyValue(metadata, plan, property, json);
     }
   }
-  
-  private void writePropertyType(final EdmProperty edmProperty, JsonGenerator json)
-      throws SerializerException, IOException {
-    if (!isODataMetadataFull) {
-      return;
-    }
-    String typeName = edmProperty.getName() + Constants.JSON_TYPE;
-    final EdmType type = edmProperty.getType();
-    if (type.getKind() == EdmTypeKind.ENUM || type.getKind() == EdmTypeKind.DEFINITION) {
-      if (edmProperty.isCollection()) {
-        json.writeStringField(typeName, 
-            "#Collection(" + type.getFullQualifiedName().getFullQualifiedNameAsString() + ")");
-      } else {
-        json.writeStringField(typeName, "#" + type.getFullQualifiedName().getFullQualifiedNameAsString());
-      }
-    } else if (edmProperty.isPrimitive()) {
-      if (edmProperty.isCollection()) {
-        json.writeStringField(typeName, "#Collection(" + type.getFullQualifiedName().getName() + ")");
-      } else {
-        // exclude the properties that can be heuristically determined
-        if (type != EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Boolean) &&
-            type != EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Double) &&
-            type != EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.String)) {
-          json.writeStringField(typeName, "#" + type.getFullQualifiedName().getName());                  
-        }
-      }
-    } else if (type.getKind() == EdmTypeKind.COMPLEX) {
-      // non-collection case written in writeComplex method directly.
-      if (edmProperty.isCollection()) {
-        json.writeStringField(typeName, 
-            "#Collection(" + type.getFullQualifiedName().getFullQualifiedNameAsString() + ")");
-      }
-    } else {
-      throw new SerializerException("Property type not yet supported!",
-          SerializerException.MessageKeys.UNSUPPORTED_PROPERTY_TYPE, edmProperty.getName());
-    }    
-  }
 
-  private void writePropertyValue(final ServiceMetadata metadata, final EdmProperty edmProperty,
-      final Property property, final Set<List<String>> selectedPaths, final JsonGenerator json)
+  private void writePropertyValue(final ServiceMetadata metadata, final JsonSerializationPlan.PropertyPlan plan,
+      final Property property, final JsonGenerator json)
       throws IOException, SerializerException {
-    final EdmType type = edmProperty.getType();
     try {
-      if (edmProperty.isPrimitive()
-          || type.getKind() == EdmTypeKind.ENUM || type.getKind() == EdmTypeKind.DEFINITION) {
-        if (edmProperty.isCollection()) {
-          writePrimitiveCollection((EdmPrimitiveType) type, property,
-              edmProperty.isNullable(), edmProperty.getMaxLength(),
-              edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode(), json);
-        } else {
-          writePrimitive((EdmPrimitiveType) type, property,
-              edmProperty.isNullable(), edmProperty.getMaxLength(),
-              edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode(), json);
+      if (plan.isPrimitive) {
+        if (plan.isCollection) {
+          writePrimitiveCollection((EdmPrimitiveType) plan.type, property,
+              plan.isNullable, plan.maxLength, plan.precision, plan.scale, plan.isUnicode, json);
+        } else if (!property.isPrimitive() || !plan.writeValue(property.getValue(), json)) {
+          writePrimitive((EdmPrimitiveType) plan.type, property,
+              plan.isNullable, plan.maxLength, plan.precision, plan.scale, plan.isUnicode, json);
         }
       } else if (property.isComplex()) {
-        if (edmProperty.isCollection()) {
-          writeComplexCollection(metadata, (EdmComplexType) type, property, selectedPaths, json);
+        if (plan.isCollection) {
+          writeComplexCollection(metadata, (EdmComplexType) plan.type, property, plan.selectedPaths, json);
         } else {
-         writeComplex(metadata, (EdmComplexType) type, property, selectedPaths, json);
+         writeComplex(metadata, (EdmComplexType) plan.type, property, plan.selectedPaths, json);
         }
       } else {
         throw new SerializerException("Property type not yet supported!",
-            SerializerException.MessageKeys.UNSUPPORTED_PROPERTY_TYPE, edmProperty.getName());
+            SerializerException.MessageKeys.UNSUPPORTED_PROPERTY_TYPE, plan.name);
       }
     } catch (final EdmPrimitiveTypeException e) {
       throw new SerializerException("Wrong value for property!", e,
           SerializerException.MessageKeys.WRONG_PROPERTY_VALUE,
-          edmProperty.getName(), property.getValue().toString());
+          plan.name, property.getValue().toString());
     }
   }
 
@@ -725,6 +910,13 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final Boolean isUnicode, final JsonGenerator json)
       throws IOException, SerializerException {
     json.writeStartArray();
+    if (property.getValueType() == ValueType.COLLECTION_PRIMITIVE
+        && property.getValue() instanceof UnboxedValueList
+        && UnboxedValueHelper.isDirectlyWritable(type, ((UnboxedValueList) property.getValue()).getKind())) {
+      writeUnboxedCollection(type, property, isNullable, maxLength, precision, scale, isUnicode, json);
+      json.writeEndArray();
+      return;
+    }
     for (Object value : property.asCollection()) {
       switch (property.getValueType()) {
       case COLLECTION_PRIMITIVE:
@@ -747,6 +939,41 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     json.writeEndArray();
   }
 
+  /** Writes the items of a primitive collection directly from the backing primitive array. */
+  private void writeUnboxedCollection(final EdmPrimitiveType type, final Property property,
+      final Boolean isNullable, final Integer maxLength, final Integer precision, final Integer scale,
+      final Boolean isUnicode, final JsonGenerator json) throws IOException, SerializerException {
+    final UnboxedValueList list = (UnboxedValueList) property.getValue();
+    final boolean asString = isIEEE754Compatible
+        && type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64);
+    for (int index = 0; index < list.size(); index++) {
+      if (asString || !UnboxedValueHelper.isFinite(list, index)) {
+        try {
+          writePrimitiveValue(property.getName(), type, list.get(index), isNullable,
+              maxLength, precision, scale, isUnicode, json);
+        } catch (EdmPrimitiveTypeException e) {
+          throw new SerializerException("Wrong value for property!", e,
+              SerializerException.MessageKeys.WRONG_PROPERTY_VALUE,
+              property.getName(), String.valueOf(list.get(index)));
+        }
+        continue;
+      }
+      switch (list.getKind()) {
+      case BOOLEAN:
+        json.writeBoolean(list.getBoolean(index));
+        break;
+      case FLOAT:
+        json.writeNumber(list.getFloat(index));
+        break;
+      case DOUBLE:
+        json.writeNumber(list.getDouble(index));
+        break;
+      default:
+        json.writeNumber(list.getLong(index));
+      }
+    }
+  }
+
   private void writePrimitiveCollectionStreamed(
           final EdmPrimitiveType type,
           final PrimitiveIterator property,
@@ -838,6 +1065,11 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   protected void writePrimitiveValue(final String name, final EdmPrimitiveType type, final Object primitiveValue,
       final Boolean isNullable, final Integer maxLength, final Integer precision, final Integer scale,
       final Boolean isUnicode, final JsonGenerator json) throws EdmPrimitiveTypeException, IOException {
+    final JsonPrimitiveWriter writer = primitiveValue == null ? null : JsonPrimitiveWriter.forType(type);
+    if (writer != null
+        && writer.write(json, primitiveValue, maxLength, precision, scale, isUnicode, isIEEE754Compatible)) {
+      return;
+    }
     final String value = type.valueToString(primitiveValue,
         isNullable, maxLength, precision, scale, isUnicode);
     if (value == null) {
@@ -977,14 +1209,14 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final Set<List<String>> selectedPaths, final JsonGenerator json)
       throws IOException, SerializerException {
 
-    for (final String propertyName : type.getPropertyNames()) {
-      final Property property = findProperty(propertyName, properties);
-      if (selectedPaths == null || ExpandSelectHelper.isSelected(selectedPaths, propertyName)) {
-        writeProperty(metadata, (EdmProperty) type.getProperty(propertyName), property,
-            selectedPaths == null ? null : ExpandSelectHelper.getReducedSelectedPaths(selectedPaths, propertyName),
-            json);
-      }
+    final JsonSerializationPlan.Key key = new JsonSerializationPlan.Key(type, selectedPaths);
+    JsonSerializationPlan plan = plans.get(key);
+    if (plan == null) {
+      plan = JsonSerializationPlan.getForPaths(metadata, type, selectedPaths,
+          isODataMetadataFull, isIEEE754Compatible);
+      addPlan(key, plan);
     }
+    writeProperties(metadata, plan, properties, json);
   }
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
@@ -1003,7 +1235,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       json.writeStartObject();
@@ -1047,7 +1279,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       json.writeStartObject();
@@ -1086,7 +1318,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       json.writeStartObject();
@@ -1175,7 +1407,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       json.writeStartObject();
@@ -1258,7 +1490,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
 
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       final UriHelper uriHelper = new UriHelperImpl();
       outputStream = buffer.getOutputStream();
       final JsonGenerator json = new JsonFactory().createGenerator(outputStream);
@@ -1289,8 +1521,8 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
 
     try {
       final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
-      final UriHelper uriHelper = new UriHelperImpl();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
+      final EntityIdTemplate entityIdTemplate = new UriHelperImpl().getEntityIdTemplate(edmEntitySet);
       outputStream = buffer.getOutputStream();
       final JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       json.writeStartObject();
@@ -1303,7 +1535,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       json.writeArrayFieldStart(Constants.VALUE);
       for (final Entity entity : entityCollection) {
         json.writeStartObject();
-        json.writeStringField(Constants.JSON_ID, uriHelper.buildCanonicalURL(edmEntitySet, entity));
+        json.writeStringField(Constants.JSON_ID, entityIdTemplate.buildCanonicalURL(entity));
         json.writeEndObject();
       }
       json.writeEndArray();
@@ -1357,4 +1589,11 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       json.writeStringField(Constants.JSON_NEXT_LINK, entitySet.getNext().toASCIIString());
     }
   }
+
+  /** Writes the delta link; it is only written on the last page, so not together with a next link. */
+  void writeDeltaLink(final AbstractEntityCollection entitySet, final JsonGenerator json) throws IOException {
+    if (entitySet.getNext() == null && entitySet.getDeltaLink() != null) {
+      json.writeStringField(Constants.JSON_DELTA_LINK, entitySet.getDeltaLink().toASCIIString());
+    }
+  }
 }
@@ -18,18 +18,24 @@
  */
 package org.apache.olingo.server.core.serializer.utils;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Circular stream buffer to write/read into/from one single buffer.
  * With support of {@link InputStream} and {@link OutputStream} access to buffered data.
- *
- *
+ * <br/>
+ * Once the heap buffers exceed the spill threshold, further data is written to a temporary file
+ * (through a direct buffer) and read from there after the heap buffers.
+ * The file is removed when the read part is closed or when all data has been read after the write part
+ * has been closed.
  */
 public class CircleStreamBuffer {
 
@@ -38,6 +44,9 @@ public class CircleStreamBuffer {
   private static final int DEFAULT_CAPACITY = 8192;
   private static final int MAX_CAPACITY = DEFAULT_CAPACITY * 32;
 
+  /** Spill threshold of buffers created without an explicit threshold: 32 MB. */
+  public static final long DEFAULT_SPILL_THRESHOLD = 32L * 1024 * 1024;
+
   private int currentAllocateCapacity = DEFAULT_CAPACITY;
 
   private boolean writeMode = true;
@@ -46,6 +55,15 @@ public class CircleStreamBuffer {
 
   private Queue<ByteBuffer> bufferQueue = new LinkedBlockingQueue<ByteBuffer>();
   private ByteBuffer currentWriteBuffer;
+  /** Sum of the capacities of the heap buffers in the queue. */
+  private long heapCapacity = 0;
+
+  private final long spillThreshold;
+  private File spillFile;
+  private FileChannel spillChannel;
+  private ByteBuffer spillWriteBuffer;
+  private long spillWritePosition = 0;
+  private long spillReadPosition = 0;
 
   private final InternalInputStream inStream;
   private final InternalOutputStream outStream;
@@ -63,7 +81,30 @@ public class CircleStreamBuffer {
    * @param initialCapacity initial capacity of internal buffer
    */
   public CircleStreamBuffer(final int initialCapacity) {
+    this(initialCapacity, DEFAULT_SPILL_THRESHOLD);
+  }
+
+  /**
+   * Creates a {@link CircleStreamBuffer} with default buffer size and given spill threshold.
+   *
+   * @param spillThreshold number of bytes kept on the heap before further data is written to a temporary file,
+   * or a negative value to keep all data on the heap
+   * @return the buffer
+   */
+  public static CircleStreamBuffer withSpillThreshold(final long spillThreshold) {
+    return new CircleStreamBuffer(DEFAULT_CAPACITY, spillThreshold);
+  }
+
+  /**
+   * Create a {@link CircleStreamBuffer} with given initial buffer size and spill threshold.
+   *
+   * @param initialCapacity initial capacity of internal buffer
+   * @param spillThreshold number of bytes kept on the heap before further data is written to a temporary file,
+   * or a negative value to keep all data on the heap
+   */
+  public CircleStreamBuffer(final int initialCapacity, final long spillThreshold) {
     currentAllocateCapacity = initialCapacity;
+    this.spillThreshold = spillThreshold;
     createNewWriteBuffer();
     inStream = new InternalInputStream(this);
     outStream = new InternalOutputStream(this);
@@ -113,6 +154,8 @@ public class CircleStreamBuffer {
       buffer.clear();
       buffer = bufferQueue.poll();
     }
+    heapCapacity = 0;
+    closeSpill();
   }
 
   /**
@@ -129,7 +172,8 @@ public class CircleStreamBuffer {
     } else {
       ByteBuffer toRead = getReadBuffer();
       if (toRead == null) {
-        return 0;
+        return spillChannel == null ? 0 :
+            (int) Math.min(Integer.MAX_VALUE, spillWritePosition + spillWriteBuffer.position() - spillReadPosition);
       }
       return toRead.remaining();
     }
@@ -155,6 +199,7 @@ public class CircleStreamBuffer {
       tmp = bufferQueue.peek();
       if (tmp != null && !tmp.hasRemaining()) {
         tmp = bufferQueue.poll();
+        heapCapacity -= tmp.capacity();
         next = true;
       }
     }
@@ -173,7 +218,7 @@ public class CircleStreamBuffer {
   private int read(final byte[] b, final int off, final int len) throws IOException {
     ByteBuffer readBuffer = getReadBuffer();
     if (readBuffer == null) {
-      return READ_EOF;
+      return readSpill(b, off, len);
     }
 
     int toReadLength = readBuffer.remaining();
@@ -187,10 +232,37 @@ public class CircleStreamBuffer {
   private int read() throws IOException {
     ByteBuffer readBuffer = getReadBuffer();
     if (readBuffer == null) {
+      final byte[] single = new byte[1];
+      return readSpill(single, 0, 1) == READ_EOF ? READ_EOF : single[0] & 0xFF;
+    }
+
+    return readBuffer.get() & 0xFF;
+  }
+
+  private int readSpill(final byte[] b, final int off, final int len) throws IOException {
+    if (spillChannel == null) {
+      return READ_EOF;
+    }
+    flushSpill();
+    final long available = spillWritePosition - spillReadPosition;
+    if (available <= 0) {
+      if (writeClosed) {
+        closeSpill();
+      }
       return READ_EOF;
     }
 
-    return readBuffer.get();
+    final ByteBuffer target = ByteBuffer.wrap(b, off, (int) Math.min(len, available));
+    int count = 0;
+    while (target.hasRemaining()) {
+      final int read = spillChannel.read(target, spillReadPosition + count);
+      if (read < 0) {
+        break;
+      }
+      count += read;
+    }
+    spillReadPosition += count;
+    return count;
   }
 
   public ByteBuffer getBuffer() throws IOException {
@@ -200,15 +272,29 @@ public class CircleStreamBuffer {
     writeMode = false;
 
     // FIXME: mibo_160108: This is not efficient and only for test/poc reasons
-    int reqSize = 0;
+    long reqSize = 0;
     for (ByteBuffer byteBuffer : bufferQueue) {
       reqSize += byteBuffer.position();
     }
-    ByteBuffer tmp = ByteBuffer.allocateDirect(reqSize);
+    if (spillChannel != null) {
+      flushSpill();
+      reqSize += spillWritePosition - spillReadPosition;
+    }
+    if (reqSize > Integer.MAX_VALUE) {
+      throw new IOException("Buffered data of " + reqSize + " bytes exceeds the maximum size of a single buffer.");
+    }
+    ByteBuffer tmp = ByteBuffer.allocateDirect((int) reqSize);
     for (ByteBuffer byteBuffer : bufferQueue) {
       byteBuffer.flip();
       tmp.put(byteBuffer);
     }
+    while (spillChannel != null && tmp.hasRemaining()) {
+      final int read = spillChannel.read(tmp, spillReadPosition);
+      if (read < 0) {
+        break;
+      }
+      spillReadPosition += read;
+    }
     return tmp;
   }
 
@@ -220,7 +306,11 @@ public class CircleStreamBuffer {
 
   private void write(final byte[] data, final int off, final int len) throws IOException {
     ByteBuffer writeBuffer = getWriteBuffer(len);
-    writeBuffer.put(data, off, len);
+    if (writeBuffer == null) {
+      writeSpill(data, off, len);
+    } else {
+      writeBuffer.put(data, off, len);
+    }
   }
 
   private ByteBuffer getWriteBuffer(final int size) throws IOException {
@@ -228,6 +318,15 @@ public class CircleStreamBuffer {
       throw new IOException("Tried to write into closed stream.");
     }
 
+    if (spillChannel != null) {
+      return null;
+    }
+    if (spillThreshold >= 0 && (!writeMode || remaining() < size)
+        && heapCapacity + Math.max(size, currentAllocateCapacity) > spillThreshold) {
+      startSpill();
+      return null;
+    }
+
     if (writeMode) {
       if (remaining() < size) {
         createNewWriteBuffer(size);
@@ -242,7 +341,68 @@ public class CircleStreamBuffer {
 
   private void write(final int b) throws IOException {
     ByteBuffer writeBuffer = getWriteBuffer(1);
-    writeBuffer.put((byte) b);
+    if (writeBuffer == null) {
+      writeSpill(new byte[] { (byte) b }, 0, 1);
+    } else {
+      writeBuffer.put((byte) b);
+    }
+  }
+
+  // #############################################
+  // #
+  // # Spilling parts
+  // #
+  // #############################################
+
+  private void startSpill() throws IOException {
+    spillFile = File.createTempFile("olingo-buffer", ".tmp");
+    spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+    // Where the file system allows it, the data stays accessible through the open channel only.
+    if (spillFile.delete()) {
+      spillFile = null;
+    }
+    spillWriteBuffer = ByteBuffer.allocateDirect(DEFAULT_CAPACITY);
+  }
+
+  private void writeSpill(final byte[] data, final int off, final int len) throws IOException {
+    if (len > spillWriteBuffer.remaining()) {
+      flushSpill();
+      if (len > spillWriteBuffer.capacity()) {
+        writeFully(ByteBuffer.wrap(data, off, len));
+        return;
+      }
+    }
+    spillWriteBuffer.put(data, off, len);
+  }
+
+  private void flushSpill() throws IOException {
+    spillWriteBuffer.flip();
+    writeFully(spillWriteBuffer);
+    spillWriteBuffer.clear();
+  }
+
+  private void writeFully(final ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      spillWritePosition += spillChannel.write(source, spillWritePosition);
+    }
+  }
+
+  private void closeSpill() {
+    if (spillChannel != null) {
+      try {
+        spillChannel.close();
+      } catch (final IOException e) {
+        // ignore
+      }
+      spillChannel = null;
+      spillWriteBuffer = null;
+    }
+    if (spillFile != null) {
+      if (!spillFile.delete()) {
+        spillFile.deleteOnExit();
+      }
+      spillFile = null;
+    }
   }
 
   private void createNewWriteBuffer() {
@@ -258,6 +418,7 @@ public class CircleStreamBuffer {
    */
   private void createNewWriteBuffer(final int requestedCapacity) {
     ByteBuffer b = allocateBuffer(requestedCapacity);
+    heapCapacity += b.capacity();
     bufferQueue.add(b);
     currentWriteBuffer = b;
   }
@@ -113,6 +113,17 @@ public abstract class ExpandSelectHelper {
     return expand != null && expand.getExpandItems() != null && !expand.getExpandItems().isEmpty();
   }
 
+  /**
+   * Checks that an expand item with <code>$levels</code> has no nested <code>$expand</code>;
+   * expanding further navigation properties on each level of a hierarchy is not supported.
+   */
+  public static void checkLevelsWithoutExpand(final ExpandItem item) throws SerializerException {
+    if (item.getLevelsOption() != null && hasExpand(item.getExpandOption())) {
+      throw new SerializerException("$expand together with $levels is not implemented.",
+          SerializerException.MessageKeys.NOT_IMPLEMENTED);
+    }
+  }
+
   public static boolean isExpandAll(final ExpandOption expand) {
     for (final ExpandItem item : expand.getExpandItems()) {
       if (item.isStar()) {
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.utils;
+
+import org.apache.olingo.commons.api.data.UnboxedKind;
+import org.apache.olingo.commons.api.data.UnboxedValueList;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+
+/**
+ * Helper for writing unboxed primitive values of a {@link UnboxedValueList}
+ * without boxing them and without going through {@link EdmPrimitiveType#valueToString}.
+ * The direct path is only taken where it produces the same result as the generic one;
+ * otherwise callers fall back to the boxed value.
+ */
+public abstract class UnboxedValueHelper {
+
+  /**
+   * Checks whether values of the given kind can be written directly for the given EDM type,
+   * i.e., every value of the kind is valid for the type and has the same literal representation.
+   */
+  public static boolean isDirectlyWritable(final EdmPrimitiveType type, final UnboxedKind kind) {
+    if (kind == null) {
+      return false;
+    }
+    switch (kind) {
+    case BOOLEAN:
+      return type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Boolean);
+    case INT:
+      return type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32)
+          || type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64);
+    case LONG:
+      return type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64);
+    case FLOAT:
+      return type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Single);
+    case DOUBLE:
+      return type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Double);
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Checks whether the item at the given index of the list is finite, i.e., no NaN or infinity
+   * that need special literals.
+   */
+  public static boolean isFinite(final UnboxedValueList list, final int index) {
+    switch (list.getKind()) {
+    case FLOAT:
+    case DOUBLE:
+      return isFinite(list.getDouble(index));
+    default:
+      return true;
+    }
+  }
+
+  /**
+   * Returns the literal representation of the item at the given index of the list,
+   * or <code>null</code> if it has to be written through the generic path.
+   */
+  public static String toString(final EdmPrimitiveType type, final UnboxedValueList list, final int index) {
+    if (!isDirectlyWritable(type, list.getKind()) || !isFinite(list, index)) {
+      return null;
+    }
+    switch (list.getKind()) {
+    case BOOLEAN:
+      return Boolean.toString(list.getBoolean(index));
+    case FLOAT:
+      return Float.toString(list.getFloat(index));
+    case DOUBLE:
+      return Double.toString(list.getDouble(index));
+    default:
+      return Long.toString(list.getLong(index));
+    }
+  }
+
+  private static boolean isFinite(final double value) {
+    return !Double.isNaN(value) && !Double.isInfinite(value);
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.olingo.server.core.serializer.xml;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashSet;
@@ -35,14 +36,18 @@ import org.apache.olingo.commons.api.data.AbstractEntityCollection;
 import org.apache.olingo.commons.api.data.ComplexIterator;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.EntityPublisher;
 import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Linked;
 import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.PrimitiveIterator;
+import org.apache.olingo.commons.api.data.UnboxedValueList;
+import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -75,13 +80,17 @@ import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.ComplexStreamContent;
+import org.apache.olingo.server.core.ODataPublishedContent;
 import org.apache.olingo.server.core.ODataWritableContent;
 import org.apache.olingo.server.core.PrimitiveStreamContent;
 import org.apache.olingo.server.core.serializer.AbstractODataSerializer;
+import org.apache.olingo.server.core.serializer.EntityCollectionWriter;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
+import org.apache.olingo.server.core.serializer.SerializerStreamResultImpl;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.apache.olingo.server.core.serializer.utils.UnboxedValueHelper;
 import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
 
 public class ODataXmlSerializer extends AbstractODataSerializer {
@@ -94,13 +103,27 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
   private static final String DATA = Constants.PREFIX_DATASERVICES;
   private static final String NS_DATA = Constants.NS_DATASERVICES;
 
+  private final long spillThreshold;
+
+  public ODataXmlSerializer() {
+    this(CircleStreamBuffer.DEFAULT_SPILL_THRESHOLD);
+  }
+
+  /**
+   * Creates a serializer which buffers serialized content larger than the given threshold in a temporary file.
+   * @param spillThreshold number of bytes kept in memory; negative to keep all content in memory
+   */
+  public ODataXmlSerializer(final long spillThreshold) {
+    this.spillThreshold = spillThreshold;
+  }
+
   @Override
   public SerializerResult serviceDocument(final ServiceMetadata metadata, final String serviceRoot)
       throws SerializerException {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       ServiceDocumentXmlSerializer serializer = new ServiceDocumentXmlSerializer(metadata, serviceRoot);
@@ -129,7 +152,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       MetadataDocumentXmlSerializer serializer = new MetadataDocumentXmlSerializer(serviceMetadata);
@@ -163,7 +186,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -234,7 +257,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -341,12 +364,105 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     }
   }
 
+  @Override
+  public SerializerResult delta(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final Delta delta, final EntityCollectionSerializerOptions options) throws SerializerException {
+    throw new SerializerException("Delta responses are not supported in XML format.",
+        SerializerException.MessageKeys.NOT_IMPLEMENTED);
+  }
+
   @Override
   public SerializerStreamResult entityCollectionStreamed(ServiceMetadata metadata, EdmEntityType entityType,
       EntityIterator entities, EntityCollectionSerializerOptions options) throws SerializerException {
       return ODataWritableContent.with(entities, entityType, this, metadata, options).build();
   }
 
+  @Override
+  public SerializerStreamResult entityCollectionPublished(final ServiceMetadata metadata,
+      final EdmEntityType entityType, final EntityPublisher entities,
+      final EntityCollectionSerializerOptions options) throws SerializerException {
+    return SerializerStreamResultImpl.with().content(new ODataPublishedContent(entities,
+        new XmlEntityCollectionWriter(metadata, entityType, options), options)).build();
+  }
+
+  /**
+   * Writes the parts of an entity collection separately, see {@link #entityCollectionIntoStream}.
+   * In contrast to the other entity-collection methods, the next link is written after the entries.
+   */
+  private class XmlEntityCollectionWriter implements EntityCollectionWriter {
+    private final ServiceMetadata metadata;
+    private final EdmEntityType entityType;
+    private final EntityCollectionSerializerOptions options;
+    private XMLStreamWriter writer;
+
+    XmlEntityCollectionWriter(final ServiceMetadata metadata, final EdmEntityType entityType,
+        final EntityCollectionSerializerOptions options) {
+      this.metadata = metadata;
+      this.entityType = entityType;
+      this.options = options;
+    }
+
+    @Override
+    public void writeStart(final OutputStream outputStream, final Integer count) throws SerializerException {
+      final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
+      try {
+        writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
+        writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
+        writer.writeStartElement(ATOM, Constants.ATOM_ELEM_FEED, NS_ATOM);
+        writer.writeNamespace(ATOM, NS_ATOM);
+        writer.writeNamespace(METADATA, NS_METADATA);
+        writer.writeNamespace(DATA, NS_DATA);
+        writer.writeAttribute(METADATA, NS_METADATA, Constants.CONTEXT,
+            ContextURLBuilder.create(contextURL).toASCIIString());
+        writeMetadataETag(metadata, writer);
+        if (options != null && options.getId() != null) {
+          writer.writeStartElement(ATOM, Constants.ATOM_ELEM_ID, NS_ATOM);
+          writer.writeCharacters(options.getId());
+          writer.writeEndElement();
+        }
+        if (options != null && options.getCount() != null && options.getCount().getValue() && count != null) {
+          writer.writeStartElement(METADATA, Constants.ATOM_ELEM_COUNT, NS_METADATA);
+          writer.writeCharacters(String.valueOf(count));
+          writer.writeEndElement();
+        }
+        writer.flush();
+      } catch (final XMLStreamException e) {
+        throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+
+    @Override
+    public void writeEntity(final Entity entity) throws SerializerException {
+      try {
+        ODataXmlSerializer.this.writeEntity(metadata, entityType, entity, null,
+            options == null ? null : options.getExpand(), null,
+            options == null ? null : options.getSelect(),
+            options == null ? null : options.xml10InvalidCharReplacement(), writer, false,
+            options != null && options.getWriteOnlyReferences(), null);
+        writer.flush();
+      } catch (final XMLStreamException e) {
+        throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+
+    @Override
+    public void writeEnd(final URI next) throws SerializerException {
+      try {
+        if (next != null) {
+          writer.writeStartElement(ATOM, Constants.ATOM_ELEM_LINK, NS_ATOM);
+          writer.writeAttribute(Constants.ATTR_REL, Constants.NEXT_LINK_REL);
+          writer.writeAttribute(Constants.ATTR_HREF, next.toASCIIString());
+          writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+      } catch (final XMLStreamException e) {
+        throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+  }
+
   @Override
   public SerializerResult entity(final ServiceMetadata metadata, final EdmEntityType entityType,
       final Entity entity, final EntitySerializerOptions options) throws SerializerException {
@@ -360,7 +476,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -450,6 +566,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       writeReference(entity, contextURL, writer, top);
       return;
     }
+    final String entityId = entity.getId() == null ? null : entity.getId().toASCIIString();
     try {
       writer.writeStartElement(ATOM, Constants.ATOM_ELEM_ENTRY, NS_ATOM);
       if (top) {
@@ -467,18 +584,18 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         writer.writeAttribute(METADATA, NS_METADATA, Constants.ATOM_ATTR_ETAG, entity.getETag());
       }
   
-      if (entity.getId() != null) {
+      if (entityId != null) {
         writer.writeStartElement(NS_ATOM, Constants.ATOM_ELEM_ID);
-        writer.writeCharacters(entity.getId().toASCIIString());
+        writer.writeCharacters(entityId);
         writer.writeEndElement();
       }
   
       writerAuthorInfo(entity.getTitle(), writer);
   
-      if (entity.getId() != null) {
+      if (entityId != null) {
         writer.writeStartElement(NS_ATOM, Constants.ATOM_ELEM_LINK);
         writer.writeAttribute(Constants.ATTR_REL, Constants.EDIT_LINK_REL);
-        writer.writeAttribute(Constants.ATTR_HREF, entity.getId().toASCIIString());
+        writer.writeAttribute(Constants.ATTR_HREF, entityId);
         writer.writeEndElement();
       }
   
@@ -488,9 +605,8 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         if (entity.getMediaContentSource() != null) {
           writer.writeAttribute(Constants.ATOM_ATTR_SRC, entity.getMediaContentSource().toString());
         } else {
-          String id = entity.getId().toASCIIString();
           writer.writeAttribute(Constants.ATOM_ATTR_SRC,
-              id + (id.endsWith("/") ? "" : "/") + "$value");
+              entityId + (entityId.endsWith("/") ? "" : "/") + "$value");
         }
         writer.writeEndElement();
       }
@@ -529,7 +645,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       writer.writeEndElement(); // entry
     } finally {
       if (!cycle && ancestors != null) {
-        ancestors.remove(getEntityId(entity));
+        ancestors.remove(entityId == null ? getEntityId(entity) : entityId);
       }
     }
   }
@@ -662,6 +778,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
           ExpandOption childExpand = null;
           LevelsExpandOption levelsOption = null;
           if (innerOptions != null) {
+            ExpandSelectHelper.checkLevelsWithoutExpand(innerOptions);
             levelsOption = innerOptions.getLevelsOption();
             if (levelsOption == null) {
               childExpand = innerOptions.getExpandOption();
@@ -671,6 +788,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
               childExpand = expandOptionImpl;
             }
           } else if (expandAll != null) {
+            ExpandSelectHelper.checkLevelsWithoutExpand(expandAll);
             levels = 1;
             levelsOption = expandAll.getLevelsOption();
             ExpandOptionImpl expandOptionImpl = new ExpandOptionImpl();
@@ -758,15 +876,16 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final Set<String> ancestors,
       final XMLStreamWriter writer) throws XMLStreamException, SerializerException {
     if (property.isCollection()) {
-      if (navigationLink != null && navigationLink.getInlineEntitySet() != null) {
+      final AbstractEntityCollection inlineEntitySet = getInlineEntitySet(navigationLink);
+      if (inlineEntitySet != null) {
         writer.writeStartElement(ATOM, Constants.ATOM_ELEM_FEED, NS_ATOM);
         if (writeNavigationCount) {
-          writeCount(navigationLink.getInlineEntitySet(), writer);
+          writeInlineCount(inlineEntitySet, writer);
         } else {
           if (coutOption != null && coutOption.getValue()) {
-            writeCount(navigationLink.getInlineEntitySet(), writer);
+            writeInlineCount(inlineEntitySet, writer);
           }
-          writeEntitySet(metadata, property.getType(), navigationLink.getInlineEntitySet(), innerExpand, toDepth,
+          writeEntitySet(metadata, property.getType(), inlineEntitySet, innerExpand, toDepth,
               innerSelect, xml10InvalidCharReplacement, writer, writeOnlyRef, ancestors);
         }
         writer.writeEndElement();
@@ -882,6 +1001,23 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final Boolean isNullable, final Integer maxLength, final Integer precision, final Integer scale,
       final Boolean isUnicode, final String xml10InvalidCharReplacement,
       final XMLStreamWriter writer) throws XMLStreamException, EdmPrimitiveTypeException, SerializerException {
+    if (property.getValueType() == ValueType.COLLECTION_PRIMITIVE
+        && property.getValue() instanceof UnboxedValueList) {
+      // Items are written directly from the backing primitive array where possible.
+      final UnboxedValueList list = (UnboxedValueList) property.getValue();
+      for (int index = 0; index < list.size(); index++) {
+        writer.writeStartElement(METADATA, Constants.ELEM_ELEMENT, NS_METADATA);
+        final String value = UnboxedValueHelper.toString(type, list, index);
+        if (value == null) {
+          writePrimitiveValue(type, list.get(index), isNullable, maxLength, precision,
+              scale, isUnicode, xml10InvalidCharReplacement, writer);
+        } else {
+          writer.writeCharacters(value);
+        }
+        writer.writeEndElement();
+      }
+      return;
+    }
     for (Object value : property.asCollection()) {
       writer.writeStartElement(METADATA, Constants.ELEM_ELEMENT, NS_METADATA);
       switch (property.getValueType()) {
@@ -1026,7 +1162,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
 
@@ -1084,7 +1220,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     SerializerException cachedException = null;
     try {
       EdmComplexType resolvedType = resolveComplexType(metadata, type, property.getType());
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -1132,7 +1268,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
 
@@ -1241,7 +1377,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -1324,7 +1460,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -1375,7 +1511,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
-      CircleStreamBuffer buffer = new CircleStreamBuffer();
+      CircleStreamBuffer buffer = CircleStreamBuffer.withSpillThreshold(spillThreshold);
       outputStream = buffer.getOutputStream();
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
@@ -1418,11 +1554,24 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
 
   private void writeCount(final AbstractEntityCollection entitySet, final XMLStreamWriter writer)
       throws XMLStreamException {
+    writeCount(entitySet.getCount(), writer);
+  }
+
+  private void writeCount(final Integer count, final XMLStreamWriter writer) throws XMLStreamException {
     writer.writeStartElement(METADATA, Constants.ATOM_ELEM_COUNT, NS_METADATA);
-    writer.writeCharacters(String.valueOf(entitySet.getCount()==null?0:entitySet.getCount()));
+    writer.writeCharacters(String.valueOf(count == null ? 0 : count));
     writer.writeEndElement();
   }
 
+  /** Writes the count of an in-line entity set; it is omitted for an entity iterator without count. */
+  private void writeInlineCount(final AbstractEntityCollection inlineEntitySet, final XMLStreamWriter writer)
+      throws XMLStreamException {
+    final Integer count = getInlineCount(inlineEntitySet);
+    if (count != null || !(inlineEntitySet instanceof EntityIterator)) {
+      writeCount(count, writer);
+    }
+  }
+
   private void writeNextLink(final AbstractEntityCollection entitySet, final XMLStreamWriter writer)
       throws XMLStreamException {
     writer.writeStartElement(ATOM, Constants.ATOM_ELEM_LINK, NS_ATOM);
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.EntityIdTemplate;
+
+/**
+ * Canonical URLs of the entities of one entity set: the prefix with the entity-set name
+ * followed by the key predicate from the {@link KeyFormat} of the entity type.
+ */
+final class EntityIdTemplateImpl implements EntityIdTemplate {
+
+  private final EdmEntitySet entitySet;
+  private final EdmEntityType entityType;
+  private final KeyFormat keyFormat;
+  private final String prefix;
+
+  EntityIdTemplateImpl(final EdmEntitySet entitySet) {
+    this.entitySet = entitySet;
+    entityType = entitySet.getEntityType();
+    keyFormat = KeyFormat.forType(entityType);
+    prefix = entitySet.getName() + '(';
+  }
+
+  @Override
+  public EdmEntitySet getEntitySet() {
+    return entitySet;
+  }
+
+  @Override
+  public String buildCanonicalURL(final Entity entity) throws SerializerException {
+    return appendCanonicalURL(new StringBuilder(prefix.length() + 32), entity).toString();
+  }
+
+  @Override
+  public StringBuilder appendCanonicalURL(StringBuilder builder, final Entity entity) throws SerializerException {
+    builder.append(prefix);
+    return keyFormat.append(builder, entityType, entity).append(')');
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri;
+
+import java.util.Arrays;
+
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.server.api.uri.EntityKey;
+
+/**
+ * Key of an entity as normalized values of its key properties; see {@link KeyFormat}.
+ */
+final class EntityKeyImpl implements EntityKey {
+
+  private final EdmEntityType entityType;
+  private final KeyFormat format;
+  private final Object[] values;
+  private String keyPredicate;
+
+  EntityKeyImpl(final EdmEntityType entityType, final KeyFormat format, final Object[] values) {
+    this.entityType = entityType;
+    this.format = format;
+    this.values = values;
+  }
+
+  @Override
+  public EdmEntityType getEntityType() {
+    return entityType;
+  }
+
+  @Override
+  public String getKeyPredicate() {
+    if (keyPredicate == null) {
+      keyPredicate = format.format(entityType, values);
+    }
+    return keyPredicate;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(entityType) + Arrays.hashCode(values);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof EntityKeyImpl)) {
+      return false;
+    }
+    final EntityKeyImpl other = (EntityKeyImpl) obj;
+    return entityType == other.entityType && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public String toString() {
+    return getKeyPredicate();
+  }
+}
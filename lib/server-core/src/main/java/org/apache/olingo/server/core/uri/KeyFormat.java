@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmTypeDefinition;
+import org.apache.olingo.commons.core.Encoder;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+
+/**
+ * <p>Converts the key property values of one entity type into normalized values and canonical key predicates.</p>
+ * <p>Integer values are normalized to {@link Long}; Boolean, String, and Guid values keep their type;
+ * values of all other types are represented by their canonical string.
+ * So normalized values are equal if and only if the key property values are equal,
+ * whether they come from the entity data or from a key predicate, and the key predicate
+ * is formatted from them without further conversion.</p>
+ * <p>Formats are cached per entity type. They refer to built-in primitive types only, so that the cache
+ * does not keep the EDM of an entity type alive.</p>
+ */
+final class KeyFormat {
+
+  private enum Kind { INTEGER, BOOLEAN, STRING, GUID, OTHER }
+
+  private static final Map<EdmEntityType, KeyFormat> FORMATS =
+      Collections.synchronizedMap(new WeakHashMap<EdmEntityType, KeyFormat>());
+
+  private final Part[] parts;
+
+  private KeyFormat(final EdmEntityType entityType) {
+    final List<String> keyNames = entityType.getKeyPredicateNames();
+    parts = new Part[keyNames.size()];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = new Part(keyNames.get(i), entityType.getKeyPropertyRef(keyNames.get(i)), parts.length > 1);
+    }
+  }
+
+  /** Gets the (cached) format for the key of an entity type. */
+  static KeyFormat forType(final EdmEntityType entityType) {
+    KeyFormat format = FORMATS.get(entityType);
+    if (format == null) {
+      format = new KeyFormat(entityType);
+      FORMATS.put(entityType, format);
+    }
+    return format;
+  }
+
+  /**
+   * Gets the normalized key values of an entity.
+   * @throws SerializerException if a key property is missing or has an invalid value
+   */
+  Object[] getValues(final EdmEntityType entityType, final Entity entity) throws SerializerException {
+    Object[] values = new Object[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      values[i] = getValue(parts[i], entityType, entity);
+    }
+    return values;
+  }
+
+  /**
+   * Appends the canonical, percent-encoded key predicate of an entity.
+   * @throws SerializerException if a key property is missing or has an invalid value
+   */
+  StringBuilder append(StringBuilder result, final EdmEntityType entityType, final Entity entity)
+      throws SerializerException {
+    for (int i = 0; i < parts.length; i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      final Part part = parts[i];
+      if (part.prefix != null) {
+        result.append(part.prefix);
+      }
+      part.appendLiteral(result, part.getType(entityType), getValue(part, entityType, entity));
+    }
+    return result;
+  }
+
+  private static Object getValue(final Part part, final EdmEntityType entityType, final Entity entity)
+      throws SerializerException {
+    final EdmPrimitiveType type = part.getType(entityType);
+    if (type == null) {
+      throw new SerializerException("Property not found (possibly an alias): " + part.name,
+          SerializerException.MessageKeys.MISSING_PROPERTY, part.name);
+    }
+    final Object value = part.getPropertyValue(entity);
+    try {
+      return part.normalize(type, value);
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new SerializerException("Wrong key value!", e,
+          SerializerException.MessageKeys.WRONG_PROPERTY_VALUE, part.name, String.valueOf(value));
+    }
+  }
+
+  /**
+   * Gets the normalized key values from key predicates.
+   * Values already converted by the URI parser are taken over; otherwise the literals are converted.
+   * @throws DeserializerException if a key property is missing or has an invalid value
+   */
+  Object[] getValues(final EdmEntityType entityType, final List<UriParameter> keys) throws DeserializerException {
+    Object[] values = new Object[parts.length];
+    boolean[] found = new boolean[parts.length];
+    for (final UriParameter key : keys) {
+      final int index = indexOf(key.getName());
+      final EdmPrimitiveType type = index < 0 ? null : parts[index].getType(entityType);
+      if (type == null) {
+        throw new DeserializerException("Unknown key property " + key.getName(),
+            DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY, key.getName());
+      }
+      final Part part = parts[index];
+      found[index] = true;
+      try {
+        final Object value = key instanceof UriParameterImpl && ((UriParameterImpl) key).getValue() != null ?
+            ((UriParameterImpl) key).getValue() :
+            type.valueOfString(type.fromUriLiteral(getLiteral(key)),
+                part.isNullable, part.maxLength, part.precision, part.scale, part.isUnicode,
+                type.getDefaultType());
+        values[index] = part.normalize(type, value);
+      } catch (final EdmPrimitiveTypeException e) {
+        throw new DeserializerException("Invalid key value for " + key.getName(), e,
+            DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY, key.getName());
+      }
+    }
+    for (int i = 0; i < parts.length; i++) {
+      if (!found[i]) {
+        throw new DeserializerException("Missing key property " + parts[i].name,
+            DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY, parts[i].name);
+      }
+    }
+    return values;
+  }
+
+  /** Formats normalized key values as canonical, percent-encoded key predicate. */
+  String format(final EdmEntityType entityType, final Object[] values) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < parts.length; i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      final Part part = parts[i];
+      if (part.prefix != null) {
+        result.append(part.prefix);
+      }
+      part.appendLiteral(result, part.getType(entityType), values[i]);
+    }
+    return result.toString();
+  }
+
+  private int indexOf(final String name) {
+    for (int i = 0; i < parts.length; i++) {
+      if (parts[i].name.equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String getLiteral(final UriParameter key) throws EdmPrimitiveTypeException {
+    if (key.getAlias() == null) {
+      return key.getText();
+    } else if (key.getExpression() instanceof Literal) {
+      return ((Literal) key.getExpression()).getText();
+    } else {
+      throw new EdmPrimitiveTypeException("The key value is not a literal.");
+    }
+  }
+
+  private static boolean isInteger(final Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  /** The conversion of one key property. */
+  private static final class Part {
+    /** The name in key predicates, i.e., the alias if there is one. */
+    private final String name;
+    /** The encoded name with equals sign in compound keys, otherwise <code>null</code>. */
+    private final String prefix;
+    private final String[] path;
+    /** The built-in type, or <code>null</code> if the type has to be looked up in the entity type. */
+    private final EdmPrimitiveType type;
+    private final Kind kind;
+    private final long min;
+    private final long max;
+    private final Boolean isNullable;
+    private final Integer maxLength;
+    private final Integer precision;
+    private final Integer scale;
+    private final Boolean isUnicode;
+
+    Part(final String name, final EdmKeyPropertyRef keyPropertyRef, final boolean isCompound) {
+      this.name = name;
+      prefix = isCompound ? Encoder.encode(name) + '=' : null;
+      path = keyPropertyRef.getName().split("/");
+      final EdmProperty property = keyPropertyRef.getProperty();
+      EdmPrimitiveType propertyType = property == null ? null : (EdmPrimitiveType) property.getType();
+      Integer maxLength = property == null ? null : property.getMaxLength();
+      Integer precision = property == null ? null : property.getPrecision();
+      Integer scale = property == null ? null : property.getScale();
+      Boolean isUnicode = property == null ? null : property.isUnicode();
+      if (propertyType instanceof EdmTypeDefinition) {
+        // Facets of the property take precedence over facets of the type definition, see EdmTypeDefinitionImpl.
+        final EdmTypeDefinition definition = (EdmTypeDefinition) propertyType;
+        propertyType = definition.getUnderlyingType();
+        maxLength = maxLength == null ? definition.getMaxLength() : maxLength;
+        precision = precision == null ? definition.getPrecision() : precision;
+        scale = scale == null ? definition.getScale() : scale;
+        isUnicode = isUnicode == null ? definition.isUnicode() : isUnicode;
+      }
+      type = propertyType != null && EdmPrimitiveType.EDM_NAMESPACE.equals(propertyType.getNamespace()) ?
+          propertyType : null;
+      isNullable = property == null ? null : property.isNullable();
+      this.maxLength = maxLength;
+      this.precision = precision;
+      this.scale = scale;
+      this.isUnicode = isUnicode;
+
+      if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Byte)) {
+        kind = Kind.INTEGER;
+        min = 0;
+        max = 255;
+      } else if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.SByte)) {
+        kind = Kind.INTEGER;
+        min = Byte.MIN_VALUE;
+        max = Byte.MAX_VALUE;
+      } else if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int16)) {
+        kind = Kind.INTEGER;
+        min = Short.MIN_VALUE;
+        max = Short.MAX_VALUE;
+      } else if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32)) {
+        kind = Kind.INTEGER;
+        min = Integer.MIN_VALUE;
+        max = Integer.MAX_VALUE;
+      } else if (type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64)) {
+        kind = Kind.INTEGER;
+        min = Long.MIN_VALUE;
+        max = Long.MAX_VALUE;
+      } else {
+        kind = type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Boolean) ? Kind.BOOLEAN :
+            type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.String) ? Kind.STRING :
+                type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Guid) ? Kind.GUID :
+                    Kind.OTHER;
+        min = 0;
+        max = 0;
+      }
+    }
+
+    EdmPrimitiveType getType(final EdmEntityType entityType) {
+      if (type != null) {
+        return type;
+      }
+      final EdmKeyPropertyRef keyPropertyRef = entityType.getKeyPropertyRef(name);
+      final EdmProperty property = keyPropertyRef == null ? null : keyPropertyRef.getProperty();
+      return property == null ? null : (EdmPrimitiveType) property.getType();
+    }
+
+    Object getPropertyValue(final Entity entity) {
+      Property property = entity.getProperty(path[0]);
+      for (int i = 1; i < path.length && property != null; i++) {
+        property = findProperty(path[i], property.asComplex().getValue());
+      }
+      return property == null ? null : property.getValue();
+    }
+
+    Object normalize(final EdmPrimitiveType type, final Object value) throws EdmPrimitiveTypeException {
+      switch (kind) {
+      case INTEGER:
+        if (isInteger(value)) {
+          final long number = ((Number) value).longValue();
+          if (number >= min && number <= max) {
+            return Long.valueOf(number);
+          }
+        }
+        break;
+      case BOOLEAN:
+        if (value instanceof Boolean) {
+          return value;
+        }
+        break;
+      case STRING:
+        if (value instanceof String && maxLength == null && (isUnicode == null || isUnicode)) {
+          return value;
+        }
+        break;
+      case GUID:
+        if (value instanceof UUID) {
+          return value;
+        }
+        break;
+      default:
+        break;
+      }
+      // The conversion to a string checks the value and the facets and throws an exception in case of errors.
+      final String canonical = type.valueToString(value, isNullable, maxLength, precision, scale, isUnicode);
+      if (canonical == null) {
+        return null;
+      }
+      switch (kind) {
+      case INTEGER:
+        return Long.valueOf(canonical);
+      case BOOLEAN:
+        return Boolean.valueOf(canonical);
+      case GUID:
+        return UUID.fromString(canonical);
+      default:
+        return canonical;
+      }
+    }
+
+    void appendLiteral(StringBuilder result, final EdmPrimitiveType type, final Object value) {
+      if (value == null) {
+        result.append("null");
+      } else if (kind == Kind.INTEGER || kind == Kind.BOOLEAN || kind == Kind.GUID) {
+        // The literals of these types consist of unreserved characters only.
+        result.append(value.toString());
+      } else {
+        result.append(Encoder.encode(type.toUriLiteral((String) value)));
+      }
+    }
+
+    private static Property findProperty(final String propertyName, final List<Property> properties) {
+      for (final Property property : properties) {
+        if (propertyName.equals(property.getName())) {
+          return property;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -18,23 +18,23 @@
  */
 package org.apache.olingo.server.core.uri;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.olingo.commons.api.data.Entity;
-import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
-import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
-import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmStructuredType;
-import org.apache.olingo.commons.core.Encoder;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.DeserializerException.MessageKeys;
 import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.EntityIdTemplate;
+import org.apache.olingo.server.api.uri.EntityKey;
 import org.apache.olingo.server.api.uri.UriHelper;
 import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResource;
@@ -48,6 +48,13 @@ import org.apache.olingo.server.core.uri.parser.Parser;
 
 public class UriHelperImpl implements UriHelper {
 
+  /**
+   * Entity-ID templates shared by all helpers, since a new helper is usually created for each request.
+   * A template refers to its entity set, so it is held weakly; otherwise the cache would keep the EDM alive.
+   */
+  private static final Map<EdmEntitySet, WeakReference<EntityIdTemplate>> ENTITY_ID_TEMPLATES =
+      Collections.synchronizedMap(new WeakHashMap<EdmEntitySet, WeakReference<EntityIdTemplate>>());
+
   @Override
   public String buildContextURLSelectList(final EdmStructuredType type,
       final ExpandOption expand, final SelectOption select) throws SerializerException {
@@ -61,79 +68,38 @@ public class UriHelperImpl implements UriHelper {
 
   @Override
   public String buildCanonicalURL(final EdmEntitySet edmEntitySet, final Entity entity) throws SerializerException {
-    return edmEntitySet.getName() + '(' + buildKeyPredicate(edmEntitySet.getEntityType(), entity) + ')';
+    return getEntityIdTemplate(edmEntitySet).buildCanonicalURL(entity);
   }
 
   @Override
-  public String buildKeyPredicate(final EdmEntityType edmEntityType, final Entity entity) throws SerializerException {
-    StringBuilder result = new StringBuilder();
-    final List<String> keyNames = edmEntityType.getKeyPredicateNames();
-    boolean first = true;
-    for (final String keyName : keyNames) {
-      EdmKeyPropertyRef refType = edmEntityType.getKeyPropertyRef(keyName);
-      if (first) {
-        first = false;
-      } else {
-        result.append(',');
-      }
-      if (keyNames.size() > 1) {
-        result.append(Encoder.encode(keyName)).append('=');
-      }
-      final EdmProperty edmProperty =  refType.getProperty();
-      if (edmProperty == null) {
-        throw new SerializerException("Property not found (possibly an alias): " + keyName,
-            SerializerException.MessageKeys.MISSING_PROPERTY, keyName);
-      }
-      final EdmPrimitiveType type = (EdmPrimitiveType) edmProperty.getType();
-      final Object propertyValue = findPropertyRefValue(entity, refType);
-      try {
-        final String value = type.toUriLiteral(
-            type.valueToString(propertyValue,
-                edmProperty.isNullable(), edmProperty.getMaxLength(),
-                edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode()));
-        result.append(Encoder.encode(value));
-      } catch (final EdmPrimitiveTypeException e) {
-        throw new SerializerException("Wrong key value!", e,
-            SerializerException.MessageKeys.WRONG_PROPERTY_VALUE, edmProperty.getName(), propertyValue.toString());
-      }
+  public EntityIdTemplate getEntityIdTemplate(final EdmEntitySet edmEntitySet) {
+    final WeakReference<EntityIdTemplate> reference = ENTITY_ID_TEMPLATES.get(edmEntitySet);
+    EntityIdTemplate template = reference == null ? null : reference.get();
+    if (template == null) {
+      template = new EntityIdTemplateImpl(edmEntitySet);
+      ENTITY_ID_TEMPLATES.put(edmEntitySet, new WeakReference<EntityIdTemplate>(template));
     }
-    return result.toString();
+    return template;
   }
-  
-  private Object findPropertyRefValue(Entity entity, EdmKeyPropertyRef refType) {
-    final int INDEX_ERROR_CODE = -1;
-    final String propertyPath = refType.getName();
-    String tmpPropertyName;
-    int lastIndex;
-    int index = propertyPath.indexOf('/');
-    if (index == INDEX_ERROR_CODE) {
-        index  = propertyPath.length();
-    }
-    tmpPropertyName = propertyPath.substring(0, index);
-    //get first property
-    Property prop = entity.getProperty(tmpPropertyName);
-    //get following properties
-    while (index < propertyPath.length()) {
-        lastIndex = ++index;
-        index = propertyPath.indexOf('/', index+1);
-        if (index == INDEX_ERROR_CODE) {
-            index = propertyPath.length();
-        }
-        tmpPropertyName = propertyPath.substring(lastIndex, index);
-        prop = findProperty(tmpPropertyName, prop.asComplex().getValue());
-     }
-    return prop.getValue();
+
+  @Override
+  public String buildKeyPredicate(final EdmEntityType edmEntityType, final Entity entity) throws SerializerException {
+    return KeyFormat.forType(edmEntityType).append(new StringBuilder(), edmEntityType, entity).toString();
   }
 
-  private Property findProperty(final String propertyName, final List<Property> properties) {
-    for (final Property property : properties) {
-      if (propertyName.equals(property.getName())) {
-        return property;
-      }
-    }
-    return null;
+  @Override
+  public EntityKey buildKey(final EdmEntityType edmEntityType, final List<UriParameter> keys)
+      throws DeserializerException {
+    final KeyFormat format = KeyFormat.forType(edmEntityType);
+    return new EntityKeyImpl(edmEntityType, format, format.getValues(edmEntityType, keys));
   }
-  
+
+  @Override
+  public EntityKey buildKey(final EdmEntityType edmEntityType, final Entity entity) throws SerializerException {
+    final KeyFormat format = KeyFormat.forType(edmEntityType);
+    return new EntityKeyImpl(edmEntityType, format, format.getValues(edmEntityType, entity));
+  }
+
   @Override
   public UriResourceEntitySet parseEntityId(final Edm edm, final String entityId, final String rawServiceRoot)
       throws DeserializerException {
@@ -41,6 +41,7 @@ import org.apache.olingo.server.api.uri.queryoption.AliasQueryOption;
 import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.CustomQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.DeltaTokenOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.FormatOption;
@@ -192,6 +193,7 @@ public class UriInfoImpl implements UriInfo {
     case TOP:
     case LEVELS:
     case APPLY:
+    case DELTATOKEN:
       systemQueryOptions.put(systemQueryOptionKind, systemOption);
       break;
     default:
@@ -250,6 +252,11 @@ public class UriInfoImpl implements UriInfo {
     return (SkipTokenOption) systemQueryOptions.get(SystemQueryOptionKind.SKIPTOKEN);
   }
 
+  @Override
+  public DeltaTokenOption getDeltaTokenOption() {
+    return (DeltaTokenOption) systemQueryOptions.get(SystemQueryOptionKind.DELTATOKEN);
+  }
+
   @Override
   public TopOption getTopOption() {
     return (TopOption) systemQueryOptions.get(SystemQueryOptionKind.TOP);
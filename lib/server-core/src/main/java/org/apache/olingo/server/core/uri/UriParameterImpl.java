@@ -27,6 +27,7 @@ public class UriParameterImpl implements UriParameter {
   private String alias;
   private Expression expression;
   private String referencedProperty;
+  private Object value;
 
   @Override
   public String getName() {
@@ -78,4 +79,17 @@ public class UriParameterImpl implements UriParameter {
     return this;
   }
 
+  /**
+   * Gets the value of a key predicate as converted by the URI parser.
+   * @return the value in the default Java type of the key property's type, or <code>null</code>
+   */
+  public Object getValue() {
+    return value;
+  }
+
+  public UriParameterImpl setValue(final Object value) {
+    this.value = value;
+    return this;
+  }
+
 }
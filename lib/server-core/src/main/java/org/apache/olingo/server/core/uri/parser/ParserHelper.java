@@ -439,12 +439,12 @@ public class ParserHelper {
         null;
     final String value = alias == null ? literalValue : alias.getText();
     final EdmPrimitiveType primitiveType = (EdmPrimitiveType) edmProperty.getType();
+    // The conversion validates the value; the converted value is kept for the key lookup.
+    Object keyValue;
     try {
-      if (!(primitiveType.validate(primitiveType.fromUriLiteral(value), edmProperty.isNullable(),
-          edmProperty.getMaxLength(), edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode()))) {
-        throw new UriValidationException("Invalid key property",
-            UriValidationException.MessageKeys.INVALID_KEY_PROPERTY, parameterName);
-      }
+      keyValue = primitiveType.valueOfString(primitiveType.fromUriLiteral(value), edmProperty.isNullable(),
+          edmProperty.getMaxLength(), edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode(),
+          primitiveType.getDefaultType());
     } catch (final EdmPrimitiveTypeException e) {
       throw new UriValidationException("Invalid key property", e,
           UriValidationException.MessageKeys.INVALID_KEY_PROPERTY, parameterName);
@@ -455,7 +455,8 @@ public class ParserHelper {
         .setText("null".equals(literalValue) ? null : literalValue)
         .setAlias(alias == null ? null : literalValue)
         .setExpression(alias == null ? null :
-            alias.getValue() == null ? new LiteralImpl(value, primitiveType) : alias.getValue());
+            alias.getValue() == null ? new LiteralImpl(value, primitiveType) : alias.getValue())
+        .setValue(keyValue);
   }
 
   private static AliasQueryOption getKeyAlias(final String name, final EdmProperty edmProperty,
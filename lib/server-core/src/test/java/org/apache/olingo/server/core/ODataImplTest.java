@@ -18,10 +18,13 @@
  */
 package org.apache.olingo.server.core;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.junit.Test;
@@ -39,6 +42,20 @@ public class ODataImplTest {
     
   }
 
+  @Test
+  public void serializerSpillThreshold() throws Exception {
+    final StringBuilder message = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      message.append("Message ");
+    }
+    final ODataServerError error = new ODataServerError().setMessage(message.toString());
+    for (final ContentType contentType : new ContentType[] { ContentType.JSON, ContentType.APPLICATION_XML }) {
+      // The content is the same whether it is kept in memory or buffered in a temporary file.
+      assertEquals(IOUtils.toString(odata.createSerializer(contentType, -1).error(error).getContent(), "UTF-8"),
+          IOUtils.toString(odata.createSerializer(contentType, 0).error(error).getContent(), "UTF-8"));
+    }
+  }
+
   @Test
   public void deserializerSupportedFormats() throws DeserializerException {
     assertNotNull(odata.createDeserializer(ContentType.JSON_NO_METADATA));
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityPublisher;
+import org.apache.olingo.commons.api.data.EntitySubscriber;
+import org.apache.olingo.commons.api.data.EntitySubscription;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.server.api.ODataContentWriteErrorCallback;
+import org.apache.olingo.server.api.ODataContentWriteErrorContext;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.core.serializer.EntityCollectionWriter;
+import org.junit.Test;
+
+public class ODataPublishedContentTest {
+
+  /** Writes the values of property "Name" as a comma-separated list in brackets. */
+  private static class TestWriter implements EntityCollectionWriter {
+    private OutputStream outputStream;
+    private boolean first = true;
+
+    @Override
+    public void writeStart(final OutputStream outputStream, final Integer count) throws SerializerException {
+      this.outputStream = outputStream;
+      write(count == null ? "[" : count + "[");
+    }
+
+    @Override
+    public void writeEntity(final Entity entity) throws SerializerException {
+      write((first ? "" : ",") + entity.getProperty("Name").getValue());
+      first = false;
+    }
+
+    @Override
+    public void writeEnd(final URI next) throws SerializerException {
+      write(next == null ? "]" : "]" + next);
+    }
+
+    private void write(final String text) throws SerializerException {
+      try {
+        outputStream.write(text.getBytes("UTF-8"));
+      } catch (final IOException e) {
+        throw new SerializerException("I/O", e, SerializerException.MessageKeys.IO_EXCEPTION);
+      }
+    }
+  }
+
+  /** Publisher whose signals are triggered by the test. */
+  private static class TestPublisher extends EntityPublisher {
+    private EntitySubscriber subscriber;
+    private long requested = 0;
+    private boolean cancelled = false;
+    private int sent = 0;
+
+    @Override
+    public void subscribe(final EntitySubscriber subscriber) {
+      this.subscriber = subscriber;
+      subscriber.onSubscribe(new EntitySubscription() {
+        @Override
+        public void request(final long count) {
+          requested += count;
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+
+    void send(final int count, final String value) {
+      for (int i = 0; i < count; i++) {
+        sent++;
+        subscriber.onNext(createEntity(value));
+      }
+    }
+  }
+
+  private static Entity createEntity(final String value) {
+    return new Entity().addProperty(new Property(null, "Name", ValueType.PRIMITIVE, value));
+  }
+
+  private static String read(final ODataPublishedContent content, final int length) throws Exception {
+    final byte[] bytes = new byte[length];
+    final int count = content.read(bytes, 0, length);
+    return count <= 0 ? "" : new String(bytes, 0, count, "UTF-8");
+  }
+
+  @Test
+  public void requestsOnlyWhatIsRead() throws Exception {
+    final TestPublisher publisher = new TestPublisher();
+    final ODataPublishedContent content = new ODataPublishedContent(publisher, new TestWriter(), null);
+    assertEquals(0, publisher.requested);
+
+    assertEquals("[", read(content, 100));
+    assertEquals(ODataPublishedContent.REQUEST_SIZE, publisher.requested);
+
+    // A large batch fills the buffer beyond the low-water mark.
+    char[] chars = new char[1000];
+    Arrays.fill(chars, 'x');
+    publisher.send(ODataPublishedContent.REQUEST_SIZE, new String(chars));
+    assertEquals(1000, read(content, 1000).length());
+    assertEquals(ODataPublishedContent.REQUEST_SIZE, publisher.requested);
+
+    // Only after the client has drained the buffer far enough are more entities requested.
+    while (publisher.requested == ODataPublishedContent.REQUEST_SIZE) {
+      assertTrue(read(content, 1000).length() > 0);
+    }
+    assertEquals(2 * ODataPublishedContent.REQUEST_SIZE, publisher.requested);
+  }
+
+  @Test
+  public void notifiesListener() throws Exception {
+    final TestPublisher publisher = new TestPublisher();
+    final ODataPublishedContent content = new ODataPublishedContent(publisher, new TestWriter(), null);
+    final int[] notifications = new int[1];
+    content.setDataAvailableListener(new Runnable() {
+      @Override
+      public void run() {
+        notifications[0]++;
+      }
+    });
+
+    assertEquals("[", read(content, 100));
+    assertEquals("", read(content, 100));
+    assertEquals(0, notifications[0]);
+    publisher.send(1, "a");
+    assertEquals(1, notifications[0]);
+    publisher.send(1, "b");
+    assertEquals(1, notifications[0]);
+    assertEquals("a,b", read(content, 100));
+
+    assertEquals("", read(content, 100));
+    publisher.subscriber.onComplete();
+    assertEquals(2, notifications[0]);
+    assertEquals("]", read(content, 100));
+    assertEquals(-1, content.read(new byte[10], 0, 10));
+  }
+
+  @Test
+  public void blockingWrite() throws Exception {
+    final EntityPublisher publisher = new EntityPublisher() {
+      @Override
+      public void subscribe(final EntitySubscriber subscriber) {
+        subscriber.onSubscribe(new EntitySubscription() {
+          private int sent = 0;
+
+          @Override
+          public void request(final long count) {
+            // Entities are delivered on another thread.
+            new Thread() {
+              @Override
+              public void run() {
+                for (long i = 0; i < count && sent < 40; i++) {
+                  subscriber.onNext(createEntity(String.valueOf(sent++)));
+                }
+                if (sent == 40) {
+                  subscriber.onComplete();
+                }
+              }
+            }.start();
+          }
+
+          @Override
+          public void cancel() {
+            sent = 40;
+          }
+        });
+      }
+
+      @Override
+      public Integer getCount() {
+        return 40;
+      }
+
+      @Override
+      public URI getNext() {
+        return URI.create("next");
+      }
+    };
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new ODataPublishedContent(publisher, new TestWriter(), null).write(output);
+
+    StringBuilder expected = new StringBuilder("40[");
+    for (int i = 0; i < 40; i++) {
+      expected.append(i == 0 ? "" : ",").append(i);
+    }
+    expected.append("]next");
+    assertEquals(expected.toString(), output.toString("UTF-8"));
+  }
+
+  @Test
+  public void publisherError() throws Exception {
+    final TestPublisher publisher = new TestPublisher();
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .writeContentErrorCallback(new ODataContentWriteErrorCallback() {
+          @Override
+          public void handleError(final ODataContentWriteErrorContext context, final WritableByteChannel channel) {
+            try {
+              channel.write(ByteBuffer.wrap(("ERROR " + context.getException().getCause().getMessage())
+                  .getBytes("UTF-8")));
+            } catch (final IOException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }).build();
+    final ODataPublishedContent content = new ODataPublishedContent(publisher, new TestWriter(), options);
+
+    assertEquals("[", read(content, 100));
+    publisher.send(1, "a");
+    publisher.subscriber.onError(new IllegalStateException("database gone"));
+    assertEquals("aERROR database gone", read(content, 100));
+    assertEquals(-1, content.read(new byte[10], 0, 10));
+  }
+
+  @Test
+  public void writerRuntimeException() throws Exception {
+    final TestPublisher publisher = new TestPublisher();
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .writeContentErrorCallback(new ODataContentWriteErrorCallback() {
+          @Override
+          public void handleError(final ODataContentWriteErrorContext context, final WritableByteChannel channel) {
+            try {
+              channel.write(ByteBuffer.wrap(("ERROR " + context.getException().getCause().getMessage())
+                  .getBytes("UTF-8")));
+            } catch (final IOException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }).build();
+    final ODataPublishedContent content = new ODataPublishedContent(publisher, new TestWriter() {
+      @Override
+      public void writeEntity(final Entity entity) throws SerializerException {
+        if ("bad".equals(entity.getProperty("Name").getValue())) {
+          throw new IllegalArgumentException("bad entity");
+        }
+        super.writeEntity(entity);
+      }
+    }, options);
+
+    assertEquals("[", read(content, 100));
+    publisher.send(1, "a");
+    publisher.send(1, "bad");
+    assertTrue(publisher.cancelled);
+    assertEquals("aERROR bad entity", read(content, 100));
+    assertEquals(-1, content.read(new byte[10], 0, 10));
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    final TestPublisher publisher = new TestPublisher();
+    final ODataPublishedContent content = new ODataPublishedContent(publisher, new TestWriter(), null);
+    assertEquals("[", read(content, 100));
+    publisher.send(2, "a");
+
+    content.cancel();
+    assertTrue(publisher.cancelled);
+    assertEquals(-1, content.read(new byte[10], 0, 10));
+    publisher.send(1, "late");
+    assertEquals(-1, content.read(new byte[10], 0, 10));
+    assertEquals(3, publisher.sent);
+  }
+}
@@ -26,6 +26,8 @@ import java.util.Properties;
 import java.util.UUID;
 
 import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.async.AsyncProcessingException;
+import org.apache.olingo.server.api.paging.PagingException;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.core.uri.parser.UriParserSemanticException;
 import org.apache.olingo.server.core.uri.parser.UriParserSyntaxException;
@@ -57,6 +59,8 @@ public class TranslatedExceptionSubclassesTest {
     testException(SerializerException.class, SerializerException.MessageKeys.values());
     testException(UriValidationException.class, UriValidationException.MessageKeys.values());
     testException(UriParserSyntaxException.class, UriParserSyntaxException.MessageKeys.values());
+    testException(PagingException.class, PagingException.MessageKeys.values());
+    testException(AsyncProcessingException.class, AsyncProcessingException.MessageKeys.values());
   }
 
   private void testException(final Class<? extends ODataLibraryException> clazz,
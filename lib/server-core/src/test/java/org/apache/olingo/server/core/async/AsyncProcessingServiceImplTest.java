@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.async.AsyncJob;
+import org.apache.olingo.server.api.async.AsyncProcessingException;
+import org.apache.olingo.server.api.async.AsyncTask;
+import org.junit.Test;
+
+public class AsyncProcessingServiceImplTest {
+
+  /** Executor collecting the tasks so that the test decides when they run. */
+  private static class ManualExecutor implements Executor {
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+    @Override
+    public void execute(final Runnable command) {
+      tasks.add(command);
+    }
+
+    void runAll() {
+      for (final Runnable task : tasks) {
+        task.run();
+      }
+      tasks.clear();
+    }
+  }
+
+  private static class TestService extends AsyncProcessingServiceImpl {
+    private long time = 1000;
+
+    TestService(final Executor executor, final int maxPendingJobs, final long maxProcessingTimeMillis,
+        final long resultTimeToLiveMillis) {
+      super(executor, maxPendingJobs, maxProcessingTimeMillis, resultTimeToLiveMillis);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return time;
+    }
+  }
+
+  private static final AsyncTask OK_TASK = new AsyncTask() {
+    @Override
+    public ODataResponse execute() {
+      final ODataResponse response = new ODataResponse();
+      response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+      response.setHeader("Content-Type", "text/plain");
+      response.setContent(new ByteArrayInputStream("done".getBytes()));
+      return response;
+    }
+  };
+
+  @Test
+  public void completed() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final AsyncProcessingServiceImpl service = new AsyncProcessingServiceImpl(executor, 5, 60000, 60000);
+    final AsyncJob job = service.submit(OK_TASK);
+    assertEquals(32, job.getId().length());
+    assertSame(job, service.getJob(job.getId()));
+    assertEquals(AsyncJob.State.QUEUED, job.getState());
+    assertNull(job.getResult());
+    assertEquals(1, service.getPendingJobCount());
+
+    executor.runAll();
+    assertEquals(AsyncJob.State.COMPLETED, job.getState());
+    assertEquals(0, service.getPendingJobCount());
+    assertEquals("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n\r\ndone", IOUtils.toString(job.getResult()));
+    // The result can be read more than once.
+    assertNotNull(job.getResult());
+
+    assertSame(job, service.removeJob(job.getId()));
+    assertNull(service.getJob(job.getId()));
+    assertNull(service.removeJob(job.getId()));
+  }
+
+  @Test
+  public void failed() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final AsyncProcessingServiceImpl service = new AsyncProcessingServiceImpl(executor, 5, 60000, 60000);
+    final ODataApplicationException exception = new ODataApplicationException("failure", 500, null);
+    final AsyncJob job = service.submit(new AsyncTask() {
+      @Override
+      public ODataResponse execute() throws ODataApplicationException {
+        throw exception;
+      }
+    });
+    executor.runAll();
+    assertEquals(AsyncJob.State.FAILED, job.getState());
+    assertSame(exception, job.getException());
+    assertNull(job.getResult());
+    assertEquals(0, service.getPendingJobCount());
+  }
+
+  @Test
+  public void error() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final AsyncProcessingServiceImpl service = new AsyncProcessingServiceImpl(executor, 5, 60000, 60000);
+    final StackOverflowError error = new StackOverflowError();
+    final AsyncJob job = service.submit(new AsyncTask() {
+      @Override
+      public ODataResponse execute() {
+        throw error;
+      }
+    });
+    try {
+      executor.runAll();
+      fail("Expected StackOverflowError");
+    } catch (final StackOverflowError e) {
+      assertSame(error, e);
+    }
+    assertEquals(AsyncJob.State.FAILED, job.getState());
+    assertTrue(job.getException() instanceof ExecutionException);
+    assertEquals(0, service.getPendingJobCount());
+  }
+
+  @Test
+  public void tooManyPendingJobs() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final AsyncProcessingServiceImpl service = new AsyncProcessingServiceImpl(executor, 2, 60000, 60000);
+    service.submit(OK_TASK);
+    service.submit(OK_TASK);
+    try {
+      service.submit(OK_TASK);
+      fail("Expected AsyncProcessingException");
+    } catch (final AsyncProcessingException e) {
+      assertEquals(AsyncProcessingException.MessageKeys.TOO_MANY_PENDING_JOBS, e.getMessageKey());
+    }
+
+    executor.runAll();
+    // Finished jobs no longer count against the limit.
+    assertNotNull(service.submit(OK_TASK));
+    assertEquals(3, service.getJobs().size());
+  }
+
+  @Test
+  public void removedBeforeStart() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final AsyncProcessingServiceImpl service = new AsyncProcessingServiceImpl(executor, 1, 60000, 60000);
+    final AsyncJob job = service.submit(new AsyncTask() {
+      @Override
+      public ODataResponse execute() {
+        fail("Removed job must not be processed.");
+        return null;
+      }
+    });
+    service.removeJob(job.getId());
+    executor.runAll();
+    assertEquals(AsyncJob.State.QUEUED, job.getState());
+    assertEquals(0, service.getPendingJobCount());
+  }
+
+  @Test
+  public void rejectedByExecutor() throws Exception {
+    final AsyncProcessingServiceImpl service = new AsyncProcessingServiceImpl(new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    }, 1, 60000, 60000);
+    try {
+      service.submit(OK_TASK);
+      fail("Expected AsyncProcessingException");
+    } catch (final AsyncProcessingException e) {
+      assertEquals(AsyncProcessingException.MessageKeys.REJECTED, e.getMessageKey());
+    }
+    assertEquals(0, service.getPendingJobCount());
+    assertTrue(service.getJobs().isEmpty());
+  }
+
+  @Test
+  public void resultExpires() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final TestService service = new TestService(executor, 5, 10000, 100);
+    final AsyncJob finished = service.submit(OK_TASK);
+    executor.runAll();
+    final AsyncJob queued = service.submit(OK_TASK);
+
+    service.time += 99;
+    assertNotNull(service.getJob(finished.getId()));
+    service.time += 1;
+    assertNull(service.getJob(finished.getId()));
+    // Jobs which have not been finished do not expire.
+    service.time += 1000;
+    assertSame(queued, service.getJob(queued.getId()));
+    assertEquals(1, service.getJobs().size());
+  }
+
+  @Test
+  public void stuckJobExpires() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final TestService service = new TestService(executor, 1, 100, 1000);
+    final AsyncJob stuck = service.submit(new AsyncTask() {
+      @Override
+      public ODataResponse execute() {
+        fail("Timed-out job must not be processed.");
+        return null;
+      }
+    });
+
+    service.time += 99;
+    assertEquals(AsyncJob.State.QUEUED, service.getJob(stuck.getId()).getState());
+    service.time += 1;
+    assertSame(stuck, service.getJob(stuck.getId()));
+    assertEquals(AsyncJob.State.FAILED, stuck.getState());
+    assertTrue(stuck.getException() instanceof TimeoutException);
+    // The timed-out job no longer counts against the limit.
+    assertEquals(0, service.getPendingJobCount());
+    final AsyncJob next = service.submit(OK_TASK);
+    executor.runAll();
+    assertEquals(AsyncJob.State.FAILED, stuck.getState());
+    assertEquals(AsyncJob.State.COMPLETED, next.getState());
+    assertEquals(0, service.getPendingJobCount());
+
+    // Its failure is kept for the time to live like any other result.
+    service.time += 1000;
+    assertNull(service.getJob(stuck.getId()));
+  }
+
+  @Test
+  public void runningJobTimesOut() throws Exception {
+    final ManualExecutor executor = new ManualExecutor();
+    final TestService service = new TestService(executor, 1, 100, 1000);
+    final AsyncJob[] running = new AsyncJob[1];
+    running[0] = service.submit(new AsyncTask() {
+      @Override
+      public ODataResponse execute() throws ODataApplicationException, ODataLibraryException {
+        service.time += 100;
+        service.expireJobs();
+        assertEquals(AsyncJob.State.FAILED, running[0].getState());
+        assertTrue(running[0].getException() instanceof TimeoutException);
+        assertTrue(Thread.currentThread().isInterrupted());
+        // The job still runs and therefore still counts against the limit.
+        assertEquals(1, service.getPendingJobCount());
+        try {
+          service.submit(OK_TASK);
+          fail("Expected AsyncProcessingException");
+        } catch (final AsyncProcessingException e) {
+          assertEquals(AsyncProcessingException.MessageKeys.TOO_MANY_PENDING_JOBS, e.getMessageKey());
+        }
+        return OK_TASK.execute();
+      }
+    });
+    executor.runAll();
+    assertEquals(AsyncJob.State.FAILED, running[0].getState());
+    assertNull(running[0].getResult());
+    assertEquals(0, service.getPendingJobCount());
+    // The interrupt does not affect the next task of the thread.
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidLimit() {
+    new AsyncProcessingServiceImpl(new ManualExecutor(), 0, 1, 1);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.delta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.server.api.delta.ChangeSet;
+import org.apache.olingo.server.api.delta.DeltaException;
+import org.junit.Test;
+
+public class ChangeLogImplTest {
+
+  private static final URI ID1 = URI.create("ESAllPrim(1)");
+  private static final URI ID2 = URI.create("ESAllPrim(2)");
+  private static final URI ID3 = URI.create("ESAllPrim(3)");
+
+  private final ChangeLogImpl log = new ChangeLogImpl(5);
+
+  @Test
+  public void changesSinceToken() throws Exception {
+    log.recordChange("ESAllPrim", ID1);
+    final String token = log.getDeltaToken("ESAllPrim");
+    assertTrue(log.isDeltaToken(token));
+
+    ChangeSet changes = log.readChanges("ESAllPrim", token);
+    assertTrue(changes.isEmpty());
+    assertEquals(token, changes.getDeltaToken());
+
+    log.recordChange("ESAllPrim", ID2);
+    log.recordChange("ESTwoPrim", URI.create("ESTwoPrim(1)"));
+    log.recordDeletion("ESAllPrim", ID3);
+    changes = log.readChanges("ESAllPrim", token);
+    assertEquals(Collections.singletonList(ID2), changes.getChangedEntityIds());
+    assertEquals(Collections.singletonList(ID3), changes.getDeletedEntityIds());
+    assertFalse(token.equals(changes.getDeltaToken()));
+
+    assertTrue(log.readChanges("ESAllPrim", changes.getDeltaToken()).isEmpty());
+  }
+
+  @Test
+  public void mostRecentChangeWins() throws Exception {
+    final String token = log.getDeltaToken("ESAllPrim");
+    log.recordChange("ESAllPrim", ID1);
+    log.recordChange("ESAllPrim", ID2);
+    log.recordDeletion("ESAllPrim", ID1);
+    log.recordChange("ESAllPrim", ID2);
+
+    final ChangeSet changes = log.readChanges("ESAllPrim", token);
+    assertEquals(Collections.singletonList(ID2), changes.getChangedEntityIds());
+    assertEquals(Collections.singletonList(ID1), changes.getDeletedEntityIds());
+  }
+
+  @Test
+  public void links() throws Exception {
+    final String token = log.getDeltaToken("ESAllPrim");
+    final DeltaLink first = createLink(ID1, ID2);
+    final DeltaLink second = createLink(ID1, ID3);
+    log.recordAddedLink("ESAllPrim", first);
+    log.recordAddedLink("ESAllPrim", second);
+    log.recordDeletedLink("ESAllPrim", createLink(ID1, ID2));
+
+    final ChangeSet changes = log.readChanges("ESAllPrim", token);
+    assertEquals(Arrays.asList(second), changes.getAddedLinks());
+    assertEquals(Arrays.asList(first), changes.getDeletedLinks());
+    assertTrue(changes.getChangedEntityIds().isEmpty());
+  }
+
+  @Test
+  public void discardedChanges() throws Exception {
+    final String token = log.getDeltaToken("ESAllPrim");
+    for (int i = 0; i < 5; i++) {
+      log.recordChange("ESAllPrim", ID1);
+    }
+    assertEquals(1, log.readChanges("ESAllPrim", token).getChangedEntityIds().size());
+
+    log.recordChange("ESAllPrim", ID2);
+    assertEquals(5, log.getEntryCount());
+    expectException(token, DeltaException.MessageKeys.EXPIRED_DELTATOKEN);
+  }
+
+  @Test
+  public void invalidTokens() throws Exception {
+    expectException(null, DeltaException.MessageKeys.INVALID_DELTATOKEN);
+    expectException("1*10", DeltaException.MessageKeys.INVALID_DELTATOKEN);
+
+    final String token = log.getDeltaToken("ESAllPrim");
+    final String instance = token.substring(0, token.indexOf('-'));
+    expectException(instance + "-1", DeltaException.MessageKeys.INVALID_DELTATOKEN);
+
+    // A token of another log instance is well-formed but not known to this one.
+    final String foreign = new ChangeLogImpl(1).getDeltaToken("ESAllPrim");
+    assertTrue(log.isDeltaToken(foreign));
+    expectException(foreign, DeltaException.MessageKeys.INVALID_DELTATOKEN);
+  }
+
+  private DeltaLink createLink(final URI source, final URI target) {
+    final DeltaLink link = new DeltaLink();
+    link.setSource(source);
+    link.setRelationship("NavPropertyETTwoPrimMany");
+    link.setTarget(target);
+    return link;
+  }
+
+  private void expectException(final String token, final DeltaException.MessageKeys key) {
+    try {
+      log.readChanges("ESAllPrim", token);
+      fail("Expected exception not thrown.");
+    } catch (final DeltaException e) {
+      assertEquals(key, e.getMessageKey());
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.embedded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.OlingoExtension;
+import org.apache.olingo.server.api.processor.Processor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ODataHttpServerTest {
+
+  private ODataHttpServer server;
+  private String baseUri;
+  private ODataRequest lastRequest;
+  private String lastBody;
+  private ODataResponse nextResponse;
+
+  @Before
+  public void start() throws IOException {
+    server = new ODataHttpServer(new InetSocketAddress("localhost", 0), 0, null);
+    server.addService("/service", new ODataHandlerFactory() {
+      @Override
+      public ODataHandler createHandler() {
+        return new ODataHandler() {
+          @Override
+          public ODataResponse process(final ODataRequest request) {
+            lastRequest = request;
+            try {
+              lastBody = IOUtils.toString(request.getBody(), "UTF-8");
+            } catch (final IOException e) {
+              throw new IllegalStateException(e);
+            }
+            return nextResponse;
+          }
+
+          @Override
+          public void register(final Processor processor) {}
+
+          @Override
+          public void register(final OlingoExtension extension) {}
+        };
+      }
+    });
+    server.start();
+    baseUri = "http://localhost:" + server.getAddress().getPort() + "/service";
+
+    nextResponse = new ODataResponse();
+    nextResponse.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    nextResponse.setHeader("Content-Type", "text/plain");
+    nextResponse.setContent(new ByteArrayInputStream("content".getBytes()));
+  }
+
+  @After
+  public void stop() {
+    server.stop(0);
+  }
+
+  @Test
+  public void requestMapping() throws Exception {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUri + "/ESAllPrim(1)?$select=A%20B")
+        .openConnection();
+    connection.setRequestMethod("POST");
+    connection.setRequestProperty("X-HTTP-Method", "PATCH");
+    connection.setRequestProperty("Custom", "value");
+    connection.setDoOutput(true);
+    connection.getOutputStream().write("body".getBytes("UTF-8"));
+
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("text/plain", connection.getHeaderField("Content-Type"));
+    assertEquals("content", IOUtils.toString(connection.getInputStream(), "UTF-8"));
+
+    assertEquals(HttpMethod.PATCH, lastRequest.getMethod());
+    assertEquals(baseUri, lastRequest.getRawBaseUri());
+    assertEquals("/ESAllPrim(1)", lastRequest.getRawODataPath());
+    assertEquals("$select=A%20B", lastRequest.getRawQueryPath());
+    assertEquals(baseUri + "/ESAllPrim(1)?$select=A%20B", lastRequest.getRawRequestUri());
+    assertNull(lastRequest.getRawServiceResolutionUri());
+    assertEquals("value", lastRequest.getHeader("custom"));
+    assertEquals("body", lastBody);
+  }
+
+  @Test
+  public void serviceRoot() throws Exception {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUri).openConnection();
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("", lastRequest.getRawODataPath());
+    assertEquals(baseUri, lastRequest.getRawBaseUri());
+  }
+
+  @Test
+  public void pathOutsideContext() throws Exception {
+    // The JDK server dispatches by plain prefix, so "/serviceX" reaches the context "/service".
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUri + "X/ESAllPrim").openConnection();
+    assertEquals(404, connection.getResponseCode());
+    assertNull(lastRequest);
+
+    connection = (HttpURLConnection) new URL(baseUri + "/").openConnection();
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("/", lastRequest.getRawODataPath());
+  }
+
+  @Test
+  public void noContent() throws Exception {
+    nextResponse = new ODataResponse();
+    nextResponse.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUri + "/ESAllPrim(1)").openConnection();
+    connection.setRequestMethod("DELETE");
+    assertEquals(204, connection.getResponseCode());
+    assertEquals(HttpMethod.DELETE, lastRequest.getMethod());
+  }
+
+  @Test
+  public void streamedContent() throws Exception {
+    nextResponse = new ODataResponse();
+    nextResponse.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    nextResponse.setODataContent(new ODataContent() {
+      @Override
+      public void write(final WritableByteChannel channel) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void write(final OutputStream stream) {
+        try {
+          for (int i = 0; i < 1000; i++) {
+            stream.write("0123456789".getBytes("UTF-8"));
+          }
+        } catch (final IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUri + "/ESAllPrim").openConnection();
+    assertEquals(200, connection.getResponseCode());
+    assertEquals(10000, IOUtils.toString(connection.getInputStream(), "UTF-8").length());
+  }
+
+  @Test
+  public void methodNotAllowed() throws Exception {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUri + "/ESAllPrim").openConnection();
+    connection.setRequestMethod("TRACE");
+    assertEquals(405, connection.getResponseCode());
+    assertNull(lastRequest);
+  }
+
+  @Test
+  public void keepAlive() throws Exception {
+    final Socket socket = new Socket("localhost", server.getAddress().getPort());
+    try {
+      final OutputStream output = socket.getOutputStream();
+      final InputStream input = socket.getInputStream();
+      for (int i = 0; i < 2; i++) {
+        nextResponse.setContent(new ByteArrayInputStream("content".getBytes()));
+        output.write(("GET /service/ESAllPrim HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes("ISO-8859-1"));
+        output.flush();
+        final String response = readChunkedResponse(input);
+        assertTrue(response, response.startsWith("HTTP/1.1 200"));
+        assertTrue(response, response.endsWith("content"));
+      }
+    } finally {
+      socket.close();
+    }
+  }
+
+  /** Reads one response with chunked body from a persistent connection. */
+  private static String readChunkedResponse(final InputStream input) throws IOException {
+    final StringBuilder response = new StringBuilder();
+    String line;
+    while ((line = readLine(input)).length() > 0) {
+      response.append(line).append('\n');
+    }
+    int size;
+    while ((size = Integer.parseInt(readLine(input).trim(), 16)) > 0) {
+      for (int i = 0; i < size; i++) {
+        response.append((char) input.read());
+      }
+      readLine(input);
+    }
+    readLine(input);
+    return response.toString();
+  }
+
+  private static String readLine(final InputStream input) throws IOException {
+    final StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = input.read()) != '\n') {
+      if (c == -1) {
+        throw new IOException("Connection closed");
+      }
+      if (c != '\r') {
+        line.append((char) c);
+      }
+    }
+    return line.toString();
+  }
+}
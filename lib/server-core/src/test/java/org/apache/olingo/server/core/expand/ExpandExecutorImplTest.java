@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.expand.NavigationLoader;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpandExecutorImplTest {
+
+  private EdmEntityType customerType;
+  private EdmEntityType orderType;
+  private EdmEntityType itemType;
+  private EdmNavigationProperty orders;
+  private EdmNavigationProperty items;
+  private EdmNavigationProperty customer;
+  private final List<String> calls = new ArrayList<String>();
+
+  /** Returns two related entities per source entity; single-valued navigation returns one. */
+  private final NavigationLoader loader = new NavigationLoader() {
+    @Override
+    public List<EntityCollection> loadNavigation(final EdmBindingTarget source,
+        final EdmNavigationProperty navigationProperty, final List<Entity> sourceEntities,
+        final ExpandItem expandItem) {
+      calls.add(navigationProperty.getName() + ':' + sourceEntities.size());
+      List<EntityCollection> result = new ArrayList<EntityCollection>();
+      for (int i = 0; i < sourceEntities.size(); i++) {
+        EntityCollection related = new EntityCollection();
+        related.getEntities().add(new Entity());
+        if (navigationProperty.isCollection()) {
+          related.getEntities().add(new Entity());
+        }
+        result.add(related);
+      }
+      return result;
+    }
+  };
+
+  @Before
+  public void setUp() {
+    customerType = mock(EdmEntityType.class);
+    orderType = mock(EdmEntityType.class);
+    itemType = mock(EdmEntityType.class);
+    orders = navigationProperty("Orders", orderType, true);
+    items = navigationProperty("Items", itemType, true);
+    customer = navigationProperty("Customer", customerType, false);
+    when(customerType.getNavigationPropertyNames()).thenReturn(Arrays.asList("Orders"));
+    when(customerType.getNavigationProperty("Orders")).thenReturn(orders);
+    when(orderType.getNavigationPropertyNames()).thenReturn(Arrays.asList("Items", "Customer"));
+    when(orderType.getNavigationProperty("Items")).thenReturn(items);
+    when(orderType.getNavigationProperty("Customer")).thenReturn(customer);
+  }
+
+  @Test
+  public void oneLoaderCallPerNavigationAndLevel() throws Exception {
+    EntityCollection customers = new EntityCollection();
+    for (int i = 0; i < 1000; i++) {
+      customers.getEntities().add(new Entity());
+    }
+
+    new ExpandExecutorImpl(loader).expand(customers, null, customerType,
+        expand(expandItem(orders, expand(expandItem(items, null)))));
+
+    assertEquals(Arrays.asList("Orders:1000", "Items:2000"), calls);
+    final Entity first = customers.getEntities().get(0);
+    final Link ordersLink = first.getNavigationLink("Orders");
+    assertEquals(2, ordersLink.getInlineEntitySet().getEntities().size());
+    assertEquals(2, ordersLink.getInlineEntitySet().getEntities().get(1)
+        .getNavigationLink("Items").getInlineEntitySet().getEntities().size());
+  }
+
+  @Test
+  public void singleValuedAndExistingLink() throws Exception {
+    Entity order = new Entity();
+    Link existing = new Link();
+    existing.setTitle("Customer");
+    order.getNavigationLinks().add(existing);
+
+    new ExpandExecutorImpl(loader).expand(order, null, orderType, expand(expandItem(customer, null)));
+
+    assertEquals(1, order.getNavigationLinks().size());
+    assertSame(existing, order.getNavigationLink("Customer"));
+    assertNotNull(existing.getInlineEntity());
+    assertNull(existing.getInlineEntitySet());
+  }
+
+  @Test
+  public void star() throws Exception {
+    ExpandItem star = mock(ExpandItem.class);
+    when(star.isStar()).thenReturn(true);
+
+    new ExpandExecutorImpl(loader).expand(new Entity(), null, orderType, expand(star));
+
+    assertEquals(Arrays.asList("Items:1", "Customer:1"), calls);
+  }
+
+  @Test
+  public void missingRelatedEntities() throws Exception {
+    final NavigationLoader emptyLoader = new NavigationLoader() {
+      @Override
+      public List<EntityCollection> loadNavigation(final EdmBindingTarget source,
+          final EdmNavigationProperty navigationProperty, final List<Entity> sourceEntities,
+          final ExpandItem expandItem) {
+        calls.add(navigationProperty.getName());
+        return Collections.<EntityCollection> singletonList(null);
+      }
+    };
+    Entity entity = new Entity();
+
+    new ExpandExecutorImpl(emptyLoader).expand(entity, null, customerType,
+        expand(expandItem(orders, expand(expandItem(items, null)))));
+
+    assertEquals(Arrays.asList("Orders"), calls);
+    assertEquals(0, entity.getNavigationLink("Orders").getInlineEntitySet().getEntities().size());
+  }
+
+  @Test
+  public void wrongResultSize() throws Exception {
+    final NavigationLoader wrongLoader = new NavigationLoader() {
+      @Override
+      public List<EntityCollection> loadNavigation(final EdmBindingTarget source,
+          final EdmNavigationProperty navigationProperty, final List<Entity> sourceEntities,
+          final ExpandItem expandItem) {
+        return Collections.emptyList();
+      }
+    };
+    try {
+      new ExpandExecutorImpl(wrongLoader).expand(new Entity(), null, customerType,
+          expand(expandItem(orders, null)));
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void levelsNotImplemented() throws Exception {
+    ExpandItem item = expandItem(orders, null);
+    when(item.getLevelsOption()).thenReturn(mock(LevelsExpandOption.class));
+    try {
+      new ExpandExecutorImpl(loader).expand(new Entity(), null, customerType, expand(item));
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+    assertEquals(0, calls.size());
+  }
+
+  @Test
+  public void refAndCount() throws Exception {
+    ExpandItem ref = expandItem(orders, expand(expandItem(items, null)));
+    when(ref.isRef()).thenReturn(true);
+    Entity customerEntity = new Entity();
+    new ExpandExecutorImpl(loader).expand(customerEntity, null, customerType, expand(ref));
+    assertEquals(Arrays.asList("Orders:1"), calls);
+    assertEquals(2, customerEntity.getNavigationLink("Orders").getInlineEntitySet().getEntities().size());
+
+    calls.clear();
+    ExpandItem count = expandItem(orders, null);
+    when(count.hasCountPath()).thenReturn(true);
+    customerEntity = new Entity();
+    new ExpandExecutorImpl(loader).expand(customerEntity, null, customerType, expand(count));
+    assertEquals(Arrays.asList("Orders:1"), calls);
+    assertEquals(Integer.valueOf(2), customerEntity.getNavigationLink("Orders").getInlineEntitySet().getCount());
+  }
+
+  @Test
+  public void pathNotImplemented() throws Exception {
+    UriResource complex = mock(UriResource.class);
+    when(complex.getSegmentValue()).thenReturn("Address");
+    UriResourceNavigation navigation = mock(UriResourceNavigation.class);
+    when(navigation.getSegmentValue()).thenReturn("Country");
+    UriInfoResource path = mock(UriInfoResource.class);
+    when(path.getUriResourceParts()).thenReturn(Arrays.asList(complex, navigation));
+    ExpandItem item = mock(ExpandItem.class);
+    when(item.getResourcePath()).thenReturn(path);
+    try {
+      new ExpandExecutorImpl(loader).expand(new Entity(), null, customerType, expand(item));
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+      assertEquals("Expanding Address/Country is not implemented", e.getMessage());
+    }
+    assertEquals(0, calls.size());
+  }
+
+  private EdmNavigationProperty navigationProperty(final String name, final EdmEntityType type,
+      final boolean isCollection) {
+    EdmNavigationProperty property = mock(EdmNavigationProperty.class);
+    when(property.getName()).thenReturn(name);
+    when(property.getType()).thenReturn(type);
+    when(property.isCollection()).thenReturn(isCollection);
+    return property;
+  }
+
+  private ExpandItem expandItem(final EdmNavigationProperty property, final ExpandOption nested) {
+    UriResourceNavigation resource = mock(UriResourceNavigation.class);
+    when(resource.getProperty()).thenReturn(property);
+    UriInfoResource path = mock(UriInfoResource.class);
+    when(path.getUriResourceParts()).thenReturn(Collections.<UriResource> singletonList(resource));
+    ExpandItem item = mock(ExpandItem.class);
+    when(item.getResourcePath()).thenReturn(path);
+    when(item.getExpandOption()).thenReturn(nested);
+    return item;
+  }
+
+  private ExpandOption expand(final ExpandItem... items) {
+    ExpandOption option = mock(ExpandOption.class);
+    when(option.getExpandItems()).thenReturn(Arrays.asList(items));
+    return option;
+  }
+}
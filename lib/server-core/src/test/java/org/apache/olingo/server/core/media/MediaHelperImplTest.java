@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.media;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.media.MediaHelper;
+import org.junit.Test;
+
+public class MediaHelperImplTest {
+
+  private static final MediaHelper helper = OData.newInstance().createMediaHelper();
+  private static final byte[] CONTENT = "0123456789".getBytes();
+
+  @Test
+  public void parseRange() throws Exception {
+    assertNull(MediaHelperImpl.parseRange(null, 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=0-1", -1));
+    assertArrayEquals(new long[] { 0, 1 }, MediaHelperImpl.parseRange("bytes=0-1", 10));
+    assertArrayEquals(new long[] { 2, 9 }, MediaHelperImpl.parseRange("bytes=2-", 10));
+    assertArrayEquals(new long[] { 5, 9 }, MediaHelperImpl.parseRange("bytes=5-100", 10));
+    assertArrayEquals(new long[] { 7, 9 }, MediaHelperImpl.parseRange("bytes=-3", 10));
+    assertArrayEquals(new long[] { 0, 9 }, MediaHelperImpl.parseRange("BYTES=-30", 10));
+    assertSame(MediaHelperImpl.UNSATISFIABLE, MediaHelperImpl.parseRange("bytes=10-", 10));
+    assertSame(MediaHelperImpl.UNSATISFIABLE, MediaHelperImpl.parseRange("bytes=-0", 10));
+    assertSame(MediaHelperImpl.UNSATISFIABLE, MediaHelperImpl.parseRange("bytes=0-", 0));
+  }
+
+  @Test
+  public void parseIgnoredRange() throws Exception {
+    assertNull(MediaHelperImpl.parseRange("items=0-1", 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=0-1,3-4", 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=3-1", 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=-", 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=a-1", 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=+1-2", 10));
+    assertNull(MediaHelperImpl.parseRange("bytes=1", 10));
+  }
+
+  @Test
+  public void ifRange() throws Exception {
+    assertTrue(MediaHelperImpl.isRangeApplicable(null, null));
+    assertTrue(MediaHelperImpl.isRangeApplicable("\"ETag\"", "\"ETag\""));
+    assertFalse(MediaHelperImpl.isRangeApplicable("\"ETag2\"", "\"ETag\""));
+    assertFalse(MediaHelperImpl.isRangeApplicable("W/\"ETag\"", "W/\"ETag\""));
+    assertFalse(MediaHelperImpl.isRangeApplicable("Fri, 01 Jan 2016 00:00:00 GMT", null));
+  }
+
+  @Test
+  public void complete() throws Exception {
+    final ODataResponse response = respond(null, null);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("10", response.getHeader(HttpHeader.CONTENT_LENGTH));
+    assertEquals("bytes", response.getHeader(HttpHeader.ACCEPT_RANGES));
+    assertEquals("application/octet-stream", response.getHeader(HttpHeader.CONTENT_TYPE));
+    assertEquals("\"ETag\"", response.getHeader(HttpHeader.ETAG));
+    assertEquals("0123456789", write(response));
+  }
+
+  @Test
+  public void partial() throws Exception {
+    final ODataResponse response = respond("bytes=2-4", null);
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes 2-4/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("3", response.getHeader(HttpHeader.CONTENT_LENGTH));
+    assertEquals("234", write(response));
+
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(),
+        respond("bytes=2-4", "\"ETag\"").getStatusCode());
+    assertEquals(HttpStatusCode.OK.getStatusCode(), respond("bytes=2-4", "\"ETag2\"").getStatusCode());
+  }
+
+  @Test
+  public void unsatisfiable() throws Exception {
+    final ODataResponse response = respond("bytes=20-", null);
+    assertEquals(HttpStatusCode.RANGE_NOT_SATISFIABLE.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes */10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertNull(response.getODataContent());
+  }
+
+  @Test
+  public void file() throws Exception {
+    final File file = File.createTempFile("olingo-media", ".bin");
+    try {
+      final FileOutputStream output = new FileOutputStream(file);
+      output.write(CONTENT);
+      output.close();
+
+      ODataRequest request = new ODataRequest();
+      request.setHeader(HttpHeader.RANGE, "bytes=-4");
+      ODataResponse response = new ODataResponse();
+      helper.respond(request, response, helper.createMediaSource(file), "application/octet-stream", null);
+      assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+      assertEquals("bytes 6-9/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+      assertEquals("6789", write(response));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void copyToFile() throws Exception {
+    final File file = File.createTempFile("olingo-media", ".bin");
+    try {
+      final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      final FileChannel channel = randomAccessFile.getChannel();
+      assertEquals(CONTENT.length, helper.copy(new ByteArrayInputStream(CONTENT), channel));
+      assertEquals(CONTENT.length, channel.position());
+      randomAccessFile.close();
+      assertEquals(CONTENT.length, file.length());
+    } finally {
+      file.delete();
+    }
+  }
+
+  private ODataResponse respond(final String range, final String ifRange) {
+    ODataRequest request = new ODataRequest();
+    if (range != null) {
+      request.setHeader(HttpHeader.RANGE, range);
+    }
+    if (ifRange != null) {
+      request.setHeader(HttpHeader.IF_RANGE, ifRange);
+    }
+    ODataResponse response = new ODataResponse();
+    helper.respond(request, response, helper.createMediaSource(CONTENT), "application/octet-stream", "\"ETag\"");
+    return response;
+  }
+
+  private String write(final ODataResponse response) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    response.getODataContent().write(output);
+    return output.toString("ISO-8859-1");
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.paging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.paging.PagingException;
+import org.apache.olingo.server.api.paging.SnapshotPage;
+import org.junit.Test;
+
+public class PagingSnapshotStoreImplTest {
+
+  private static final String ES = "ESServerSidePaging";
+
+  private long now = 0;
+
+  private final PagingSnapshotStoreImpl store = new PagingSnapshotStoreImpl(100, 1000) {
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+  };
+
+  @Test
+  public void pagesOfList() throws Exception {
+    final List<Entity> entities = createEntities(25);
+    final String token = store.open(ES, entities, 42);
+    assertTrue(store.isSnapshotToken(token));
+    assertEquals(25, store.getRetainedEntities());
+
+    SnapshotPage page = store.readPage(ES, token, 10);
+    assertEquals(10, page.getEntities().size());
+    assertSame(entities.get(0), page.getEntities().get(0));
+    assertEquals(Integer.valueOf(42), page.getCount());
+    assertTrue(page.hasNext());
+
+    // Pages of a list snapshot can be read again.
+    final String second = page.getNextSkipToken();
+    page = store.readPage(ES, second, 10);
+    assertSame(entities.get(10), page.getEntities().get(0));
+    page = store.readPage(ES, second, 10);
+    assertSame(entities.get(10), page.getEntities().get(0));
+
+    page = store.readPage(ES, page.getNextSkipToken(), 10);
+    assertEquals(5, page.getEntities().size());
+    assertEquals(Integer.valueOf(42), page.getCount());
+    assertSame(entities.get(24), page.getEntities().get(4));
+    assertFalse(page.hasNext());
+    assertNull(page.getNextSkipToken());
+
+    // The last page releases the snapshot.
+    assertEquals(0, store.getSnapshotCount());
+    assertEquals(0, store.getRetainedEntities());
+    expectException(second, PagingException.MessageKeys.EXPIRED_SKIPTOKEN);
+  }
+
+  @Test
+  public void snapshotIsIsolatedFromSource() throws Exception {
+    final List<Entity> entities = createEntities(3);
+    final String token = store.open(ES, new ArrayList<Entity>(entities), null);
+    entities.clear();
+    assertEquals(3, store.readPage(ES, token, 5).getEntities().size());
+  }
+
+  @Test
+  public void pagesOfIterator() throws Exception {
+    final List<Entity> entities = createEntities(7);
+    final String token = store.open(ES, entities.iterator(), null);
+    assertEquals(1, store.getRetainedEntities());
+
+    SnapshotPage page = store.readPage(ES, token, 3);
+    assertEquals(3, page.getEntities().size());
+    assertNull(page.getCount());
+    final String next = page.getNextSkipToken();
+    page = store.readPage(ES, next, 3);
+    assertSame(entities.get(3), page.getEntities().get(0));
+
+    // Iterator snapshots are forward-only.
+    expectException(next, PagingException.MessageKeys.OUT_OF_SEQUENCE_SKIPTOKEN);
+
+    page = store.readPage(ES, page.getNextSkipToken(), 3);
+    assertEquals(1, page.getEntities().size());
+    assertFalse(page.hasNext());
+  }
+
+  @Test
+  public void timeToLive() throws Exception {
+    final String token = store.open(ES, createEntities(20), null);
+    now = 999;
+    final String next = store.readPage(ES, token, 5).getNextSkipToken();
+    now = 1998;
+    assertEquals(5, store.readPage(ES, next, 5).getEntities().size());
+    now = 2998;
+    expectException(next, PagingException.MessageKeys.EXPIRED_SKIPTOKEN);
+    assertEquals(0, store.getRetainedEntities());
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() throws Exception {
+    final String first = store.open(ES, createEntities(40), null);
+    final String second = store.open(ES, createEntities(40), null);
+    store.readPage(ES, first, 1);
+    final String third = store.open(ES, createEntities(40), null);
+    assertEquals(2, store.getSnapshotCount());
+    assertEquals(80, store.getRetainedEntities());
+    expectException(second, PagingException.MessageKeys.EXPIRED_SKIPTOKEN);
+    store.readPage(ES, first, 1);
+    store.readPage(ES, third, 1);
+
+    // A snapshot larger than the limit is not retained and does not evict the others.
+    assertNull(store.open(ES, createEntities(150), null));
+    assertEquals(2, store.getSnapshotCount());
+    assertEquals(80, store.getRetainedEntities());
+    final String limit = store.open(ES, createEntities(100), null);
+    assertEquals(1, store.getSnapshotCount());
+    assertEquals(100, store.readPage(ES, limit, 200).getEntities().size());
+  }
+
+  @Test
+  public void release() throws Exception {
+    final String token = store.open(ES, createEntities(5), null);
+    store.release(token);
+    assertEquals(0, store.getSnapshotCount());
+    expectException(token, PagingException.MessageKeys.EXPIRED_SKIPTOKEN);
+  }
+
+  @Test
+  public void invalidTokens() throws Exception {
+    assertFalse(store.isSnapshotToken(null));
+    assertFalse(store.isSnapshotToken("1*10"));
+    assertFalse(store.isSnapshotToken("0123456789abcdef0123456789abcdef"));
+    expectException("1*10", PagingException.MessageKeys.INVALID_SKIPTOKEN);
+    final String token = store.open(ES, createEntities(5), null);
+    expectException(token.substring(0, token.indexOf('-')) + "-6", PagingException.MessageKeys.INVALID_SKIPTOKEN);
+  }
+
+  @Test
+  public void countOfIterator() throws Exception {
+    final String token = store.open(ES, createEntities(7).iterator(), 503);
+    SnapshotPage page = store.readPage(ES, token, 5);
+    assertEquals(Integer.valueOf(503), page.getCount());
+    page = store.readPage(ES, page.getNextSkipToken(), 5);
+    assertEquals(Integer.valueOf(503), page.getCount());
+    assertFalse(page.hasNext());
+  }
+
+  @Test
+  public void tokenBoundToEntitySet() throws Exception {
+    final String token = store.open(ES, createEntities(5), null);
+    try {
+      store.readPage("ESAllPrim", token, 10);
+      fail("Expected exception not thrown.");
+    } catch (final PagingException e) {
+      assertEquals(PagingException.MessageKeys.INVALID_SKIPTOKEN, e.getMessageKey());
+    }
+    // The snapshot is still available for its own entity set.
+    assertEquals(5, store.readPage(ES, token, 10).getEntities().size());
+  }
+
+  @Test
+  public void closeIterators() throws Exception {
+    // Completely read
+    CloseableIterator iterator = new CloseableIterator(createEntities(3));
+    String token = store.open(ES, iterator, null);
+    assertFalse(iterator.closed);
+    store.readPage(ES, token, 5);
+    assertTrue(iterator.closed);
+
+    // Released
+    iterator = new CloseableIterator(createEntities(3));
+    token = store.open(ES, iterator, null);
+    store.release(token);
+    assertTrue(iterator.closed);
+
+    // Expired
+    iterator = new CloseableIterator(createEntities(3));
+    token = store.open(ES, iterator, null);
+    now = 1000;
+    expectException(token, PagingException.MessageKeys.EXPIRED_SKIPTOKEN);
+    assertTrue(iterator.closed);
+
+    // Evicted because of the size limit
+    iterator = new CloseableIterator(createEntities(3));
+    token = store.open(ES, iterator, null);
+    store.open(ES, createEntities(100), null);
+    assertTrue(iterator.closed);
+    expectException(token, PagingException.MessageKeys.EXPIRED_SKIPTOKEN);
+  }
+
+  private void expectException(final String token, final PagingException.MessageKeys key) {
+    try {
+      store.readPage(ES, token, 10);
+      fail("Expected exception not thrown.");
+    } catch (final PagingException e) {
+      assertEquals(key, e.getMessageKey());
+    }
+  }
+
+  private static final class CloseableIterator implements Iterator<Entity>, Closeable {
+    private final Iterator<Entity> iterator;
+    private boolean closed = false;
+
+    private CloseableIterator(final List<Entity> entities) {
+      iterator = entities.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public Entity next() {
+      return iterator.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  private List<Entity> createEntities(final int count) {
+    List<Entity> entities = new ArrayList<Entity>();
+    for (int i = 0; i < count; i++) {
+      entities.add(new Entity());
+    }
+    return entities;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.serializer.json.JsonSerializationPlan.PropertyPlan;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+public class JsonSerializationPlanTest {
+
+  @Test
+  public void writers() throws Exception {
+    assertNotNull(plan(EdmPrimitiveTypeKind.Boolean, null, false).writer);
+    assertNotNull(plan(EdmPrimitiveTypeKind.Int32, null, false).writer);
+    assertNotNull(plan(EdmPrimitiveTypeKind.Decimal, null, false).writer);
+    assertNotNull(plan(EdmPrimitiveTypeKind.String, null, false).writer);
+    assertNull(plan(EdmPrimitiveTypeKind.Date, null, false).writer);
+    assertNull(plan(EdmPrimitiveTypeKind.Guid, null, false).writer);
+  }
+
+  @Test
+  public void directValues() throws Exception {
+    assertEquals("true", write(plan(EdmPrimitiveTypeKind.Boolean, null, false), true));
+    assertEquals("-42", write(plan(EdmPrimitiveTypeKind.Int16, null, false), (short) -42));
+    assertEquals("2147483647", write(plan(EdmPrimitiveTypeKind.Int32, null, false), Integer.MAX_VALUE));
+    assertEquals("9007199254740993", write(plan(EdmPrimitiveTypeKind.Int64, null, false), 9007199254740993L));
+    assertEquals("1.5E-10", write(plan(EdmPrimitiveTypeKind.Double, null, false), 1.5E-10));
+    assertEquals("\"a\\\"b\"", write(plan(EdmPrimitiveTypeKind.String, 3, false), "a\"b"));
+    assertEquals("42", write(plan(EdmPrimitiveTypeKind.Int16, null, false), 42));
+    assertEquals("42", write(plan(EdmPrimitiveTypeKind.Int32, null, false), 42L));
+    assertEquals("255", write(plan(EdmPrimitiveTypeKind.Byte, null, false), 255));
+    assertEquals("1.5", write(plan(EdmPrimitiveTypeKind.Double, null, false), 1.5F));
+    assertEquals("1.25", write(plan(EdmPrimitiveTypeKind.Single, null, false), 1.25F));
+    assertEquals("-12345678901", write(plan(EdmPrimitiveTypeKind.Decimal, null, false), -12345678901L));
+  }
+
+  @Test
+  public void decimalFacets() throws Exception {
+    assertEquals("123.45", write(plan(EdmPrimitiveTypeKind.Decimal, 5, 2), new BigDecimal("123.45")));
+    assertEquals("0.5", write(plan(EdmPrimitiveTypeKind.Decimal, null, 2), new BigDecimal("0.5")));
+    assertEquals("123", write(plan(EdmPrimitiveTypeKind.Decimal, 3, null), 123));
+    // Violated facets are reported by the generic path.
+    assertNull(write(plan(EdmPrimitiveTypeKind.Decimal, 4, 2), new BigDecimal("123.45")));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Decimal, 5, 1), new BigDecimal("123.45")));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Decimal, 2, null), 123));
+    // The plain notation differs from the scientific one.
+    assertNull(write(plan(EdmPrimitiveTypeKind.Decimal, null, null), new BigDecimal("1E+3")));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Decimal, null, 10), new BigDecimal("1E-7")));
+  }
+
+  @Test
+  public void genericValues() throws Exception {
+    // Values which need a conversion or a check of their facets are left to the generic path.
+    assertNull(write(plan(EdmPrimitiveTypeKind.Boolean, null, false), "true"));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Int16, null, false), 40000));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Int32, null, false), 1L << 40));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Byte, null, false), (byte) -1));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Single, null, false), 1.1));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Double, null, false), Double.NaN));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Double, null, false), Double.POSITIVE_INFINITY));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Double, null, false), new BigDecimal("1.5")));
+    assertNull(write(plan(EdmPrimitiveTypeKind.String, 2, false), "abc"));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Int64, null, true), 42L));
+    assertNull(write(plan(EdmPrimitiveTypeKind.Decimal, null, true), 42L));
+  }
+
+  @Test
+  public void compile() throws Exception {
+    final EdmProperty first = property(EdmPrimitiveTypeKind.Int32, null);
+    final EdmProperty second = property(EdmPrimitiveTypeKind.String, null);
+    EdmStructuredType type = mock(EdmStructuredType.class);
+    when(type.getPropertyNames()).thenReturn(Arrays.asList("Int32", "String"));
+    when(type.getStructuralProperty("Int32")).thenReturn(first);
+    when(type.getStructuralProperty("String")).thenReturn(second);
+
+    final List<PropertyPlan> properties =
+        JsonSerializationPlan.compile(type, (SelectOption) null, true, false).getProperties();
+    assertEquals(2, properties.size());
+    assertEquals("Int32", properties.get(0).name);
+    assertEquals("Int32@odata.type", properties.get(0).typeAnnotationName.getValue());
+    assertEquals("#Int32", properties.get(0).typeAnnotation);
+    // The type of a string property can be determined heuristically.
+    assertNull(properties.get(1).typeAnnotation);
+
+    assertNull(JsonSerializationPlan.compile(type, (SelectOption) null, false, false)
+        .getProperties().get(0).typeAnnotation);
+  }
+
+  @Test
+  public void sharedPlans() throws Exception {
+    final EdmProperty first = property(EdmPrimitiveTypeKind.Int32, null);
+    EdmStructuredType type = mock(EdmStructuredType.class);
+    when(type.getPropertyNames()).thenReturn(Arrays.asList("Int32"));
+    when(type.getStructuralProperty("Int32")).thenReturn(first);
+    when(type.getProperty("Int32")).thenReturn(first);
+
+    final ServiceMetadata metadata = mock(ServiceMetadata.class);
+    final JsonSerializationPlan plan = JsonSerializationPlan.get(metadata, type, null, false, false);
+    assertSame(plan, JsonSerializationPlan.get(metadata, type, null, false, false));
+    assertNotSame(plan, JsonSerializationPlan.get(metadata, type, null, true, false));
+    assertNotSame(plan, JsonSerializationPlan.get(metadata, type, null, false, true));
+    assertNotSame(plan, JsonSerializationPlan.get(metadata, mock(EdmStructuredType.class), null, false, false));
+    // Plans are shared per service metadata only.
+    assertNotSame(plan, JsonSerializationPlan.get(mock(ServiceMetadata.class), type, null, false, false));
+    assertNotSame(plan, JsonSerializationPlan.get(null, type, null, false, false));
+
+    // Selections are compared by their structure.
+    final Set<List<String>> paths = Collections.singleton(Arrays.asList("Int32"));
+    final JsonSerializationPlan pathsPlan = JsonSerializationPlan.getForPaths(metadata, type, paths, false, false);
+    assertNotSame(plan, pathsPlan);
+    assertSame(pathsPlan, JsonSerializationPlan.getForPaths(metadata, type,
+        new HashSet<List<String>>(Collections.singleton(Arrays.asList("Int32"))), false, false));
+  }
+
+  @Test
+  public void key() {
+    final EdmStructuredType type = mock(EdmStructuredType.class);
+    final Object selection = new Object();
+    assertTrue(new JsonSerializationPlan.Key(type, selection).equals(new JsonSerializationPlan.Key(type, selection)));
+    assertTrue(new JsonSerializationPlan.Key(type, null).equals(new JsonSerializationPlan.Key(type, null)));
+    assertFalse(new JsonSerializationPlan.Key(type, selection).equals(new JsonSerializationPlan.Key(type, null)));
+  }
+
+  private static EdmProperty property(final EdmPrimitiveTypeKind kind, final Integer maxLength) {
+    EdmProperty property = mock(EdmProperty.class);
+    when(property.getName()).thenReturn(kind.name());
+    when(property.getType()).thenReturn(EdmPrimitiveTypeFactory.getInstance(kind));
+    when(property.isPrimitive()).thenReturn(true);
+    when(property.isCollection()).thenReturn(false);
+    when(property.isNullable()).thenReturn(true);
+    when(property.getMaxLength()).thenReturn(maxLength);
+    // Without explicit stubs older Mockito versions return 0 instead of null for the facets.
+    when(property.getPrecision()).thenReturn(null);
+    when(property.getScale()).thenReturn(null);
+    when(property.isUnicode()).thenReturn(true);
+    return property;
+  }
+
+  private static PropertyPlan plan(final EdmPrimitiveTypeKind kind, final Integer maxLength,
+      final boolean isIEEE754Compatible) throws Exception {
+    return new PropertyPlan(property(kind, maxLength), null, false, isIEEE754Compatible);
+  }
+
+  private static PropertyPlan plan(final EdmPrimitiveTypeKind kind, final Integer precision, final Integer scale)
+      throws Exception {
+    EdmProperty property = property(kind, null);
+    when(property.getPrecision()).thenReturn(precision);
+    when(property.getScale()).thenReturn(scale);
+    return new PropertyPlan(property, null, false, false);
+  }
+
+  /** Returns the written JSON or <code>null</code> if the value has not been written directly. */
+  private static String write(final PropertyPlan plan, final Object value) throws Exception {
+    StringWriter writer = new StringWriter();
+    JsonGenerator json = new JsonFactory().createGenerator(writer);
+    final boolean written = plan.writeValue(value, json);
+    json.close();
+    return written ? writer.toString() : null;
+  }
+}
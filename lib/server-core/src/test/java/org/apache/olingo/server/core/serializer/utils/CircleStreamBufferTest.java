@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import org.junit.Test;
@@ -245,6 +246,78 @@ public class CircleStreamBufferTest {
     assertEquals(testData, result);
   }
 
+  @Test
+  public void testSpillToFile() throws Exception {
+    CircleStreamBuffer csb = new CircleStreamBuffer(128, 1024);
+
+    OutputStream outStream = csb.getOutputStream();
+    final String testData = createTestString(100000);
+    final byte[] bytes = testData.getBytes(DEFAULT_CHARSET);
+    outStream.write(bytes, 0, 500);
+    for (int i = 500; i < 600; i++) {
+      outStream.write(bytes[i]);
+    }
+    outStream.write(bytes, 600, bytes.length - 600);
+    outStream.close();
+
+    assertEquals(testData, readFrom(csb.getInputStream(), 1000));
+    assertEquals(-1, csb.getInputStream().read());
+  }
+
+  @Test
+  public void testSpillWithAlternatingReadAndWrite() throws Exception {
+    CircleStreamBuffer csb = new CircleStreamBuffer(16, 64);
+
+    OutputStream outStream = csb.getOutputStream();
+    InputStream inStream = csb.getInputStream();
+    StringBuilder expected = new StringBuilder();
+    StringBuilder result = new StringBuilder();
+    byte[] buffer = new byte[50];
+    for (int i = 0; i < 20; i++) {
+      final String testData = createTestString(40);
+      expected.append(testData);
+      outStream.write(testData.getBytes(DEFAULT_CHARSET));
+      final int count = inStream.read(buffer);
+      result.append(new String(buffer, 0, count, DEFAULT_CHARSET));
+    }
+    outStream.close();
+    result.append(readFrom(inStream));
+
+    assertEquals(expected.toString(), result.toString());
+  }
+
+  @Test
+  public void testGetBufferWithSpill() throws Exception {
+    CircleStreamBuffer csb = new CircleStreamBuffer(16, 64);
+
+    final String testData = createTestString(1000);
+    csb.getOutputStream().write(testData.getBytes(DEFAULT_CHARSET));
+    csb.closeWrite();
+
+    final ByteBuffer buffer = csb.getBuffer();
+    buffer.flip();
+    final byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    assertEquals(testData, new String(bytes, DEFAULT_CHARSET));
+  }
+
+  @Test
+  public void testReadSingleBytesUnsigned() throws Exception {
+    CircleStreamBuffer csb = new CircleStreamBuffer(4, 4);
+
+    OutputStream outStream = csb.getOutputStream();
+    outStream.write(new byte[] { (byte) 0xFF, 1, (byte) 0x80, 2, (byte) 0xFE });
+    outStream.close();
+
+    InputStream inStream = csb.getInputStream();
+    assertEquals(0xFF, inStream.read());
+    assertEquals(1, inStream.read());
+    assertEquals(0x80, inStream.read());
+    assertEquals(2, inStream.read());
+    assertEquals(0xFE, inStream.read());
+    assertEquals(-1, inStream.read());
+  }
+
   @Test(expected = IOException.class)
   public void testCloseInputStream() throws Exception {
     CircleStreamBuffer csb = new CircleStreamBuffer();
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.UnboxedKind;
+import org.apache.olingo.commons.api.data.UnboxedValueList;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.serializer.PrimitiveSerializerOptions;
+import org.apache.olingo.server.core.serializer.json.ODataJsonSerializer;
+import org.apache.olingo.server.core.serializer.xml.ODataXmlSerializer;
+import org.junit.Test;
+
+public class UnboxedValueHelperTest {
+
+  private static final EdmPrimitiveType INT32 = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int32);
+  private static final EdmPrimitiveType INT64 = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int64);
+  private static final EdmPrimitiveType INT16 = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int16);
+  private static final EdmPrimitiveType SINGLE = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Single);
+  private static final EdmPrimitiveType DOUBLE = EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Double);
+
+  private static final PrimitiveSerializerOptions OPTIONS = PrimitiveSerializerOptions.with()
+      .contextURL(ContextURL.with().entitySetOrSingletonOrType("Edm.Value").build()).build();
+
+  @Test
+  public void unboxedValueList() {
+    final UnboxedValueList list = UnboxedValueList.of(new double[] { 1.5, -2 });
+    assertEquals(2, list.size());
+    assertEquals(Double.valueOf(-2), list.get(1));
+    assertEquals(-2, list.getDouble(1), 0);
+  }
+
+  @Test
+  public void directlyWritable() {
+    assertTrue(UnboxedValueHelper.isDirectlyWritable(INT64, UnboxedKind.INT));
+    assertTrue(UnboxedValueHelper.isDirectlyWritable(INT32, UnboxedKind.INT));
+    assertFalse(UnboxedValueHelper.isDirectlyWritable(INT16, UnboxedKind.INT));
+    assertFalse(UnboxedValueHelper.isDirectlyWritable(INT32, UnboxedKind.LONG));
+    assertFalse(UnboxedValueHelper.isDirectlyWritable(SINGLE, UnboxedKind.DOUBLE));
+    assertFalse(UnboxedValueHelper.isDirectlyWritable(INT32, null));
+
+    final UnboxedValueList list = UnboxedValueList.of(new double[] { 1.5, Double.NaN });
+    assertEquals("1.5", UnboxedValueHelper.toString(DOUBLE, list, 0));
+    assertNull(UnboxedValueHelper.toString(DOUBLE, list, 1));
+    assertNull(UnboxedValueHelper.toString(INT16, UnboxedValueList.of(new int[] { 1 }), 0));
+  }
+
+  @Test
+  public void sameOutputAsBoxed() throws Exception {
+    final ODataSerializer[] serializers = new ODataSerializer[] {
+        new ODataJsonSerializer(ContentType.JSON_NO_METADATA),
+        new ODataJsonSerializer(ContentType.create(ContentType.JSON_NO_METADATA,
+            ContentType.PARAMETER_IEEE754_COMPATIBLE, "true")),
+        new ODataXmlSerializer() };
+    for (final ODataSerializer serializer : serializers) {
+      assertSameOutput(serializer, INT64, "Collection(Edm.Int64)",
+          UnboxedValueList.of(new long[] { Long.MAX_VALUE, -1 }), Arrays.asList(Long.MAX_VALUE, -1L));
+      assertSameOutput(serializer, DOUBLE, "Collection(Edm.Double)",
+          UnboxedValueList.of(new double[] { -1.79E20, Double.POSITIVE_INFINITY }),
+          Arrays.asList(-1.79E20, Double.POSITIVE_INFINITY));
+      assertSameOutput(serializer, SINGLE, "Collection(Edm.Single)",
+          UnboxedValueList.of(new float[] { 1.1F, -3F, Float.NEGATIVE_INFINITY }),
+          Arrays.asList(1.1F, -3F, Float.NEGATIVE_INFINITY));
+    }
+  }
+
+  private void assertSameOutput(final ODataSerializer serializer, final EdmPrimitiveType type, final String typeName,
+      final List<?> unboxed, final List<?> boxed) throws Exception {
+    assertEquals(
+        IOUtils.toString(serializer.primitiveCollection(null, type,
+            new Property(typeName, "Value", ValueType.COLLECTION_PRIMITIVE, boxed), OPTIONS).getContent()),
+        IOUtils.toString(serializer.primitiveCollection(null, type,
+            new Property(typeName, "Value", ValueType.COLLECTION_PRIMITIVE, unboxed), OPTIONS).getContent()));
+  }
+}
@@ -28,6 +28,9 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.async.AsyncJob;
+import org.apache.olingo.server.api.async.AsyncProcessingService;
+import org.apache.olingo.server.api.async.AsyncTask;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.SerializerException;
 
@@ -43,13 +46,9 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -82,10 +81,14 @@ public class TechnicalAsyncService {
   public static final String TEC_ASYNC_SLEEP = "tec.sleep";
   public static final String STATUS_MONITOR_TOKEN = "status";
 
-  private static final Map<String, AsyncRunner> LOCATION_2_ASYNC_RUNNER =
-      Collections.synchronizedMap(new HashMap<String, AsyncRunner>());
+  private static final int MAX_PENDING_JOBS = 100;
+  private static final long MAX_PROCESSING_TIME_MILLIS = 10 * 60 * 1000L;
+  private static final long RESULT_TIME_TO_LIVE_MILLIS = 10 * 60 * 1000L;
+
   private static final ExecutorService ASYNC_REQUEST_EXECUTOR = Executors.newFixedThreadPool(10);
-  private static final AtomicInteger ID_GENERATOR = new AtomicInteger();
+  private static final AsyncProcessingService ASYNC_PROCESSING = OData.newInstance()
+      .createAsyncProcessingService(ASYNC_REQUEST_EXECUTOR, MAX_PENDING_JOBS, MAX_PROCESSING_TIME_MILLIS,
+          RESULT_TIME_TO_LIVE_MILLIS);
 
   public <T extends Processor> AsyncProcessor<T> register(T processor, Class<T> processorInterface) {
     return new AsyncProcessor<T>(processor, processorInterface, this);
@@ -120,45 +123,42 @@ public class TechnicalAsyncService {
 
   String processAsynchronous(AsyncProcessor<?> dispatchedProcessor)
       throws ODataApplicationException, ODataLibraryException {
-    // use executor thread pool
-    String location = createNewAsyncLocation(dispatchedProcessor.getRequest());
+    AsyncJob job = ASYNC_PROCESSING.submit(new AsyncRunner(dispatchedProcessor));
+    String location = createNewAsyncLocation(dispatchedProcessor.getRequest(), job.getId());
     dispatchedProcessor.setLocation(location);
-    AsyncRunner run = new AsyncRunner(dispatchedProcessor);
-    LOCATION_2_ASYNC_RUNNER.put(location, run);
-    ASYNC_REQUEST_EXECUTOR.execute(run);
-    //
     return location;
   }
 
   public void handle(HttpServletRequest request, HttpServletResponse response) throws SerializerException, IOException {
     String location = getAsyncLocation(request);
-    AsyncRunner runner = LOCATION_2_ASYNC_RUNNER.get(location);
+    String id = location.substring(location.lastIndexOf('/') + 1);
+    AsyncJob job = ASYNC_PROCESSING.getJob(id);
 
-    if (runner == null) {
+    if (job == null) {
       response.setStatus(HttpStatusCode.NOT_FOUND.getStatusCode());
+    } else if (job.getState() == AsyncJob.State.COMPLETED) {
+      wrapToAsyncHttpResponse(job.getResult(), response);
+      ASYNC_PROCESSING.removeJob(id);
+    } else if (job.getState() == AsyncJob.State.FAILED) {
+      response.setStatus(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      ASYNC_PROCESSING.removeJob(id);
     } else {
-      if (runner.isFinished()) {
-        ODataResponse wrapResult = runner.getDispatched().getProcessResponse();
-        wrapToAsyncHttpResponse(wrapResult, response);
-        LOCATION_2_ASYNC_RUNNER.remove(location);
-      } else {
-        response.setStatus(HttpStatusCode.ACCEPTED.getStatusCode());
-        response.setHeader(HttpHeader.LOCATION, location);
-      }
+      response.setStatus(HttpStatusCode.ACCEPTED.getStatusCode());
+      response.setHeader(HttpHeader.LOCATION, location);
     }
   }
 
   public void listQueue(HttpServletResponse response) {
     StringBuilder sb = new StringBuilder();
     sb.append("<html><header/><body><h1>Queued requests</h1><ul>");
-    for (Map.Entry<String, AsyncRunner> entry : LOCATION_2_ASYNC_RUNNER.entrySet()) {
-      AsyncProcessor<?> asyncProcessor = entry.getValue().getDispatched();
-      sb.append("<li><b>ID: </b>").append(entry.getKey()).append("<br/>")
+    for (AsyncJob job : ASYNC_PROCESSING.getJobs()) {
+      AsyncProcessor<?> asyncProcessor = ((AsyncRunner) job.getTask()).getDispatched();
+      sb.append("<li><b>ID: </b>").append(job.getId()).append("<br/>")
           .append("<b>Location: </b><a href=\"")
           .append(asyncProcessor.getLocation()).append("\">")
           .append(asyncProcessor.getLocation()).append("</a><br/>")
           .append("<b>Processor: </b>").append(asyncProcessor.getProcessorClass().getSimpleName()).append("<br/>")
-          .append("<b>Finished: </b>").append(entry.getValue().isFinished()).append("<br/>")
+          .append("<b>State: </b>").append(job.getState()).append("<br/>")
           .append("</li>");
     }
     sb.append("</ul></body></html>");
@@ -187,11 +187,8 @@ public class TechnicalAsyncService {
     }
   }
 
-  static void wrapToAsyncHttpResponse(final ODataResponse odResponse, final HttpServletResponse response)
-      throws SerializerException, IOException {
-    OData odata = OData.newInstance();
-    InputStream odResponseStream = odata.createFixedFormatSerializer().asyncResponse(odResponse);
-
+  static void wrapToAsyncHttpResponse(final InputStream odResponseStream, final HttpServletResponse response)
+      throws IOException {
     response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_HTTP.toContentTypeString());
     response.setHeader(HttpHeader.CONTENT_ENCODING, "binary");
     response.setStatus(HttpStatusCode.OK.getStatusCode());
@@ -231,9 +228,9 @@ public class TechnicalAsyncService {
     }
   }
 
-  private String createNewAsyncLocation(ODataRequest request) {
+  private String createNewAsyncLocation(ODataRequest request, String id) {
     int pos = request.getRawBaseUri().lastIndexOf("/") + 1;
-    return request.getRawBaseUri().substring(0, pos) + STATUS_MONITOR_TOKEN + "/" + ID_GENERATOR.incrementAndGet();
+    return request.getRawBaseUri().substring(0, pos) + STATUS_MONITOR_TOKEN + "/" + id;
   }
 
   private String getAsyncLocation(HttpServletRequest request) {
@@ -241,14 +238,12 @@ public class TechnicalAsyncService {
   }
 
   /**
-   * Runnable for the AsyncProcessor.
+   * Asynchronous task for the AsyncProcessor.
    */
-  static class AsyncRunner implements Runnable {
+  static class AsyncRunner implements AsyncTask {
     private static final Pattern PATTERN = Pattern.compile("(" + TEC_ASYNC_SLEEP + "=)(\\d*)");
     private final AsyncProcessor<? extends Processor> dispatched;
     private int defaultSleepTimeInSeconds = 0;
-    private Exception exception;
-    boolean finished = false;
 
     public AsyncRunner(AsyncProcessor<? extends Processor> wrap) {
       this(wrap, 0);
@@ -262,19 +257,25 @@ public class TechnicalAsyncService {
     }
 
     @Override
-    public void run() {
+    public ODataResponse execute() throws ODataApplicationException, ODataLibraryException {
       try {
         int sleep = getSleepTime(dispatched);
         TimeUnit.SECONDS.sleep(sleep);
         dispatched.process();
       } catch (final InterruptedException e) {
-        exception = e;
+        Thread.currentThread().interrupt();
+        throw new ODataRuntimeException(e);
       } catch (final InvocationTargetException e) {
-        exception = e;
+        if (e.getCause() instanceof ODataApplicationException) {
+          throw (ODataApplicationException) e.getCause();
+        } else if (e.getCause() instanceof ODataLibraryException) {
+          throw (ODataLibraryException) e.getCause();
+        }
+        throw new ODataRuntimeException(e);
       } catch (final IllegalAccessException e) {
-        exception = e;
+        throw new ODataRuntimeException(e);
       }
-      finished = true;
+      return dispatched.getProcessResponse();
     }
 
     private int getSleepTime(AsyncProcessor<? extends Processor> wrap) {
@@ -287,14 +288,6 @@ public class TechnicalAsyncService {
       return defaultSleepTimeInSeconds;
     }
 
-    public Exception getException() {
-      return exception;
-    }
-
-    public boolean isFinished() {
-      return finished;
-    }
-
     public AsyncProcessor<? extends Processor> getDispatched() {
       return dispatched;
     }
@@ -49,7 +49,7 @@ import org.apache.olingo.commons.api.edm.provider.CsdlParameter;
 import org.apache.olingo.commons.api.ex.ODataException;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.serializer.SerializerException;
-import org.apache.olingo.server.api.uri.UriHelper;
+import org.apache.olingo.server.api.uri.EntityIdTemplate;
 import org.apache.olingo.server.tecsvc.provider.ActionProvider;
 import org.apache.olingo.server.tecsvc.provider.ComplexTypeProvider;
 import org.apache.olingo.server.tecsvc.provider.EntityTypeProvider;
@@ -1595,10 +1595,10 @@ public class DataCreator {
   private void createEntityId(final Edm edm, final OData odata,
       final String entitySetName, final EntityCollection entities) {
     final EdmEntitySet entitySet = edm.getEntityContainer().getEntitySet(entitySetName);
-    final UriHelper helper = odata.createUriHelper();
+    final EntityIdTemplate template = odata.createUriHelper().getEntityIdTemplate(entitySet);
     for (Entity entity : entities.getEntities()) {
       try {
-        entity.setId(URI.create(helper.buildCanonicalURL(entitySet, entity)));
+        entity.setId(URI.create(template.buildCanonicalURL(entity)));
       } catch (final SerializerException e) {
         entity.setId(null);
       }
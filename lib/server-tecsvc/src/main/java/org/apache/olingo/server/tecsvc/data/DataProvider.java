@@ -20,7 +20,6 @@ package org.apache.olingo.server.tecsvc.data;
 
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -32,6 +31,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.Link;
@@ -43,11 +43,8 @@ import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmEnumType;
 import org.apache.olingo.commons.api.edm.EdmFunction;
-import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
 import org.apache.olingo.commons.api.edm.EdmParameter;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmStructuredType;
@@ -59,8 +56,11 @@ import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.delta.ChangeLog;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.EntityKey;
+import org.apache.olingo.server.api.uri.UriHelper;
 import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
@@ -69,6 +69,7 @@ import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
 public class DataProvider {
 
   protected static final String MEDIA_PROPERTY_NAME = "$value";
+  private static final int MAX_RECORDED_CHANGES = 10000;
   private AtomicInteger KEY_INT_16 = new AtomicInteger(0);
   private AtomicInteger KEY_INT_32 = new AtomicInteger(0);
   private AtomicLong KEY_INT_64 = new AtomicLong(0);
@@ -77,11 +78,21 @@ public class DataProvider {
   private Map<String, EntityCollection> data;
   private final OData odata;
   private final Edm edm;
+  private final ChangeLog changeLog;
 
   public DataProvider(final OData odata, final Edm edm) {
     this.odata = odata;
     this.edm = edm;
     data = new DataCreator(odata, edm).getData();
+    changeLog = odata.createChangeLog(MAX_RECORDED_CHANGES);
+  }
+
+  /**
+   * Gets the log of all changes made through this data provider, used for delta links.
+   * @return the change log
+   */
+  public ChangeLog getChangeLog() {
+    return changeLog;
   }
 
   public EntityCollection readAll(final EdmEntitySet edmEntitySet) throws DataProviderException {
@@ -98,70 +109,38 @@ public class DataProvider {
     return entitySet == null ? null : read(edmEntitySet.getEntityType(), entitySet, keys);
   }
   
-  private Object findPropertyRefValue(Entity entity, EdmKeyPropertyRef refType) {
-    final int INDEX_ERROR_CODE = -1;
-    final String propertyPath = refType.getName();
-    String tmpPropertyName;
-    int lastIndex;
-    int index = propertyPath.indexOf('/');
-    if (index == INDEX_ERROR_CODE) {
-        index  = propertyPath.length();
-    }
-    tmpPropertyName = propertyPath.substring(0, index);
-    //get first property
-    Property prop = entity.getProperty(tmpPropertyName);
-    //get following properties
-    while (index < propertyPath.length()) {
-        lastIndex = ++index;
-        index = propertyPath.indexOf('/', index+1);
-        if (index == INDEX_ERROR_CODE) {
-            index = propertyPath.length();
-        }
-        tmpPropertyName = propertyPath.substring(lastIndex, index);
-        prop = findProperty(tmpPropertyName, prop.asComplex().getValue());
-     }
-    return prop.getValue();
-  }
-  
   public Entity read(final EdmEntityType edmEntityType, final EntityCollection entitySet,
       final List<UriParameter> keys) throws DataProviderException {
+    for (final UriParameter key : keys) {
+      if (key.getExpression() != null && !(key.getExpression() instanceof Literal)) {
+        throw new DataProviderException("Expression in key value is not supported yet!",
+            HttpStatusCode.NOT_IMPLEMENTED);
+      }
+    }
+    final UriHelper uriHelper = odata.createUriHelper();
+    final EntityKey entityKey;
+    try {
+      entityKey = uriHelper.buildKey(edmEntityType, keys);
+    } catch (final DeserializerException e) {
+      throw new DataProviderException("Wrong key!", HttpStatusCode.BAD_REQUEST, e);
+    }
     try {
       for (final Entity entity : entitySet.getEntities()) {
-        boolean found = true;
-        for (final UriParameter key : keys) {
-          EdmKeyPropertyRef refType = edmEntityType.getKeyPropertyRef(key.getName());
-          Object value =  findPropertyRefValue(entity, refType);
-          
-          final EdmProperty property = refType.getProperty();
-          final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
-          
-          if (key.getExpression() != null && !(key.getExpression() instanceof Literal)) {
-            throw new DataProviderException("Expression in key value is not supported yet!",
-                HttpStatusCode.NOT_IMPLEMENTED);
-          }
-          final String text = key.getAlias() == null ? key.getText() : ((Literal) key.getExpression()).getText();
-          final Object keyValue = type.valueOfString(type.fromUriLiteral(text),
-              property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
-              property.isUnicode(),
-              Calendar.class.isAssignableFrom(value.getClass()) ? Calendar.class : value.getClass());
-          if (!value.equals(keyValue)) {
-            found = false;
-            break;
-          }
-        }
-        if (found) {
+        if (entityKey.equals(uriHelper.buildKey(edmEntityType, entity))) {
           return entity;
         }
       }
       return null;
-    } catch (final EdmPrimitiveTypeException e) {
-      throw new DataProviderException("Wrong key!", HttpStatusCode.BAD_REQUEST, e);
+    } catch (final SerializerException e) {
+      throw new DataProviderException("Wrong key!", HttpStatusCode.INTERNAL_SERVER_ERROR, e);
     }
   }
 
   public void delete(final EdmEntitySet edmEntitySet, final Entity entity) throws DataProviderException {
     deleteLinksTo(entity);
-    readAll(edmEntitySet).getEntities().remove(entity);
+    if (readAll(edmEntitySet).getEntities().remove(entity) && entity.getId() != null) {
+      changeLog.recordDeletion(edmEntitySet.getName(), entity.getId());
+    }
   }
 
   public void deleteLinksTo(final Entity to) throws DataProviderException {
@@ -204,6 +183,7 @@ public class DataProvider {
       throw new DataProviderException("Unable to set entity ID!", HttpStatusCode.INTERNAL_SERVER_ERROR, e);
     }
     entities.add(newEntity);
+    changeLog.recordChange(edmEntitySet.getName(), newEntity.getId());
 
     return newEntity;
   }
@@ -344,10 +324,18 @@ public class DataProvider {
     updateETag(entity);
   }
 
+  /**
+   * Marks the entity as changed: renews its ETag, if present, and records the change for delta links.
+   * @param entity the changed entity
+   */
   public void updateETag(Entity entity) {
     if (entity.getETag() != null) {
       entity.setETag("W/\"" + UUID.randomUUID() + "\"");
     }
+    final String entitySetName = getEntitySetName(entity);
+    if (entitySetName != null) {
+      changeLog.recordChange(entitySetName, entity.getId());
+    }
   }
 
   private void handleDeleteSingleNavigationProperties(final EdmEntitySet edmEntitySet, final Entity entity,
@@ -551,6 +539,7 @@ public class DataProvider {
     entity.addProperty(DataCreator.createPrimitive(MEDIA_PROPERTY_NAME, media));
     entity.setMediaContentType(type);
     entity.setMediaETag("W/\"" + UUID.randomUUID() + "\"");
+    updateETag(entity);
   }
 
   public EntityCollection readFunctionEntityCollection(final EdmFunction function, final List<UriParameter> parameters,
@@ -630,7 +619,9 @@ public class DataProvider {
 
   public void createReference(final Entity entity, final EdmNavigationProperty navigationProperty, final URI entityId,
       final String rawServiceRoot) throws DataProviderException {
-    setLink(navigationProperty, entity, getEntityByReference(entityId.toASCIIString(), rawServiceRoot));
+    final Entity targetEntity = getEntityByReference(entityId.toASCIIString(), rawServiceRoot);
+    setLink(navigationProperty, entity, targetEntity);
+    recordLink(entity, navigationProperty, targetEntity, true);
   }
 
   public void deleteReference(final Entity entity, final EdmNavigationProperty navigationProperty,
@@ -662,18 +653,52 @@ public class DataProvider {
 
         // Remove target entity from collection-valued navigation property
         navigationLink.getInlineEntitySet().getEntities().remove(targetEntity);
+        recordLink(entity, navigationProperty, targetEntity, false);
       } else {
         throw new DataProviderException("Entity not found", HttpStatusCode.NOT_FOUND);
       }
     } else {
       if (navigationProperty.isNullable()) {
+        final Link navigationLink = entity.getNavigationLink(navigationProperty.getName());
         removeLink(navigationProperty, entity);
+        if (navigationLink != null && navigationLink.getInlineEntity() != null) {
+          recordLink(entity, navigationProperty, navigationLink.getInlineEntity(), false);
+        }
       } else {
         throw new DataProviderException("Navigation property must not be null", HttpStatusCode.BAD_REQUEST);
       }
     }
   }
 
+  private void recordLink(final Entity source, final EdmNavigationProperty navigationProperty, final Entity target,
+      final boolean added) {
+    final String entitySetName = getEntitySetName(source);
+    if (entitySetName != null && target.getId() != null) {
+      DeltaLink link = new DeltaLink();
+      link.setSource(source.getId());
+      link.setRelationship(navigationProperty.getName());
+      link.setTarget(target.getId());
+      if (added) {
+        changeLog.recordAddedLink(entitySetName, link);
+      } else {
+        changeLog.recordDeletedLink(entitySetName, link);
+      }
+    }
+  }
+
+  /** Determines the name of the entity set of an entity from its canonical id. */
+  private String getEntitySetName(final Entity entity) {
+    if (entity.getId() == null) {
+      return null;
+    }
+    try {
+      return odata.createUriHelper().parseEntityId(edm, entity.getId().toASCIIString(), null)
+          .getEntitySet().getName();
+    } catch (final DeserializerException e) {
+      return null;
+    }
+  }
+
   protected Entity getEntityByReference(final String entityId, final String rawServiceRoot)
       throws DataProviderException {
     try {
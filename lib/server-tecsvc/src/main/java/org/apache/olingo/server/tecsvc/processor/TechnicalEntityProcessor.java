@@ -20,14 +20,18 @@ package org.apache.olingo.server.tecsvc.processor;
 
 import java.net.URI;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Builder;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
@@ -45,11 +49,14 @@ import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.delta.ChangeSet;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
+import org.apache.olingo.server.api.media.MediaHelper;
 import org.apache.olingo.server.api.prefer.Preferences.Return;
 import org.apache.olingo.server.api.prefer.PreferencesApplied;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
+import org.apache.olingo.server.api.processor.DeltaProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.MediaEntityProcessor;
@@ -70,6 +77,8 @@ import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.IdOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
 import org.apache.olingo.server.tecsvc.async.AsyncProcessor;
 import org.apache.olingo.server.tecsvc.async.TechnicalAsyncService;
 import org.apache.olingo.server.tecsvc.data.DataProvider;
@@ -80,8 +89,6 @@ import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHand
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.OrderByHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SearchHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.ServerSidePagingHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SkipHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.TopHandler;
 import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
 
 /**
@@ -89,7 +96,7 @@ import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
  */
 public class TechnicalEntityProcessor extends TechnicalProcessor
     implements EntityCollectionProcessor, CountEntityCollectionProcessor, EntityProcessor, MediaEntityProcessor,
-    ReferenceCollectionProcessor, ReferenceProcessor {
+    ReferenceCollectionProcessor, ReferenceProcessor, DeltaProcessor {
 
   public TechnicalEntityProcessor(final DataProvider dataProvider, final ServiceMetadata serviceMetadata) {
     super(dataProvider, serviceMetadata);
@@ -103,6 +110,103 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     readEntityCollection(request, response, uriInfo, requestedContentType, false);
   }
 
+  @Override
+  public void readDelta(final ODataRequest request, final ODataResponse response, final UriInfo uriInfo,
+      final ContentType requestedContentType) throws ODataApplicationException, ODataLibraryException {
+    validateOptions(uriInfo.asUriInfoResource());
+    if (!isTrackable(uriInfo)) {
+      throw new ODataApplicationException("Delta links are only supported for unfiltered entity sets.",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    final EdmEntitySet edmEntitySet = getEdmEntitySet(uriInfo.asUriInfoResource());
+    final EdmEntityType edmEntityType = edmEntitySet.getEntityType();
+    final ChangeSet changes = dataProvider.getChangeLog().readChanges(edmEntitySet.getName(),
+        uriInfo.getDeltaTokenOption().getValue());
+
+    EntityCollection changedEntities = new EntityCollection();
+    Delta delta = new Delta();
+    if (!changes.getChangedEntityIds().isEmpty()) {
+      final Map<URI, Entity> entitiesById = new HashMap<URI, Entity>();
+      for (final Entity entity : dataProvider.readAll(edmEntitySet).getEntities()) {
+        entitiesById.put(entity.getId(), entity);
+      }
+      for (final URI id : changes.getChangedEntityIds()) {
+        final Entity entity = entitiesById.get(id);
+        if (entity == null) {
+          // Removed from the entity set without a recorded deletion.
+          delta.getDeletedEntities().add(createDeletedEntity(id));
+        } else {
+          changedEntities.getEntities().add(entity);
+        }
+      }
+    }
+    for (final URI id : changes.getDeletedEntityIds()) {
+      delta.getDeletedEntities().add(createDeletedEntity(id));
+    }
+    delta.getAddedLinks().addAll(changes.getAddedLinks());
+    delta.getDeletedLinks().addAll(changes.getDeletedLinks());
+    delta.setDeltaLink(createDeltaLink(request, edmEntitySet, changes.getDeltaToken()));
+
+    // The changed entities are serialized like the entities of a collection response.
+    final ExpandOption expand = uriInfo.getExpandOption();
+    final SelectOption select = uriInfo.getSelectOption();
+    final ExpandSystemQueryOptionHandler expandHandler = new ExpandSystemQueryOptionHandler();
+    changedEntities = expandHandler.transformEntitySetGraphToTree(changedEntities, edmEntitySet, expand, null);
+    expandHandler.applyExpandQueryOptions(changedEntities, edmEntitySet, expand, uriInfo, serviceMetadata.getEdm());
+    delta.getEntities().addAll(changedEntities.getEntities());
+
+    final SerializerResult serializerResult = odata.createSerializer(requestedContentType).delta(
+        serviceMetadata,
+        edmEntityType,
+        delta,
+        EntityCollectionSerializerOptions.with()
+            .contextURL(isODataMetadataNone(requestedContentType) ? null :
+                ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.DELTA).build())
+            .expand(expand).select(select)
+            .build());
+    response.setContent(serializerResult.getContent());
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    response.setHeader(HttpHeader.CONTENT_TYPE, requestedContentType.toContentTypeString());
+  }
+
+  private DeletedEntity createDeletedEntity(final URI id) {
+    DeletedEntity deletedEntity = new DeletedEntity();
+    deletedEntity.setId(id);
+    deletedEntity.setReason(DeletedEntity.Reason.deleted);
+    return deletedEntity;
+  }
+
+  /**
+   * Creates the delta link for the given delta token. The defining query options <code>$select</code>
+   * and <code>$expand</code> of the request are kept, so that the changed entities are represented
+   * in the same way as in the initial result.
+   */
+  private URI createDeltaLink(final ODataRequest request, final EdmEntitySet edmEntitySet, final String deltaToken) {
+    StringBuilder deltaLink = new StringBuilder(request.getRawBaseUri()).append('/').append(edmEntitySet.getName())
+        .append("?$deltatoken=").append(deltaToken);
+    if (request.getRawQueryPath() != null) {
+      for (final String option : request.getRawQueryPath().split("&")) {
+        final int index = option.indexOf('=');
+        final String name = (index < 0 ? option : option.substring(0, index)).replace("%24", "$");
+        if (SystemQueryOptionKind.SELECT.toString().equals(name)
+            || SystemQueryOptionKind.EXPAND.toString().equals(name)) {
+          deltaLink.append('&').append(option);
+        }
+      }
+    }
+    return URI.create(deltaLink.toString());
+  }
+
+  /**
+   * Changes are only tracked for requests addressing an entity set directly and without restricting it;
+   * the delta link would otherwise have to reproduce the defining query.
+   */
+  private boolean isTrackable(final UriInfo uriInfo) {
+    return uriInfo.getUriResourceParts().size() == 1
+        && uriInfo.getUriResourceParts().get(0) instanceof UriResourceEntitySet
+        && uriInfo.getFilterOption() == null && uriInfo.getSearchOption() == null;
+  }
+
   @Override
   public void countEntityCollection(final ODataRequest request, final ODataResponse response,
       final UriInfo uriInfo) throws ODataApplicationException, ODataLibraryException {
@@ -133,12 +237,9 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     getEdmEntitySet(uriInfo); // including checks
     final Entity entity = readEntity(uriInfo);
 
-    response.setContent(odata.createFixedFormatSerializer().binary(dataProvider.readMedia(entity)));
-    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
-    response.setHeader(HttpHeader.CONTENT_TYPE, entity.getMediaContentType());
-    if (entity.getMediaETag() != null) {
-      response.setHeader(HttpHeader.ETAG, entity.getMediaETag());
-    }
+    final MediaHelper mediaHelper = odata.createMediaHelper();
+    mediaHelper.respond(request, response, mediaHelper.createMediaSource(dataProvider.readMedia(entity)),
+        entity.getMediaContentType(), entity.getMediaETag());
   }
 
   @Override
@@ -512,31 +613,63 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
             .get(uriInfo.getUriResourceParts().size() - 1)).getType() :
         edmEntitySet.getEntityType();
 
-    EntityCollection entitySetInitial = readEntityCollection(uriInfo);
-    if (entitySetInitial == null) {
-      entitySetInitial = new EntityCollection();
-    }
-
-    // Modifying the original entitySet means modifying the "database", so we have to make a shallow
-    // copy of the entity set (new EntitySet, but exactly the same data).
+    final Integer pageSize = odata.createPreferences(request.getHeaders(HttpHeader.PREFER)).getMaxPageSize();
+    final Integer serverPageSize;
     EntityCollection entitySet = new EntityCollection();
-    entitySet.getEntities().addAll(entitySetInitial.getEntities());
-    entitySet.getOperations().addAll(entitySetInitial.getOperations());
 
-    // Apply system query options.
-    SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet);
-    FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
-    CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), entitySet);
-    OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), entitySet, uriInfo, serviceMetadata.getEdm());
-    SkipHandler.applySkipSystemQueryHandler(uriInfo.getSkipOption(), entitySet);
-    TopHandler.applyTopSystemQueryOption(uriInfo.getTopOption(), entitySet);
+    // The delta token is taken before reading the first page, so that no concurrent change is missed,
+    // and is carried in the skiptoken to the following pages.
+    // The preference is only taken into account for the initial request.
+    final boolean trackable = !isReference && isTrackable(uriInfo);
+    final boolean trackChanges = trackable && uriInfo.getSkipTokenOption() == null
+        && odata.createPreferences(request.getHeaders(HttpHeader.PREFER)).hasTrackChanges();
+    final String deltaToken = trackChanges ?
+        dataProvider.getChangeLog().getDeltaToken(edmEntitySet.getName()) :
+        trackable ? getDeltaToken(uriInfo.getSkipTokenOption()) : null;
+
+    if (ServerSidePagingHandler.isSnapshotSkipToken(uriInfo.getSkipTokenOption())) {
+      // The next page of a snapshot; all query options have been applied when the snapshot was taken.
+      serverPageSize = ServerSidePagingHandler.readSnapshotPage(uriInfo.getSkipTokenOption(),
+          entitySet,
+          edmEntitySet,
+          request.getRawRequestUri(),
+          pageSize);
+    } else {
+      EntityCollection entitySetInitial = readEntityCollection(uriInfo);
+      if (entitySetInitial == null) {
+        entitySetInitial = new EntityCollection();
+      }
 
-    final Integer pageSize = odata.createPreferences(request.getHeaders(HttpHeader.PREFER)).getMaxPageSize();
-    final Integer serverPageSize = ServerSidePagingHandler.applyServerSidePaging(uriInfo.getSkipTokenOption(),
-        entitySet,
-        edmEntitySet,
-        request.getRawRequestUri(),
-        pageSize);
+      // Modifying the original entitySet means modifying the "database", so we have to make a shallow
+      // copy of the entity set (new EntitySet, but exactly the same data).
+      entitySet.getEntities().addAll(entitySetInitial.getEntities());
+      entitySet.getOperations().addAll(entitySetInitial.getOperations());
+
+      // Apply system query options.
+      SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet);
+      FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
+      CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), entitySet);
+      OrderByHandler.applyOrderBySkipTop(uriInfo.getOrderByOption(), uriInfo.getSkipOption(), uriInfo.getTopOption(),
+          entitySet, uriInfo, serviceMetadata.getEdm());
+
+      if ("snapshot".equals(request.getHeader(HttpHeader.ODATA_ISOLATION))) {
+        serverPageSize = ServerSidePagingHandler.applySnapshotPaging(entitySet,
+            edmEntitySet,
+            request.getRawRequestUri(),
+            pageSize,
+            deltaToken);
+      } else {
+        serverPageSize = ServerSidePagingHandler.applyServerSidePaging(uriInfo.getSkipTokenOption(),
+            entitySet,
+            edmEntitySet,
+            request.getRawRequestUri(),
+            pageSize,
+            deltaToken);
+      }
+    }
+    if (deltaToken != null && entitySet.getNext() == null) {
+      entitySet.setDeltaLink(createDeltaLink(request, edmEntitySet, deltaToken));
+    }
 
     // Apply expand system query option
     final ExpandOption expand = uriInfo.getExpandOption();
@@ -584,10 +717,25 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     //
     response.setStatusCode(HttpStatusCode.OK.getStatusCode());
     response.setHeader(HttpHeader.CONTENT_TYPE, requestedContentType.toContentTypeString());
-    if (pageSize != null) {
-      response.setHeader(HttpHeader.PREFERENCE_APPLIED,
-          PreferencesApplied.with().maxPageSize(serverPageSize).build().toValueString());
+    if (pageSize != null || trackChanges) {
+      PreferencesApplied.Builder preferencesApplied = PreferencesApplied.with();
+      if (pageSize != null) {
+        preferencesApplied.maxPageSize(serverPageSize);
+      }
+      if (trackChanges) {
+        preferencesApplied.trackChanges();
+      }
+      response.setHeader(HttpHeader.PREFERENCE_APPLIED, preferencesApplied.build().toValueString());
+    }
+  }
+
+  private String getDeltaToken(final SkipTokenOption skipTokenOption) throws ODataApplicationException {
+    final String deltaToken = ServerSidePagingHandler.getDeltaToken(skipTokenOption);
+    if (deltaToken != null && !dataProvider.getChangeLog().isDeltaToken(deltaToken)) {
+      throw new ODataApplicationException("Invalid skip token", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+          Locale.ROOT);
     }
+    return deltaToken;
   }
 
   /**
@@ -47,6 +47,7 @@ import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
+import org.apache.olingo.server.api.media.MediaHelper;
 import org.apache.olingo.server.api.prefer.Preferences.Return;
 import org.apache.olingo.server.api.prefer.PreferencesApplied;
 import org.apache.olingo.server.api.processor.ComplexCollectionProcessor;
@@ -238,6 +239,12 @@ public class TechnicalPrimitiveComplexProcessor extends TechnicalProcessor
     } else {
       if (property.getValue() == null && representationType != RepresentationType.COUNT) {
         response.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+      } else if (representationType == RepresentationType.VALUE && property.getValue() instanceof byte[]) {
+        // Binary values support range requests like media resources.
+        final MediaHelper mediaHelper = odata.createMediaHelper();
+        mediaHelper.respond(request, response, mediaHelper.createMediaSource((byte[]) property.getValue()),
+            contentType.toContentTypeString(), entity == null ? null : entity.getETag());
+        return;
       } else {
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
         if (representationType == RepresentationType.COUNT) {
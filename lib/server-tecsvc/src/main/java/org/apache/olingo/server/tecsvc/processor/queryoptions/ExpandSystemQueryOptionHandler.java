@@ -19,9 +19,13 @@
 package org.apache.olingo.server.tecsvc.processor.queryoptions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -49,20 +53,19 @@ import org.apache.olingo.server.api.uri.queryoption.TopOption;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.CountHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.OrderByHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SkipHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.TopHandler;
 
 public class ExpandSystemQueryOptionHandler {
 
+  /** Upper bound for the number of entities added to a response by <code>$levels</code>. */
+  public static final int MAX_EXPANDED_ENTITIES = 10000;
+
   public void applyExpandQueryOptions(final EntityCollection entitySet, final EdmEntitySet edmEntitySet,
       final ExpandOption expandOption, final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
     if (expandOption == null) {
       return;
     }
 
-    for (final Entity entity : entitySet.getEntities()) {
-      applyExpandOptionToEntity(entity, edmEntitySet, expandOption, uriInfo, edm);
-    }
+    applyExpandOptionToEntities(entitySet.getEntities(), edmEntitySet, expandOption, uriInfo, edm);
   }
 
   public void applyExpandQueryOptions(final Entity entity, final EdmEntitySet edmEntitySet,
@@ -71,85 +74,164 @@ public class ExpandSystemQueryOptionHandler {
       return;
     }
 
-    applyExpandOptionToEntity(entity, edmEntitySet, expandOption, uriInfo, edm);
+    applyExpandOptionToEntities(Collections.singletonList(entity), edmEntitySet, expandOption, uriInfo, edm);
   }
 
-  private void applyExpandOptionToEntity(final Entity entity, final EdmBindingTarget edmBindingTarget,
+  /**
+   * Applies the expand option to all entities of one level at once.
+   * The navigation properties are resolved once per expand item, and the entities
+   * remaining in the expanded navigation links are processed together on the next level.
+   */
+  private void applyExpandOptionToEntities(final List<Entity> entities, final EdmBindingTarget edmBindingTarget,
       final ExpandOption expandOption, final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
-
+    if (entities.isEmpty()) {
+      return;
+    }
     final EdmEntityType entityType = edmBindingTarget.getEntityType();
 
     for (ExpandItem item : expandOption.getExpandItems()) {
-      if(item.getLevelsOption() != null) {
-        throw new ODataApplicationException("$levels is not implemented", 
-            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      if (item.getLevelsOption() != null) {
+        applyLevelsOptionToEntities(entities, edmBindingTarget, item, uriInfo, edm);
+        continue;
       }
-      
-      List<EdmNavigationProperty> navigationProperties = new ArrayList<EdmNavigationProperty>();
-      if(item.isStar()) {
-        List<EdmNavigationPropertyBinding> bindings = edmBindingTarget.getNavigationPropertyBindings();
-        for (EdmNavigationPropertyBinding binding : bindings) {
-          EdmElement property = entityType.getProperty(binding.getPath());
-          if(property instanceof EdmNavigationProperty) {
-            navigationProperties.add((EdmNavigationProperty) property);
+
+      for (EdmNavigationProperty navigationProperty : getNavigationProperties(edmBindingTarget, item)) {
+        final String navPropertyName = navigationProperty.getName();
+        final EdmBindingTarget targetEdmEntitySet = edmBindingTarget.getRelatedBindingTarget(navPropertyName);
+        final boolean isCollection = entityType.getNavigationProperty(navPropertyName).isCollection();
+        List<Entity> nextLevel = new ArrayList<Entity>();
+
+        for (final Entity entity : entities) {
+          final Link link = entity.getNavigationLink(navPropertyName);
+          if (link == null) {
+            continue;
+          }
+          if (isCollection) {
+            applyOptionsToEntityCollection(link.getInlineEntitySet(),
+                item.getFilterOption(),
+                item.getOrderByOption(),
+                item.getCountOption(),
+                item.getSkipOption(),
+                item.getTopOption(),
+                uriInfo, edm);
+            nextLevel.addAll(link.getInlineEntitySet().getEntities());
+          } else if (link.getInlineEntity() != null) {
+            nextLevel.add(link.getInlineEntity());
           }
         }
-      } else {
-        final List<UriResource> uriResourceParts = item.getResourcePath().getUriResourceParts();
-        if (uriResourceParts.get(0) instanceof UriResourceNavigation) {
-          navigationProperties.add(((UriResourceNavigation) uriResourceParts.get(0)).getProperty());
+
+        // Apply nested expand system query options to remaining entities
+        if (item.getExpandOption() != null && targetEdmEntitySet != null) {
+          applyExpandOptionToEntities(nextLevel, targetEdmEntitySet, item.getExpandOption(), uriInfo, edm);
         }
       }
+    }
+  }
 
-      for (EdmNavigationProperty navigationProperty: navigationProperties) {
-        final String navPropertyName = navigationProperty.getName();
-        final EdmBindingTarget targetEdmEntitySet = edmBindingTarget.getRelatedBindingTarget(navPropertyName);
+  /**
+   * Applies the options of an expand item with <code>$levels</code> breadth-first to the
+   * expanded hierarchy. Entities shared across branches are processed only once.
+   */
+  private void applyLevelsOptionToEntities(final List<Entity> entities, final EdmBindingTarget edmBindingTarget,
+      final ExpandItem item, final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
+    final int levels = getLevels(item);
+    final Set<Entity> visited = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+    List<LevelsNode> level = new ArrayList<LevelsNode>();
+    for (final Entity entity : entities) {
+      level.add(new LevelsNode(entity, entity, edmBindingTarget));
+    }
 
-        final Link link = entity.getNavigationLink(navPropertyName);
-        if (link != null && entityType.getNavigationProperty(navPropertyName).isCollection()) {
-          applyOptionsToEntityCollection(link.getInlineEntitySet(),
-              targetEdmEntitySet,
-              item.getFilterOption(),
-              item.getOrderByOption(),
-              item.getCountOption(),
-              item.getSkipOption(),
-              item.getTopOption(),
-              item.getExpandOption(),
-              uriInfo, edm);
+    for (int depth = 0; depth < levels && !level.isEmpty(); depth++) {
+      final List<LevelsNode> nextLevel = new ArrayList<LevelsNode>();
+      for (final LevelsNode node : level) {
+        if (!visited.add(node.entity)) {
+          continue;
+        }
+        for (final EdmNavigationProperty navigationProperty : getNavigationProperties(node.bindingTarget, item)) {
+          final Link link = node.entity.getNavigationLink(navigationProperty.getName());
+          final EdmBindingTarget target = node.bindingTarget.getRelatedBindingTarget(navigationProperty.getName());
+          if (link == null || target == null) {
+            continue;
+          }
+          if (navigationProperty.isCollection()) {
+            applyOptionsToEntityCollection(link.getInlineEntitySet(),
+                item.getFilterOption(),
+                item.getOrderByOption(),
+                item.getCountOption(),
+                item.getSkipOption(),
+                item.getTopOption(),
+                uriInfo, edm);
+            for (final Entity related : link.getInlineEntitySet().getEntities()) {
+              nextLevel.add(new LevelsNode(related, related, target));
+            }
+          } else if (link.getInlineEntity() != null) {
+            nextLevel.add(new LevelsNode(link.getInlineEntity(), link.getInlineEntity(), target));
+          }
         }
       }
+      level = nextLevel;
     }
   }
 
+  private List<EdmNavigationProperty> getNavigationProperties(final EdmBindingTarget edmBindingTarget,
+      final ExpandItem item) {
+    final EdmEntityType entityType = edmBindingTarget.getEntityType();
+    List<EdmNavigationProperty> navigationProperties = new ArrayList<EdmNavigationProperty>();
+    if(item.isStar()) {
+      List<EdmNavigationPropertyBinding> bindings = edmBindingTarget.getNavigationPropertyBindings();
+      for (EdmNavigationPropertyBinding binding : bindings) {
+        EdmElement property = entityType.getProperty(binding.getPath());
+        if(property instanceof EdmNavigationProperty) {
+          navigationProperties.add((EdmNavigationProperty) property);
+        }
+      }
+    } else {
+      final List<UriResource> uriResourceParts = item.getResourcePath().getUriResourceParts();
+      if (uriResourceParts.get(0) instanceof UriResourceNavigation) {
+        navigationProperties.add(((UriResourceNavigation) uriResourceParts.get(0)).getProperty());
+      }
+    }
+    return navigationProperties;
+  }
+
   private void applyOptionsToEntityCollection(final EntityCollection entitySet,
-      final EdmBindingTarget edmBindingTarget,
       final FilterOption filterOption, final OrderByOption orderByOption, final CountOption countOption,
-      final SkipOption skipOption, final TopOption topOption, final ExpandOption expandOption,
+      final SkipOption skipOption, final TopOption topOption,
       final UriInfoResource uriInfo, final Edm edm)
       throws ODataApplicationException {
 
     FilterHandler.applyFilterSystemQuery(filterOption, entitySet, uriInfo, edm);
-    OrderByHandler.applyOrderByOption(orderByOption, entitySet, uriInfo, edm);
     CountHandler.applyCountSystemQueryOption(countOption, entitySet);
-    SkipHandler.applySkipSystemQueryHandler(skipOption, entitySet);
-    TopHandler.applyTopSystemQueryOption(topOption, entitySet);
-
-    // Apply nested expand system query options to remaining entities
-    if (expandOption != null) {
-      for (final Entity entity : entitySet.getEntities()) {
-        applyExpandOptionToEntity(entity, edmBindingTarget, expandOption, uriInfo, edm);
-      }
-    }
+    OrderByHandler.applyOrderBySkipTop(orderByOption, skipOption, topOption, entitySet, uriInfo, edm);
   }
 
   public EntityCollection transformEntitySetGraphToTree(final EntityCollection entitySet,
       final EdmBindingTarget edmBindingTarget, final ExpandOption expand, 
       final ExpandItem expandItem) throws ODataApplicationException {
+    final LevelsContext context = new LevelsContext();
+    final EntityCollection newEntitySet = transformEntitySetGraphToTree(entitySet, edmBindingTarget, expand,
+        expandItem, context);
+    expandLevels(context);
+    return newEntitySet;
+  }
+
+  public Entity transformEntityGraphToTree(final Entity entity, final EdmBindingTarget edmEntitySet,
+      final ExpandOption expand, final ExpandItem parentExpandItem) throws ODataApplicationException {
+    final LevelsContext context = new LevelsContext();
+    final Entity newEntity = transformEntityGraphToTree(entity, edmEntitySet, expand, parentExpandItem, context);
+    expandLevels(context);
+    return newEntity;
+  }
+
+  private EntityCollection transformEntitySetGraphToTree(final EntityCollection entitySet,
+      final EdmBindingTarget edmBindingTarget, final ExpandOption expand, 
+      final ExpandItem expandItem, final LevelsContext context) throws ODataApplicationException {
 
     final EntityCollection newEntitySet = newEntitySet(entitySet);
 
     for (final Entity entity : entitySet.getEntities()) {
-      newEntitySet.getEntities().add(transformEntityGraphToTree(entity, edmBindingTarget, expand, expandItem));
+      newEntitySet.getEntities().add(
+          transformEntityGraphToTree(entity, edmBindingTarget, expand, expandItem, context));
     }
     if (expandItem != null && expandItem.hasCountPath()) {
       newEntitySet.setCount(entitySet.getEntities().size());
@@ -157,30 +239,42 @@ public class ExpandSystemQueryOptionHandler {
     return newEntitySet;
   }
 
-  public Entity transformEntityGraphToTree(final Entity entity, final EdmBindingTarget edmEntitySet,
-      final ExpandOption expand, final ExpandItem parentExpandItem) throws ODataApplicationException {
+  private Entity transformEntityGraphToTree(final Entity entity, final EdmBindingTarget edmEntitySet,
+      final ExpandOption expand, final ExpandItem parentExpandItem, final LevelsContext context)
+      throws ODataApplicationException {
     final Entity newEntity = newEntity(entity);
     if (hasExpandItems(expand)) {
       final boolean expandAll = expandAll(expand);
       final Set<String> expanded = expandAll ? null : getExpandedPropertyNames(expand.getExpandItems());
       final EdmEntityType edmType = edmEntitySet.getEntityType();
 
+      // Hierarchies are expanded later on, breadth-first for all entities together.
+      for (final ExpandItem expandItem : expand.getExpandItems()) {
+        if (expandItem.getLevelsOption() != null) {
+          context.addRoot(expandItem, new LevelsNode(entity, newEntity, edmEntitySet));
+        }
+      }
+
       for (final Link link : entity.getNavigationLinks()) {
         final String propertyName = link.getTitle();
 
         if (expandAll || expanded.contains(propertyName)) {
+          final ExpandItem expandItem = getInnerExpandItem(expand, propertyName);
+          if (expandItem.getLevelsOption() != null) {
+            continue;
+          }
+
           final EdmNavigationProperty edmNavigationProperty = edmType.getNavigationProperty(propertyName);
           final EdmBindingTarget edmBindingTarget = edmEntitySet.getRelatedBindingTarget(propertyName);
           final Link newLink = newLink(link);
           newEntity.getNavigationLinks().add(newLink);
-          final ExpandItem expandItem = getInnerExpandItem(expand, propertyName);
 
           if (edmNavigationProperty.isCollection()) {
             newLink.setInlineEntitySet(transformEntitySetGraphToTree(link.getInlineEntitySet(),
-                edmBindingTarget, expandItem.getExpandOption(), expandItem));
+                edmBindingTarget, expandItem.getExpandOption(), expandItem, context));
           } else {
             newLink.setInlineEntity(transformEntityGraphToTree(link.getInlineEntity(),
-                edmBindingTarget,expandItem.getExpandOption(), expandItem));
+                edmBindingTarget,expandItem.getExpandOption(), expandItem, context));
           }
         }
       }
@@ -189,6 +283,104 @@ public class ExpandSystemQueryOptionHandler {
     return newEntity;
   }
 
+  /**
+   * Expands the hierarchies requested with <code>$levels</code> breadth-first.
+   * An entity reached more than once, e.g., in a cycle or through several parents,
+   * is copied only once and shared; the serializer stops at the requested depth
+   * and writes cycles as entity references.
+   */
+  private void expandLevels(final LevelsContext context) throws ODataApplicationException {
+    for (final Map.Entry<ExpandItem, List<LevelsNode>> entry : context.roots.entrySet()) {
+      final ExpandItem item = entry.getKey();
+      final int levels = getLevels(item);
+      final Map<String, Entity> copies = new HashMap<String, Entity>();
+      final Map<Entity, Entity> copiesWithoutId = new IdentityHashMap<Entity, Entity>();
+      for (final LevelsNode root : entry.getValue()) {
+        registerCopy(root.entity, root.copy, copies, copiesWithoutId);
+      }
+
+      List<LevelsNode> level = entry.getValue();
+      for (int depth = 0; depth < levels && !level.isEmpty(); depth++) {
+        final List<LevelsNode> nextLevel = new ArrayList<LevelsNode>();
+        for (final LevelsNode node : level) {
+          final EdmEntityType edmType = node.bindingTarget.getEntityType();
+          for (final Link link : node.entity.getNavigationLinks()) {
+            final String propertyName = link.getTitle();
+            final EdmNavigationProperty edmNavigationProperty = edmType.getNavigationProperty(propertyName);
+            if (edmNavigationProperty == null || !(item.isStar() || isExpandedBy(item, propertyName))) {
+              continue;
+            }
+            final EdmBindingTarget target = node.bindingTarget.getRelatedBindingTarget(propertyName);
+            final Link newLink = newLink(link);
+            node.copy.getNavigationLinks().add(newLink);
+
+            if (edmNavigationProperty.isCollection()) {
+              final EntityCollection newEntitySet = link.getInlineEntitySet() == null ?
+                  new EntityCollection() : newEntitySet(link.getInlineEntitySet());
+              if (link.getInlineEntitySet() != null) {
+                for (final Entity related : link.getInlineEntitySet().getEntities()) {
+                  newEntitySet.getEntities().add(
+                      getOrCreateCopy(related, target, copies, copiesWithoutId, nextLevel, context));
+                }
+              }
+              if (item.hasCountPath()) {
+                newEntitySet.setCount(newEntitySet.getEntities().size());
+              }
+              newLink.setInlineEntitySet(newEntitySet);
+            } else if (link.getInlineEntity() != null) {
+              newLink.setInlineEntity(
+                  getOrCreateCopy(link.getInlineEntity(), target, copies, copiesWithoutId, nextLevel, context));
+            }
+          }
+        }
+        level = nextLevel;
+      }
+    }
+  }
+
+  private Entity getOrCreateCopy(final Entity entity, final EdmBindingTarget target,
+      final Map<String, Entity> copies, final Map<Entity, Entity> copiesWithoutId,
+      final List<LevelsNode> nextLevel, final LevelsContext context) throws ODataApplicationException {
+    Entity copy = entity.getId() == null ? copiesWithoutId.get(entity) : copies.get(entity.getId().toASCIIString());
+    if (copy == null) {
+      if (++context.expandedEntities > MAX_EXPANDED_ENTITIES) {
+        throw new ODataApplicationException("The expanded hierarchy exceeds " + MAX_EXPANDED_ENTITIES
+            + " entities; please restrict $levels.", HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      copy = newEntity(entity);
+      registerCopy(entity, copy, copies, copiesWithoutId);
+      if (target != null) {
+        nextLevel.add(new LevelsNode(entity, copy, target));
+      }
+    }
+    return copy;
+  }
+
+  private void registerCopy(final Entity entity, final Entity copy,
+      final Map<String, Entity> copies, final Map<Entity, Entity> copiesWithoutId) {
+    if (entity.getId() == null) {
+      if (!copiesWithoutId.containsKey(entity)) {
+        copiesWithoutId.put(entity, copy);
+      }
+    } else if (!copies.containsKey(entity.getId().toASCIIString())) {
+      copies.put(entity.getId().toASCIIString(), copy);
+    }
+  }
+
+  private boolean isExpandedBy(final ExpandItem item, final String propertyName) {
+    final UriResource resource = item.getResourcePath().getUriResourceParts().get(0);
+    return resource instanceof UriResourceNavigation
+        && propertyName.equals(((UriResourceNavigation) resource).getProperty().getName());
+  }
+
+  private int getLevels(final ExpandItem item) throws ODataApplicationException {
+    if (hasExpandItems(item.getExpandOption())) {
+      throw new ODataApplicationException("$expand together with $levels is not implemented",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    return item.getLevelsOption().isMax() ? Integer.MAX_VALUE : item.getLevelsOption().getValue();
+  }
+
   public EntityCollection newEntitySet(final EntityCollection entitySet) {
     final EntityCollection newEntitySet = new EntityCollection();
     newEntitySet.setCount(entitySet.getCount());
@@ -271,4 +463,32 @@ public class ExpandSystemQueryOptionHandler {
 
     return null;
   }
+
+  /** An entity of the data graph together with its copy in the response tree. */
+  private static class LevelsNode {
+    private final Entity entity;
+    private final Entity copy;
+    private final EdmBindingTarget bindingTarget;
+
+    public LevelsNode(final Entity entity, final Entity copy, final EdmBindingTarget bindingTarget) {
+      this.entity = entity;
+      this.copy = copy;
+      this.bindingTarget = bindingTarget;
+    }
+  }
+
+  /** Collects the entities where a hierarchy has to be expanded, per expand item. */
+  private static class LevelsContext {
+    private final Map<ExpandItem, List<LevelsNode>> roots = new IdentityHashMap<ExpandItem, List<LevelsNode>>();
+    private int expandedEntities = 0;
+
+    public void addRoot(final ExpandItem item, final LevelsNode node) {
+      List<LevelsNode> nodes = roots.get(item);
+      if (nodes == null) {
+        nodes = new ArrayList<LevelsNode>();
+        roots.put(item, nodes);
+      }
+      nodes.add(node);
+    }
+  }
 }
@@ -18,7 +18,6 @@
  */
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
-import java.util.Iterator;
 import java.util.Locale;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -48,28 +47,26 @@ public class FilterHandler {
       return;
     }
 
-    try {
-      final Iterator<Entity> iter = entitySet.getEntities().iterator();
+    ParallelEntityOperations.retainAll(entitySet.getEntities(), new ParallelEntityOperations.EntityPredicate() {
+      @Override
+      public boolean test(final Entity entity) throws ODataApplicationException {
+        try {
+          final VisitorOperand operand = filterOption.getExpression()
+              .accept(new ExpressionVisitorImpl(entity, uriInfo, edm));
+          final TypedOperand typedOperand = operand.asTypedOperand();
 
-      while (iter.hasNext()) {
-        final VisitorOperand operand = filterOption.getExpression()
-            .accept(new ExpressionVisitorImpl(iter.next(), uriInfo, edm));
-        final TypedOperand typedOperand = operand.asTypedOperand();
-
-        if (typedOperand.is(primBoolean)) {
-          if (Boolean.FALSE.equals(typedOperand.getTypedValue(Boolean.class))) {
-            iter.remove();
+          if (typedOperand.is(primBoolean)) {
+            return !Boolean.FALSE.equals(typedOperand.getTypedValue(Boolean.class));
+          } else {
+            throw new ODataApplicationException(
+                "Invalid filter expression. Filter expressions must return a value of type Edm.Boolean",
+                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
           }
-        } else {
-          throw new ODataApplicationException(
-              "Invalid filter expression. Filter expressions must return a value of type Edm.Boolean",
-              HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+        } catch (ExpressionVisitException e) {
+          throw new ODataApplicationException("Exception in filter evaluation",
+              HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
         }
       }
-
-    } catch (ExpressionVisitException e) {
-      throw new ODataApplicationException("Exception in filter evaluation",
-          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
-    }
+    });
   }
 }
@@ -18,8 +18,8 @@
  */
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -30,6 +30,8 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipOption;
+import org.apache.olingo.server.api.uri.queryoption.TopOption;
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.expression.ExpressionVisitorImpl;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.expression.operand.TypedOperand;
@@ -42,64 +44,81 @@ public class OrderByHandler {
       return;
     }
 
-    try {
-      applyOrderByOptionInternal(orderByOption, entitySet, uriInfo, edm);
-    } catch (SystemQueryOptionsRuntimeException e) {
-      if (e.getCause() instanceof ODataApplicationException) {
-        // Throw the nested exception, to send the correct HTTP status code in the HTTP response
-        throw (ODataApplicationException) e.getCause();
-      } else {
-        throw new ODataApplicationException("Exception in orderBy evaluation",
-            HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
-      }
+    ParallelEntityOperations.sort(entitySet.getEntities(), createSortKeyExtractor(orderByOption, uriInfo, edm),
+        createComparator(orderByOption.getOrders()), 0, null);
+  }
+
+  /**
+   * Applies the orderby, skip, and top options in one step.
+   * If only the first entities are requested, only those are selected in sort order
+   * instead of sorting the whole collection.
+   */
+  public static void applyOrderBySkipTop(final OrderByOption orderByOption, final SkipOption skipOption,
+      final TopOption topOption, final EntityCollection entitySet, final UriInfoResource uriInfo, final Edm edm)
+      throws ODataApplicationException {
+    final int skip = SkipHandler.getSkipValue(skipOption);
+    final Integer top = TopHandler.getTopValue(topOption);
+
+    if (orderByOption == null) {
+      ParallelEntityOperations.slice(entitySet.getEntities(), skip, top);
+    } else {
+      ParallelEntityOperations.sort(entitySet.getEntities(), createSortKeyExtractor(orderByOption, uriInfo, edm),
+          createComparator(orderByOption.getOrders()), skip, top);
     }
   }
 
-  private static void applyOrderByOptionInternal(final OrderByOption orderByOption, final EntityCollection entitySet,
-      final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
-    Collections.sort(entitySet.getEntities(), new Comparator<Entity>() {
+  private static ParallelEntityOperations.SortKeyExtractor createSortKeyExtractor(
+      final OrderByOption orderByOption, final UriInfoResource uriInfo, final Edm edm) {
+    return new ParallelEntityOperations.SortKeyExtractor() {
+      @Override
+      public Object[] getSortKeys(final Entity entity) throws ODataApplicationException {
+        final List<OrderByItem> orders = orderByOption.getOrders();
+        final Object[] keys = new Object[orders.size()];
+        try {
+          for (int i = 0; i < keys.length; i++) {
+            final TypedOperand operand =
+                orders.get(i).getExpression().accept(new ExpressionVisitorImpl(entity, uriInfo, edm)).asTypedOperand();
+            keys[i] = operand.isNull() ? null : operand.getValue();
+          }
+        } catch (ExpressionVisitException e) {
+          throw new ODataApplicationException("Exception in orderBy evaluation",
+              HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+        }
+        return keys;
+      }
+    };
+  }
+
+  private static Comparator<Object[]> createComparator(final List<OrderByItem> orders) {
+    return new Comparator<Object[]>() {
       @Override
       @SuppressWarnings("unchecked")
-      public int compare(final Entity e1, final Entity e2) {
-        // Evaluate the first order option for both entities.
+      public int compare(final Object[] keys1, final Object[] keys2) {
+        // Compare the values of the first order option.
         // If and only if the result of the previous order option is equal to 0
-        // evaluate the next order option until all options are evaluated or they are not equal.
+        // compare the values of the next order option until all options are compared or they are not equal.
         int result = 0;
 
-        for (int i = 0; i < orderByOption.getOrders().size() && result == 0; i++) {
-          try {
-            final OrderByItem item = orderByOption.getOrders().get(i);
-            final TypedOperand op1 =
-                item.getExpression().accept(new ExpressionVisitorImpl(e1, uriInfo, edm)).asTypedOperand();
-            final TypedOperand op2 =
-                item.getExpression().accept(new ExpressionVisitorImpl(e2, uriInfo, edm)).asTypedOperand();
+        for (int i = 0; i < keys1.length && result == 0; i++) {
+          final Object o1 = keys1[i];
+          final Object o2 = keys2[i];
 
-            if (op1.isNull() || op2.isNull()) {
-              if (op1.isNull() && op2.isNull()) {
-                result = 0; // null is equals to null
-              } else {
-                result = op1.isNull() ? -1 : 1;
-              }
+          if (o1 == null || o2 == null) {
+            if (o1 == null && o2 == null) {
+              result = 0; // null is equals to null
             } else {
-              Object o1 = op1.getValue();
-              Object o2 = op2.getValue();
-
-              if (o1.getClass() == o2.getClass() && o1 instanceof Comparable) {
-                result = ((Comparable<Object>) o1).compareTo(o2);
-              } else {
-                result = 0;
-              }
+              result = o1 == null ? -1 : 1;
             }
-
-            result = item.isDescending() ? result * -1 : result;
-          } catch (ODataApplicationException e) {
-            throw new SystemQueryOptionsRuntimeException(e);
-          } catch (ExpressionVisitException e) {
-            throw new SystemQueryOptionsRuntimeException(e);
+          } else if (o1.getClass() == o2.getClass() && o1 instanceof Comparable) {
+            result = ((Comparable<Object>) o1).compareTo(o2);
+          } else {
+            result = 0;
           }
+
+          result = orders.get(i).isDescending() ? result * -1 : result;
         }
         return result;
       }
-    });
+    };
   }
 }
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+
+/**
+ * <p>Filtering, sorting, and slicing of entity lists, split across a shared thread pool for large lists.</p>
+ * <p>Instead of removing entities one by one from the list (which is linear per removal for an
+ * {@link java.util.ArrayList}), the result is computed separately and the list is rebuilt once.
+ * Sort keys are evaluated once per entity instead of once per comparison, and if only a page
+ * of the sorted result is needed, only that page is selected instead of sorting everything.</p>
+ * <p>Lists smaller than {@link #PARALLEL_THRESHOLD} are processed on the calling thread,
+ * as are calls from the pool threads themselves.</p>
+ */
+public final class ParallelEntityOperations {
+
+  /** Minimum list size to use the thread pool. */
+  static final int PARALLEL_THRESHOLD = 10000;
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+    private int count = 0;
+
+    @Override
+    public synchronized Thread newThread(final Runnable runnable) {
+      final Thread thread = new WorkerThread(runnable, "tecsvc-query-" + ++count);
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private ParallelEntityOperations() {}
+
+  /**
+   * Decides whether an entity is kept.
+   */
+  public interface EntityPredicate {
+    boolean test(Entity entity) throws ODataApplicationException;
+  }
+
+  /**
+   * Evaluates the values an entity is sorted by.
+   */
+  public interface SortKeyExtractor {
+    Object[] getSortKeys(Entity entity) throws ODataApplicationException;
+  }
+
+  /**
+   * Keeps only the entities that satisfy the predicate, preserving their order.
+   * The predicate is called exactly once per entity, possibly from several threads at the same time.
+   * @param entities  the list to be modified
+   * @param predicate the predicate
+   */
+  public static void retainAll(final List<Entity> entities, final EntityPredicate predicate)
+      throws ODataApplicationException {
+    final Entity[] array = entities.toArray(new Entity[entities.size()]);
+    final boolean[] keep = new boolean[array.length];
+    forEachChunk(array.length, new ChunkTask() {
+      @Override
+      public void run(final int from, final int to) throws ODataApplicationException {
+        for (int index = from; index < to; index++) {
+          keep[index] = predicate.test(array[index]);
+        }
+      }
+    });
+
+    int size = 0;
+    for (int index = 0; index < array.length; index++) {
+      if (keep[index]) {
+        array[size++] = array[index];
+      }
+    }
+    if (size < array.length) {
+      entities.clear();
+      entities.addAll(Arrays.asList(array).subList(0, size));
+    }
+  }
+
+  /**
+   * Sorts the entities stably and reduces them to the given page.
+   * @param entities      the list to be modified
+   * @param extractor     evaluates the sort keys; called exactly once per entity, possibly concurrently
+   * @param keyComparator compares the sort keys of two entities
+   * @param skip          number of entities to skip after sorting
+   * @param top           maximum number of entities to keep after skipping, or <code>null</code> for all
+   */
+  public static void sort(final List<Entity> entities, final SortKeyExtractor extractor,
+      final Comparator<Object[]> keyComparator, final int skip, final Integer top)
+      throws ODataApplicationException {
+    final int size = entities.size();
+    final int end = top == null ? size : (int) Math.min((long) skip + top, size);
+    if (skip >= end) {
+      entities.clear();
+      return;
+    }
+
+    final SortItem[] items = new SortItem[size];
+    forEachChunk(size, new ChunkTask() {
+      @Override
+      public void run(final int from, final int to) throws ODataApplicationException {
+        for (int index = from; index < to; index++) {
+          final Entity entity = entities.get(index);
+          items[index] = new SortItem(entity, extractor.getSortKeys(entity), index);
+        }
+      }
+    });
+
+    // The original position as last criterion makes the order total, so the result is stable
+    // regardless of how the work is split.
+    final Comparator<SortItem> comparator = new Comparator<SortItem>() {
+      @Override
+      public int compare(final SortItem item1, final SortItem item2) {
+        final int result = keyComparator.compare(item1.keys, item2.keys);
+        return result == 0 ? item1.position - item2.position : result;
+      }
+    };
+
+    final SortItem[] sorted = end <= size / 4 ?
+        selectFirst(items, end, comparator) :
+        sortAll(items, comparator);
+    entities.clear();
+    for (int index = skip; index < end; index++) {
+      entities.add(sorted[index].entity);
+    }
+  }
+
+  /**
+   * Reduces the entities to the given page without changing their order.
+   * @param entities the list to be modified
+   * @param skip     number of entities to skip
+   * @param top      maximum number of entities to keep after skipping, or <code>null</code> for all
+   */
+  public static void slice(final List<Entity> entities, final int skip, final Integer top) {
+    final int size = entities.size();
+    final int from = Math.min(skip, size);
+    final int to = top == null ? size : (int) Math.min((long) from + top, size);
+    entities.subList(to, size).clear();
+    entities.subList(0, from).clear();
+  }
+
+  /**
+   * Selects the first <code>count</code> items in sort order; each chunk keeps its own candidates in a bounded heap.
+   */
+  private static SortItem[] selectFirst(final SortItem[] items, final int count,
+      final Comparator<SortItem> comparator) throws ODataApplicationException {
+    final Comparator<SortItem> reversed = Collections.reverseOrder(comparator);
+    final List<SortItem> candidates = Collections.synchronizedList(new ArrayList<SortItem>());
+    forEachChunk(items.length, new ChunkTask() {
+      @Override
+      public void run(final int from, final int to) {
+        final PriorityQueue<SortItem> heap = new PriorityQueue<SortItem>(count + 1, reversed);
+        for (int index = from; index < to; index++) {
+          if (heap.size() < count) {
+            heap.add(items[index]);
+          } else if (comparator.compare(items[index], heap.peek()) < 0) {
+            heap.poll();
+            heap.add(items[index]);
+          }
+        }
+        candidates.addAll(heap);
+      }
+    });
+    final SortItem[] result = candidates.toArray(new SortItem[candidates.size()]);
+    Arrays.sort(result, comparator);
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Sorts the chunks in parallel and merges them pairwise, also in parallel.
+   */
+  private static SortItem[] sortAll(final SortItem[] items, final Comparator<SortItem> comparator)
+      throws ODataApplicationException {
+    final int chunkSize = getChunkSize(items.length);
+    final List<Callable<Void>> sorts = new ArrayList<Callable<Void>>();
+    for (int start = 0; start < items.length; start += chunkSize) {
+      final int from = start;
+      sorts.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          Arrays.sort(items, from, Math.min(from + chunkSize, items.length), comparator);
+          return null;
+        }
+      });
+    }
+    invokeAll(sorts);
+
+    SortItem[] source = items;
+    SortItem[] target = new SortItem[items.length];
+    for (int width = chunkSize; width < items.length; width *= 2) {
+      final SortItem[] currentSource = source;
+      final SortItem[] currentTarget = target;
+      final int currentWidth = width;
+      final List<Callable<Void>> merges = new ArrayList<Callable<Void>>();
+      for (int start = 0; start < items.length; start += 2 * width) {
+        final int low = start;
+        merges.add(new Callable<Void>() {
+          @Override
+          public Void call() {
+            merge(currentSource, currentTarget, low, Math.min(low + currentWidth, items.length),
+                Math.min(low + 2 * currentWidth, items.length), comparator);
+            return null;
+          }
+        });
+      }
+      invokeAll(merges);
+      source = currentTarget;
+      target = currentSource;
+    }
+    return source;
+  }
+
+  private static void merge(final SortItem[] source, final SortItem[] target, final int low, final int middle,
+      final int high, final Comparator<SortItem> comparator) {
+    int left = low;
+    int right = middle;
+    for (int index = low; index < high; index++) {
+      if (right >= high || left < middle && comparator.compare(source[left], source[right]) <= 0) {
+        target[index] = source[left++];
+      } else {
+        target[index] = source[right++];
+      }
+    }
+  }
+
+  private interface ChunkTask {
+    void run(int from, int to) throws ODataApplicationException;
+  }
+
+  private static boolean isSequential(final int size) {
+    return size < PARALLEL_THRESHOLD || PARALLELISM < 2 || Thread.currentThread() instanceof WorkerThread;
+  }
+
+  private static int getChunkSize(final int size) {
+    return isSequential(size) ? Math.max(size, 1) : (size + PARALLELISM * CHUNKS_PER_THREAD - 1)
+        / (PARALLELISM * CHUNKS_PER_THREAD);
+  }
+
+  /**
+   * Runs the task for consecutive chunks of the index range <code>[0, size)</code>.
+   * The first element is always processed first on the calling thread,
+   * so that errors common to all elements are reported the same way as in sequential processing.
+   */
+  private static void forEachChunk(final int size, final ChunkTask task) throws ODataApplicationException {
+    if (isSequential(size)) {
+      task.run(0, size);
+      return;
+    }
+    task.run(0, 1);
+    final int chunkSize = getChunkSize(size);
+    final List<Callable<Void>> chunks = new ArrayList<Callable<Void>>();
+    for (int start = 1; start < size; start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(start + chunkSize, size);
+      chunks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws ODataApplicationException {
+          task.run(from, to);
+          return null;
+        }
+      });
+    }
+    invokeAll(chunks);
+  }
+
+  private static void invokeAll(final List<Callable<Void>> tasks) throws ODataApplicationException {
+    if (tasks.size() == 1 || Thread.currentThread() instanceof WorkerThread) {
+      for (final Callable<Void> task : tasks) {
+        try {
+          task.call();
+        } catch (final ODataApplicationException e) {
+          throw e;
+        } catch (final RuntimeException e) {
+          throw e;
+        } catch (final Exception e) {
+          throw new ODataApplicationException("Exception in query evaluation",
+              HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+        }
+      }
+      return;
+    }
+    try {
+      for (final Future<Void> future : EXECUTOR.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ODataApplicationException("Query evaluation has been interrupted",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ODataApplicationException) {
+        throw (ODataApplicationException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ODataApplicationException("Exception in query evaluation",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, cause);
+    }
+  }
+
+  private static final class SortItem {
+    private final Entity entity;
+    private final Object[] keys;
+    private final int position;
+
+    SortItem(final Entity entity, final Object[] keys, final int position) {
+      this.entity = entity;
+      this.keys = keys;
+      this.position = position;
+    }
+  }
+
+  private static final class WorkerThread extends Thread {
+    WorkerThread(final Runnable runnable, final String name) {
+      super(runnable, name);
+    }
+  }
+}
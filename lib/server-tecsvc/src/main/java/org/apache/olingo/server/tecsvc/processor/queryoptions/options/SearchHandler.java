@@ -19,8 +19,6 @@
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
 import java.util.Calendar;
-import java.util.Iterator;
-import java.util.ListIterator;
 import java.util.Locale;
 
 import javax.xml.bind.DatatypeConverter;
@@ -41,19 +39,18 @@ public class SearchHandler {
   public static void applySearchSystemQueryOption(final SearchOption searchOption, EntityCollection entitySet)
       throws ODataApplicationException {
     if (searchOption != null) {
-      SearchExpression se = searchOption.getSearchExpression();
-      Iterator<Entity> it = entitySet.getEntities().iterator();
-      while (it.hasNext()) {
-        boolean keep = false;
-        Entity entity = it.next();
-        ListIterator<Property> properties = entity.getProperties().listIterator();
-        while (properties.hasNext() && !keep) {
-          keep = isTrue(se, properties.next());
-        }
-        if (!keep) {
-          it.remove();
+      final SearchExpression se = searchOption.getSearchExpression();
+      ParallelEntityOperations.retainAll(entitySet.getEntities(), new ParallelEntityOperations.EntityPredicate() {
+        @Override
+        public boolean test(final Entity entity) throws ODataApplicationException {
+          for (final Property property : entity.getProperties()) {
+            if (isTrue(se, property)) {
+              return true;
+            }
+          }
+          return false;
         }
-      }
+      });
     }
   }
 
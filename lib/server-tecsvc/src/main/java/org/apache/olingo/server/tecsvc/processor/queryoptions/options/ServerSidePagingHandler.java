@@ -20,12 +20,18 @@ package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Locale;
 
+import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.paging.PagingException;
+import org.apache.olingo.server.api.paging.PagingSnapshotStore;
+import org.apache.olingo.server.api.paging.SnapshotPage;
 import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
 import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
 
@@ -33,24 +39,30 @@ public class ServerSidePagingHandler {
   private static final int MAX_PAGE_SIZE = 10;
   private static final String ES_SERVER_SIDE_PAGING = "ESServerSidePaging";
   private static final String ES_STREAM_SERVER_SIDE_PAGING = "ESStreamServerSidePaging";
+  private static final int MAX_SNAPSHOT_ENTITIES = 100000;
+  private static final long SNAPSHOT_TIME_TO_LIVE = 5 * 60 * 1000L;
+  private static final PagingSnapshotStore SNAPSHOTS =
+      OData.newInstance().createPagingSnapshotStore(MAX_SNAPSHOT_ENTITIES, SNAPSHOT_TIME_TO_LIVE);
 
   /**
    * <p>Applies server-side paging to the given entity collection.</p>
    * <p>The next link is constructed and set in the data. It must support client-specified
    * page sizes. Therefore, the format <code>page*pageSize</code> (with a literal asterisk)
-   * has been chosen for the skiptoken.</p> 
+   * has been chosen for the skiptoken. A delta token is appended as <code>page*pageSize*deltaToken</code>;
+   * see {@link #getDeltaToken}.</p> 
    * @param skipTokenOption   the current skiptoken option (from a previous response's next link)
    * @param entityCollection  the data
    * @param edmEntitySet      the EDM entity set to decide whether paging must be done
    * @param rawRequestUri     the request URI (used to construct the next link)
    * @param preferredPageSize the client's preference for page size
+   * @param deltaToken        the delta token to be carried to the following pages (or <code>null</code>)
    * @return the chosen page size (or <code>null</code> if no paging has been done);
    *         could be used in the Preference-Applied HTTP header
    * @throws ODataApplicationException
    */
   public static Integer applyServerSidePaging(final SkipTokenOption skipTokenOption, EntityCollection entityCollection,
-      final EdmEntitySet edmEntitySet, final String rawRequestUri, final Integer preferredPageSize)
-      throws ODataApplicationException {
+      final EdmEntitySet edmEntitySet, final String rawRequestUri, final Integer preferredPageSize,
+      final String deltaToken) throws ODataApplicationException {
 
     if (edmEntitySet != null && shouldApplyServerSidePaging(edmEntitySet)) {
       final int pageSize = getPageSize(getPageSize(skipTokenOption), preferredPageSize);
@@ -64,7 +76,7 @@ public class ServerSidePagingHandler {
 
         // Determine if a new next Link has to be provided.
         if (remainingItems > pageSize) {
-          entityCollection.setNext(createNextLink(rawRequestUri, page + 1, pageSize));
+          entityCollection.setNext(createNextLink(rawRequestUri, (page + 1) + "%2A" + pageSize, deltaToken));
         }
       } else {
         throw new ODataApplicationException("Nothing found.", HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ROOT);
@@ -74,7 +86,107 @@ public class ServerSidePagingHandler {
     return null;
   }
 
-  private static URI createNextLink(final String rawRequestUri, final int page, final int pageSize)
+  /**
+   * <p>Applies server-side paging with snapshot isolation to the given entity collection.</p>
+   * <p>The entities are retained as a snapshot, and the next link contains an opaque skiptoken
+   * addressing the next page of this snapshot; see {@link #readSnapshotPage}.
+   * The count of the collection, if any, is kept and carried over to all following pages.
+   * A result too large to be retained is rejected with status 412 (Precondition Failed).</p>
+   * @param entityCollection  the data, with all other system query options already applied
+   * @param edmEntitySet      the EDM entity set to decide whether paging must be done
+   * @param rawRequestUri     the request URI (used to construct the next link)
+   * @param preferredPageSize the client's preference for page size
+   * @param deltaToken        the delta token to be carried to the following pages (or <code>null</code>)
+   * @return the chosen page size (or <code>null</code> if no paging has been done)
+   * @throws ODataApplicationException
+   */
+  public static Integer applySnapshotPaging(EntityCollection entityCollection, final EdmEntitySet edmEntitySet,
+      final String rawRequestUri, final Integer preferredPageSize, final String deltaToken)
+      throws ODataApplicationException {
+
+    if (edmEntitySet != null && shouldApplyServerSidePaging(edmEntitySet)) {
+      final int pageSize = getPageSize(0, preferredPageSize);
+      final String entitySetName = edmEntitySet.getName();
+      final String skipToken = SNAPSHOTS.open(entitySetName,
+          new ArrayList<Entity>(entityCollection.getEntities()), entityCollection.getCount());
+      if (skipToken == null) {
+        // Snapshot isolation can not be provided for this result (see OData V4, Part 1, 8.2.6).
+        throw new ODataApplicationException("Result too large for snapshot isolation",
+            HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), Locale.ROOT);
+      }
+      try {
+        setPage(entityCollection, SNAPSHOTS.readPage(entitySetName, skipToken, pageSize), rawRequestUri, deltaToken);
+      } catch (final PagingException e) {
+        throw new ODataApplicationException("Snapshot has been evicted",
+            HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+      }
+      return pageSize;
+    }
+    return null;
+  }
+
+  /**
+   * Reads the next page of a snapshot created by {@link #applySnapshotPaging}.
+   * The cost does not depend on the position of the page in the result.
+   * @param skipTokenOption   the snapshot skiptoken option (from a previous response's next link)
+   * @param entityCollection  the (empty) collection to be filled with the page
+   * @param edmEntitySet      the EDM entity set of the request
+   * @param rawRequestUri     the request URI (used to construct the next link)
+   * @param preferredPageSize the client's preference for page size
+   * @return the chosen page size
+   * @throws PagingException if the snapshot has expired or the skiptoken is invalid for this entity set
+   */
+  public static Integer readSnapshotPage(final SkipTokenOption skipTokenOption, EntityCollection entityCollection,
+      final EdmEntitySet edmEntitySet, final String rawRequestUri, final Integer preferredPageSize)
+      throws ODataApplicationException, PagingException {
+    final int pageSize = getPageSize(0, preferredPageSize);
+    final String[] parts = split(skipTokenOption);
+    setPage(entityCollection, SNAPSHOTS.readPage(edmEntitySet.getName(), parts[0], pageSize),
+        rawRequestUri, parts.length > 1 ? parts[1] : null);
+    return pageSize;
+  }
+
+  /**
+   * Checks whether the skiptoken has been issued for a snapshot.
+   * @param skipTokenOption the skiptoken option (may be <code>null</code>)
+   * @return <code>true</code> if the skiptoken addresses a snapshot
+   */
+  public static boolean isSnapshotSkipToken(final SkipTokenOption skipTokenOption) {
+    return skipTokenOption != null && SNAPSHOTS.isSnapshotToken(split(skipTokenOption)[0]);
+  }
+
+  /**
+   * Gets the delta token carried by the skiptoken.
+   * The delta token of a change-tracking request is taken when the first page is read
+   * and handed on from page to page, so that the delta link of the last page
+   * also covers the changes made while the client has been reading the earlier pages.
+   * @param skipTokenOption the skiptoken option (may be <code>null</code>)
+   * @return the delta token or <code>null</code> if the skiptoken does not carry one
+   */
+  public static String getDeltaToken(final SkipTokenOption skipTokenOption) {
+    if (skipTokenOption == null) {
+      return null;
+    }
+    final String[] parts = split(skipTokenOption);
+    final int deltaTokenIndex = SNAPSHOTS.isSnapshotToken(parts[0]) ? 1 : 2;
+    return parts.length > deltaTokenIndex ? parts[deltaTokenIndex] : null;
+  }
+
+  private static String[] split(final SkipTokenOption skipTokenOption) {
+    return skipTokenOption.getValue().split("\\*");
+  }
+
+  private static void setPage(EntityCollection entityCollection, final SnapshotPage page,
+      final String rawRequestUri, final String deltaToken) throws ODataApplicationException {
+    entityCollection.getEntities().clear();
+    entityCollection.getEntities().addAll(page.getEntities());
+    entityCollection.setCount(page.getCount());
+    if (page.hasNext()) {
+      entityCollection.setNext(createNextLink(rawRequestUri, page.getNextSkipToken(), deltaToken));
+    }
+  }
+
+  private static URI createNextLink(final String rawRequestUri, final String skipToken, final String deltaToken)
       throws ODataApplicationException {
     // Remove a maybe existing skiptoken, making sure that the query part is not empty.
     String nextlink = rawRequestUri.contains("?") ?
@@ -87,7 +199,10 @@ public class ServerSidePagingHandler {
     // Append the new skiptoken.
     nextlink += SystemQueryOptionKind.SKIPTOKEN.toString().replace("$", "%24")  // poor man's percent encoding
         + '='
-        + page + "%2A" + pageSize;  // "%2A" is a percent-encoded asterisk
+        + skipToken;  // the skiptoken must already be percent-encoded, e.g., "%2A" for an asterisk
+    if (deltaToken != null) {
+      nextlink += "%2A" + deltaToken;
+    }
 
     try {
       return new URI(nextlink);
@@ -112,9 +227,9 @@ public class ServerSidePagingHandler {
   private static int getPageSize(final SkipTokenOption skipTokenOption) throws ODataApplicationException {
     if (skipTokenOption != null && skipTokenOption.getValue().length() >= 3
         && skipTokenOption.getValue().contains("*")) {
-      final String value = skipTokenOption.getValue();
+      final String[] parts = split(skipTokenOption);
       try {
-        return Integer.parseInt(value.substring(value.indexOf('*') + 1));
+        return Integer.parseInt(parts.length > 1 ? parts[1] : "");
       } catch (final NumberFormatException e) {
         throw new ODataApplicationException("Invalid skip token", HttpStatusCode.BAD_REQUEST.getStatusCode(),
             Locale.ROOT, e);
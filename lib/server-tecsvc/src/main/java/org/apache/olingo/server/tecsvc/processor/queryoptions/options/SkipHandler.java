@@ -18,10 +18,8 @@
  */
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
-import java.util.Iterator;
 import java.util.Locale;
 
-import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
@@ -32,23 +30,27 @@ public class SkipHandler {
       throws ODataApplicationException {
 
     if (skipOption != null) {
-      if (skipOption.getValue() >= 0) {
-        popAtMost(entitySet, skipOption.getValue());
-      } else {
-        throw new ODataApplicationException("Skip value must be positive", HttpStatusCode.BAD_REQUEST.getStatusCode(),
-            Locale.ROOT);
-      }
+      popAtMost(entitySet, getSkipValue(skipOption));
     }
   }
 
-  static void popAtMost(final EntityCollection entitySet, final int n) {
-    final Iterator<Entity> iter = entitySet.getEntities().iterator();
-    int i = 0;
-
-    while (iter.hasNext() && i < n) {
-      iter.next();
-      iter.remove();
-      i++;
+  /**
+   * Gets the validated number of entities to skip.
+   * @param skipOption the skip option (may be <code>null</code>)
+   * @return the value of the option, or 0 if there is no option
+   */
+  static int getSkipValue(final SkipOption skipOption) throws ODataApplicationException {
+    if (skipOption == null) {
+      return 0;
+    } else if (skipOption.getValue() >= 0) {
+      return skipOption.getValue();
+    } else {
+      throw new ODataApplicationException("Skip value must be positive", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+          Locale.ROOT);
     }
   }
+
+  static void popAtMost(final EntityCollection entitySet, final int n) {
+    ParallelEntityOperations.slice(entitySet.getEntities(), n, null);
+  }
 }
@@ -30,18 +30,27 @@ public class TopHandler {
       throws ODataApplicationException {
 
     if (topOption != null) {
-      if (topOption.getValue() >= 0) {
-        reduceToSize(entitySet, topOption.getValue());
-      } else {
-        throw new ODataApplicationException("Top value must be positive", HttpStatusCode.BAD_REQUEST.getStatusCode(),
-            Locale.ROOT);
-      }
+      reduceToSize(entitySet, getTopValue(topOption));
     }
   }
 
-  static void reduceToSize(final EntityCollection entitySet, final int n) {
-    while (entitySet.getEntities().size() > n) {
-      entitySet.getEntities().remove(entitySet.getEntities().size() - 1);
+  /**
+   * Gets the validated maximum number of entities.
+   * @param topOption the top option (may be <code>null</code>)
+   * @return the value of the option, or <code>null</code> if there is no option
+   */
+  static Integer getTopValue(final TopOption topOption) throws ODataApplicationException {
+    if (topOption == null) {
+      return null;
+    } else if (topOption.getValue() >= 0) {
+      return topOption.getValue();
+    } else {
+      throw new ODataApplicationException("Top value must be positive", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+          Locale.ROOT);
     }
   }
+
+  static void reduceToSize(final EntityCollection entitySet, final int n) {
+    ParallelEntityOperations.slice(entitySet.getEntities(), 0, n);
+  }
 }
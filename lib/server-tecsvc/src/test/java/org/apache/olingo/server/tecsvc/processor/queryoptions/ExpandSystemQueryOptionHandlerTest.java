@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.TopOption;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ExpandSystemQueryOptionHandlerTest {
+
+  private static final String MANY = "NavPropertyETKeyNavMany";
+  private static final String ONE = "NavPropertyETKeyNavOne";
+
+  private final OData oData = OData.newInstance();
+  private final Edm edm = oData.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList())
+      .getEdm();
+  private final EdmEntitySet esKeyNav = edm.getEntityContainer().getEntitySet("ESKeyNav");
+  private final ExpandSystemQueryOptionHandler handler = new ExpandSystemQueryOptionHandler();
+  private EntityCollection data;
+
+  @Before
+  public void setUp() throws Exception {
+    data = new DataProvider(oData, edm).readAll(esKeyNav);
+  }
+
+  @Test
+  public void levelsMaxSharesEntitiesInCycles() throws Exception {
+    final ExpandOption expand = mockExpandOption(mockExpandItem(MANY, null));
+    final Entity first = handler.transformEntityGraphToTree(data.getEntities().get(0), esKeyNav, expand, null);
+
+    final List<Entity> firstMany = first.getNavigationLink(MANY).getInlineEntitySet().getEntities();
+    assertEquals(2, firstMany.size());
+    assertSame(first, firstMany.get(0));
+    final Entity second = firstMany.get(1);
+    final List<Entity> secondMany = second.getNavigationLink(MANY).getInlineEntitySet().getEntities();
+    assertSame(second, secondMany.get(0));
+    final Entity third = secondMany.get(1);
+    assertEquals(0, third.getNavigationLinks().size());
+    assertNull(first.getNavigationLink(ONE));
+  }
+
+  @Test
+  public void levelsLimitDepth() throws Exception {
+    final ExpandOption expand = mockExpandOption(mockExpandItem(MANY, 1));
+    final Entity first = handler.transformEntityGraphToTree(data.getEntities().get(0), esKeyNav, expand, null);
+
+    final List<Entity> firstMany = first.getNavigationLink(MANY).getInlineEntitySet().getEntities();
+    assertSame(first, firstMany.get(0));
+    assertEquals(0, firstMany.get(1).getNavigationLinks().size());
+  }
+
+  @Test
+  public void levelsShareEntitiesAcrossPage() throws Exception {
+    final ExpandOption expand = mockExpandOption(mockExpandItem(ONE, 1));
+    final EntityCollection page = handler.transformEntitySetGraphToTree(data, esKeyNav, expand, null);
+
+    final List<Entity> entities = page.getEntities();
+    assertEquals(3, entities.size());
+    assertSame(entities.get(1), entities.get(0).getNavigationLink(ONE).getInlineEntity());
+    assertSame(entities.get(2), entities.get(1).getNavigationLink(ONE).getInlineEntity());
+    assertNull(entities.get(2).getNavigationLink(ONE));
+  }
+
+  @Test
+  public void levelsWithOptionsAppliedOncePerEntity() throws Exception {
+    final ExpandItem item = mockExpandItem(MANY, null);
+    final TopOption top = Mockito.mock(TopOption.class);
+    Mockito.when(top.getValue()).thenReturn(1);
+    Mockito.when(item.getTopOption()).thenReturn(top);
+    final ExpandOption expand = mockExpandOption(item);
+    final Entity first = handler.transformEntityGraphToTree(data.getEntities().get(1), esKeyNav, expand, null);
+    handler.applyExpandQueryOptions(first, esKeyNav, expand, null, edm);
+
+    final List<Entity> firstMany = first.getNavigationLink(MANY).getInlineEntitySet().getEntities();
+    assertEquals(1, firstMany.size());
+    assertSame(first, firstMany.get(0));
+  }
+
+  @Test
+  public void levelsWithNestedExpandNotImplemented() throws Exception {
+    final ExpandItem item = mockExpandItem(MANY, 2);
+    final ExpandOption nested = mockExpandOption(mockExpandItem(ONE, null));
+    Mockito.when(nested.getExpandItems().get(0).getLevelsOption()).thenReturn(null);
+    Mockito.when(item.getExpandOption()).thenReturn(nested);
+    try {
+      handler.transformEntityGraphToTree(data.getEntities().get(0), esKeyNav, mockExpandOption(item), null);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private ExpandItem mockExpandItem(final String navigationPropertyName, final Integer levels) {
+    final UriResourceNavigation resource = Mockito.mock(UriResourceNavigation.class);
+    Mockito.when(resource.getProperty())
+        .thenReturn(esKeyNav.getEntityType().getNavigationProperty(navigationPropertyName));
+    final UriInfoResource resourcePath = Mockito.mock(UriInfoResource.class);
+    Mockito.when(resourcePath.getUriResourceParts()).thenReturn(Collections.<UriResource> singletonList(resource));
+    final LevelsExpandOption levelsOption = Mockito.mock(LevelsExpandOption.class);
+    Mockito.when(levelsOption.isMax()).thenReturn(levels == null);
+    Mockito.when(levelsOption.getValue()).thenReturn(levels == null ? 0 : levels);
+    final ExpandItem item = Mockito.mock(ExpandItem.class);
+    Mockito.when(item.getResourcePath()).thenReturn(resourcePath);
+    Mockito.when(item.getLevelsOption()).thenReturn(levelsOption);
+    return item;
+  }
+
+  private ExpandOption mockExpandOption(final ExpandItem item) {
+    final ExpandOption expand = Mockito.mock(ExpandOption.class);
+    Mockito.when(expand.getExpandItems()).thenReturn(Collections.singletonList(item));
+    return expand;
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.Test;
+
+public class ParallelEntityOperationsTest {
+
+  private static final int SIZE = 3 * ParallelEntityOperations.PARALLEL_THRESHOLD;
+
+  private static final ParallelEntityOperations.EntityPredicate EVEN = new ParallelEntityOperations.EntityPredicate() {
+    @Override
+    public boolean test(final Entity entity) {
+      return getValue(entity) % 2 == 0;
+    }
+  };
+
+  private static final ParallelEntityOperations.SortKeyExtractor VALUE =
+      new ParallelEntityOperations.SortKeyExtractor() {
+        @Override
+        public Object[] getSortKeys(final Entity entity) {
+          return new Object[] { getValue(entity) };
+        }
+      };
+
+  private static final Comparator<Object[]> ASCENDING = new Comparator<Object[]>() {
+    @Override
+    public int compare(final Object[] keys1, final Object[] keys2) {
+      return ((Integer) keys1[0]).compareTo((Integer) keys2[0]);
+    }
+  };
+
+  private static final Comparator<Entity> REFERENCE = new Comparator<Entity>() {
+    @Override
+    public int compare(final Entity entity1, final Entity entity2) {
+      return Integer.valueOf(getValue(entity1)).compareTo(getValue(entity2));
+    }
+  };
+
+  private static int getValue(final Entity entity) {
+    return (Integer) entity.getProperty("Value").getValue();
+  }
+
+  /** Creates entities with many duplicate values, so that stability matters. */
+  private static List<Entity> createEntities(final int size) {
+    List<Entity> entities = new ArrayList<Entity>(size);
+    for (int i = 0; i < size; i++) {
+      entities.add(new Entity()
+          .addProperty(new Property(null, "Value", ValueType.PRIMITIVE, (i * 7919) % 1000))
+          .addProperty(new Property(null, "Position", ValueType.PRIMITIVE, i)));
+    }
+    return entities;
+  }
+
+  @Test
+  public void retainAllKeepsOrder() throws Exception {
+    for (final int size : new int[] { 0, 10, SIZE }) {
+      final List<Entity> entities = createEntities(size);
+      final List<Entity> expected = new ArrayList<Entity>(entities);
+      for (Iterator<Entity> iterator = expected.iterator(); iterator.hasNext();) {
+        if (!EVEN.test(iterator.next())) {
+          iterator.remove();
+        }
+      }
+      ParallelEntityOperations.retainAll(entities, EVEN);
+      assertEquals(expected, entities);
+    }
+  }
+
+  @Test
+  public void sortIsStable() throws Exception {
+    for (final int size : new int[] { 10, SIZE }) {
+      final List<Entity> entities = createEntities(size);
+      final List<Entity> expected = new ArrayList<Entity>(entities);
+      Collections.sort(expected, REFERENCE);
+      ParallelEntityOperations.sort(entities, VALUE, ASCENDING, 0, null);
+      assertEquals(expected, entities);
+    }
+  }
+
+  @Test
+  public void sortWithPage() throws Exception {
+    final List<Entity> sorted = createEntities(SIZE);
+    Collections.sort(sorted, REFERENCE);
+
+    // Small pages are selected without sorting everything; large pages are cut from the sorted list.
+    for (final int[] page : new int[][] { { 0, 5 }, { 17, 100 }, { 1000, SIZE / 2 }, { SIZE - 3, 10 }, { SIZE, 1 } }) {
+      final List<Entity> entities = createEntities(SIZE);
+      ParallelEntityOperations.sort(entities, VALUE, ASCENDING, page[0], page[1]);
+      assertEquals(sorted.subList(Math.min(page[0], SIZE), Math.min(page[0] + page[1], SIZE)), entities);
+    }
+  }
+
+  @Test
+  public void slice() throws Exception {
+    final List<Entity> entities = createEntities(10);
+    final List<Entity> expected = new ArrayList<Entity>(entities.subList(3, 7));
+    ParallelEntityOperations.slice(entities, 3, 4);
+    assertEquals(expected, entities);
+
+    ParallelEntityOperations.slice(entities, 1, null);
+    assertEquals(expected.subList(1, 4), entities);
+
+    ParallelEntityOperations.slice(entities, 5, 1);
+    assertTrue(entities.isEmpty());
+  }
+
+  @Test
+  public void exceptionFromWorkerThread() throws Exception {
+    final List<Entity> entities = createEntities(SIZE);
+    final Entity last = entities.get(SIZE - 1);
+    try {
+      ParallelEntityOperations.retainAll(entities, new ParallelEntityOperations.EntityPredicate() {
+        @Override
+        public boolean test(final Entity entity) throws ODataApplicationException {
+          if (entity == last) {
+            throw new ODataApplicationException("Test", 400, Locale.ROOT);
+          }
+          return true;
+        }
+      });
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(400, e.getStatusCode());
+    }
+    assertEquals(SIZE, entities.size());
+  }
+}
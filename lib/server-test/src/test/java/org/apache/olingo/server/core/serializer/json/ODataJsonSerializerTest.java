@@ -26,10 +26,12 @@ import java.io.InputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -37,9 +39,16 @@ import org.apache.olingo.commons.api.data.ComplexIterator;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.EntityPublisher;
+import org.apache.olingo.commons.api.data.EntitySubscriber;
+import org.apache.olingo.commons.api.data.EntitySubscription;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.data.PrimitiveIterator;
 import org.apache.olingo.commons.api.data.Property;
@@ -66,6 +75,7 @@ import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ODataContentWriteErrorCallback;
 import org.apache.olingo.server.api.ODataContentWriteErrorContext;
+import org.apache.olingo.server.api.ODataNonBlockingContent;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.serializer.ComplexSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
@@ -93,6 +103,8 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 public class ODataJsonSerializerTest {
   private static final OData odata = OData.newInstance();
   private static final ServiceMetadata metadata = odata.createServiceMetadata(
@@ -389,6 +401,277 @@ public class ODataJsonSerializerTest {
     Assert.assertEquals(3, count);
   }
 
+  @Test
+  public void entityCollectionStreamedWithExpand() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    final EdmEntitySet innerEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final int[] readInnerEntities = new int[1];
+    final EntityIterator entityIterator = new EntityIterator() {
+      private int parent = 0;
+
+      @Override
+      public boolean hasNext() {
+        return parent < 2;
+      }
+
+      @Override
+      public Entity next() {
+        final int key = ++parent;
+        Entity entity = new Entity()
+            .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) key))
+            .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, "Parent " + key));
+        entity.setId(URI.create("ESTwoPrim(" + key + ")"));
+        Link link = new Link();
+        link.setTitle("NavPropertyETAllPrimMany");
+        link.setInlineEntityIterator(new EntityIterator() {
+          private int child = 0;
+
+          @Override
+          public boolean hasNext() {
+            return child < key;
+          }
+
+          @Override
+          public Entity next() {
+            readInnerEntities[0]++;
+            child++;
+            Entity inner = new Entity()
+                .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) (key * 10 + child)))
+                .addProperty(new Property(null, "PropertyInt32", ValueType.PRIMITIVE, child));
+            inner.setId(URI.create("ESAllPrim(" + (key * 10 + child) + ")"));
+            return inner;
+          }
+        });
+        entity.getNavigationLinks().add(link);
+        return entity;
+      }
+    };
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(innerEntitySet, "PropertyInt32")));
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETAllPrimMany");
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+
+    ODataContent result = serializer.entityCollectionStreamed(
+        metadata, edmEntitySet.getEntityType(), entityIterator,
+        EntityCollectionSerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+            .expand(expand)
+            .build()).getODataContent();
+    Assert.assertEquals(0, readInnerEntities[0]);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    result.write(bout);
+    Assert.assertEquals(3, readInnerEntities[0]);
+    Assert.assertEquals("{"
+        + "\"@odata.context\":\"$metadata#ESTwoPrim\","
+        + "\"@odata.metadataEtag\":\"W/\\\"metadataETag\\\"\","
+        + "\"value\":["
+        + "{\"PropertyInt16\":1,\"PropertyString\":\"Parent 1\","
+        + "\"NavPropertyETAllPrimMany\":[{\"@odata.id\":\"ESAllPrim(11)\",\"PropertyInt32\":1}]},"
+        + "{\"PropertyInt16\":2,\"PropertyString\":\"Parent 2\","
+        + "\"NavPropertyETAllPrimMany\":[{\"@odata.id\":\"ESAllPrim(21)\",\"PropertyInt32\":1},"
+        + "{\"@odata.id\":\"ESAllPrim(22)\",\"PropertyInt32\":2}]}]}",
+        new String(bout.toByteArray(), "UTF-8"));
+  }
+
+  @Test
+  public void expandedEntityIteratorWithCount() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    CountOption countOption = Mockito.mock(CountOption.class);
+    Mockito.when(countOption.getValue()).thenReturn(true);
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETAllPrimMany");
+    Mockito.when(expandItem.getCountOption()).thenReturn(countOption);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(entityContainer.getEntitySet("ESAllPrim"), "PropertyInt16")));
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+    final EntitySerializerOptions options = EntitySerializerOptions.with().expand(expand).build();
+
+    // An iterator without count gets no count annotation.
+    Assert.assertEquals("{\"PropertyInt16\":1,\"PropertyString\":\"Parent\","
+        + "\"NavPropertyETAllPrimMany\":[{\"PropertyInt16\":1},{\"PropertyInt16\":2}]}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, edmEntitySet.getEntityType(),
+            createEntityWithInlineIterator(null), options).getContent()));
+
+    // An iterator with count gets it written.
+    Assert.assertEquals("{\"PropertyInt16\":1,\"PropertyString\":\"Parent\","
+        + "\"NavPropertyETAllPrimMany@odata.count\":42,"
+        + "\"NavPropertyETAllPrimMany\":[{\"PropertyInt16\":1},{\"PropertyInt16\":2}]}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, edmEntitySet.getEntityType(),
+            createEntityWithInlineIterator(42), options).getContent()));
+
+    // The same holds for $expand=NavPropertyETAllPrimMany/$count.
+    Mockito.when(expandItem.hasCountPath()).thenReturn(true);
+    Assert.assertEquals("{\"PropertyInt16\":1,\"PropertyString\":\"Parent\"}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, edmEntitySet.getEntityType(),
+            createEntityWithInlineIterator(null), options).getContent()));
+    Assert.assertEquals("{\"PropertyInt16\":1,\"PropertyString\":\"Parent\","
+        + "\"NavPropertyETAllPrimMany@odata.count\":42}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, edmEntitySet.getEntityType(),
+            createEntityWithInlineIterator(42), options).getContent()));
+  }
+
+  private Entity createEntityWithInlineIterator(final Integer count) {
+    Entity entity = new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) 1))
+        .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, "Parent"));
+    entity.setId(URI.create("ESTwoPrim(1)"));
+    Link link = new Link();
+    link.setTitle("NavPropertyETAllPrimMany");
+    link.setInlineEntityIterator(new EntityIterator() {
+      private short child = 0;
+
+      @Override
+      public boolean hasNext() {
+        return child < 2;
+      }
+
+      @Override
+      public Entity next() {
+        Entity inner = new Entity().addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, ++child));
+        inner.setId(URI.create("ESAllPrim(" + child + ")"));
+        return inner;
+      }
+
+      @Override
+      public Integer getCount() {
+        return count == null ? super.getCount() : count;
+      }
+    });
+    entity.getNavigationLinks().add(link);
+    return entity;
+  }
+
+  @Test
+  public void plansSharedAcrossSerializers() throws Exception {
+    final EdmEntityType entityType = entityContainer.getEntitySet("ESAllPrim").getEntityType();
+    // Each response has its own serializer and its own parsed $select option.
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Arrays.asList(
+        ExpandSelectMock.mockSelectItem(entityContainer.getEntitySet("ESAllPrim"), "PropertyInt16"),
+        ExpandSelectMock.mockSelectItem(entityContainer.getEntitySet("ESAllPrim"), "PropertyString")));
+    final SelectOption sameSelect = ExpandSelectMock.mockSelectOption(Arrays.asList(
+        ExpandSelectMock.mockSelectItem(entityContainer.getEntitySet("ESAllPrim"), "PropertyString"),
+        ExpandSelectMock.mockSelectItem(entityContainer.getEntitySet("ESAllPrim"), "PropertyInt16")));
+    final JsonSerializationPlan plan = new ODataJsonSerializer(ContentType.JSON).getPlan(metadata, entityType, select);
+    Assert.assertSame(plan, new ODataJsonSerializer(ContentType.JSON).getPlan(metadata, entityType, sameSelect));
+    Assert.assertSame(plan, new ODataJsonSerializer(ContentType.JSON_NO_METADATA).getPlan(metadata, entityType, sameSelect));
+    Assert.assertNotSame(plan,
+        new ODataJsonSerializer(ContentType.JSON_FULL_METADATA).getPlan(metadata, entityType, sameSelect));
+    Assert.assertNotSame(plan, new ODataJsonSerializer(ContentType.JSON).getPlan(metadata, entityType, null));
+    Assert.assertNotSame(plan, new ODataJsonSerializer(ContentType.JSON).getPlan(null, entityType, sameSelect));
+  }
+
+  @Test
+  public void writePropertyOverridable() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final Entity entity = data.readAll(edmEntitySet).getEntities().get(0);
+    final List<String> written = new ArrayList<String>();
+    final ODataJsonSerializer subclass = new ODataJsonSerializer(ContentType.JSON) {
+      @Override
+      protected void writeProperty(final ServiceMetadata metadata, final EdmProperty edmProperty,
+          final Property property, final Set<List<String>> selectedPaths,
+          final JsonGenerator json) throws IOException, SerializerException {
+        written.add(edmProperty.getName());
+        super.writeProperty(metadata, edmProperty, property, selectedPaths, json);
+      }
+    };
+    final String resultString = IOUtils.toString(subclass.entity(metadata, edmEntitySet.getEntityType(), entity,
+        EntitySerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+            .build()).getContent());
+    Assert.assertEquals(edmEntitySet.getEntityType().getPropertyNames(), written);
+    Assert.assertTrue(resultString.contains("\"PropertyInt16\":32767"));
+  }
+
+  @Test
+  public void delta() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    Delta delta = new Delta();
+    Entity entity = new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) 1))
+        .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, "changed"));
+    entity.setId(URI.create("ESTwoPrim(1)"));
+    delta.getEntities().add(entity);
+    DeletedEntity deletedEntity = new DeletedEntity();
+    deletedEntity.setId(URI.create("ESTwoPrim(2)"));
+    deletedEntity.setReason(DeletedEntity.Reason.deleted);
+    delta.getDeletedEntities().add(deletedEntity);
+    DeltaLink link = new DeltaLink();
+    link.setSource(URI.create("ESTwoPrim(1)"));
+    link.setRelationship("NavPropertyETAllPrimMany");
+    link.setTarget(URI.create("ESAllPrim(0)"));
+    delta.getAddedLinks().add(link);
+    delta.getDeletedLinks().add(link);
+    delta.setDeltaLink(URI.create("ESTwoPrim?$deltatoken=2"));
+
+    final String resultString = IOUtils.toString(serializer.delta(metadata, edmEntitySet.getEntityType(), delta,
+        EntityCollectionSerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.DELTA).build())
+            .build()).getContent());
+    Assert.assertEquals("{"
+        + "\"@odata.context\":\"$metadata#ESTwoPrim/$delta\","
+        + "\"@odata.metadataEtag\":\"W/\\\"metadataETag\\\"\","
+        + "\"value\":["
+        + "{\"PropertyInt16\":1,\"PropertyString\":\"changed\"},"
+        + "{\"@odata.context\":\"#ESTwoPrim/$deletedEntity\",\"id\":\"ESTwoPrim(2)\",\"reason\":\"deleted\"},"
+        + "{\"@odata.context\":\"#ESTwoPrim/$link\",\"source\":\"ESTwoPrim(1)\","
+        + "\"relationship\":\"NavPropertyETAllPrimMany\",\"target\":\"ESAllPrim(0)\"},"
+        + "{\"@odata.context\":\"#ESTwoPrim/$deletedLink\",\"source\":\"ESTwoPrim(1)\","
+        + "\"relationship\":\"NavPropertyETAllPrimMany\",\"target\":\"ESAllPrim(0)\"}],"
+        + "\"@odata.deltaLink\":\"ESTwoPrim?$deltatoken=2\"}",
+        resultString);
+  }
+
+  @Test
+  public void entityCollectionPublished() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final EntityCollection entityCollection = data.readAll(edmEntitySet);
+    final EntityPublisher publisher = new EntityPublisher() {
+      @Override
+      public void subscribe(final EntitySubscriber subscriber) {
+        final Iterator<Entity> iterator = entityCollection.iterator();
+        subscriber.onSubscribe(new EntitySubscription() {
+          @Override
+          public void request(final long count) {
+            for (long i = 0; i < count && iterator.hasNext(); i++) {
+              subscriber.onNext(iterator.next());
+            }
+            if (!iterator.hasNext()) {
+              subscriber.onComplete();
+            }
+          }
+
+          @Override
+          public void cancel() {
+            Assert.fail("Unexpected cancel");
+          }
+        });
+      }
+
+      @Override
+      public Integer getCount() {
+        return entityCollection.getEntities().size();
+      }
+    };
+    CountOption countOption = Mockito.mock(CountOption.class);
+    Mockito.when(countOption.getValue()).thenReturn(true);
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+        .count(countOption)
+        .build();
+
+    final ODataContent result = serializer.entityCollectionPublished(
+        metadata, edmEntitySet.getEntityType(), publisher, options).getODataContent();
+    Assert.assertTrue(result instanceof ODataNonBlockingContent);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    result.write(bout);
+
+    entityCollection.setCount(3);
+    final String expected = IOUtils.toString(serializer.entityCollection(
+        metadata, edmEntitySet.getEntityType(), entityCollection, options).getContent());
+    Assert.assertEquals(expected, new String(bout.toByteArray(), "UTF-8"));
+  }
+
   @Test
   public void entityCollectionStreamedWithError() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
@@ -1379,6 +1662,31 @@ public class ODataJsonSerializerTest {
         resultString);
   }
   
+  @Test
+  public void expandLevelsWithNestedExpandNotImplemented() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    final Entity entity = data.readAll(edmEntitySet).getEntities().get(1);
+    ExpandItem expandItemSecond = Mockito.mock(ExpandItem.class);
+    Mockito.when(expandItemSecond.isStar()).thenReturn(true);
+    final ExpandOption expandInner = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItemSecond));
+    ExpandItem expandItemFirst = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETAllPrimMany");
+    LevelsExpandOption levels = Mockito.mock(LevelsExpandOption.class);
+    Mockito.when(levels.getValue()).thenReturn(2);
+    Mockito.when(expandItemFirst.getLevelsOption()).thenReturn(levels);
+    Mockito.when(expandItemFirst.getExpandOption()).thenReturn(expandInner);
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItemFirst));
+    try {
+      serializer.entity(metadata, edmEntitySet.getEntityType(), entity,
+          EntitySerializerOptions.with()
+              .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+              .expand(expand)
+              .build());
+      fail("Expected exception not thrown.");
+    } catch (final SerializerException e) {
+      Assert.assertEquals(SerializerException.MessageKeys.NOT_IMPLEMENTED, e.getMessageKey());
+    }
+  }
+
   @Test
   public void expandStarTwoLevels() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
@@ -39,6 +39,8 @@ import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.PrimitiveIterator;
 import org.apache.olingo.commons.api.data.ValueType;
@@ -2931,6 +2933,81 @@ public class ODataXmlSerializerTest {
     checkXMLEqual(expected, resultString);
   }
   
+  @Test
+  public void expandedEntityIteratorWithCount() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    CountOption countOption = Mockito.mock(CountOption.class);
+    Mockito.when(countOption.getValue()).thenReturn(true);
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETAllPrimMany");
+    Mockito.when(expandItem.getCountOption()).thenReturn(countOption);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(entityContainer.getEntitySet("ESAllPrim"), "PropertyInt16")));
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+    final EntitySerializerOptions options = EntitySerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+        .expand(expand)
+        .build();
+
+    // An iterator without count gets no count element.
+    String resultString = IOUtils.toString(serializer.entity(metadata, entityType,
+        createEntityWithInlineIterator(null), options).getContent());
+    Assert.assertFalse(resultString.contains("m:count"));
+    Assert.assertTrue(resultString.contains("<a:id>ESAllPrim(2)</a:id>"));
+
+    // An iterator with count gets it written.
+    resultString = IOUtils.toString(serializer.entity(metadata, entityType,
+        createEntityWithInlineIterator(42), options).getContent());
+    Assert.assertTrue(resultString.contains("<m:count>42</m:count>"));
+    Assert.assertTrue(resultString.contains("<a:id>ESAllPrim(2)</a:id>"));
+
+    // The same holds for $expand=NavPropertyETAllPrimMany/$count.
+    Mockito.when(expandItem.hasCountPath()).thenReturn(true);
+    resultString = IOUtils.toString(serializer.entity(metadata, entityType,
+        createEntityWithInlineIterator(null), options).getContent());
+    Assert.assertFalse(resultString.contains("m:count"));
+    Assert.assertFalse(resultString.contains("ESAllPrim(1)"));
+    resultString = IOUtils.toString(serializer.entity(metadata, entityType,
+        createEntityWithInlineIterator(42), options).getContent());
+    Assert.assertTrue(resultString.contains("<m:count>42</m:count>"));
+    Assert.assertFalse(resultString.contains("ESAllPrim(1)"));
+  }
+
+  private Entity createEntityWithInlineIterator(final Integer count) {
+    Entity entity = new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) 1))
+        .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, "Parent"));
+    entity.setId(URI.create("ESTwoPrim(1)"));
+    Link link = new Link();
+    link.setTitle("NavPropertyETAllPrimMany");
+    link.setRel(Constants.NS_NAVIGATION_LINK_REL + "NavPropertyETAllPrimMany");
+    link.setType(Constants.ENTITY_SET_NAVIGATION_LINK_TYPE);
+    link.setHref("ESTwoPrim(1)/NavPropertyETAllPrimMany");
+    link.setInlineEntityIterator(new EntityIterator() {
+      private short child = 0;
+
+      @Override
+      public boolean hasNext() {
+        return child < 2;
+      }
+
+      @Override
+      public Entity next() {
+        Entity inner = new Entity().addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, ++child));
+        inner.setId(URI.create("ESAllPrim(" + child + ")"));
+        return inner;
+      }
+
+      @Override
+      public Integer getCount() {
+        return count == null ? super.getCount() : count;
+      }
+    });
+    entity.getNavigationLinks().add(link);
+    return entity;
+  }
+
   private void checkXMLEqual(final String expected, final String resultString) throws SAXException, IOException {
     Diff diff = XMLUnit.compareXML(expected, resultString);
     diff.overrideDifferenceListener(DIFFERENCE_LISTENER);
@@ -27,8 +27,12 @@ import org.apache.olingo.commons.api.edm.EdmEntityContainer;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.EntityIdTemplate;
+import org.apache.olingo.server.api.uri.EntityKey;
 import org.apache.olingo.server.api.uri.UriHelper;
+import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.tecsvc.data.DataProvider;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
 import org.junit.Assert;
@@ -71,6 +75,31 @@ public class UriHelperTest {
         helper.buildCanonicalURL(entitySet, entity));
   }
 
+  @Test
+  public void entityIdTemplate() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESAllKey");
+    final EntityIdTemplate template = helper.getEntityIdTemplate(entitySet);
+    Assert.assertSame(template, helper.getEntityIdTemplate(entitySet));
+    Assert.assertSame(template, OData.newInstance().createUriHelper().getEntityIdTemplate(entitySet));
+    Assert.assertSame(entitySet, template.getEntitySet());
+    for (final Entity entity : data.readAll(entitySet).getEntities()) {
+      Assert.assertEquals(helper.buildCanonicalURL(entitySet, entity), template.buildCanonicalURL(entity));
+      Assert.assertEquals(entity.getId().toASCIIString(), template.buildCanonicalURL(entity));
+    }
+    Assert.assertEquals("ES('x')ESAllKey(",
+        template.appendCanonicalURL(new StringBuilder("ES('x')"), data.readAll(entitySet).getEntities().get(0))
+            .substring(0, 16));
+  }
+
+  @Test
+  public void entityIdTemplateEncoding() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESTwoKeyNav");
+    Entity entity = data.readAll(entitySet).getEntities().get(0);
+    entity.getProperty("PropertyString").setValue(ValueType.PRIMITIVE, "a'b/\u20AC");
+    Assert.assertEquals("ESTwoKeyNav(PropertyInt16=1,PropertyString='a''b%2F%E2%82%AC')",
+        helper.getEntityIdTemplate(entitySet).buildCanonicalURL(entity));
+  }
+
   @Test(expected = SerializerException.class)
   public void canonicalURLWrong() throws Exception {
     final EdmEntitySet entitySet = container.getEntitySet("ESAllPrim");
@@ -78,4 +107,44 @@ public class UriHelperTest {
     entity.getProperty("PropertyInt16").setValue(ValueType.PRIMITIVE, "wrong");
     helper.buildCanonicalURL(entitySet, entity);
   }
+
+  @Test
+  public void keyFromURIEqualsKeyFromEntity() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESAllKey");
+    final Entity entity = data.readAll(entitySet).getEntities().get(0);
+    final EntityKey entityKey = helper.buildKey(entitySet.getEntityType(), entity);
+    final EntityKey uriKey = helper.buildKey(entitySet.getEntityType(),
+        helper.parseEntityId(edm, helper.buildCanonicalURL(entitySet, entity), null).getKeyPredicates());
+    Assert.assertEquals(entityKey, uriKey);
+    Assert.assertEquals(entityKey.hashCode(), uriKey.hashCode());
+    Assert.assertEquals(helper.buildKeyPredicate(entitySet.getEntityType(), entity), uriKey.getKeyPredicate());
+  }
+
+  @Test
+  public void keyIndependentOfLiteralAndOrder() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESTwoKeyNav");
+    final EntityKey key = helper.buildKey(entitySet.getEntityType(),
+        helper.parseEntityId(edm, "ESTwoKeyNav(PropertyString='1',PropertyInt16=01)", null).getKeyPredicates());
+    Assert.assertEquals("PropertyInt16=1,PropertyString='1'", key.getKeyPredicate());
+    Assert.assertEquals(helper.buildKey(entitySet.getEntityType(), data.readAll(entitySet).getEntities().get(0)),
+        key);
+    Assert.assertFalse(key.equals(helper.buildKey(entitySet.getEntityType(),
+        data.readAll(entitySet).getEntities().get(1))));
+  }
+
+  @Test
+  public void keyFromText() throws Exception {
+    final EdmEntitySet entitySet = container.getEntitySet("ESAllPrim");
+    final EntityKey key = helper.buildKey(entitySet.getEntityType(),
+        Collections.<UriParameter> singletonList(new UriParameterImpl().setName("PropertyInt16").setText("32767")));
+    Assert.assertEquals(helper.buildKey(entitySet.getEntityType(), data.readAll(entitySet).getEntities().get(0)),
+        key);
+    Assert.assertEquals("32767", key.getKeyPredicate());
+  }
+
+  @Test(expected = DeserializerException.class)
+  public void keyFromWrongText() throws Exception {
+    helper.buildKey(container.getEntitySet("ESAllPrim").getEntityType(),
+        Collections.<UriParameter> singletonList(new UriParameterImpl().setName("PropertyInt16").setText("'1'")));
+  }
 }
@@ -601,6 +601,16 @@ public class UriParserTest {
         .isExSyntax(UriParserSyntaxException.MessageKeys.WRONG_VALUE_FOR_SYSTEM_QUERY_OPTION);
   }
 
+  @Test
+  public void deltatoken() throws Exception {
+    testUri.run("ESAllPrim", "$deltatoken=foo")
+        .isKind(UriInfoKind.resource)
+        .isDeltaTokenText("foo");
+
+    testUri.runEx("ESAllPrim", "$deltatoken=")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.WRONG_VALUE_FOR_SYSTEM_QUERY_OPTION);
+  }
+
   @Test
   public void notExistingSystemQueryOption() throws Exception {
     testUri.runEx("ESAllPrim", "$wrong=error")
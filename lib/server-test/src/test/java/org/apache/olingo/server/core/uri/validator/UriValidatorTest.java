@@ -89,6 +89,7 @@ public class UriValidatorTest {
   private static final String QO_SKIPTOKEN = "$skiptoken=123";
   private static final String QO_TOP = "$top=1";
   private static final String QO_APPLY = "$apply=identity";
+  private static final String QO_DELTATOKEN = "$deltatoken=123";
 
   private final String[][] urisWithValidSystemQueryOptions = {
       { URI_ALL, QO_FILTER }, { URI_ALL, QO_FORMAT }, { URI_ALL, QO_EXPAND }, { URI_ALL, QO_COUNT },
@@ -110,7 +111,7 @@ public class UriValidatorTest {
       { URI_ENTITY_SET, QO_FILTER }, { URI_ENTITY_SET, QO_FORMAT }, { URI_ENTITY_SET, QO_EXPAND },
       { URI_ENTITY_SET, QO_COUNT }, { URI_ENTITY_SET, QO_ORDERBY }, { URI_ENTITY_SET, QO_SEARCH },
       { URI_ENTITY_SET, QO_SELECT }, { URI_ENTITY_SET, QO_SKIP }, { URI_ENTITY_SET, QO_SKIPTOKEN },
-      { URI_ENTITY_SET, QO_TOP }, { URI_ENTITY_SET, QO_APPLY },
+      { URI_ENTITY_SET, QO_TOP }, { URI_ENTITY_SET, QO_APPLY }, { URI_ENTITY_SET, QO_DELTATOKEN },
 
       { URI_ENTITY_SET_COUNT, QO_FILTER }, { URI_ENTITY_SET_COUNT, QO_SEARCH }, { URI_ENTITY_SET_COUNT, QO_APPLY },
 
@@ -190,6 +191,7 @@ public class UriValidatorTest {
       { URI_SERVICE, QO_SKIP }, { URI_SERVICE, QO_SKIPTOKEN }, { URI_SERVICE, QO_TOP }, { URI_SERVICE, QO_APPLY },
 
       { URI_ENTITY_SET, QO_ID },
+      { URI_ENTITY_SET_COUNT, QO_DELTATOKEN }, { URI_ENTITY, QO_DELTATOKEN },
 
       { URI_ENTITY_SET_COUNT, QO_FORMAT }, { URI_ENTITY_SET_COUNT, QO_ID },
       { URI_ENTITY_SET_COUNT, QO_EXPAND }, { URI_ENTITY_SET_COUNT, QO_COUNT },